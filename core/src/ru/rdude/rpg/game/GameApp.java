@@ -17,9 +17,12 @@ public class GameApp extends ApplicationAdapter {
         Gdx.gl.glClearColor(0, 0, 0, 1);
         Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
         Game.getGameVisual().draw();
+        // between frames game state is not changing so it is safe point for autosave snapshot
+        Game.getGameAutoSaver().update();
     }
 
     @Override
     public void dispose() {
+        Game.getGameAutoSaver().dispose();
     }
 }
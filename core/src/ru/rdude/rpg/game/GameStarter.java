@@ -1,13 +1,10 @@
 package ru.rdude.rpg.game;
 
-import com.badlogic.gdx.Gdx;
-import ru.rdude.rpg.game.logic.data.io.GameMapFileLoader;
+import ru.rdude.rpg.game.logic.data.io.MapLibraryIndex;
 import ru.rdude.rpg.game.logic.game.Game;
 import ru.rdude.rpg.game.logic.gameStates.MainMenuGameState;
 import ru.rdude.rpg.game.ui.MainMenuStage;
 
-import java.util.Arrays;
-
 public final class GameStarter {
 
     private GameStarter() { }
@@ -16,10 +13,8 @@ public final class GameStarter {
         // load modules
         Game.getModuleFileLoader().load();
 
-        // preload map files
-        Arrays.stream(Gdx.files.local("maps").list(".map"))
-                .map(GameMapFileLoader::loadInfo)
-                .forEach(mapInfo -> Game.getMapFiles().put(mapInfo.guid, mapInfo));
+        // preload info of map files. Only new or changed files are read
+        MapLibraryIndex.load().forEach(mapInfo -> Game.getMapFiles().put(mapInfo.guid, mapInfo));
 
         // launch main menu
         Game.setCurrentGame(new Game());
@@ -0,0 +1,56 @@
+package ru.rdude.rpg.game.logic;
+
+import ru.rdude.rpg.game.logic.data.EntityData;
+import ru.rdude.rpg.game.logic.entities.Entity;
+
+import java.io.*;
+
+/**
+ * Writes log records to a stream for analysis outside the game. Every record is written as
+ * sequence (long), event ordinal (byte), guids of subject, other and skill data (long, -1 if there is none),
+ * value (double) and, only for messages, message text (utf).
+ * Stream is buffered and should be closed when logging is finished.
+ */
+public class BinaryLogSink implements GameLogger.Sink, Closeable {
+
+    private static final long NO_GUID = -1L;
+
+    private final DataOutputStream outputStream;
+
+    public BinaryLogSink(OutputStream outputStream) {
+        this.outputStream = new DataOutputStream(new BufferedOutputStream(outputStream));
+    }
+
+    @Override
+    public void write(GameLogger.Record record) {
+        try {
+            outputStream.writeLong(record.getSequence());
+            outputStream.writeByte(record.getEvent().ordinal());
+            outputStream.writeLong(guid(record.getSubject()));
+            outputStream.writeLong(guid(record.getOther()));
+            outputStream.writeLong(guid(record.getSkill()));
+            outputStream.writeDouble(record.getValue());
+            if (record.getEvent() == GameLogger.Event.MESSAGE) {
+                outputStream.writeUTF(record.getMessage());
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        outputStream.close();
+    }
+
+    private long guid(Object object) {
+        EntityData entityData = null;
+        if (object instanceof Entity) {
+            entityData = ((Entity<?>) object).getEntityData();
+        }
+        else if (object instanceof EntityData) {
+            entityData = (EntityData) object;
+        }
+        return entityData != null ? entityData.getGuid() : NO_GUID;
+    }
+}
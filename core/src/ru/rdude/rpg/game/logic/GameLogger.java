@@ -1,116 +1,333 @@
 package ru.rdude.rpg.game.logic;
 
+import ru.rdude.rpg.game.logic.data.EntityData;
 import ru.rdude.rpg.game.logic.data.SkillData;
+import ru.rdude.rpg.game.logic.entities.Entity;
 import ru.rdude.rpg.game.logic.entities.beings.Being;
 import ru.rdude.rpg.game.logic.entities.beings.BeingAction;
 import ru.rdude.rpg.game.logic.entities.skills.Buff;
 import ru.rdude.rpg.game.logic.enums.Target;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 import java.util.function.Consumer;
 
+/**
+ * Keeps last records in a ring buffer. Record holds event, references to entities and value instead of text,
+ * text is created only when {@link Record#format()} is called. Records are reused when buffer is full,
+ * so listeners that need a record later should keep its sequence number and get it with {@link #get(long)}.
+ */
 public class GameLogger {
 
-    // concat messages to one String if limit is exceed
-    private final int messagesLimit = 1000;
+    public enum Category {COMBAT, BUFF, SKILL, SYSTEM}
 
-    private List<String> messages;
-    private Set<Consumer<String>> listeners;
+    public enum Event {
+        SKILL_USED(Category.SKILL),
+        SKILL_USED_ON(Category.SKILL),
+        SKILL_USED_TARGETING(Category.SKILL),
+        DAMAGE_RECEIVE(Category.COMBAT),
+        CRITICAL_RECEIVE(Category.COMBAT),
+        HEAL_RECEIVE(Category.COMBAT),
+        RESIST(Category.COMBAT),
+        PARRY(Category.COMBAT),
+        DODGE(Category.COMBAT),
+        BLOCK(Category.COMBAT),
+        MISS(Category.COMBAT),
+        DIE(Category.COMBAT),
+        BUFF_RECEIVE(Category.BUFF),
+        BUFF_REMOVED(Category.BUFF),
+        MESSAGE(Category.SYSTEM);
+
+        public final Category category;
+
+        Event(Category category) {
+            this.category = category;
+        }
+    }
+
+    // receives every record before it can be reused, for example to write it somewhere
+    public interface Sink {
+        void write(Record record);
+    }
+
+    public static final int DEFAULT_CAPACITY = 1000;
+
+    private final Record[] records;
+    // sequence number of the next record
+    private long nextSequence;
+    private final Set<Category> enabledCategories = EnumSet.allOf(Category.class);
+    // listeners and their categories by the same index, iterated by index to not allocate iterators on every record
+    private final List<Consumer<Record>> listeners = new ArrayList<>();
+    private final List<Set<Category>> listenerCategories = new ArrayList<>();
+    private final List<Sink> sinks = new ArrayList<>();
 
     public GameLogger() {
-        messages = new ArrayList<>(messagesLimit);
-        listeners = new HashSet<>();
+        this(DEFAULT_CAPACITY);
     }
 
-    public void log(Being<?> caster, Being<?> target, SkillData skill) {
-        if (caster == target) {
-            log(caster.getName() + " used " + skill.getName());
+    public GameLogger(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
         }
-        else {
-            log(caster.getName() + " used " + skill.getName() + ". Target is " + target.getName());
+        records = new Record[capacity];
+        for (int i = 0; i < capacity; i++) {
+            records[i] = new Record();
         }
     }
 
+    public void log(Being<?> caster, Being<?> target, SkillData skill) {
+        log(Event.SKILL_USED_ON, caster, target, skill, 0, null);
+    }
+
     public void log(Being<?> caster, SkillData skillData, Target target) {
-        String targetString = target.name()
-                .toLowerCase()
-                .replaceAll("_", " ")
-                .replaceAll(" other", "");
-        log(caster.getName() + " used " + skillData.getName() + ", targeting " + targetString);
+        log(Event.SKILL_USED_TARGETING, caster, target, skillData, 0, null);
     }
 
     public void log(Being<?> caster, SkillData skill) {
-        log(caster.getName() + " used " + skill.getName());
+        log(Event.SKILL_USED, caster, null, skill, 0, null);
     }
 
     public void log(BeingAction beingAction, Being<?> being) {
+        Event event;
         switch (beingAction.action()) {
             case DAMAGE_RECEIVE:
-                log(being.getName() + " received " + (int) beingAction.value() + " damage");
+                event = Event.DAMAGE_RECEIVE;
                 break;
             case RESIST:
-                log(being.getName() + " resisted " + beingAction.withSkill().getName());
+                event = Event.RESIST;
                 break;
             case PARRY:
-                log(being.getName() + " parry " + beingAction.withSkill().getName());
+                event = Event.PARRY;
                 break;
             case DODGE:
-                log(being.getName() + " dodged " + beingAction.withSkill().getName());
+                event = Event.DODGE;
                 break;
             case MISS:
-                log(being.getName() + " missed");
+                event = Event.MISS;
                 break;
             case DIE:
-                log(being.getName() + " died");
+                event = Event.DIE;
                 break;
             case BLOCK:
-                log(being.getName() + " blocked " + beingAction.withSkill().getName());
+                event = Event.BLOCK;
                 break;
             case HEAL_RECEIVE:
-                log(being.getName() + " healed by " + (int) beingAction.value());
+                event = Event.HEAL_RECEIVE;
                 break;
             case CRITICAL_RECEIVE:
-                log(being.getName() + " received  " + (int) beingAction.value() + " critical damage");
+                event = Event.CRITICAL_RECEIVE;
                 break;
+            default:
+                return;
         }
+        log(event, being, beingAction.interactor(), beingAction.withSkill(), beingAction.value(), null);
     }
 
     public void log(Being<?> being, Buff buff, BeingAction beingAction) {
         switch (beingAction.action()) {
             case BUFF_RECEIVE:
-                log(being.getName() + " received buff " + buff.getName() + " from " + beingAction.interactor().getName());
+                log(Event.BUFF_RECEIVE, being, beingAction.interactor(), buff, 0, null);
                 break;
             case BUFF_REMOVED:
-                log("Buff " + buff.getName() + " ended on " + being.getName());
+                log(Event.BUFF_REMOVED, being, null, buff, 0, null);
                 break;
         }
     }
 
     public void log(String message) {
-        messages.add(message);
-        notifyListeners(message);
-        checkLimit();
+        log(Event.MESSAGE, null, null, null, 0, message);
+    }
+
+    private void log(Event event, Object subject, Object other, Object skill, double value, String message) {
+        if (!enabledCategories.contains(event.category)) {
+            return;
+        }
+        Record record = records[(int) (nextSequence % records.length)];
+        record.sequence = nextSequence++;
+        record.event = event;
+        record.subject = subject;
+        record.other = other;
+        record.skill = skill;
+        record.value = value;
+        record.message = message;
+        for (int i = 0; i < sinks.size(); i++) {
+            sinks.get(i).write(record);
+        }
+        for (int i = 0; i < listeners.size(); i++) {
+            if (listenerCategories.get(i).contains(event.category)) {
+                listeners.get(i).accept(record);
+            }
+        }
+    }
+
+    // null if record with this sequence number was not logged or was already replaced
+    public Record get(long sequence) {
+        if (sequence < getFirstSequence() || sequence >= nextSequence) {
+            return null;
+        }
+        return records[(int) (sequence % records.length)];
+    }
+
+    // sequence number of the oldest kept record
+    public long getFirstSequence() {
+        return Math.max(0, nextSequence - records.length);
+    }
+
+    public long getNextSequence() {
+        return nextSequence;
+    }
+
+    public int size() {
+        return (int) (nextSequence - getFirstSequence());
+    }
+
+    public int getCapacity() {
+        return records.length;
+    }
+
+    // records of disabled categories are not kept and not sent to listeners and sinks
+    public void setEnabled(Category category, boolean enabled) {
+        if (enabled) {
+            enabledCategories.add(category);
+        }
+        else {
+            enabledCategories.remove(category);
+        }
+    }
+
+    public boolean isEnabled(Category category) {
+        return enabledCategories.contains(category);
+    }
+
+    public void addListener(Consumer<Record> listener) {
+        addListener(listener, EnumSet.allOf(Category.class));
+    }
+
+    public void addListener(Consumer<Record> listener, Category first, Category... rest) {
+        addListener(listener, EnumSet.of(first, rest));
+    }
+
+    // listener added again receives only new categories
+    private void addListener(Consumer<Record> listener, Set<Category> categories) {
+        int index = listeners.indexOf(listener);
+        if (index >= 0) {
+            listenerCategories.set(index, categories);
+        }
+        else {
+            listeners.add(listener);
+            listenerCategories.add(categories);
+        }
     }
 
-    public void addListener(Consumer<String> listener) {
-        listeners.add(listener);
+    public void removeListener(Consumer<Record> listener) {
+        int index = listeners.indexOf(listener);
+        if (index >= 0) {
+            listeners.remove(index);
+            listenerCategories.remove(index);
+        }
     }
 
-    private void notifyListeners(String message) {
-        listeners.forEach(l -> l.accept(message));
+    public void addSink(Sink sink) {
+        sinks.add(sink);
     }
 
-    private void checkLimit() {
-        if (messages.size() >= messagesLimit) {
-            StringBuilder builder = new StringBuilder();
-            for (String message : messages) {
-                builder.append(message).append("\r\n");
+    public void removeSink(Sink sink) {
+        sinks.remove(sink);
+    }
+
+
+    public static final class Record {
+
+        private long sequence;
+        private Event event;
+        private Object subject;
+        private Object other;
+        private Object skill;
+        private double value;
+        private String message;
+
+        private Record() {
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public Event getEvent() {
+            return event;
+        }
+
+        // being the event happened with
+        public Object getSubject() {
+            return subject;
+        }
+
+        // target, interactor or skill target type
+        public Object getOther() {
+            return other;
+        }
+
+        // skill or buff
+        public Object getSkill() {
+            return skill;
+        }
+
+        public double getValue() {
+            return value;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public String format() {
+            switch (event) {
+                case SKILL_USED:
+                    return name(subject) + " used " + name(skill);
+                case SKILL_USED_ON:
+                    return subject == other
+                            ? name(subject) + " used " + name(skill)
+                            : name(subject) + " used " + name(skill) + ". Target is " + name(other);
+                case SKILL_USED_TARGETING:
+                    String targetString = ((Target) other).name()
+                            .toLowerCase()
+                            .replaceAll("_", " ")
+                            .replaceAll(" other", "");
+                    return name(subject) + " used " + name(skill) + ", targeting " + targetString;
+                case DAMAGE_RECEIVE:
+                    return name(subject) + " received " + (int) value + " damage";
+                case CRITICAL_RECEIVE:
+                    return name(subject) + " received  " + (int) value + " critical damage";
+                case HEAL_RECEIVE:
+                    return name(subject) + " healed by " + (int) value;
+                case RESIST:
+                    return name(subject) + " resisted " + name(skill);
+                case PARRY:
+                    return name(subject) + " parry " + name(skill);
+                case DODGE:
+                    return name(subject) + " dodged " + name(skill);
+                case BLOCK:
+                    return name(subject) + " blocked " + name(skill);
+                case MISS:
+                    return name(subject) + " missed";
+                case DIE:
+                    return name(subject) + " died";
+                case BUFF_RECEIVE:
+                    return name(subject) + " received buff " + name(skill) + " from " + name(other);
+                case BUFF_REMOVED:
+                    return "Buff " + name(skill) + " ended on " + name(subject);
+                default:
+                    return message;
+            }
+        }
+
+        private static String name(Object object) {
+            if (object instanceof Entity) {
+                return ((Entity<?>) object).getName();
+            }
+            if (object instanceof EntityData) {
+                return ((EntityData) object).getName();
             }
-            messages.clear();
-            messages.add(builder.toString());
+            return String.valueOf(object);
         }
     }
 }
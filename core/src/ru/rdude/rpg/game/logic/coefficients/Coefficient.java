@@ -1,59 +1,153 @@
 package ru.rdude.rpg.game.logic.coefficients;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
 public class Coefficient<T extends Enum<T>> {
 
-    private Map<T, Double> coefficients;
+    // values are stored by enum ordinal. Json still sees them as "coefficients" map
+    @JsonIgnore
+    private Class<T> type;
+    @JsonIgnore
+    private double[] values;
+    @JsonIgnore
+    private boolean readOnly;
 
-    private Coefficient() { }
+    private Coefficient() {
+        values = new double[0];
+    }
 
     public Coefficient(Class<T> cl) {
-        coefficients = new HashMap<>();
         if (cl == null || !cl.isEnum()) throw new IllegalArgumentException();
-        for (T value : cl.getEnumConstants()) {
-            coefficients.put(value, 1d);
-        }
+        type = cl;
+        values = new double[cl.getEnumConstants().length];
+        Arrays.fill(values, 1d);
     }
 
     public double getValue(T t) {
-        return coefficients.get(t);
+        return valueAt(t.ordinal());
     }
 
     public double getValue(Set<T> set) {
-        return set.stream()
-                .map(coefficients::get)
-                .reduce(1d, (before, after) -> (before - 1) + (after - 1) + 1);
+        double result = 1d;
+        for (T t : set) {
+            result += valueAt(t.ordinal()) - 1;
+        }
+        return result;
+    }
+
+    private double valueAt(int ordinal) {
+        return ordinal < values.length ? values[ordinal] : 1d;
+    }
+
+    // returns new map every time. Changes to that map will not affect this coefficient
+    public Map<T, Double> getCoefficientsMap() {
+        // type is not known until the first value is set
+        if (type == null) {
+            return new HashMap<>();
+        }
+        Map<T, Double> result = new EnumMap<>(type);
+        T[] constants = type.getEnumConstants();
+        for (int i = 0; i < constants.length; i++) {
+            result.put(constants[i], valueAt(i));
+        }
+        return result;
     }
 
-    public Map<T, Double> getCoefficientsMap() { return coefficients; }
+    @JsonProperty("coefficients")
+    private Map<T, Double> getCoefficientsMapForJson() {
+        return getCoefficientsMap();
+    }
 
     // return last value
     public double set(T t, double value) {
-        return coefficients.put(t, value);
+        checkWritable();
+        ensureCapacity(t);
+        double last = values[t.ordinal()];
+        values[t.ordinal()] = value;
+        return last;
     }
 
+    @JsonProperty("coefficients")
     public void setCoefficientsMap(Map<T, Double> coefficients) {
-        this.coefficients = coefficients;
+        checkWritable();
+        if (type == null && !coefficients.isEmpty()) {
+            type = coefficients.keySet().iterator().next().getDeclaringClass();
+        }
+        if (type != null) {
+            values = new double[type.getEnumConstants().length];
+            Arrays.fill(values, 1d);
+        }
+        coefficients.forEach(this::set);
+    }
+
+    private void ensureCapacity(T t) {
+        if (type == null) {
+            type = t.getDeclaringClass();
+        }
+        if (values.length <= t.ordinal()) {
+            int oldLength = values.length;
+            values = Arrays.copyOf(values, type.getEnumConstants().length);
+            Arrays.fill(values, oldLength, values.length, 1d);
+        }
     }
 
     public void addSumOf(Coefficient<T>... coefficientsInput) {
         for (Coefficient<T> coefficient : coefficientsInput) {
-            coefficient.coefficients.forEach((k, v) -> {
-                double newValue = ((this.coefficients.get(k) - 1) + (v - 1)) + 1;
-                this.coefficients.put(k, newValue);
-            });
+            add(coefficient, 1);
         }
     }
 
     public void removeSumOf(Coefficient<T>... coefficientsInput) {
         for (Coefficient<T> coefficient : coefficientsInput) {
-            coefficient.coefficients.forEach((k, v) -> {
-                double newValue = ((this.coefficients.get(k) - 1) - (v - 1)) + 1;
-                this.coefficients.put(k, newValue);
-            });
+            add(coefficient, -1);
+        }
+    }
+
+    // in place accumulation: this = this + sign * (other - 1)
+    void add(Coefficient<T> other, int sign) {
+        checkWritable();
+        if (other.type == null) return;
+        if (type == null) {
+            type = other.type;
+        }
+        if (values.length < other.values.length) {
+            int oldLength = values.length;
+            values = Arrays.copyOf(values, other.values.length);
+            Arrays.fill(values, oldLength, values.length, 1d);
+        }
+        final double[] otherValues = other.values;
+        for (int i = 0; i < otherValues.length; i++) {
+            values[i] += sign * (otherValues[i] - 1);
+        }
+    }
+
+    // resets every value to neutral 1 without allocation
+    void reset() {
+        checkWritable();
+        Arrays.fill(values, 1d);
+    }
+
+    void setReadOnly() {
+        readOnly = true;
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Coefficient is read only");
+        }
+    }
+
+    boolean containsZero() {
+        for (double value : values) {
+            if (value == 0.0) return true;
         }
+        return false;
     }
 }
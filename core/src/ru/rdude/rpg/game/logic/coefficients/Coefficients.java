@@ -21,43 +21,61 @@ public class Coefficients {
 
     public void addSumOf(Coefficients... coefficients) {
         for (Coefficients c : coefficients) {
-            this.atk.attackType.addSumOf(c.atk.attackType);
-            this.def.attackType.addSumOf(c.def.attackType);
-            this.atk.beingType.addSumOf(c.atk.beingType);
-            this.def.beingType.addSumOf(c.def.beingType);
-            this.atk.element.addSumOf(c.atk.element);
-            this.def.element.addSumOf(c.def.element);
-            this.atk.size.addSumOf(c.atk.size);
-            this.def.size.addSumOf(c.def.size);
+            add(c, 1);
         }
     }
     
     public void removeSumOf(Coefficients... coefficients) {
         for (Coefficients c : coefficients) {
-            this.atk.attackType.removeSumOf(c.atk.attackType);
-            this.def.attackType.removeSumOf(c.def.attackType);
-            this.atk.beingType.removeSumOf(c.atk.beingType);
-            this.def.beingType.removeSumOf(c.def.beingType);
-            this.atk.element.removeSumOf(c.atk.element);
-            this.def.element.removeSumOf(c.def.element);
-            this.atk.size.removeSumOf(c.atk.size);
-            this.def.size.removeSumOf(c.def.size);
+            add(c, -1);
         }
     }
 
     public boolean isEmpty() {
-        return
-                atk.attackType.getCoefficientsMap().values().stream().noneMatch(d -> d == 0.0)
-                && def.attackType.getCoefficientsMap().values().stream().noneMatch(d -> d == 0.0)
-                && atk.beingType.getCoefficientsMap().values().stream().noneMatch(d -> d == 0.0)
-                && def.beingType.getCoefficientsMap().values().stream().noneMatch(d -> d == 0.0)
-                && atk.element.getCoefficientsMap().values().stream().noneMatch(d -> d == 0.0)
-                && def.element.getCoefficientsMap().values().stream().noneMatch(d -> d == 0.0)
-                && atk.size.getCoefficientsMap().values().stream().noneMatch(d -> d == 0.0)
-                && def.size.getCoefficientsMap().values().stream().noneMatch(d -> d == 0.0);
+        return !atk.attackType.containsZero()
+                && !def.attackType.containsZero()
+                && !atk.beingType.containsZero()
+                && !def.beingType.containsZero()
+                && !atk.element.containsZero()
+                && !def.element.containsZero()
+                && !atk.size.containsZero()
+                && !def.size.containsZero();
+    }
+
+    // writes sum of given coefficients into this instance without creating new objects.
+    // Used with reusable buffer instances in hot paths like damage calculation
+    public Coefficients setSumOf(Coefficients first, Coefficients second) {
+        reset();
+        if (first != null) {
+            add(first, 1);
+        }
+        if (second != null) {
+            add(second, 1);
+        }
+        return this;
+    }
 
+    public void reset() {
+        atk.attackType.reset();
+        def.attackType.reset();
+        atk.beingType.reset();
+        def.beingType.reset();
+        atk.element.reset();
+        def.element.reset();
+        atk.size.reset();
+        def.size.reset();
     }
 
+    private void add(Coefficients c, int sign) {
+        this.atk.attackType.add(c.atk.attackType, sign);
+        this.def.attackType.add(c.def.attackType, sign);
+        this.atk.beingType.add(c.atk.beingType, sign);
+        this.def.beingType.add(c.def.beingType, sign);
+        this.atk.element.add(c.atk.element, sign);
+        this.def.element.add(c.def.element, sign);
+        this.atk.size.add(c.atk.size, sign);
+        this.def.size.add(c.def.size, sign);
+    }
 
     public static Coefficients getSumOf(Coefficients... coefficients) {
         Coefficients result = new Coefficients();
@@ -65,6 +83,18 @@ public class Coefficients {
         return result;
     }
 
+    // copy that throws UnsupportedOperationException on any change, so it can be shared
+    public Coefficients readOnlyCopy() {
+        Coefficients result = getSumOf(this);
+        for (CoefficientsContainer container : new CoefficientsContainer[]{result.atk, result.def}) {
+            container.attackType.setReadOnly();
+            container.beingType.setReadOnly();
+            container.element.setReadOnly();
+            container.size.setReadOnly();
+        }
+        return result;
+    }
+
 
     public static class CoefficientsContainer {
         private Coefficient<AttackType> attackType;
@@ -6,6 +6,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.stream.Stream;
 
 @JsonPolymorphicSubType("abilityData")
@@ -23,6 +24,13 @@ public final class AbilityData extends EntityData {
         super(guid);
     }
 
+    @Override
+    public void forEachEntityDependency(BiConsumer<String, Long> consumer) {
+        requirements.keySet().forEach(guid -> consumer.accept("requirements", guid));
+        buffs.forEach(guid -> consumer.accept("buffs", guid));
+        skills.forEach(guid -> consumer.accept("skills", guid));
+    }
+
     @Override
     public boolean hasEntityDependency(long guid) {
         return Stream.of(requirements.keySet(), buffs, skills)
@@ -0,0 +1,226 @@
+package ru.rdude.rpg.game.logic.data;
+
+import java.util.*;
+import java.util.function.LongPredicate;
+
+/**
+ * Reverse index of references between entities of a module: for every referenced guid there are
+ * entities and fields referring to it. Index is built once and then updated for every added, removed or
+ * changed entity, so dependency questions are answered without walking all entities of the module.
+ * Indexed entities report changes of their references themselves: setters of referencing fields update the index
+ * and getters of these fields return unmodifiable views.
+ */
+public class DependencyIndex {
+
+    private final Map<Long, Set<Reference>> referencesTo = new HashMap<>();
+    private final Map<EntityData, List<Reference>> referencesFrom = new IdentityHashMap<>();
+    // entities of the module by guid
+    private final Map<Long, EntityData> entities = new HashMap<>();
+
+    public DependencyIndex(Collection<? extends EntityData> entities) {
+        entities.forEach(this::add);
+    }
+
+    public void add(EntityData entityData) {
+        entities.put(entityData.getGuid(), entityData);
+        entityData.setIndexedBy(this);
+        List<Reference> references = new ArrayList<>();
+        entityData.forEachEntityDependency((field, guid) -> {
+            Reference reference = new Reference(entityData, field, guid);
+            if (referencesTo.computeIfAbsent(guid, key -> new LinkedHashSet<>()).add(reference)) {
+                references.add(reference);
+            }
+        });
+        referencesFrom.put(entityData, references);
+    }
+
+    public void remove(EntityData entityData) {
+        List<Reference> references = referencesFrom.remove(entityData);
+        if (references != null) {
+            for (Reference reference : references) {
+                Set<Reference> set = referencesTo.get(reference.guid);
+                set.remove(reference);
+                if (set.isEmpty()) {
+                    referencesTo.remove(reference.guid);
+                }
+            }
+        }
+        entities.remove(entityData.getGuid(), entityData);
+        if (entityData.isIndexedBy(this)) {
+            entityData.setIndexedBy(null);
+        }
+    }
+
+    // should be called after references of entity were changed
+    public void update(EntityData entityData) {
+        remove(entityData);
+        add(entityData);
+    }
+
+    public boolean hasDependency(long guid) {
+        return referencesTo.containsKey(guid);
+    }
+
+    public Collection<Reference> getReferencesTo(long guid) {
+        Set<Reference> references = referencesTo.get(guid);
+        return references == null ? Collections.emptySet() : Collections.unmodifiableSet(references);
+    }
+
+    public Set<EntityData> getDependentEntities(long guid) {
+        Set<EntityData> result = Collections.newSetFromMap(new IdentityHashMap<>());
+        getReferencesTo(guid).forEach(reference -> result.add(reference.entity));
+        return result;
+    }
+
+    public void replace(long oldValue, long newValue) {
+        replace(Map.of(oldValue, newValue));
+    }
+
+    /**
+     * Every entity referring to any of replaced guids is changed once with all replacements.
+     * New guids can not be replaced in the same batch, otherwise result would depend on order.
+     */
+    public void replace(Map<Long, Long> replacements) {
+        for (Map.Entry<Long, Long> entry : replacements.entrySet()) {
+            if (!entry.getKey().equals(entry.getValue()) && replacements.containsKey(entry.getValue())) {
+                throw new IllegalArgumentException("Guid " + entry.getValue() + " is replaced and also used as replacement");
+            }
+        }
+        Map<EntityData, Set<Long>> changed = new IdentityHashMap<>();
+        replacements.forEach((oldValue, newValue) -> {
+            if (!oldValue.equals(newValue)) {
+                getReferencesTo(oldValue).forEach(reference -> changed.computeIfAbsent(reference.entity, key -> new HashSet<>()).add(oldValue));
+            }
+        });
+        // entity updates this index after every replacement
+        changed.forEach((entityData, oldValues) ->
+                oldValues.forEach(oldValue -> entityData.replaceEntityDependency(oldValue, replacements.get(oldValue))));
+    }
+
+    // references to guids that are neither entities of the module nor known to the predicate (for example entities of other modules)
+    public List<Reference> getDanglingReferences(LongPredicate isKnown) {
+        List<Reference> result = new ArrayList<>();
+        referencesTo.forEach((guid, references) -> {
+            if (!entities.containsKey(guid) && !isKnown.test(guid)) {
+                result.addAll(references);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Groups of module entities referring to each other in a cycle, for example skills casting each other.
+     * Entity referring to itself is a group of one entity.
+     */
+    public List<Set<EntityData>> getCycles() {
+        List<Set<EntityData>> result = new ArrayList<>();
+        // iterative Tarjan's algorithm of strongly connected components
+        Map<EntityData, Integer> indexes = new IdentityHashMap<>();
+        Map<EntityData, Integer> lowLinks = new IdentityHashMap<>();
+        Set<EntityData> onStack = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<EntityData> stack = new ArrayDeque<>();
+        Deque<Iterator<EntityData>> iterators = new ArrayDeque<>();
+        Deque<EntityData> path = new ArrayDeque<>();
+        int index = 0;
+        for (EntityData start : referencesFrom.keySet()) {
+            if (indexes.containsKey(start)) {
+                continue;
+            }
+            indexes.put(start, index);
+            lowLinks.put(start, index++);
+            stack.push(start);
+            onStack.add(start);
+            path.push(start);
+            iterators.push(referred(start).iterator());
+            while (!path.isEmpty()) {
+                EntityData current = path.peek();
+                Iterator<EntityData> iterator = iterators.peek();
+                if (iterator.hasNext()) {
+                    EntityData next = iterator.next();
+                    if (!indexes.containsKey(next)) {
+                        indexes.put(next, index);
+                        lowLinks.put(next, index++);
+                        stack.push(next);
+                        onStack.add(next);
+                        path.push(next);
+                        iterators.push(referred(next).iterator());
+                    }
+                    else if (onStack.contains(next)) {
+                        lowLinks.put(current, Math.min(lowLinks.get(current), indexes.get(next)));
+                    }
+                    continue;
+                }
+                path.pop();
+                iterators.pop();
+                if (!path.isEmpty()) {
+                    EntityData parent = path.peek();
+                    lowLinks.put(parent, Math.min(lowLinks.get(parent), lowLinks.get(current)));
+                }
+                if (lowLinks.get(current).equals(indexes.get(current))) {
+                    Set<EntityData> component = Collections.newSetFromMap(new IdentityHashMap<>());
+                    EntityData member;
+                    do {
+                        member = stack.pop();
+                        onStack.remove(member);
+                        component.add(member);
+                    } while (member != current);
+                    if (component.size() > 1 || referred(current).contains(current)) {
+                        result.add(component);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    // module entities this entity refers to
+    private List<EntityData> referred(EntityData entityData) {
+        List<EntityData> result = new ArrayList<>();
+        for (Reference reference : referencesFrom.getOrDefault(entityData, Collections.emptyList())) {
+            EntityData referred = entities.get(reference.guid);
+            if (referred != null && referencesFrom.containsKey(referred)) {
+                result.add(referred);
+            }
+        }
+        return result;
+    }
+
+
+    public static final class Reference {
+
+        private final EntityData entity;
+        private final String field;
+        private final long guid;
+
+        private Reference(EntityData entity, String field, long guid) {
+            this.entity = entity;
+            this.field = field;
+            this.guid = guid;
+        }
+
+        public EntityData getEntity() {
+            return entity;
+        }
+
+        public String getField() {
+            return field;
+        }
+
+        public long getGuid() {
+            return guid;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Reference reference = (Reference) o;
+            return entity == reference.entity && guid == reference.guid && field.equals(reference.field);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(entity), field, guid);
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package ru.rdude.rpg.game.logic.data;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import ru.rdude.rpg.game.logic.data.resources.Resources;
 import ru.rdude.rpg.game.logic.enums.EntityReferenceInfo;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.function.BiConsumer;
 
 
 public abstract class EntityData {
@@ -21,6 +23,10 @@ public abstract class EntityData {
     // if true this entity will not be used as entity. Instead it accumulate entities that correspond to this entity fields
     private boolean describer;
 
+    // index of references of the module this entity belongs to
+    @JsonIgnore
+    private DependencyIndex dependencyIndex;
+
     EntityData() {
     }
 
@@ -119,6 +125,25 @@ public abstract class EntityData {
         removeModuleDependency(entityData.getGuid());
     }
 
+    // called by index when entity is added to it or removed from it
+    void setIndexedBy(DependencyIndex dependencyIndex) {
+        this.dependencyIndex = dependencyIndex;
+    }
+
+    boolean isIndexedBy(DependencyIndex dependencyIndex) {
+        return this.dependencyIndex == dependencyIndex;
+    }
+
+    // should be called after references to other entities were changed, so index of the module stays up to date
+    protected void entityDependenciesChanged() {
+        if (dependencyIndex != null) {
+            dependencyIndex.update(this);
+        }
+    }
+
+    // field name and guid of every entity this entity refers to
+    public abstract void forEachEntityDependency(BiConsumer<String, Long> consumer);
+
     public abstract boolean hasEntityDependency(long guid);
 
     public abstract void replaceEntityDependency(long oldValue, long newValue);
@@ -0,0 +1,110 @@
+package ru.rdude.rpg.game.logic.data;
+
+import ru.rdude.rpg.game.utils.ImmutableLongMap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stored entities of one type by guid. Readers get immutable snapshots without locks.
+ * Every change builds a new snapshot and replaces the current one, so readers on other threads
+ * see either old or new version but never a partially changed one.
+ * Entities stored as part of a module are also available as a separate view of that module.
+ * Single entities stored from data constructors are collected and added with one snapshot on the next read or change,
+ * so loading n entities does not copy the table n times.
+ */
+public final class EntityRegistry<T extends EntityData> {
+
+    private volatile ImmutableLongMap<T> entities = ImmutableLongMap.empty();
+    private volatile ImmutableLongMap<ImmutableLongMap<T>> modules = ImmutableLongMap.empty();
+    // guarded by this
+    private final List<T> pending = new ArrayList<>();
+    private volatile boolean hasPending;
+
+    public T get(long guid) {
+        return getAll().get(guid);
+    }
+
+    public ImmutableLongMap<T> getAll() {
+        if (hasPending) {
+            flush();
+        }
+        return entities;
+    }
+
+    // empty if there is no module with this guid
+    public ImmutableLongMap<T> getModule(long moduleGuid) {
+        ImmutableLongMap<T> module = modules.get(moduleGuid);
+        return module != null ? module : ImmutableLongMap.empty();
+    }
+
+    public synchronized void store(T entity) {
+        pending.add(entity);
+        hasPending = true;
+    }
+
+    public synchronized void store(Collection<T> collection) {
+        flush();
+        entities = put(entities, collection);
+    }
+
+    public synchronized void store(long moduleGuid, Collection<T> collection) {
+        flush();
+        entities = put(entities, collection);
+        modules = modules.toBuilder().put(moduleGuid, put(getModule(moduleGuid), collection)).build();
+    }
+
+    public synchronized void remove(Collection<T> collection) {
+        flush();
+        entities = remove(entities, collection);
+        ImmutableLongMap.Builder<ImmutableLongMap<T>> builder = modules.toBuilder();
+        modules.forEach((moduleGuid, module) -> builder.put(moduleGuid, remove(module, collection)));
+        modules = builder.build();
+    }
+
+    public synchronized void removeModule(long moduleGuid) {
+        flush();
+        ImmutableLongMap<T> module = modules.get(moduleGuid);
+        if (module != null) {
+            entities = remove(entities, module.values());
+            modules = modules.toBuilder().remove(moduleGuid).build();
+        }
+    }
+
+    public synchronized void replaceAll(Map<Long, T> map) {
+        pending.clear();
+        hasPending = false;
+        ImmutableLongMap.Builder<T> builder = new ImmutableLongMap.Builder<>(map.size());
+        map.forEach(builder::put);
+        entities = builder.build();
+        modules = ImmutableLongMap.empty();
+    }
+
+    // adds collected single entities in the order they were stored
+    private synchronized void flush() {
+        if (!pending.isEmpty()) {
+            entities = put(entities, pending);
+            pending.clear();
+        }
+        hasPending = false;
+    }
+
+    private ImmutableLongMap<T> put(ImmutableLongMap<T> map, Collection<T> collection) {
+        ImmutableLongMap.Builder<T> builder = map.toBuilder();
+        collection.forEach(entity -> builder.put(entity.getGuid(), entity));
+        return builder.build();
+    }
+
+    // only the same objects are removed, entity with the same guid stored later stays
+    private ImmutableLongMap<T> remove(ImmutableLongMap<T> map, Collection<T> collection) {
+        ImmutableLongMap.Builder<T> builder = map.toBuilder();
+        collection.forEach(entity -> {
+            if (map.get(entity.getGuid()) == entity) {
+                builder.remove(entity.getGuid());
+            }
+        });
+        return builder.build();
+    }
+}
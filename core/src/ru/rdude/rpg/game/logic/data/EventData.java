@@ -1,5 +1,6 @@
 package ru.rdude.rpg.game.logic.data;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import ru.rdude.rpg.game.logic.data.resources.EventResources;
 import ru.rdude.rpg.game.logic.enums.Biom;
 import ru.rdude.rpg.game.logic.enums.EventActionTarget;
@@ -8,57 +9,112 @@ import ru.rdude.rpg.game.logic.stats.Stats;
 import ru.rdude.rpg.game.utils.jsonextension.JsonPolymorphicSubType;
 
 import java.util.*;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 @JsonPolymorphicSubType("eventData")
 public class EventData extends EntityData {
 
-    public static Map<Long, EventData> events = new HashMap<>();
+    private static final EntityRegistry<EventData> events = new EntityRegistry<>();
+    private static final EventSpawnTable spawnTable = new EventSpawnTable();
 
     public static final EventAction END_EVENT = new EventAction();
 
 
     public Set<EventAction> actions = new HashSet<>();
-    public Set<Biom> bioms = Arrays.stream(Biom.values()).collect(Collectors.toSet());
-    public Set<Relief> reliefs = Arrays.stream(Relief.values()).collect(Collectors.toSet());
-    public double minLvl = 0d;
-    public double maxLvl = Double.POSITIVE_INFINITY;
+    // spawn parameters are changed only with setters, so spawn table is updated with them
+    private Set<Biom> bioms = Arrays.stream(Biom.values()).collect(Collectors.toSet());
+    private Set<Relief> reliefs = Arrays.stream(Relief.values()).collect(Collectors.toSet());
+    private double minLvl = 0d;
+    private double maxLvl = Double.POSITIVE_INFINITY;
 
     private EventData() { }
 
     public EventData(long guid) {
         super(guid);
         setResources(new EventResources());
-        events.put(guid, this);
+        events.store(this);
+        spawnTable.add(this);
+    }
+
+    public static EventData getEventByGuid(long guid) {
+        return events.get(guid);
+    }
+
+    // immutable snapshot
+    public static Map<Long, EventData> getEvents() {
+        return events.getAll();
+    }
+
+    public static EntityRegistry<EventData> getRegistry() {
+        return events;
     }
 
     public static void storeEvents(Collection<EventData> collection) {
-        collection.forEach(eventData -> events.put(eventData.getGuid(), eventData));
+        events.store(collection);
+        collection.forEach(spawnTable::add);
+    }
+
+    public static void storeEvents(long moduleGuid, Collection<EventData> collection) {
+        events.store(moduleGuid, collection);
+        collection.forEach(spawnTable::add);
+    }
+
+    public static void removeEvents(Collection<EventData> collection) {
+        events.remove(collection);
+        collection.forEach(spawnTable::remove);
+    }
+
+    public static void removeModuleEvents(long moduleGuid) {
+        Collection<EventData> removed = events.getModule(moduleGuid).values();
+        events.removeModule(moduleGuid);
+        removed.forEach(spawnTable::remove);
+    }
+
+    // not describer events that can happen on cell with given biom, relief and level
+    public static List<EventData> getEvents(Biom biom, Relief relief, int lvl) {
+        return spawnTable.get(biom, relief, lvl);
+    }
+
+    // null if there are no such events
+    public static EventData getRandomEvent(Biom biom, Relief relief, int lvl) {
+        return spawnTable.random(biom, relief, lvl);
     }
 
     public Set<EventAction> getActions() {
-        return actions;
+        return actions != null ? Collections.unmodifiableSet(actions) : null;
     }
 
     public void setActions(Set<EventAction> actions) {
         this.actions = actions;
+        actions.forEach(action -> action.event = this);
+        entityDependenciesChanged();
+    }
+
+    // actions report changes of their references to this event
+    @Override
+    void setIndexedBy(DependencyIndex dependencyIndex) {
+        super.setIndexedBy(dependencyIndex);
+        actions.forEach(action -> action.event = this);
     }
 
     public Set<Biom> getBioms() {
-        return bioms;
+        return Collections.unmodifiableSet(bioms);
     }
 
     public void setBioms(Set<Biom> bioms) {
         this.bioms = bioms;
+        spawnTable.update(this);
     }
 
     public Set<Relief> getReliefs() {
-        return reliefs;
+        return Collections.unmodifiableSet(reliefs);
     }
 
     public void setReliefs(Set<Relief> reliefs) {
         this.reliefs = reliefs;
+        spawnTable.update(this);
     }
 
     public double getMinLvl() {
@@ -67,6 +123,7 @@ public class EventData extends EntityData {
 
     public void setMinLvl(double minLvl) {
         this.minLvl = minLvl;
+        spawnTable.update(this);
     }
 
     public double getMaxLvl() {
@@ -75,6 +132,17 @@ public class EventData extends EntityData {
 
     public void setMaxLvl(double maxLvl) {
         this.maxLvl = maxLvl;
+        spawnTable.update(this);
+    }
+
+    @Override
+    public void forEachEntityDependency(BiConsumer<String, Long> consumer) {
+        for (EventAction action : actions) {
+            action.skillsCouldCast.keySet().forEach(guid -> consumer.accept("skillsCouldCast", guid));
+            action.skillsMustCast.keySet().forEach(guid -> consumer.accept("skillsMustCast", guid));
+            action.summon.keySet().forEach(guid -> consumer.accept("summon", guid));
+            action.receiveItems.keySet().forEach(guid -> consumer.accept("receiveItems", guid));
+        }
     }
 
     @Override
@@ -111,6 +179,7 @@ public class EventData extends EntityData {
                 action.receiveItems.remove(oldValue);
             }
         }
+        entityDependenciesChanged();
     }
 
     public static class EventAction {
@@ -123,6 +192,9 @@ public class EventData extends EntityData {
         private Requirements requirements = new Requirements();
         private Map<Long, Float> summon; // by guid
         private Map<Long, Integer> receiveItems; // by guid
+        // event with this action
+        @JsonIgnore
+        private EventData event;
 
         public EventActionTarget getTarget() {
             return target;
@@ -133,19 +205,21 @@ public class EventData extends EntityData {
         }
 
         public Map<Long, Float> getSkillsCouldCast() {
-            return skillsCouldCast;
+            return skillsCouldCast != null ? Collections.unmodifiableMap(skillsCouldCast) : null;
         }
 
         public void setSkillsCouldCast(Map<Long, Float> skillsCouldCast) {
             this.skillsCouldCast = skillsCouldCast;
+            dependenciesChanged();
         }
 
         public Map<Long, Float> getSkillsMustCast() {
-            return skillsMustCast;
+            return skillsMustCast != null ? Collections.unmodifiableMap(skillsMustCast) : null;
         }
 
         public void setSkillsMustCast(Map<Long, Float> skillsMustCast) {
             this.skillsMustCast = skillsMustCast;
+            dependenciesChanged();
         }
 
         public Set<Long> getStartQuest() {
@@ -173,19 +247,27 @@ public class EventData extends EntityData {
         }
 
         public Map<Long, Float> getSummon() {
-            return summon;
+            return summon != null ? Collections.unmodifiableMap(summon) : null;
         }
 
         public void setSummon(Map<Long, Float> summon) {
             this.summon = summon;
+            dependenciesChanged();
         }
 
         public Map<Long, Integer> getReceiveItems() {
-            return receiveItems;
+            return receiveItems != null ? Collections.unmodifiableMap(receiveItems) : null;
         }
 
         public void setReceiveItems(Map<Long, Integer> receiveItems) {
             this.receiveItems = receiveItems;
+            dependenciesChanged();
+        }
+
+        private void dependenciesChanged() {
+            if (event != null) {
+                event.entityDependenciesChanged();
+            }
         }
 
         public static class Requirements {
@@ -0,0 +1,91 @@
+package ru.rdude.rpg.game.logic.data;
+
+import ru.rdude.rpg.game.logic.enums.Biom;
+import ru.rdude.rpg.game.logic.enums.Relief;
+import ru.rdude.rpg.game.utils.Functions;
+
+import java.util.*;
+
+/**
+ * Events by biom, relief and level range of the cell.
+ */
+final class EventSpawnTable extends SpawnTable<EventData, EventSpawnTable.Sampler> {
+
+    List<EventData> get(Biom biom, Relief relief, int lvl) {
+        return Collections.unmodifiableList(Arrays.asList(sampler(biom, relief).get(lvl)));
+    }
+
+    EventData random(Biom biom, Relief relief, int lvl) {
+        EventData[] events = sampler(biom, relief).get(lvl);
+        return events.length > 0 ? events[Functions.random(events.length)] : null;
+    }
+
+    @Override
+    Set<Biom> bioms(EventData data) {
+        return data.getBioms();
+    }
+
+    @Override
+    Set<Relief> reliefs(EventData data) {
+        return data.getReliefs();
+    }
+
+    @Override
+    Sampler createSampler(List<EventData> spawning) {
+        return new Sampler(spawning);
+    }
+
+    /**
+     * Levels are divided into segments by min and max levels of events, so every level of a segment
+     * has the same events. Events of every segment are kept in array.
+     */
+    static final class Sampler {
+
+        // first level of every segment, ascending
+        private final int[] segmentStart;
+        private final EventData[][] segmentEvents;
+
+        private Sampler(List<EventData> spawning) {
+            TreeSet<Integer> bounds = new TreeSet<>();
+            bounds.add(Integer.MIN_VALUE);
+            for (EventData event : spawning) {
+                bounds.add(from(event));
+                if (to(event) != Integer.MAX_VALUE) {
+                    bounds.add(to(event) + 1);
+                }
+            }
+            segmentStart = bounds.stream().mapToInt(Integer::intValue).toArray();
+            List<List<EventData>> segments = new ArrayList<>(segmentStart.length);
+            for (int i = 0; i < segmentStart.length; i++) {
+                segments.add(new ArrayList<>());
+            }
+            for (EventData event : spawning) {
+                int to = to(event);
+                for (int i = Arrays.binarySearch(segmentStart, from(event)); i < segmentStart.length && segmentStart[i] <= to; i++) {
+                    segments.get(i).add(event);
+                }
+            }
+            segmentEvents = segments.stream()
+                    .map(events -> events.toArray(new EventData[0]))
+                    .toArray(EventData[][]::new);
+        }
+
+        private EventData[] get(int lvl) {
+            int index = Arrays.binarySearch(segmentStart, lvl);
+            // not a segment start, insertion point - 1 is the segment that contains level
+            if (index < 0) {
+                index = -index - 2;
+            }
+            return segmentEvents[index];
+        }
+
+        // cell levels are integer, so event fits levels from ceil(minLvl) to floor(maxLvl)
+        private static int from(EventData event) {
+            return (int) Math.max(Integer.MIN_VALUE + 1, Math.ceil(event.getMinLvl()));
+        }
+
+        private static int to(EventData event) {
+            return (int) Math.min(Integer.MAX_VALUE, Math.floor(event.getMaxLvl()));
+        }
+    }
+}
@@ -5,18 +5,23 @@ import ru.rdude.rpg.game.logic.coefficients.Coefficients;
 import ru.rdude.rpg.game.logic.data.resources.ItemResources;
 import ru.rdude.rpg.game.logic.enums.*;
 import ru.rdude.rpg.game.logic.stats.Stats;
-import ru.rdude.rpg.game.utils.Functions;
 import ru.rdude.rpg.game.utils.jsonextension.JsonPolymorphicSubType;
 
 import java.util.*;
+import java.util.function.BiConsumer;
 import java.util.stream.Collector;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 @JsonPolymorphicSubType("itemData")
 public class ItemData extends EntityData {
 
-    private static Map<Long, ItemData> items = new HashMap<>();
+    private static final EntityRegistry<ItemData> items = new EntityRegistry<>();
+    // index is changed with stored items. Items stored one by one and items with changed indexed parameters
+    // are collected and indexed on the next query
+    private static volatile ItemIndex index = ItemIndex.EMPTY;
+    // guarded by ItemData.class
+    private static final List<ItemData> pendingIndex = new ArrayList<>();
+    private static volatile boolean hasPendingIndex;
 
     private ItemType itemType;
     private ItemMainType itemMainType;
@@ -38,7 +43,8 @@ public class ItemData extends EntityData {
     public ItemData(long guid) {
         super(guid);
         setResources(new ItemResources());
-        items.put(guid, this);
+        items.store(this);
+        reindex(this);
     }
 
     public static ListOfItemsWithParametersBuilder getItemsWith() {
@@ -49,16 +55,79 @@ public class ItemData extends EntityData {
         return items.get(guid);
     }
 
-    public static void storeItems(Collection<ItemData> collection) {
-        collection.forEach(itemData -> items.put(itemData.getGuid(), itemData));
+    public static synchronized void storeItems(Collection<ItemData> collection) {
+        ItemIndex current = index();
+        items.store(collection);
+        index = current.changed(Collections.emptyList(), collection);
     }
 
+    public static synchronized void storeItems(long moduleGuid, Collection<ItemData> collection) {
+        ItemIndex current = index();
+        items.store(moduleGuid, collection);
+        index = current.changed(Collections.emptyList(), collection);
+    }
+
+    public static synchronized void removeItems(Collection<ItemData> collection) {
+        ItemIndex current = index();
+        items.remove(collection);
+        index = current.changed(collection, Collections.emptyList());
+    }
+
+    public static synchronized void removeModuleItems(long moduleGuid) {
+        ItemIndex current = index();
+        Collection<ItemData> module = items.getModule(moduleGuid).values();
+        items.removeModule(moduleGuid);
+        index = current.changed(module, Collections.emptyList());
+    }
+
+    // immutable snapshot
     public static Map<Long, ItemData> getItems() {
+        return items.getAll();
+    }
+
+    public static EntityRegistry<ItemData> getRegistry() {
         return items;
     }
 
-    public static void setItems(Map<Long, ItemData> items) {
-        ItemData.items = items;
+    public static synchronized void setItems(Map<Long, ItemData> items) {
+        ItemData.items.replaceAll(items);
+        pendingIndex.clear();
+        hasPendingIndex = false;
+        index = ItemIndex.of(ItemData.items.getAll().values());
+    }
+
+    private static ItemIndex index() {
+        if (hasPendingIndex) {
+            synchronized (ItemData.class) {
+                if (!pendingIndex.isEmpty()) {
+                    // only stored items are indexed again
+                    List<ItemData> changed = new ArrayList<>(pendingIndex.size());
+                    for (ItemData itemData : pendingIndex) {
+                        if (items.get(itemData.getGuid()) == itemData) {
+                            changed.add(itemData);
+                        }
+                    }
+                    pendingIndex.clear();
+                    index = index.changed(changed, changed);
+                }
+                hasPendingIndex = false;
+            }
+        }
+        return index;
+    }
+
+    private void indexChanged() {
+        if (index.contains(this)) {
+            reindex(this);
+        }
+    }
+
+    // stored item is indexed again on the next query
+    private static void reindex(ItemData itemData) {
+        synchronized (ItemData.class) {
+            pendingIndex.add(itemData);
+            hasPendingIndex = true;
+        }
     }
 
     public WeaponData getWeaponData() {
@@ -67,6 +136,7 @@ public class ItemData extends EntityData {
 
     public void setWeaponData(WeaponData weaponData) {
         this.weaponData = weaponData;
+        indexChanged();
     }
 
     @JsonIgnore
@@ -80,6 +150,7 @@ public class ItemData extends EntityData {
 
     public void setPrice(double price) {
         this.price = price;
+        indexChanged();
     }
 
     public boolean isStackable() {
@@ -112,30 +183,34 @@ public class ItemData extends EntityData {
 
     public void setRarity(ItemRarity rarity) {
         this.rarity = rarity;
+        indexChanged();
     }
 
     public Set<Element> getElements() {
-        return elements;
+        return elements != null ? Collections.unmodifiableSet(elements) : null;
     }
 
     public void setElements(Set<Element> elements) {
         this.elements = elements;
+        indexChanged();
     }
 
     public List<Long> getSkillsOnUse() {
-        return skillsOnUse;
+        return skillsOnUse != null ? Collections.unmodifiableList(skillsOnUse) : null;
     }
 
     public void setSkillsOnUse(List<Long> skillsOnUse) {
         this.skillsOnUse = skillsOnUse;
+        entityDependenciesChanged();
     }
 
     public List<Long> getSkillsEquip() {
-        return skillsEquip;
+        return skillsEquip != null ? Collections.unmodifiableList(skillsEquip) : null;
     }
 
     public void setSkillsEquip(List<Long> skillsEquip) {
         this.skillsEquip = skillsEquip;
+        entityDependenciesChanged();
     }
 
     public Coefficients getCoefficients() {
@@ -152,6 +227,7 @@ public class ItemData extends EntityData {
 
     public void setItemType(ItemType itemType) {
         this.itemType = itemType;
+        indexChanged();
     }
 
     public ItemMainType getItemMainType() {
@@ -171,6 +247,12 @@ public class ItemData extends EntityData {
         super.setResources(resources);
     }
 
+    @Override
+    public void forEachEntityDependency(BiConsumer<String, Long> consumer) {
+        skillsOnUse.forEach(guid -> consumer.accept("skillsOnUse", guid));
+        skillsEquip.forEach(guid -> consumer.accept("skillsEquip", guid));
+    }
+
     @Override
     public boolean hasEntityDependency(long guid) {
         return skillsOnUse.contains(guid) || skillsEquip.contains(guid);
@@ -186,6 +268,7 @@ public class ItemData extends EntityData {
             skillsEquip.remove(oldValue);
             skillsEquip.add(newValue);
         }
+        entityDependenciesChanged();
     }
 
     public class WeaponData implements Comparable<WeaponData> {
@@ -210,6 +293,9 @@ public class ItemData extends EntityData {
 
         public void setAttackType(AttackType attackType) {
             this.attackType = attackType;
+            if (weaponData == this) {
+                indexChanged();
+            }
         }
 
         public boolean isDualHanded() {
@@ -244,44 +330,49 @@ public class ItemData extends EntityData {
 
     public static class ListOfItemsWithParametersBuilder {
 
-        private Stream<ItemData> stream;
+        // all parameters are checked with the same index
+        private final ItemIndex index = index();
+        // words of bitset of matching slots
+        private final long[] result;
+        private double priceLowerBound = Double.NEGATIVE_INFINITY;
+        private double priceUpperBound = Double.POSITIVE_INFINITY;
 
         private ListOfItemsWithParametersBuilder() {
-            stream = items.values().stream();
+            result = index.all();
         }
 
         public ListOfItemsWithParametersBuilder rarity(ItemRarity rarity) {
-            stream = stream.filter(itemData -> itemData.rarity.equals(rarity));
+            index.and(result, rarity);
             return this;
         }
 
         public ListOfItemsWithParametersBuilder type(ItemType itemType) {
-            stream = stream.filter(itemData -> itemData.itemType == itemType);
+            index.and(result, itemType);
             return this;
         }
 
         public ListOfItemsWithParametersBuilder type(ItemMainType itemMainType) {
-            stream = stream.filter(itemData -> itemData.itemType.getMainType() == itemMainType);
+            index.and(result, itemMainType);
             return this;
         }
 
         public ListOfItemsWithParametersBuilder type(AttackType attackType) {
-            stream = stream.filter(itemData -> itemData.isWeapon() && itemData.weaponData.attackType == attackType);
+            index.and(result, attackType);
             return this;
         }
 
         public ListOfItemsWithParametersBuilder priceLowerThan(double price) {
-            stream = stream.filter(itemData -> itemData.price < price);
+            priceUpperBound = Math.min(priceUpperBound, price);
             return this;
         }
 
         public ListOfItemsWithParametersBuilder priceHigherThan(double price) {
-            stream = stream.filter(itemData -> itemData.price > price);
+            priceLowerBound = Math.max(priceLowerBound, price);
             return this;
         }
 
         public ListOfItemsWithParametersBuilder elements(Set<Element> elements) {
-            stream = stream.filter(itemData -> itemData.elements.containsAll(elements));
+            elements.forEach(element -> index.and(result, element));
             return this;
         }
 
@@ -290,19 +381,31 @@ public class ItemData extends EntityData {
         }
 
         public List<ItemData> get() {
-            return stream.collect(Collectors.toList());
+            List<ItemData> list = new ArrayList<>();
+            ItemIndex.forEach(result(), slot -> list.add(index.get(slot)));
+            return list;
         }
 
         public List<ItemData> getRandomItems(int amount) {
-            return stream.collect(Functions.randomCollector(amount));
+            return index.random(result(), amount);
         }
 
         public ItemData getRandom() {
-            return stream.collect(Functions.randomCollector());
+            List<ItemData> random = index.random(result(), 1);
+            return random.isEmpty() ? null : random.get(0);
         }
 
         public Stream<ItemData> stream() {
-            return stream;
+            return get().stream();
+        }
+
+        private long[] result() {
+            if (priceLowerBound != Double.NEGATIVE_INFINITY || priceUpperBound != Double.POSITIVE_INFINITY) {
+                index.andPrice(result, priceLowerBound, priceUpperBound);
+                priceLowerBound = Double.NEGATIVE_INFINITY;
+                priceUpperBound = Double.POSITIVE_INFINITY;
+            }
+            return result;
         }
     }
 }
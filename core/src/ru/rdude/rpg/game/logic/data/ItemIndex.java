@@ -0,0 +1,288 @@
+package ru.rdude.rpg.game.logic.data;
+
+import ru.rdude.rpg.game.logic.enums.*;
+import ru.rdude.rpg.game.utils.Functions;
+import ru.rdude.rpg.game.utils.ImmutableLongMap;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable index of stored items used by {@link ItemData.ListOfItemsWithParametersBuilder}.
+ * Every item has a slot number. For every value of rarity, type, main type, attack type and element there are
+ * words of a bitset of slots of items with this value, so query with several parameters is an intersection of words.
+ * Slots sorted by price are kept in an array with their prices.
+ * <p>
+ * Changes create a new index from the previous one: added items get new slots at the end, removed items are
+ * cleared from used slots only, so bitsets are copied as words and only changed items are visited.
+ * Sorted prices of added items are merged with the previous ones. When most slots are not used any more
+ * the index is built again from used items.
+ * Index is replaced as a whole, so readers on other threads never see a partially changed index.
+ */
+final class ItemIndex {
+
+    static final ItemIndex EMPTY = new ItemIndex(new ItemData[0], 0, 0, ImmutableLongMap.empty(),
+            new long[0], new HashMap<>(), new int[0], new double[0]);
+
+    // items by slot, null if slot is not used any more
+    private final ItemData[] items;
+    private final int slotsCount;
+    private final int usedCount;
+    private final ImmutableLongMap<Integer> slots;
+    private final long[] used;
+    // words of slots by rarity, type, main type, attack type and element. Not used slots are only cleared in used
+    private final Map<Enum<?>, long[]> bitsets;
+
+    // slots of items sorted by price and their prices
+    private final int[] priceOrder;
+    private final double[] sortedPrices;
+
+    private ItemIndex(ItemData[] items, int slotsCount, int usedCount, ImmutableLongMap<Integer> slots, long[] used,
+                      Map<Enum<?>, long[]> bitsets, int[] priceOrder, double[] sortedPrices) {
+        this.items = items;
+        this.slotsCount = slotsCount;
+        this.usedCount = usedCount;
+        this.slots = slots;
+        this.used = used;
+        this.bitsets = bitsets;
+        this.priceOrder = priceOrder;
+        this.sortedPrices = sortedPrices;
+    }
+
+    static ItemIndex of(Collection<ItemData> collection) {
+        return EMPTY.changed(Collections.emptyList(), collection);
+    }
+
+    boolean contains(ItemData itemData) {
+        Integer slot = slots.get(itemData.getGuid());
+        return slot != null && items[slot] == itemData;
+    }
+
+    /**
+     * New index without removed and with added items. Item is removed only if this object is indexed.
+     * Added item replaces indexed item with the same guid, as in stored items.
+     */
+    ItemIndex changed(Collection<ItemData> removed, Collection<ItemData> added) {
+        if (removed.isEmpty() && added.isEmpty()) {
+            return this;
+        }
+        int capacity = slotsCount + added.size();
+        int words = words(capacity);
+        ItemData[] items = Arrays.copyOf(this.items, capacity);
+        long[] used = Arrays.copyOf(this.used, words);
+        Map<Enum<?>, long[]> bitsets = new HashMap<>();
+        this.bitsets.forEach((key, value) -> bitsets.put(key, Arrays.copyOf(value, words)));
+        ImmutableLongMap.Builder<Integer> slots = this.slots.toBuilder();
+        int usedCount = this.usedCount;
+
+        for (ItemData itemData : removed) {
+            Integer slot = this.slots.get(itemData.getGuid());
+            if (slot != null && items[slot] == itemData) {
+                clear(used, slot);
+                items[slot] = null;
+                slots.remove(itemData.getGuid());
+                usedCount--;
+            }
+        }
+        int slotsCount = this.slotsCount;
+        int[] addedSlots = new int[added.size()];
+        int addedCount = 0;
+        for (ItemData itemData : added) {
+            Integer replaced = slots.get(itemData.getGuid());
+            if (replaced != null) {
+                if (items[replaced] == itemData) {
+                    continue;
+                }
+                clear(used, replaced);
+                items[replaced] = null;
+                usedCount--;
+            }
+            int slot = slotsCount++;
+            items[slot] = itemData;
+            set(used, slot);
+            put(bitsets, words, slot, itemData);
+            slots.put(itemData.getGuid(), slot);
+            addedSlots[addedCount++] = slot;
+            usedCount++;
+        }
+        if (usedCount < slotsCount / 2) {
+            List<ItemData> usedItems = new ArrayList<>(usedCount);
+            forEach(used, slot -> usedItems.add(items[slot]));
+            return of(usedItems);
+        }
+        int[] priceOrder = mergedPrices(items, usedCount, this.priceOrder, Arrays.copyOf(addedSlots, addedCount));
+        double[] sortedPrices = new double[priceOrder.length];
+        for (int i = 0; i < priceOrder.length; i++) {
+            sortedPrices[i] = items[priceOrder[i]].getPrice();
+        }
+        return new ItemIndex(items, slotsCount, usedCount, slots.build(), used, bitsets, priceOrder, sortedPrices);
+    }
+
+    long[] all() {
+        return Arrays.copyOf(used, words(slotsCount));
+    }
+
+    void and(long[] result, Enum<?> value) {
+        long[] words = value != null ? bitsets.get(value) : null;
+        for (int i = 0; i < result.length; i++) {
+            result[i] &= words != null && i < words.length ? words[i] : 0L;
+        }
+    }
+
+    // leaves items with lowerBound < price < upperBound
+    void andPrice(long[] result, double lowerBound, double upperBound) {
+        int from = upperIndex(lowerBound);
+        int to = lowerIndex(upperBound);
+        long[] inRange = new long[result.length];
+        for (int i = from; i < to; i++) {
+            set(inRange, priceOrder[i]);
+        }
+        for (int i = 0; i < result.length; i++) {
+            result[i] &= inRange[i];
+        }
+    }
+
+    ItemData get(int slot) {
+        return items[slot];
+    }
+
+    static void forEach(long[] result, IntConsumer consumer) {
+        for (int i = 0; i < result.length; i++) {
+            long word = result[i];
+            while (word != 0) {
+                consumer.accept((i << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+    }
+
+    /**
+     * Random items from the result without repeats. Positions are chosen first and found by counting bits
+     * of whole words, so only chosen items are visited instead of shuffling or walking the whole result.
+     * If there are fewer items than amount, all of them are returned.
+     */
+    List<ItemData> random(long[] result, int amount) {
+        int count = 0;
+        for (long word : result) {
+            count += Long.bitCount(word);
+        }
+        amount = Math.min(amount, count);
+        if (amount <= 0) {
+            return new ArrayList<>();
+        }
+        // Floyd's algorithm gives amount distinct positions in [0, count)
+        Set<Integer> chosen = new HashSet<>();
+        for (int j = count - amount; j < count; j++) {
+            int position = Functions.random(j + 1);
+            chosen.add(chosen.contains(position) ? j : position);
+        }
+        int[] positions = chosen.stream().mapToInt(Integer::intValue).sorted().toArray();
+        List<ItemData> items = new ArrayList<>(amount);
+        int word = 0;
+        // amount of set bits in words before current word
+        int before = 0;
+        for (int position : positions) {
+            int bits;
+            while (before + (bits = Long.bitCount(result[word])) <= position) {
+                before += bits;
+                word++;
+            }
+            items.add(this.items[(word << 6) + select(result[word], position - before)]);
+        }
+        Collections.shuffle(items);
+        return items;
+    }
+
+    // index of the n-th set bit of the word
+    private static int select(long word, int n) {
+        for (int i = 0; i < n; i++) {
+            word &= word - 1;
+        }
+        return Long.numberOfTrailingZeros(word);
+    }
+
+    // previous sorted slots without not used ones are merged with sorted added slots
+    private static int[] mergedPrices(ItemData[] items, int usedCount, int[] previous, int[] added) {
+        int[] addedOrder = Arrays.stream(added)
+                .boxed()
+                .sorted(Comparator.comparingDouble(slot -> items[slot].getPrice()))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        int[] order = new int[usedCount];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < usedCount; k++) {
+            while (i < previous.length && items[previous[i]] == null) {
+                i++;
+            }
+            if (j >= addedOrder.length || (i < previous.length && items[previous[i]].getPrice() <= items[addedOrder[j]].getPrice())) {
+                order[k] = previous[i++];
+            }
+            else {
+                order[k] = addedOrder[j++];
+            }
+        }
+        return order;
+    }
+
+    private static void put(Map<Enum<?>, long[]> bitsets, int words, int slot, ItemData itemData) {
+        if (itemData.getRarity() != null) {
+            set(bitsets.computeIfAbsent(itemData.getRarity(), key -> new long[words]), slot);
+        }
+        ItemType itemType = itemData.getItemType();
+        if (itemType != null) {
+            set(bitsets.computeIfAbsent(itemType, key -> new long[words]), slot);
+            set(bitsets.computeIfAbsent(itemType.getMainType(), key -> new long[words]), slot);
+            if (itemData.isWeapon() && itemData.getWeaponData() != null && itemData.getWeaponData().getAttackType() != null) {
+                set(bitsets.computeIfAbsent(itemData.getWeaponData().getAttackType(), key -> new long[words]), slot);
+            }
+        }
+        if (itemData.getElements() != null) {
+            itemData.getElements().forEach(element -> set(bitsets.computeIfAbsent(element, key -> new long[words]), slot));
+        }
+    }
+
+    private static int words(int slots) {
+        return (slots + 63) >>> 6;
+    }
+
+    private static void set(long[] words, int slot) {
+        words[slot >>> 6] |= 1L << slot;
+    }
+
+    private static void clear(long[] words, int slot) {
+        words[slot >>> 6] &= ~(1L << slot);
+    }
+
+    // first index with price >= value
+    private int lowerIndex(double value) {
+        int low = 0;
+        int high = sortedPrices.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedPrices[middle] < value) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // first index with price > value
+    private int upperIndex(double value) {
+        int low = 0;
+        int high = sortedPrices.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedPrices[middle] <= value) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -5,9 +5,11 @@ import ru.rdude.rpg.game.logic.data.resources.ModuleResources;
 import ru.rdude.rpg.game.utils.jsonextension.JsonPolymorphicSubType;
 
 import java.io.Serializable;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -21,6 +23,10 @@ public class Module extends EntityData implements Serializable {
     private Set<QuestData> questData;
     private Set<PlayerClassData> playerClassData;
 
+    // built on first dependency request
+    @JsonIgnore
+    private transient DependencyIndex dependencyIndex;
+
     // default constructor for Jackson json deserialization
     private Module() {
     }
@@ -36,43 +42,48 @@ public class Module extends EntityData implements Serializable {
     }
 
     public Set<SkillData> getSkillData() {
-        return skillData;
+        return skillData != null ? Collections.unmodifiableSet(skillData) : null;
     }
 
     public void setSkillData(Set<SkillData> skillData) {
         this.skillData = skillData;
+        dependencyIndex = null;
     }
 
     public Set<ItemData> getItemData() {
-        return itemData;
+        return itemData != null ? Collections.unmodifiableSet(itemData) : null;
     }
 
     public void setItemData(Set<ItemData> itemData) {
         this.itemData = itemData;
+        dependencyIndex = null;
     }
 
     public Set<MonsterData> getMonsterData() {
-        return monsterData;
+        return monsterData != null ? Collections.unmodifiableSet(monsterData) : null;
     }
 
     public void setMonsterData(Set<MonsterData> monsterData) {
         this.monsterData = monsterData;
+        dependencyIndex = null;
     }
 
     public Set<EventData> getEventData() {
-        return eventData;
+        return eventData != null ? Collections.unmodifiableSet(eventData) : null;
     }
 
     public void setEventData(Set<EventData> eventData) {
         this.eventData = eventData;
+        dependencyIndex = null;
     }
 
     public Set<QuestData> getQuestData() {
-        return questData;
+        return questData != null ? Collections.unmodifiableSet(questData) : null;
     }
 
     public void setQuestData(Set<QuestData> questData) {
         this.questData = questData;
+        dependencyIndex = null;
     }
 
     public Set<PlayerClassData> getPlayerClassData() {
@@ -81,6 +92,7 @@ public class Module extends EntityData implements Serializable {
 
     public void setPlayerClassData(Set<PlayerClassData> playerClassData) {
         this.playerClassData = playerClassData;
+        dependencyIndex = null;
     }
 
     @Override
@@ -119,6 +131,9 @@ public class Module extends EntityData implements Serializable {
             questData.add((QuestData) entityData);
         }
         else throw new IllegalArgumentException("Adding entity of a class " + entityData.getClass() + " is not implemented");
+        if (dependencyIndex != null && !(entityData instanceof Module)) {
+            dependencyIndex.add(entityData);
+        }
     }
 
     public void removeEntity(EntityData entityData) {
@@ -141,19 +156,40 @@ public class Module extends EntityData implements Serializable {
             questData.remove(entityData);
         }
         else throw new IllegalArgumentException("Removing entity of a class " + entityData.getClass() + " is not implemented");
+        if (dependencyIndex != null && !(entityData instanceof Module)) {
+            dependencyIndex.remove(entityData);
+        }
+    }
+
+    /**
+     * Index of references between module entities, built on first request. It is kept up to date
+     * by addEntity and removeEntity and by indexed entities when their references are changed.
+     */
+    @JsonIgnore
+    public DependencyIndex getDependencyIndex() {
+        if (dependencyIndex == null) {
+            dependencyIndex = new DependencyIndex(getAllEntities());
+        }
+        return dependencyIndex;
+    }
+
+    @Override
+    public void forEachEntityDependency(BiConsumer<String, Long> consumer) {
+        getAllEntities().forEach(entityData -> entityData.forEachEntityDependency(consumer));
     }
 
     @Override
     public boolean hasEntityDependency(long guid) {
-        return Stream.of(skillData, itemData, monsterData, eventData, questData)
-                .flatMap(Collection::stream)
-                .anyMatch(entityData -> entityData.hasEntityDependency(guid));
+        return getDependencyIndex().hasDependency(guid);
     }
 
     @Override
     public void replaceEntityDependency(long oldValue, long newValue) {
-        Stream.of(skillData, itemData, monsterData, eventData, questData)
-                .flatMap(Collection::stream)
-                .forEach(entityData -> entityData.replaceEntityDependency(oldValue, newValue));
+        getDependencyIndex().replace(oldValue, newValue);
+    }
+
+    // every entity is changed once with all replacements
+    public void replaceEntityDependencies(Map<Long, Long> replacements) {
+        getDependencyIndex().replace(replacements);
     }
 }
@@ -8,12 +8,14 @@ import ru.rdude.rpg.game.logic.stats.Stats;
 import ru.rdude.rpg.game.utils.jsonextension.JsonPolymorphicSubType;
 
 import java.util.*;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
 @JsonPolymorphicSubType("monsterData")
 public class MonsterData extends BeingData {
 
-    private static Map<Long, MonsterData> monsters = new HashMap<>();
+    private static final EntityRegistry<MonsterData> monsters = new EntityRegistry<>();
+    private static final MonsterSpawnTable spawnTable = new MonsterSpawnTable();
 
     private Map<Long, Double> drop = new HashMap<>();
     private double goldDrop = 0d;
@@ -37,10 +39,16 @@ public class MonsterData extends BeingData {
     public MonsterData(long guid) {
         super(guid);
         setResources(new MonsterResources());
-        monsters.put(guid, this);
+        monsters.store(this);
+        spawnTable.add(this);
     }
 
+    // immutable snapshot
     public static Map<Long, MonsterData> getMonsters() {
+        return monsters.getAll();
+    }
+
+    public static EntityRegistry<MonsterData> getRegistry() {
         return monsters;
     }
 
@@ -48,12 +56,18 @@ public class MonsterData extends BeingData {
         return monsters.get(guid);
     }
 
+    // random not describer monster that can spawn on cell with given biom and relief. Null if there are no such monsters
+    public static MonsterData getRandomSpawning(Biom biom, Relief relief, int minLvl, int maxLvl) {
+        return spawnTable.random(biom, relief, minLvl, maxLvl);
+    }
+
     public Map<Long, Double> getDrop() {
-        return drop;
+        return drop != null ? Collections.unmodifiableMap(drop) : null;
     }
 
     public void setDrop(Map<Long, Double> drop) {
         this.drop = drop;
+        entityDependenciesChanged();
     }
 
     public double getGoldDrop() {
@@ -94,22 +108,25 @@ public class MonsterData extends BeingData {
 
     public void setMainLvl(double mainLvl) {
         this.mainLvl = mainLvl;
+        spawnTable.update(this);
     }
 
     public Map<Long, Double> getSkills() {
-        return skills;
+        return skills != null ? Collections.unmodifiableMap(skills) : null;
     }
 
     public void setSkills(Map<Long, Double> skills) {
         this.skills = skills;
+        entityDependenciesChanged();
     }
 
     public Set<Long> getStartBuffs() {
-        return startBuffs;
+        return startBuffs != null ? Collections.unmodifiableSet(startBuffs) : null;
     }
 
     public void setStartBuffs(Set<Long> startBuffs) {
         this.startBuffs = startBuffs;
+        entityDependenciesChanged();
     }
 
     public Set<Biom> getSpawnBioms() {
@@ -118,6 +135,7 @@ public class MonsterData extends BeingData {
 
     public void setSpawnBioms(Set<Biom> spawnBioms) {
         this.spawnBioms = spawnBioms;
+        spawnTable.update(this);
     }
 
     public Set<Relief> getSpawnReliefs() {
@@ -126,6 +144,7 @@ public class MonsterData extends BeingData {
 
     public void setSpawnReliefs(Set<Relief> spawnReliefs) {
         this.spawnReliefs = spawnReliefs;
+        spawnTable.update(this);
     }
 
     public Stats getStats() {
@@ -169,6 +188,13 @@ public class MonsterData extends BeingData {
         super.setResources(monsterResources);
     }
 
+    @Override
+    public void forEachEntityDependency(BiConsumer<String, Long> consumer) {
+        drop.keySet().forEach(guid -> consumer.accept("drop", guid));
+        skills.keySet().forEach(guid -> consumer.accept("skills", guid));
+        startBuffs.forEach(guid -> consumer.accept("startBuffs", guid));
+    }
+
     @Override
     public boolean hasEntityDependency(long guid) {
         return
@@ -191,9 +217,27 @@ public class MonsterData extends BeingData {
             startBuffs.remove(oldValue);
             startBuffs.add(newValue);
         }
+        entityDependenciesChanged();
     }
 
     public static void storeMonsters(Collection<MonsterData> collection) {
-        collection.forEach(monsterData -> monsters.put(monsterData.getGuid(), monsterData));
+        monsters.store(collection);
+        collection.forEach(spawnTable::add);
+    }
+
+    public static void storeMonsters(long moduleGuid, Collection<MonsterData> collection) {
+        monsters.store(moduleGuid, collection);
+        collection.forEach(spawnTable::add);
+    }
+
+    public static void removeMonsters(Collection<MonsterData> collection) {
+        monsters.remove(collection);
+        collection.forEach(spawnTable::remove);
+    }
+
+    public static void removeModuleMonsters(long moduleGuid) {
+        Collection<MonsterData> removed = monsters.getModule(moduleGuid).values();
+        monsters.removeModule(moduleGuid);
+        removed.forEach(spawnTable::remove);
     }
 }
@@ -0,0 +1,78 @@
+package ru.rdude.rpg.game.logic.data;
+
+import ru.rdude.rpg.game.logic.enums.Biom;
+import ru.rdude.rpg.game.logic.enums.Relief;
+import ru.rdude.rpg.game.utils.Functions;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Monsters by biom, relief and main level. Every monster is equally likely to be chosen,
+ * same as when picking from the list of all fitting monsters.
+ */
+final class MonsterSpawnTable extends SpawnTable<MonsterData, MonsterSpawnTable.Sampler> {
+
+    MonsterData random(Biom biom, Relief relief, int minLvl, int maxLvl) {
+        return sampler(biom, relief).random(minLvl, maxLvl);
+    }
+
+    @Override
+    Set<Biom> bioms(MonsterData data) {
+        return data.getSpawnBioms();
+    }
+
+    @Override
+    Set<Relief> reliefs(MonsterData data) {
+        return data.getSpawnReliefs();
+    }
+
+    @Override
+    Sampler createSampler(List<MonsterData> spawning) {
+        return new Sampler(spawning);
+    }
+
+    /**
+     * Monsters sorted by level. Monsters of level lvl are at positions from levelStart[lvl] until levelStart[lvl + 1],
+     * so monsters of any levels range are found without search.
+     */
+    static final class Sampler {
+
+        private final MonsterData[] monsters;
+        private final int[] levelStart;
+
+        private Sampler(List<MonsterData> spawning) {
+            monsters = spawning.stream()
+                    .sorted(Comparator.comparingInt(MonsterSpawnTable::level))
+                    .toArray(MonsterData[]::new);
+            int maxLevel = monsters.length == 0 ? 0 : level(monsters[monsters.length - 1]);
+            levelStart = new int[maxLevel + 2];
+            int position = 0;
+            for (int lvl = 0; lvl < levelStart.length; lvl++) {
+                while (position < monsters.length && level(monsters[position]) < lvl) {
+                    position++;
+                }
+                levelStart[lvl] = position;
+            }
+        }
+
+        // null if there are no monsters with main level in range
+        MonsterData random(int minLvl, int maxLvl) {
+            int from = start(minLvl);
+            int to = start(maxLvl + 1);
+            return from < to ? monsters[from + Functions.random(to - from)] : null;
+        }
+
+        private int start(int lvl) {
+            if (lvl <= 0) {
+                return 0;
+            }
+            return lvl < levelStart.length ? levelStart[lvl] : monsters.length;
+        }
+    }
+
+    private static int level(MonsterData data) {
+        return Math.max(0, (int) data.getMainLvl());
+    }
+}
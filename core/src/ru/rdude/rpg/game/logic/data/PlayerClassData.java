@@ -5,11 +5,12 @@ import ru.rdude.rpg.game.logic.enums.UsedByStatistics;
 import ru.rdude.rpg.game.utils.jsonextension.JsonPolymorphicSubType;
 
 import java.util.*;
+import java.util.function.BiConsumer;
 
 @JsonPolymorphicSubType("playerClassData")
 public class PlayerClassData extends EntityData {
 
-    private static Map<Long, PlayerClassData> classes = new HashMap<>();
+    private static final EntityRegistry<PlayerClassData> classes = new EntityRegistry<>();
 
     private final Set<PlayerClassOpenRequirement<?>> openRequirements = new HashSet<>();
     private final Set<Long> abilities = new HashSet<>();
@@ -21,8 +22,29 @@ public class PlayerClassData extends EntityData {
         super(guid);
     }
 
+    public static PlayerClassData getClassByGuid(long guid) {
+        return classes.get(guid);
+    }
+
+    // immutable snapshot
+    public static Map<Long, PlayerClassData> getClasses() {
+        return classes.getAll();
+    }
+
+    public static EntityRegistry<PlayerClassData> getRegistry() {
+        return classes;
+    }
+
     public static void storeClasses(Collection<PlayerClassData> collection) {
-        collection.forEach(classData -> classes.put(classData.getGuid(), classData));
+        classes.store(collection);
+    }
+
+    public static void storeClasses(long moduleGuid, Collection<PlayerClassData> collection) {
+        classes.store(moduleGuid, collection);
+    }
+
+    public static void removeModuleClasses(long moduleGuid) {
+        classes.removeModule(moduleGuid);
     }
 
     public Set<PlayerClassOpenRequirement<?>> getOpenRequirements() {
@@ -33,6 +55,11 @@ public class PlayerClassData extends EntityData {
         return abilities;
     }
 
+    @Override
+    public void forEachEntityDependency(BiConsumer<String, Long> consumer) {
+        abilities.forEach(guid -> consumer.accept("abilities", guid));
+    }
+
     @Override
     public boolean hasEntityDependency(long guid) {
         return abilities.contains(guid);
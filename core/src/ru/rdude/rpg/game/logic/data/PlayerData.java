@@ -10,6 +10,7 @@ import ru.rdude.rpg.game.utils.jsonextension.JsonPolymorphicSubType;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.function.BiConsumer;
 
 @JsonPolymorphicSubType("playerData")
 public class PlayerData extends BeingData {
@@ -29,6 +30,10 @@ public class PlayerData extends BeingData {
         super.setResources(new PlayerResources());
     }
 
+    @Override
+    public void forEachEntityDependency(BiConsumer<String, Long> consumer) {
+    }
+
     @Override
     public boolean hasEntityDependency(long guid) {
         return false;
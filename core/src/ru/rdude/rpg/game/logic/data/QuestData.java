@@ -6,12 +6,13 @@ import ru.rdude.rpg.game.logic.stats.Stats;
 import ru.rdude.rpg.game.utils.jsonextension.JsonPolymorphicSubType;
 
 import java.util.*;
+import java.util.function.BiConsumer;
 import java.util.stream.Stream;
 
 @JsonPolymorphicSubType("questData")
 public class QuestData extends EntityData {
 
-    public static Map<Long, QuestData> quests = new HashMap<>();
+    private static final EntityRegistry<QuestData> quests = new EntityRegistry<>();
 
     // requirements
     private Map<Long, Integer> killMonsters = new HashMap<>();
@@ -35,27 +36,50 @@ public class QuestData extends EntityData {
     public QuestData(long guid) {
         super(guid);
         setResources(new QuestResources());
-        quests.put(guid, this);
+        quests.store(this);
+    }
+
+    public static QuestData getQuestByGuid(long guid) {
+        return quests.get(guid);
+    }
+
+    // immutable snapshot
+    public static Map<Long, QuestData> getQuests() {
+        return quests.getAll();
+    }
+
+    public static EntityRegistry<QuestData> getRegistry() {
+        return quests;
     }
 
     public static void storeQuests(Collection<QuestData> collection) {
-        collection.forEach(questData -> quests.put(questData.getGuid(), questData));
+        quests.store(collection);
+    }
+
+    public static void storeQuests(long moduleGuid, Collection<QuestData> collection) {
+        quests.store(moduleGuid, collection);
+    }
+
+    public static void removeModuleQuests(long moduleGuid) {
+        quests.removeModule(moduleGuid);
     }
 
     public Map<Long, Integer> getKillMonsters() {
-        return killMonsters;
+        return killMonsters != null ? Collections.unmodifiableMap(killMonsters) : null;
     }
 
     public void setKillMonsters(Map<Long, Integer> killMonsters) {
         this.killMonsters = killMonsters;
+        entityDependenciesChanged();
     }
 
     public Map<Long, Integer> getCollectItems() {
-        return collectItems;
+        return collectItems != null ? Collections.unmodifiableMap(collectItems) : null;
     }
 
     public void setCollectItems(Map<Long, Integer> collectItems) {
         this.collectItems = collectItems;
+        entityDependenciesChanged();
     }
 
     public boolean isTakeItems() {
@@ -75,11 +99,12 @@ public class QuestData extends EntityData {
     }
 
     public Map<Long, Integer> getUseSkills() {
-        return useSkills;
+        return useSkills != null ? Collections.unmodifiableMap(useSkills) : null;
     }
 
     public void setUseSkills(Map<Long, Integer> useSkills) {
         this.useSkills = useSkills;
+        entityDependenciesChanged();
     }
 
     public Map<BeingAction.Action, Integer> getDoActions() {
@@ -99,19 +124,21 @@ public class QuestData extends EntityData {
     }
 
     public Set<Long> getLearnSkills() {
-        return learnSkills;
+        return learnSkills != null ? Collections.unmodifiableSet(learnSkills) : null;
     }
 
     public void setLearnSkills(Set<Long> learnSkills) {
         this.learnSkills = learnSkills;
+        entityDependenciesChanged();
     }
 
     public Map<Long, Integer> getReceiveItems() {
-        return receiveItems;
+        return receiveItems != null ? Collections.unmodifiableMap(receiveItems) : null;
     }
 
     public void setReceiveItems(Map<Long, Integer> receiveItems) {
         this.receiveItems = receiveItems;
+        entityDependenciesChanged();
     }
 
     public double getReceiveGold() {
@@ -131,11 +158,12 @@ public class QuestData extends EntityData {
     }
 
     public Set<Long> getStartQuests() {
-        return startQuests;
+        return startQuests != null ? Collections.unmodifiableSet(startQuests) : null;
     }
 
     public void setStartQuests(Set<Long> startQuests) {
         this.startQuests = startQuests;
+        entityDependenciesChanged();
     }
 
     public Long getStartEvent() {
@@ -144,6 +172,20 @@ public class QuestData extends EntityData {
 
     public void setStartEvent(Long startEvent) {
         this.startEvent = startEvent;
+        entityDependenciesChanged();
+    }
+
+    @Override
+    public void forEachEntityDependency(BiConsumer<String, Long> consumer) {
+        killMonsters.keySet().forEach(guid -> consumer.accept("killMonsters", guid));
+        collectItems.keySet().forEach(guid -> consumer.accept("collectItems", guid));
+        useSkills.keySet().forEach(guid -> consumer.accept("useSkills", guid));
+        learnSkills.forEach(guid -> consumer.accept("learnSkills", guid));
+        receiveItems.keySet().forEach(guid -> consumer.accept("receiveItems", guid));
+        startQuests.forEach(guid -> consumer.accept("startQuests", guid));
+        if (startEvent != null) {
+            consumer.accept("startEvent", startEvent);
+        }
     }
 
     @Override
@@ -187,8 +229,9 @@ public class QuestData extends EntityData {
             startQuests.remove(oldValue);
             startQuests.add(newValue);
         }
-        if (startEvent == oldValue) {
+        if (startEvent != null && startEvent == oldValue) {
             startEvent = newValue;
         }
+        entityDependenciesChanged();
     }
 }
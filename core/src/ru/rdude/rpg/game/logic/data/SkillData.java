@@ -9,11 +9,12 @@ import ru.rdude.rpg.game.logic.stats.Stats;
 import ru.rdude.rpg.game.utils.jsonextension.JsonPolymorphicSubType;
 
 import java.util.*;
+import java.util.function.BiConsumer;
 
 @JsonPolymorphicSubType("skillData")
 public class SkillData extends EntityData {
 
-    private static Map<Long, SkillData> skills = new HashMap<>();
+    private static final EntityRegistry<SkillData> skills = new EntityRegistry<>();
 
     private SkillType type;
     private Coefficients coefficients;
@@ -89,7 +90,15 @@ public class SkillData extends EntityData {
     }
 
     public static void storeSkills(Collection<SkillData> collection) {
-        collection.forEach(skillData -> skills.put(skillData.getGuid(), skillData));
+        skills.store(collection);
+    }
+
+    public static void storeSkills(long moduleGuid, Collection<SkillData> collection) {
+        skills.store(moduleGuid, collection);
+    }
+
+    public static void removeModuleSkills(long moduleGuid) {
+        skills.removeModule(moduleGuid);
     }
 
     @Override
@@ -150,19 +159,21 @@ public class SkillData extends EntityData {
     }
 
     public Map<Long, Double> getSummon() {
-        return summon;
+        return summon != null ? Collections.unmodifiableMap(summon) : null;
     }
 
     public void setSummon(Map<Long, Double> summon) {
         this.summon = summon;
+        entityDependenciesChanged();
     }
 
     public Map<Long, Integer> getReceiveItems() {
-        return receiveItems;
+        return receiveItems != null ? Collections.unmodifiableMap(receiveItems) : null;
     }
 
     public void setReceiveItems(Map<Long, Integer> receiveItems) {
         this.receiveItems = receiveItems;
+        entityDependenciesChanged();
     }
 
     public Requirements getRequirements() {
@@ -171,6 +182,7 @@ public class SkillData extends EntityData {
 
     public void setRequirements(Requirements requirements) {
         this.requirements = requirements;
+        entityDependenciesChanged();
     }
 
     public boolean isPermanent() {
@@ -286,19 +298,21 @@ public class SkillData extends EntityData {
     }
 
     public Map<Long, Double> getSkillsCouldCast() {
-        return skillsCouldCast;
+        return skillsCouldCast != null ? Collections.unmodifiableMap(skillsCouldCast) : null;
     }
 
     public void setSkillsCouldCast(Map<Long, Double> skillsCouldCast) {
         this.skillsCouldCast = skillsCouldCast;
+        entityDependenciesChanged();
     }
 
     public Map<Long, Double> getSkillsMustCast() {
-        return skillsMustCast;
+        return skillsMustCast != null ? Collections.unmodifiableMap(skillsMustCast) : null;
     }
 
     public void setSkillsMustCast(Map<Long, Double> skillsMustCast) {
         this.skillsMustCast = skillsMustCast;
+        entityDependenciesChanged();
     }
 
     public double getActsEveryMinute() {
@@ -318,11 +332,17 @@ public class SkillData extends EntityData {
     }
 
     public Map<BeingAction.Action, Map<Long, Double>> getSkillsOnBeingAction() {
-        return skillsOnBeingAction;
+        if (skillsOnBeingAction == null) {
+            return null;
+        }
+        Map<BeingAction.Action, Map<Long, Double>> result = new EnumMap<>(BeingAction.Action.class);
+        skillsOnBeingAction.forEach((action, skills) -> result.put(action, Collections.unmodifiableMap(skills)));
+        return Collections.unmodifiableMap(result);
     }
 
     public void setSkillsOnBeingAction(Map<BeingAction.Action, Map<Long, Double>> skillsOnBeingAction) {
         this.skillsOnBeingAction = skillsOnBeingAction;
+        entityDependenciesChanged();
     }
 
     public Coefficients getBuffCoefficients() {
@@ -389,12 +409,17 @@ public class SkillData extends EntityData {
         this.targets = targets;
     }
 
+    // immutable snapshot
     public static Map<Long, SkillData> getSkills() {
+        return skills.getAll();
+    }
+
+    public static EntityRegistry<SkillData> getRegistry() {
         return skills;
     }
 
     public static void setSkills(Map<Long, SkillData> skills) {
-        SkillData.skills = skills;
+        SkillData.skills.replaceAll(skills);
     }
 
     public BuffType getBuffType() {
@@ -433,6 +458,16 @@ public class SkillData extends EntityData {
         return !transformation.elements.isEmpty() || !transformation.beingTypes.isEmpty() || transformation.size != null;
     }
 
+    @Override
+    public void forEachEntityDependency(BiConsumer<String, Long> consumer) {
+        summon.keySet().forEach(guid -> consumer.accept("summon", guid));
+        receiveItems.keySet().forEach(guid -> consumer.accept("receiveItems", guid));
+        requirements.items.keySet().forEach(guid -> consumer.accept("requirements", guid));
+        skillsCouldCast.keySet().forEach(guid -> consumer.accept("skillsCouldCast", guid));
+        skillsMustCast.keySet().forEach(guid -> consumer.accept("skillsMustCast", guid));
+        skillsOnBeingAction.values().forEach(map -> map.keySet().forEach(guid -> consumer.accept("skillsOnBeingAction", guid)));
+    }
+
     @Override
     public boolean hasEntityDependency(long guid) {
         return
@@ -474,6 +509,7 @@ public class SkillData extends EntityData {
                 map.remove(oldValue);
             }
         }
+        entityDependenciesChanged();
     }
 
     public class Requirements {
@@ -495,11 +531,14 @@ public class SkillData extends EntityData {
         }
 
         public Map<Long, Integer> getItems() {
-            return items;
+            return items != null ? Collections.unmodifiableMap(items) : null;
         }
 
         public void setItems(Map<Long, Integer> items) {
             this.items = items;
+            if (requirements == this) {
+                entityDependenciesChanged();
+            }
         }
 
         public boolean isTakeItems() {
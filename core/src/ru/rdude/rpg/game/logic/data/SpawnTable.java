@@ -0,0 +1,83 @@
+package ru.rdude.rpg.game.logic.data;
+
+import ru.rdude.rpg.game.logic.enums.Biom;
+import ru.rdude.rpg.game.logic.enums.Relief;
+
+import java.util.*;
+
+/**
+ * Entities that can appear on map cells, grouped by biom and relief of the cell.
+ * Sampler for every biom and relief pair is built on first request and dropped when entity spawning there
+ * is added, removed or changed, so only affected pairs are built again.
+ *
+ * @param <T> stored entity data
+ * @param <S> sampler built for one biom and relief pair
+ */
+abstract class SpawnTable<T extends EntityData, S> {
+
+    private static final int RELIEFS = Relief.values().length;
+
+    private final Map<Long, T> entities = new HashMap<>();
+    private final List<S> samplers = new ArrayList<>(Collections.nCopies(Biom.values().length * RELIEFS, null));
+
+    void add(T data) {
+        T old = entities.put(data.getGuid(), data);
+        if (old != null) {
+            invalidate(old);
+        }
+        invalidate(data);
+    }
+
+    void remove(T data) {
+        if (entities.remove(data.getGuid(), data)) {
+            invalidate(data);
+        }
+    }
+
+    // spawn parameters of stored entity were changed, old ones are unknown
+    void update(T data) {
+        if (entities.get(data.getGuid()) == data) {
+            Collections.fill(samplers, null);
+        }
+    }
+
+    void rebuild(Collection<T> collection) {
+        entities.clear();
+        Collections.fill(samplers, null);
+        collection.forEach(data -> entities.put(data.getGuid(), data));
+    }
+
+    S sampler(Biom biom, Relief relief) {
+        int index = index(biom, relief);
+        S sampler = samplers.get(index);
+        if (sampler == null) {
+            List<T> spawning = new ArrayList<>();
+            for (T data : entities.values()) {
+                if (!data.isDescriber() && bioms(data).contains(biom) && reliefs(data).contains(relief)) {
+                    spawning.add(data);
+                }
+            }
+            sampler = createSampler(spawning);
+            samplers.set(index, sampler);
+        }
+        return sampler;
+    }
+
+    abstract Set<Biom> bioms(T data);
+
+    abstract Set<Relief> reliefs(T data);
+
+    abstract S createSampler(List<T> spawning);
+
+    private void invalidate(T data) {
+        for (Biom biom : bioms(data)) {
+            for (Relief relief : reliefs(data)) {
+                samplers.set(index(biom, relief), null);
+            }
+        }
+    }
+
+    private int index(Biom biom, Relief relief) {
+        return biom.ordinal() * RELIEFS + relief.ordinal();
+    }
+}
@@ -1,5 +1,6 @@
 package ru.rdude.rpg.game.logic.data.io;
 
+import com.fasterxml.jackson.core.JsonFactory;
 import ru.rdude.rpg.game.utils.jsonextension.PolymorphicObjectMapper;
 
 public class CustomObjectMapper extends PolymorphicObjectMapper {
@@ -7,4 +8,20 @@ public class CustomObjectMapper extends PolymorphicObjectMapper {
     public CustomObjectMapper(String... packages) {
         super(packages);
     }
+
+    public CustomObjectMapper(JsonFactory factory, String... packages) {
+        super(factory, packages);
+    }
+
+    /**
+     * Mapper of other data format, for example binary, with settings of this mapper: visibility, features,
+     * polymorphic subtypes and mix-ins. Settings objects are shared, so subtypes registered later are seen by both.
+     */
+    public CustomObjectMapper withFactory(JsonFactory factory) {
+        CustomObjectMapper mapper = new CustomObjectMapper(factory);
+        mapper.setSubtypeResolver(getSubtypeResolver());
+        mapper.setConfig(getSerializationConfig());
+        mapper.setConfig(getDeserializationConfig());
+        return mapper;
+    }
 }
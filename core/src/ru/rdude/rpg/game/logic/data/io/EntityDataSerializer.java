@@ -6,6 +6,8 @@ import ru.rdude.rpg.game.logic.data.EntityData;
 import ru.rdude.rpg.game.logic.data.SkillData;
 import ru.rdude.rpg.game.logic.game.Game;
 
+import java.io.IOException;
+
 public class EntityDataSerializer {
 
     private final CustomObjectMapper objectMapper;
@@ -24,6 +26,10 @@ public class EntityDataSerializer {
         return result;
     }
 
+    public <T extends EntityData> T deserialize(byte[] json, Class<T> cl) throws IOException {
+        return objectMapper.readValue(json, cl);
+    }
+
     public <T extends EntityData> T deserialize(String jsonString, Class<T> cl) {
         T result = null;
         try {
@@ -0,0 +1,149 @@
+package ru.rdude.rpg.game.logic.data.io;
+
+import com.badlogic.gdx.Gdx;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import ru.rdude.rpg.game.logic.game.Game;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Saves current game periodically.
+ * Game state is copied as json tokens on game thread when {@link #update()} is called between frames,
+ * so snapshot is consistent. Tokens are only values, so the game can go on while they are encoded, compressed
+ * and written to disk on background thread. Frame waits only for the copy, not for encoding or writing.
+ * Autosaves are written to rotating slots: autosave_0, autosave_1 ...
+ */
+public class GameAutoSaver {
+
+    public static final String AUTOSAVE_NAME = "autosave_";
+
+    private final GameFileSaver gameFileSaver;
+    private final AtomicBoolean writing = new AtomicBoolean(false);
+    private ExecutorService executor;
+
+    private boolean enabled = true;
+    private boolean compressed = true;
+    private long intervalMillis = 5 * 60 * 1000;
+    private int slots = 3;
+    private int nextSlot = 0;
+    private long lastSaveTime = System.currentTimeMillis();
+    private boolean serializersPrepared = false;
+
+    public GameAutoSaver(GameFileSaver gameFileSaver) {
+        this.gameFileSaver = gameFileSaver;
+    }
+
+    // should be called from game thread when no game logic is running, for example after frame is drawn
+    public void update() {
+        if (!enabled || Game.getCurrentGame() == null || Game.getCurrentGame().getCurrentPlayers() == null) {
+            return;
+        }
+        // otherwise serializers are created on game thread by the first autosave
+        if (!serializersPrepared) {
+            serializersPrepared = true;
+            executor().execute(() -> Game.getCustomObjectMapper().prepareSerializers(Game.class));
+        }
+        if (System.currentTimeMillis() - lastSaveTime >= intervalMillis) {
+            saveNow();
+        }
+    }
+
+    // returns false if previous autosave is still being written
+    public boolean saveNow() {
+        if (!writing.compareAndSet(false, true)) {
+            return false;
+        }
+        lastSaveTime = System.currentTimeMillis();
+        final TokenBuffer snapshot;
+        try {
+            snapshot = gameFileSaver.snapshot(Game.getCurrentGame());
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            writing.set(false);
+            return false;
+        }
+        final String saveName = AUTOSAVE_NAME + nextSlot;
+        final boolean compress = compressed;
+        nextSlot = (nextSlot + 1) % slots;
+        executor().execute(() -> {
+            try {
+                gameFileSaver.save(snapshot, saveName, compress);
+                Gdx.app.postRunnable(() -> {
+                    if (Game.getCurrentGame() != null && Game.getCurrentGame().getGameLogger() != null) {
+                        Game.getCurrentGame().getGameLogger().log("Game autosaved");
+                    }
+                });
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+            } finally {
+                writing.set(false);
+            }
+        });
+        return true;
+    }
+
+    public boolean isWriting() {
+        return writing.get();
+    }
+
+    private ExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "autosave");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    public void dispose() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        lastSaveTime = System.currentTimeMillis();
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    public void setIntervalMillis(long intervalMillis) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("Autosave interval must be positive");
+        }
+        this.intervalMillis = intervalMillis;
+    }
+
+    public int getSlots() {
+        return slots;
+    }
+
+    public void setSlots(int slots) {
+        if (slots <= 0) {
+            throw new IllegalArgumentException("Autosave slots amount must be positive");
+        }
+        this.slots = slots;
+        nextSlot = nextSlot % slots;
+    }
+}
@@ -1,17 +1,38 @@
 package ru.rdude.rpg.game.logic.data.io;
 
 import com.badlogic.gdx.files.FileHandle;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.IntNode;
 import ru.rdude.rpg.game.logic.game.Game;
 
 import java.io.BufferedInputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 public class GameFileLoader {
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String ID_PROPERTY = "@id";
+
     public Game load(FileHandle file) {
-        try (BufferedInputStream inputStream = new BufferedInputStream(new FileInputStream(file.file()))) {
-            return Game.getGameJsonSerializer().deserializeGame(new String(inputStream.readAllBytes()));
+        try (InputStream inputStream = unwrap(new BufferedInputStream(new FileInputStream(file.file()), BUFFER_SIZE))) {
+            return Game.getGameJsonSerializer().deserializeGame(inputStream);
+        }
+        catch (JsonMappingException e) {
+            // saves written before compact ids fail on the first uuid id and are read again with converted ids
+            Game game = loadWithUuidIds(file);
+            if (game == null) {
+                e.printStackTrace();
+                throw new IllegalStateException("Can not load game save");
+            }
+            return game;
         }
         catch (IOException e) {
             e.printStackTrace();
@@ -19,4 +40,82 @@ public class GameFileLoader {
         }
     }
 
+    private Game loadWithUuidIds(FileHandle file) {
+        try (InputStream inputStream = unwrap(new BufferedInputStream(new FileInputStream(file.file()), BUFFER_SIZE))) {
+            JsonNode tree = Game.getCustomObjectMapper().readTree(inputStream);
+            return convertUuidIds(tree) ? Game.getGameJsonSerializer().deserializeGame(tree) : null;
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // saves can be compressed with gzip. Compressed saves are recognized by gzip magic number
+    private InputStream unwrap(BufferedInputStream inputStream) throws IOException {
+        inputStream.mark(2);
+        int first = inputStream.read();
+        int second = inputStream.read();
+        inputStream.reset();
+        boolean isGzip = first == (GZIPInputStream.GZIP_MAGIC & 0xff) && second == (GZIPInputStream.GZIP_MAGIC >> 8);
+        return isGzip ? new BufferedInputStream(new GZIPInputStream(inputStream, BUFFER_SIZE), BUFFER_SIZE) : inputStream;
+    }
+
+    /**
+     * Old saves have uuid strings as object ids. They are replaced with sequential numbers in order of
+     * objects in the tree, same as {@link ru.rdude.rpg.game.utils.jsonextension.CompactIdGenerator} gives them.
+     * Returns false if there were no uuid ids.
+     */
+    private static boolean convertUuidIds(JsonNode tree) {
+        Map<String, IntNode> ids = new HashMap<>();
+        collectIds(tree, ids);
+        if (ids.isEmpty()) {
+            return false;
+        }
+        replaceIds(tree, ids);
+        return true;
+    }
+
+    private static void collectIds(JsonNode node, Map<String, IntNode> ids) {
+        if (node.isObject()) {
+            JsonNode id = node.get(ID_PROPERTY);
+            if (id != null && id.isTextual() && !ids.containsKey(id.asText())) {
+                ids.put(id.asText(), IntNode.valueOf(ids.size() + 1));
+            }
+        }
+        if (node.isContainerNode()) {
+            for (JsonNode child : node) {
+                collectIds(child, ids);
+            }
+        }
+    }
+
+    // references to already written objects are written as their ids
+    private static void replaceIds(JsonNode node, Map<String, IntNode> ids) {
+        if (node.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                IntNode replacement = field.getValue().isTextual() ? ids.get(field.getValue().asText()) : null;
+                if (replacement != null) {
+                    field.setValue(replacement);
+                }
+                else {
+                    replaceIds(field.getValue(), ids);
+                }
+            }
+        }
+        else if (node.isArray()) {
+            ArrayNode array = (ArrayNode) node;
+            for (int i = 0; i < array.size(); i++) {
+                IntNode replacement = array.get(i).isTextual() ? ids.get(array.get(i).asText()) : null;
+                if (replacement != null) {
+                    array.set(i, replacement);
+                }
+                else {
+                    replaceIds(array.get(i), ids);
+                }
+            }
+        }
+    }
 }
@@ -2,26 +2,33 @@ package ru.rdude.rpg.game.logic.data.io;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import ru.rdude.rpg.game.logic.game.Game;
 
-import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.StringReader;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.GZIPOutputStream;
 
 public class GameFileSaver {
 
+    public static final String SAVES_DIRECTORY = "saves";
+    public static final String SAVE_EXTENSION = ".save";
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // loader recognizes compressed saves by itself so both kinds of saves can be loaded
+    private boolean compressed = false;
+
     public void save(Game game, String saveName) {
-        FileHandle saveFile = Gdx.files.local("saves\\" + saveName + ".save");
-        String jsonString = Game.getGameJsonSerializer().serialize(game);
-        try (OutputStream outputStream = Files.newOutputStream(saveFile.file().toPath());
-             BufferedReader jsonReader = new BufferedReader(new StringReader(jsonString))) {
-            int b = jsonReader.read();
-            while (b >= 0) {
-                outputStream.write(b);
-                b = jsonReader.read();
-            }
+        try {
+            write(savePath(saveName), compressed, outputStream -> Game.getGameJsonSerializer().serialize(game, outputStream));
             if (Game.getCurrentGame().getGameLogger() != null) {
                 Game.getCurrentGame().getGameLogger().log("Game saved");
             }
@@ -29,4 +36,68 @@ public class GameFileSaver {
             e.printStackTrace();
         }
     }
+
+    // game state copied as json tokens. Game can be changed right after this method returns
+    public TokenBuffer snapshot(Game game) throws IOException {
+        return Game.getGameJsonSerializer().serializeToTokens(game);
+    }
+
+    // encoding, compressing and writing of the snapshot do not touch game objects so can be done on any thread
+    public void save(TokenBuffer snapshot, String saveName, boolean compressed) throws IOException {
+        write(savePath(saveName), compressed, outputStream -> Game.getGameJsonSerializer().serialize(snapshot, outputStream));
+    }
+
+    public FileHandle getSaveFile(String saveName) {
+        return Gdx.files.local(SAVES_DIRECTORY).child(saveName + SAVE_EXTENSION);
+    }
+
+    private Path savePath(String saveName) {
+        FileHandle saveFile = getSaveFile(saveName);
+        saveFile.parent().mkdirs();
+        return saveFile.file().toPath();
+    }
+
+    /**
+     * Writes to temporary file first and then replaces save with it, so previous save stays whole if writing fails
+     * or the game is stopped while writing. Temporary file left by stopped game is overwritten by the next save.
+     */
+    static void write(Path savePath, boolean compressed, SaveWriter writer) throws IOException {
+        Path tempPath = savePath.resolveSibling(savePath.getFileName() + TEMP_EXTENSION);
+        try (FileOutputStream fileOutputStream = new FileOutputStream(tempPath.toFile())) {
+            OutputStream outputStream = wrap(fileOutputStream, compressed);
+            writer.write(outputStream);
+            if (outputStream instanceof GZIPOutputStream) {
+                ((GZIPOutputStream) outputStream).finish();
+            }
+            outputStream.flush();
+            fileOutputStream.getFD().sync();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempPath);
+            throw e;
+        }
+        try {
+            Files.move(tempPath, savePath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempPath, savePath, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static OutputStream wrap(OutputStream outputStream, boolean compressed) throws IOException {
+        return compressed ?
+                new GZIPOutputStream(outputStream, BUFFER_SIZE)
+                : new BufferedOutputStream(outputStream, BUFFER_SIZE);
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    @FunctionalInterface
+    interface SaveWriter {
+        void write(OutputStream outputStream) throws IOException;
+    }
 }
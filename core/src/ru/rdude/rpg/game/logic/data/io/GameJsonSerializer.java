@@ -1,5 +1,7 @@
 package ru.rdude.rpg.game.logic.data.io;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import ru.rdude.rpg.game.logic.data.EntityData;
 import ru.rdude.rpg.game.logic.data.Module;
 import ru.rdude.rpg.game.logic.data.MonsterData;
@@ -7,6 +9,10 @@ import ru.rdude.rpg.game.logic.data.SkillData;
 import ru.rdude.rpg.game.logic.game.Game;
 import ru.rdude.rpg.game.logic.map.GameMap;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
 public class GameJsonSerializer {
 
     private final EntityDataSerializer entityDataSerializer = new EntityDataSerializer();
@@ -25,6 +31,34 @@ public class GameJsonSerializer {
         return gameSerializer.serialize(game);
     }
 
+    public void serialize(GameMap map, OutputStream outputStream) throws IOException {
+        gameMapSerializer.serialize(map, outputStream);
+    }
+
+    public void serialize(Game game, OutputStream outputStream) throws IOException {
+        gameSerializer.serialize(game, outputStream);
+    }
+
+    public TokenBuffer serializeToTokens(Game game) throws IOException {
+        return gameSerializer.serializeToTokens(game);
+    }
+
+    public void serialize(TokenBuffer tokens, OutputStream outputStream) throws IOException {
+        gameSerializer.serialize(tokens, outputStream);
+    }
+
+    public GameMap deserializeGameMap(InputStream inputStream) throws IOException {
+        return gameMapSerializer.deserialize(inputStream);
+    }
+
+    public Game deserializeGame(InputStream inputStream) throws IOException {
+        return gameSerializer.deserialize(inputStream);
+    }
+
+    public Game deserializeGame(JsonNode tree) throws IOException {
+        return gameSerializer.deserialize(tree);
+    }
+
     public GameMap deserializeGameMap(String jsonString) {
         return gameMapSerializer.deserialize(jsonString);
     }
@@ -41,6 +75,10 @@ public class GameJsonSerializer {
         return entityDataSerializer.deserialize(jsonString, SkillData.class);
     }
 
+    public Module deSerializeModule(byte[] json) throws IOException {
+        return entityDataSerializer.deserialize(json, Module.class);
+    }
+
     public Module deSerializeModule(String jsonString) {
         return entityDataSerializer.deserialize(jsonString, Module.class);
     }
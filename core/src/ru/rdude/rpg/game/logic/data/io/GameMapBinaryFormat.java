@@ -0,0 +1,470 @@
+package ru.rdude.rpg.game.logic.data.io;
+
+import ru.rdude.rpg.game.logic.enums.Biom;
+import ru.rdude.rpg.game.logic.enums.Relief;
+import ru.rdude.rpg.game.logic.enums.WaterDepth;
+import ru.rdude.rpg.game.logic.map.Cell;
+import ru.rdude.rpg.game.logic.map.CellSide;
+import ru.rdude.rpg.game.logic.map.GameMap;
+import ru.rdude.rpg.game.logic.map.Point;
+import ru.rdude.rpg.game.logic.map.Road;
+import ru.rdude.rpg.game.logic.map.objects.City;
+import ru.rdude.rpg.game.logic.map.objects.Dungeon;
+import ru.rdude.rpg.game.logic.map.objects.MapObject;
+import ru.rdude.rpg.game.utils.Functions;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary map format. Map is split into square chunks, every chunk stores cell properties
+ * column by column (biom, water depth, relief, road, level, graphics), each column is run length encoded.
+ * Map objects are stored in a sparse table per chunk.
+ * Index of chunks is kept so any chunk can be decoded without reading others.
+ *
+ * Layout (big endian):
+ * magic, version, guid, name, width, height, start point, chunk size, chunks data, chunk offsets and lengths,
+ * position of chunk offsets. Index is at the end so map can be written in one pass.
+ * Version 1 had chunk offsets and lengths right after chunk size.
+ *
+ * Cell ids are not stored, they are generated on loading.
+ */
+public final class GameMapBinaryFormat {
+
+    public static final int MAGIC = 0x52504D42; // "RPMB"
+    public static final int VERSION = 2;
+    public static final int CHUNK_SIZE = 32;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int COLUMNS = 6;
+    private static final int BIOM = 0;
+    private static final int WATER_DEPTH = 1;
+    private static final int RELIEF = 2;
+    private static final int ROAD = 3;
+    private static final int LVL = 4;
+    private static final int GRAPHICS = 5;
+
+    // road column: destinations bitmask by CellSide ordinal, then flags
+    private static final int ROAD_PRESENT = 1 << 8;
+    private static final int ROAD_REAL = 1 << 9;
+
+    private static final byte OBJECT_CITY = 1;
+    private static final byte OBJECT_DUNGEON = 2;
+
+    private static final Biom[] BIOMS = Biom.values();
+    private static final WaterDepth[] WATER_DEPTHS = WaterDepth.values();
+    private static final Relief[] RELIEFS = Relief.values();
+    private static final CellSide[] CELL_SIDES = CellSide.values();
+
+    private GameMapBinaryFormat() {
+    }
+
+    public static boolean isBinary(ByteBuffer buffer) {
+        return buffer.remaining() >= 4 && buffer.getInt(buffer.position()) == MAGIC;
+    }
+
+    /**
+     * Writes map to the stream chunk by chunk, so only one chunk of cells is kept in memory.
+     * Stream is not closed.
+     */
+    public static void encode(GameMap gameMap, OutputStream outputStream) throws IOException {
+        final int width = gameMap.getWidth();
+        final int height = gameMap.getHeight();
+        final int chunksX = chunks(width);
+        final int chunksY = chunks(height);
+        final int[] offsets = new int[chunksX * chunksY];
+        final int[] lengths = new int[chunksX * chunksY];
+
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream, BUFFER_SIZE));
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeLong(gameMap.guid);
+        final byte[] name = (gameMap.getName() == null ? "" : gameMap.getName()).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(name.length);
+        out.write(name);
+        out.writeInt(width);
+        out.writeInt(height);
+        final Point startPoint = gameMap.getStartPoint();
+        out.writeInt(startPoint == null ? -1 : startPoint.getX());
+        out.writeInt(startPoint == null ? -1 : startPoint.getY());
+        out.writeInt(CHUNK_SIZE);
+
+        final int dataStart = out.size();
+        final int[][] columns = new int[COLUMNS][CHUNK_SIZE * CHUNK_SIZE];
+        for (int chunkX = 0; chunkX < chunksX; chunkX++) {
+            for (int chunkY = 0; chunkY < chunksY; chunkY++) {
+                final int chunk = chunkX * chunksY + chunkY;
+                offsets[chunk] = out.size() - dataStart;
+                writeChunk(gameMap, chunkX, chunkY, columns, out);
+                lengths[chunk] = out.size() - dataStart - offsets[chunk];
+            }
+        }
+        // index is written after chunks, when their lengths are known. Its position from chunks start is the last number
+        final int indexStart = out.size() - dataStart;
+        for (int i = 0; i < offsets.length; i++) {
+            out.writeInt(offsets[i]);
+            out.writeInt(lengths[i]);
+        }
+        out.writeInt(indexStart);
+        out.flush();
+    }
+
+    public static GameMap decode(ByteBuffer buffer) {
+        return new Reader(buffer).loadAll();
+    }
+
+    private static int chunks(int cells) {
+        return (cells + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    }
+
+    private static void writeChunk(GameMap gameMap, int chunkX, int chunkY, int[][] columns, OutputStream out) throws IOException {
+        final int fromX = chunkX * CHUNK_SIZE;
+        final int fromY = chunkY * CHUNK_SIZE;
+        final int toX = Math.min(fromX + CHUNK_SIZE, gameMap.getWidth());
+        final int toY = Math.min(fromY + CHUNK_SIZE, gameMap.getHeight());
+        int size = 0;
+        int objects = 0;
+        for (int x = fromX; x < toX; x++) {
+            for (int y = fromY; y < toY; y++) {
+                final Cell cell = gameMap.cell(x, y);
+                columns[BIOM][size] = cell.getBiom() == null ? 0 : cell.getBiom().ordinal() + 1;
+                columns[WATER_DEPTH][size] = cell.getWaterDepth() == null ? 0 : cell.getWaterDepth().ordinal() + 1;
+                columns[RELIEF][size] = cell.getRelief() == null ? 0 : cell.getRelief().ordinal() + 1;
+                columns[ROAD][size] = encodeRoad(cell.getRoad());
+                columns[LVL][size] = cell.getLvl();
+                columns[GRAPHICS][size] = (cell.getGraphicFront() & 0xFFFF) | (cell.getGraphicBack() << 16);
+                if (cell.getObject() != null) {
+                    objects++;
+                }
+                size++;
+            }
+        }
+        for (int[] column : columns) {
+            writeRuns(column, size, out);
+        }
+        // sparse objects table
+        writeVarInt(objects, out);
+        int index = 0;
+        for (int x = fromX; x < toX; x++) {
+            for (int y = fromY; y < toY; y++) {
+                final MapObject object = gameMap.cell(x, y).getObject();
+                if (object != null) {
+                    writeVarInt(index, out);
+                    out.write(objectType(object));
+                    writeLong(object.getId(), out);
+                    out.write(object.getPosition() == null ? 0 : object.getPosition().ordinal() + 1);
+                }
+                index++;
+            }
+        }
+    }
+
+    private static int encodeRoad(Road road) {
+        if (road == null) {
+            return 0;
+        }
+        int result = ROAD_PRESENT;
+        if (road.isRealRoad()) {
+            result |= ROAD_REAL;
+        }
+        for (CellSide destination : road.getDestinations()) {
+            result |= 1 << destination.ordinal();
+        }
+        return result;
+    }
+
+    private static Road decodeRoad(int value) {
+        if ((value & ROAD_PRESENT) == 0) {
+            return null;
+        }
+        Road road = new Road();
+        road.setRealRoad((value & ROAD_REAL) != 0);
+        for (CellSide side : CELL_SIDES) {
+            if ((value & (1 << side.ordinal())) != 0) {
+                road.addDestination(side);
+            }
+        }
+        return road;
+    }
+
+    private static byte objectType(MapObject object) {
+        if (object instanceof City) {
+            return OBJECT_CITY;
+        }
+        else if (object instanceof Dungeon) {
+            return OBJECT_DUNGEON;
+        }
+        throw new IllegalArgumentException("Map object " + object.getClass() + " can not be written to binary map");
+    }
+
+    private static MapObject createObject(byte type, long id) {
+        switch (type) {
+            case OBJECT_CITY:
+                return new City(id);
+            case OBJECT_DUNGEON:
+                return new Dungeon(id);
+            default:
+                throw new IllegalArgumentException("Unknown map object type in binary map: " + type);
+        }
+    }
+
+    private static void writeRuns(int[] values, int size, OutputStream out) throws IOException {
+        int i = 0;
+        while (i < size) {
+            final int value = values[i];
+            int run = 1;
+            while (i + run < size && values[i + run] == value) {
+                run++;
+            }
+            writeVarInt(run, out);
+            writeVarInt((value << 1) ^ (value >> 31), out);
+            i += run;
+        }
+    }
+
+    private static void writeVarInt(int value, OutputStream out) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static void writeLong(long value, OutputStream out) throws IOException {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift));
+        }
+    }
+
+
+    /**
+     * Reads header and chunk index once. Chunks are decoded on demand, one at a time.
+     * Map cells are not synchronized, so loaded map should be used from one thread like any other game map.
+     */
+    public static final class Reader {
+
+        private final ByteBuffer buffer;
+        private final long guid;
+        private final String name;
+        private final int width;
+        private final int height;
+        private final Point startPoint;
+        private final int chunkSize;
+        private final int chunksX;
+        private final int chunksY;
+        private final int[] offsets;
+        private final int[] lengths;
+        private final int dataStart;
+        private final int[][] columns;
+
+        private GameMap gameMap;
+        private boolean[] loadedChunks;
+        private int loadedCount = 0;
+
+        public Reader(ByteBuffer source) {
+            buffer = source.slice().order(ByteOrder.BIG_ENDIAN);
+            try {
+                if (buffer.getInt() != MAGIC) {
+                    throw new IllegalArgumentException("Not a binary game map");
+                }
+                int version = buffer.getShort();
+                if (version > VERSION) {
+                    throw new IllegalArgumentException("Binary game map version " + version + " is not supported");
+                }
+                guid = buffer.getLong();
+                byte[] nameBytes = new byte[buffer.getInt()];
+                buffer.get(nameBytes);
+                name = new String(nameBytes, StandardCharsets.UTF_8);
+                width = buffer.getInt();
+                height = buffer.getInt();
+                int startX = buffer.getInt();
+                int startY = buffer.getInt();
+                startPoint = startX < 0 || startY < 0 ? null : new Point(startX, startY);
+                chunkSize = buffer.getInt();
+                chunksX = (width + chunkSize - 1) / chunkSize;
+                chunksY = (height + chunkSize - 1) / chunkSize;
+                offsets = new int[chunksX * chunksY];
+                lengths = new int[chunksX * chunksY];
+                if (version == 1) {
+                    readIndex(buffer);
+                    dataStart = buffer.position();
+                }
+                else {
+                    dataStart = buffer.position();
+                    final int indexStart = dataStart + buffer.getInt(buffer.limit() - 4);
+                    if (indexStart < dataStart || indexStart > buffer.limit()) {
+                        throw new IllegalArgumentException("Binary game map is truncated");
+                    }
+                    readIndex(buffer.duplicate().position(indexStart));
+                }
+            } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Binary game map is truncated", e);
+            }
+            columns = new int[COLUMNS][chunkSize * chunkSize];
+        }
+
+        private void readIndex(ByteBuffer index) {
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = index.getInt();
+                lengths[i] = index.getInt();
+            }
+        }
+
+        public long getGuid() {
+            return guid;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public Point getStartPoint() {
+            return startPoint;
+        }
+
+        /**
+         * Map that loads chunks when their cells are asked for the first time. When all chunks are loaded
+         * map does not keep this reader and file data anymore.
+         */
+        public synchronized GameMap getGameMap() {
+            if (gameMap == null) {
+                gameMap = new GameMap(guid, width, height);
+                gameMap.setName(name);
+                gameMap.setStartPoint(startPoint);
+                loadedChunks = new boolean[offsets.length];
+                if (offsets.length > 0) {
+                    gameMap.setRegionLoader((x, y) -> loadChunk(x / chunkSize, y / chunkSize));
+                }
+            }
+            return gameMap;
+        }
+
+        public synchronized boolean isFullyLoaded() {
+            return loadedChunks != null && loadedCount == loadedChunks.length;
+        }
+
+        public synchronized boolean isLoaded(int x, int y) {
+            return loadedChunks != null && loadedChunks[(x / chunkSize) * chunksY + y / chunkSize];
+        }
+
+        // decodes only chunks intersecting square with given center and radius in cells
+        public synchronized GameMap loadAround(int x, int y, int radius) {
+            getGameMap();
+            final int fromX = Math.max(0, (x - radius) / chunkSize);
+            final int fromY = Math.max(0, (y - radius) / chunkSize);
+            final int toX = Math.min(chunksX - 1, (x + radius) / chunkSize);
+            final int toY = Math.min(chunksY - 1, (y + radius) / chunkSize);
+            for (int chunkX = fromX; chunkX <= toX; chunkX++) {
+                for (int chunkY = fromY; chunkY <= toY; chunkY++) {
+                    loadChunk(chunkX, chunkY);
+                }
+            }
+            return gameMap;
+        }
+
+        public synchronized GameMap loadAll() {
+            getGameMap();
+            for (int chunkX = 0; chunkX < chunksX; chunkX++) {
+                for (int chunkY = 0; chunkY < chunksY; chunkY++) {
+                    loadChunk(chunkX, chunkY);
+                }
+            }
+            return gameMap;
+        }
+
+        private synchronized void loadChunk(int chunkX, int chunkY) {
+            final int chunk = chunkX * chunksY + chunkY;
+            if (loadedChunks[chunk]) {
+                return;
+            }
+            final ByteBuffer data = buffer.duplicate();
+            data.limit(dataStart + offsets[chunk] + lengths[chunk]);
+            data.position(dataStart + offsets[chunk]);
+
+            final int fromX = chunkX * chunkSize;
+            final int fromY = chunkY * chunkSize;
+            final int toX = Math.min(fromX + chunkSize, width);
+            final int toY = Math.min(fromY + chunkSize, height);
+            final int size = (toX - fromX) * (toY - fromY);
+            try {
+                for (int[] column : columns) {
+                    readRuns(column, size, data);
+                }
+                final Cell[] cells = new Cell[size];
+                int index = 0;
+                for (int x = fromX; x < toX; x++) {
+                    for (int y = fromY; y < toY; y++) {
+                        final int graphics = columns[GRAPHICS][index];
+                        final Cell cell = new Cell(x, y, gameMap, Functions.generateGuid(), graphics & 0xFFFF, graphics >>> 16);
+                        cell.setBiom(columns[BIOM][index] == 0 ? null : BIOMS[columns[BIOM][index] - 1]);
+                        cell.setWaterDepth(columns[WATER_DEPTH][index] == 0 ? null : WATER_DEPTHS[columns[WATER_DEPTH][index] - 1]);
+                        cell.setRelief(columns[RELIEF][index] == 0 ? null : RELIEFS[columns[RELIEF][index] - 1]);
+                        cell.setRoad(decodeRoad(columns[ROAD][index]));
+                        cell.setLvl(columns[LVL][index]);
+                        cells[index++] = cell;
+                    }
+                }
+                final int objects = readVarInt(data);
+                for (int i = 0; i < objects; i++) {
+                    final Cell cell = cells[readVarInt(data)];
+                    final MapObject object = createObject(data.get(), data.getLong());
+                    final int position = data.get();
+                    object.setPosition(position == 0 ? null : CELL_SIDES[position - 1]);
+                    cell.setObject(object);
+                }
+                for (Cell cell : cells) {
+                    gameMap.setCell(cell);
+                }
+            } catch (BufferUnderflowException | ArrayIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Binary game map chunk " + chunkX + ":" + chunkY + " is corrupted", e);
+            }
+            loadedChunks[chunk] = true;
+            loadedCount++;
+            if (loadedCount == loadedChunks.length) {
+                gameMap.setRegionLoader(null);
+            }
+        }
+
+        private static void readRuns(int[] values, int size, ByteBuffer data) {
+            int i = 0;
+            while (i < size) {
+                final int run = readVarInt(data);
+                final int encoded = readVarInt(data);
+                final int value = (encoded >>> 1) ^ -(encoded & 1);
+                if (run <= 0 || i + run > size) {
+                    throw new ArrayIndexOutOfBoundsException("Run length " + run + " is out of chunk");
+                }
+                for (int end = i + run; i < end; i++) {
+                    values[i] = value;
+                }
+            }
+        }
+
+        private static int readVarInt(ByteBuffer data) {
+            int result = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                final byte b = data.get();
+                result |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new ArrayIndexOutOfBoundsException("Malformed variable length number");
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package ru.rdude.rpg.game.logic.data.io;
+
+import com.badlogic.gdx.files.FileHandle;
+import ru.rdude.rpg.game.logic.map.GameMap;
+import ru.rdude.rpg.game.ui.MapInfo;
+
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Loaded game maps by map guid and hash of map data in file, so same map file is parsed once
+ * no matter how many saves or menus use it. If map file is changed, it is loaded again.
+ * Maps are kept by soft references except few most recently used.
+ * Cached maps are shared, so they must not be changed. Everything that changes during game is kept in
+ * {@link ru.rdude.rpg.game.logic.gameStates.Map}.
+ */
+public class GameMapCache {
+
+    private final Map<Key, SoftReference<GameMap>> maps = new HashMap<>();
+    private final Map<Key, CompletableFuture<GameMap>> loading = new HashMap<>();
+    private final Deque<GameMap> recentlyUsed = new ArrayDeque<>();
+    private int recentlyUsedLimit = 1;
+    private ExecutorService executor;
+
+    public GameMap get(MapInfo mapInfo) {
+        return get(mapInfo.guid, mapInfo.mapFile);
+    }
+
+    public GameMap get(long guid, FileHandle mapFile) {
+        Key key = key(guid, mapFile);
+        CompletableFuture<GameMap> future;
+        boolean loadHere = false;
+        synchronized (this) {
+            GameMap cached = cached(key);
+            if (cached != null) {
+                return cached;
+            }
+            future = loading.get(key);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                loading.put(key, future);
+                loadHere = true;
+            }
+        }
+        // map is loaded without lock, other threads asking for the same map wait for the same future
+        if (loadHere) {
+            load(key, mapFile, future);
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Loading of game map was interrupted " + mapFile);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // starts loading of map on background thread if it is not loaded yet
+    public void prefetch(MapInfo mapInfo) {
+        executor().execute(() -> {
+            try {
+                get(mapInfo);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    public synchronized void clear() {
+        maps.clear();
+        recentlyUsed.clear();
+    }
+
+    public synchronized int getRecentlyUsedLimit() {
+        return recentlyUsedLimit;
+    }
+
+    // amount of maps that are kept in memory even when memory is low
+    public synchronized void setRecentlyUsedLimit(int recentlyUsedLimit) {
+        if (recentlyUsedLimit < 0) {
+            throw new IllegalArgumentException("Limit can not be negative");
+        }
+        this.recentlyUsedLimit = recentlyUsedLimit;
+        while (recentlyUsed.size() > recentlyUsedLimit) {
+            recentlyUsed.removeLast();
+        }
+    }
+
+    private void load(Key key, FileHandle mapFile, CompletableFuture<GameMap> future) {
+        try {
+            GameMap gameMap = GameMapFileLoader.load(mapFile);
+            synchronized (this) {
+                // older versions of the same map are not needed anymore
+                maps.keySet().removeIf(cachedKey -> cachedKey.guid == key.guid);
+                maps.put(key, new SoftReference<>(gameMap));
+                use(gameMap);
+            }
+            future.complete(gameMap);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        } finally {
+            synchronized (this) {
+                loading.remove(key);
+            }
+        }
+    }
+
+    private GameMap cached(Key key) {
+        SoftReference<GameMap> reference = maps.get(key);
+        GameMap gameMap = reference == null ? null : reference.get();
+        if (reference != null && gameMap == null) {
+            maps.remove(key);
+        }
+        if (gameMap != null) {
+            use(gameMap);
+        }
+        return gameMap;
+    }
+
+    private void use(GameMap gameMap) {
+        recentlyUsed.remove(gameMap);
+        if (recentlyUsedLimit > 0) {
+            recentlyUsed.addFirst(gameMap);
+        }
+        while (recentlyUsed.size() > recentlyUsedLimit) {
+            recentlyUsed.removeLast();
+        }
+    }
+
+    // crc of map data entry is taken from zip directory, so file content is not read
+    private Key key(long guid, FileHandle mapFile) {
+        try (ZipFile zipFile = new ZipFile(mapFile.file())) {
+            ZipEntry data = zipFile.getEntry(GameMapFileSaver.CELLS_ENTRY);
+            if (data == null) {
+                data = zipFile.getEntry("data");
+            }
+            if (data == null) {
+                throw new IllegalArgumentException("Can not load game map because there is no data entry in the file " + mapFile);
+            }
+            return new Key(guid, data.getCrc(), data.getSize());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Can not read game map file " + mapFile, e);
+        }
+    }
+
+    private synchronized ExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "map prefetch");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+
+    private static final class Key {
+
+        private final long guid;
+        private final long crc;
+        private final long size;
+
+        private Key(long guid, long crc, long size) {
+            this.guid = guid;
+            this.crc = crc;
+            this.size = size;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return guid == key.guid && crc == key.crc && size == key.size;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(guid, crc, size);
+        }
+    }
+}
@@ -1,31 +1,54 @@
 package ru.rdude.rpg.game.logic.data.io;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
-import com.badlogic.gdx.graphics.Texture;
-import com.badlogic.gdx.scenes.scene2d.ui.Image;
+import com.badlogic.gdx.graphics.Pixmap;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import ru.rdude.rpg.game.logic.game.Game;
 import ru.rdude.rpg.game.logic.map.GameMap;
+import ru.rdude.rpg.game.logic.map.Point;
 import ru.rdude.rpg.game.ui.MapInfo;
 
 import java.io.BufferedInputStream;
 import java.io.FileInputStream;
-import java.nio.file.Files;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
 public class GameMapFileLoader {
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final ObjectMapper infoMapper = new ObjectMapper();
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    // cells around start point that are decoded when map is loaded
+    private static final int START_RADIUS = GameMapBinaryFormat.CHUNK_SIZE;
+
+    /**
+     * Binary maps are loaded by regions: only chunks around start point are decoded here,
+     * other chunks are decoded when their cells are used for the first time.
+     */
     public static GameMap load(FileHandle file) {
-        try (ZipInputStream zipInputStream = new ZipInputStream(new FileInputStream(file.file()));
-             BufferedInputStream bufferedInputStream = new BufferedInputStream(zipInputStream)) {
+        GameMapBinaryFormat.Reader reader = open(file);
+        if (reader != null) {
+            Point startPoint = reader.getStartPoint();
+            return startPoint == null ? reader.getGameMap() : reader.loadAround(startPoint.getX(), startPoint.getY(), START_RADIUS);
+        }
+        // maps saved before binary format
+        try (ZipInputStream zipInputStream = new ZipInputStream(new BufferedInputStream(new FileInputStream(file.file()), BUFFER_SIZE))) {
 
             ZipEntry entry;
             while ((entry = zipInputStream.getNextEntry()) != null) {
                 if (entry.getName().equals("data")) {
-                    return Game.getGameJsonSerializer().deserializeGameMap(new String(bufferedInputStream.readAllBytes()));
+                    return Game.getGameJsonSerializer().deserializeGameMap(zipInputStream);
                 }
             }
 
@@ -35,33 +58,95 @@ public class GameMapFileLoader {
         throw new IllegalArgumentException("Can not load game map because there is no data entry in the file " + file);
     }
 
-    public static MapInfo loadInfo(FileHandle file) {
-        try (ZipInputStream zipInputStream = new ZipInputStream(new FileInputStream(file.file()));
-             BufferedInputStream bufferedInputStream = new BufferedInputStream(zipInputStream)) {
+    public static boolean isBinary(FileHandle file) {
+        return open(file) != null;
+    }
 
+    /**
+     * Opens binary map data without decoding cells, so map can be loaded by regions.
+     * Returns null if file contains map in old json format.
+     */
+    public static GameMapBinaryFormat.Reader open(FileHandle file) {
+        ByteBuffer mapped = mapCellsEntry(file);
+        if (mapped != null) {
+            return new GameMapBinaryFormat.Reader(mapped);
+        }
+        // cells entry is not the first stored entry, so it is read into memory
+        try (ZipInputStream zipInputStream = new ZipInputStream(new BufferedInputStream(new FileInputStream(file.file()), BUFFER_SIZE))) {
             ZipEntry entry;
-
-            Image image = null;
-            long guid = -1;
-            String name = null;
             while ((entry = zipInputStream.getNextEntry()) != null) {
-                if (entry.getName().equals("image.png")) {
-                    FileHandle imageUnzipped = Gdx.files.local("temp\\images\\unzippedImage");
-                    Files.copy(bufferedInputStream, imageUnzipped.file().toPath());
-                    image = new Image(new Texture(imageUnzipped));
-                    imageUnzipped.delete();
-                }
-                else if (entry.getName().equals("info")) {
-                    ObjectNode infoNode = new ObjectMapper().readValue(new String(bufferedInputStream.readAllBytes()), ObjectNode.class);
-                    guid = infoNode.get("guid").asLong();
-                    name = infoNode.get("name").asText();
+                if (entry.getName().equals(GameMapFileSaver.CELLS_ENTRY)) {
+                    return new GameMapBinaryFormat.Reader(ByteBuffer.wrap(zipInputStream.readAllBytes()));
                 }
             }
-            return new MapInfo(file, guid, name, image);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
 
+    // saver writes cells as the first not compressed entry. Its data starts right after local file header
+    private static ByteBuffer mapCellsEntry(FileHandle file) {
+        try (FileChannel channel = FileChannel.open(file.file().toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(LOCAL_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (channel.read(header, 0) < LOCAL_HEADER_SIZE) {
+                return null;
+            }
+            int flags = header.getShort(6) & 0xFFFF;
+            int method = header.getShort(8) & 0xFFFF;
+            long size = header.getInt(22) & 0xFFFFFFFFL;
+            int nameLength = header.getShort(26) & 0xFFFF;
+            int extraLength = header.getShort(28) & 0xFFFF;
+            // size is known in local header only when data descriptor flag is not set
+            if (header.getInt(0) != LOCAL_HEADER_SIGNATURE || method != ZipEntry.STORED || (flags & 0x08) != 0) {
+                return null;
+            }
+            ByteBuffer name = ByteBuffer.allocate(nameLength);
+            channel.read(name, LOCAL_HEADER_SIZE);
+            if (!GameMapFileSaver.CELLS_ENTRY.equals(new String(name.array(), StandardCharsets.UTF_8))) {
+                return null;
+            }
+            long dataStart = LOCAL_HEADER_SIZE + nameLength + extraLength;
+            if (dataStart + size > channel.size()) {
+                return null;
+            }
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, dataStart, size);
+            return GameMapBinaryFormat.isBinary(data) ? data : null;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // reads only info entry. Preview image is loaded separately by loadImage
+    public static MapInfo loadInfo(FileHandle file) {
+        try (ZipFile zipFile = new ZipFile(file.file())) {
+            ZipEntry entry = zipFile.getEntry("info");
+            if (entry != null) {
+                try (InputStream inputStream = zipFile.getInputStream(entry)) {
+                    ObjectNode infoNode = infoMapper.readValue(inputStream, ObjectNode.class);
+                    return new MapInfo(file, infoNode.get("guid").asLong(), infoNode.get("name").asText(), file.length(), file.lastModified());
+                }
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
         throw new IllegalArgumentException("Can not load game map from file " + file);
     }
+
+    // decodes preview image straight from the file. Can be called from any thread
+    public static Pixmap loadImage(FileHandle file) {
+        try (ZipFile zipFile = new ZipFile(file.file())) {
+            ZipEntry entry = zipFile.getEntry("image.png");
+            if (entry != null) {
+                try (InputStream inputStream = zipFile.getInputStream(entry)) {
+                    byte[] bytes = inputStream.readAllBytes();
+                    return new Pixmap(bytes, 0, bytes.length);
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        throw new IllegalArgumentException("Can not load map image from file " + file);
+    }
 }
@@ -10,18 +10,30 @@ import ru.rdude.rpg.game.logic.game.Game;
 import ru.rdude.rpg.game.logic.map.GameMap;
 import ru.rdude.rpg.game.utils.Functions;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.StringReader;
 import java.nio.file.Files;
-import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
 public final class GameMapFileSaver {
 
+    public static final String MAPS_DIRECTORY = "maps";
+    public static final String MAP_EXTENSION = ".map";
+    // binary cells entry is the first entry of the file and is not compressed, so it can be memory mapped on loading
+    public static final String CELLS_ENTRY = "cells";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final ObjectMapper infoMapper = new ObjectMapper();
+
     private GameMapFileSaver() {
     }
 
@@ -35,50 +47,91 @@ public final class GameMapFileSaver {
         }
         gameMap.setName(name);
         String fileName = name;
-        if (Arrays.stream(Gdx.files.local("maps").list(".map")).anyMatch(file -> file.nameWithoutExtension().equals(fileName))) {
+        if (Arrays.stream(Gdx.files.local(MAPS_DIRECTORY).list(MAP_EXTENSION)).anyMatch(file -> file.nameWithoutExtension().equals(fileName))) {
             name += Functions.generateGuid();
         }
 
-        String jsonString = Game.getGameJsonSerializer().serialize(gameMap);
+        FileHandle mapFile = Gdx.files.local(MAPS_DIRECTORY).child(name + MAP_EXTENSION);
 
-        FileHandle imageTempFile = Gdx.files.local("temp\\map_images\\current_saving.png");
-        Path imageTempPath = imageTempFile.file().toPath();
-        FileHandle mapFile = Gdx.files.local("maps\\" + name + ".map");
-        PixmapIO.writePNG(imageTempFile, pixmap);
+        try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(mapFile.file().toPath()), BUFFER_SIZE);
+             ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
 
-        try (OutputStream outputStream = Files.newOutputStream(mapFile.file().toPath());
-             ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream);
-             BufferedReader jsonReader = new BufferedReader(new StringReader(jsonString))) {
+            // map data
+            writeCells(gameMap, zipOutputStream);
 
             // image
             zipOutputStream.putNextEntry(new ZipEntry("image.png"));
-            Files.copy(imageTempPath, zipOutputStream);
+            PixmapIO.PNG png = new PixmapIO.PNG((int) (pixmap.getWidth() * pixmap.getHeight() * 1.5f));
+            try {
+                png.setFlipY(false);
+                png.write(zipOutputStream, pixmap);
+            }
+            finally {
+                png.dispose();
+            }
             zipOutputStream.closeEntry();
 
             // info
             zipOutputStream.putNextEntry(new ZipEntry("info"));
-            ObjectMapper infoMapper = new ObjectMapper();
             ObjectNode info = infoMapper.createObjectNode();
             info.put("guid", gameMap.guid);
             info.put("name", gameMap.getName());
-            String infoJson = infoMapper.writeValueAsString(info);
-            zipOutputStream.write(infoJson.getBytes());
+            zipOutputStream.write(infoMapper.writeValueAsBytes(info));
             zipOutputStream.closeEntry();
 
-            // map data
-            zipOutputStream.putNextEntry(new ZipEntry("data"));
-            int b = jsonReader.read();
-            while (b >= 0) {
-                zipOutputStream.write(b);
-                b = jsonReader.read();
-            }
-
         } catch (IOException e) {
             e.printStackTrace();
         }
 
-        imageTempFile.delete();
         Game.getMapFiles().put(gameMap.guid, GameMapFileLoader.loadInfo(mapFile));
         return mapFile;
     }
+
+    // rewrites map file with json data to binary format. Other entries are copied as they are
+    public static void convertToBinary(FileHandle mapFile) {
+        if (GameMapFileLoader.isBinary(mapFile)) {
+            return;
+        }
+        GameMap gameMap = GameMapFileLoader.load(mapFile);
+        FileHandle converted = mapFile.sibling(mapFile.name() + ".tmp");
+        try (ZipInputStream zipInputStream = new ZipInputStream(new BufferedInputStream(Files.newInputStream(mapFile.file().toPath()), BUFFER_SIZE));
+             ZipOutputStream zipOutputStream = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(converted.file().toPath()), BUFFER_SIZE))) {
+
+            writeCells(gameMap, zipOutputStream);
+            ZipEntry entry;
+            while ((entry = zipInputStream.getNextEntry()) != null) {
+                if (entry.getName().equals("data") || entry.getName().equals(CELLS_ENTRY)) {
+                    continue;
+                }
+                zipOutputStream.putNextEntry(new ZipEntry(entry.getName()));
+                zipInputStream.transferTo(zipOutputStream);
+                zipOutputStream.closeEntry();
+            }
+
+        } catch (IOException e) {
+            e.printStackTrace();
+            converted.delete();
+            return;
+        }
+        try {
+            Files.move(converted.file().toPath(), mapFile.file().toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // stored entry needs size and crc before data, so cells are encoded twice instead of being kept in memory
+    static void writeCells(GameMap gameMap, ZipOutputStream zipOutputStream) throws IOException {
+        CRC32 crc = new CRC32();
+        DataOutputStream counter = new DataOutputStream(new CheckedOutputStream(OutputStream.nullOutputStream(), crc));
+        GameMapBinaryFormat.encode(gameMap, counter);
+        ZipEntry entry = new ZipEntry(CELLS_ENTRY);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(counter.size());
+        entry.setCompressedSize(counter.size());
+        entry.setCrc(crc.getValue());
+        zipOutputStream.putNextEntry(entry);
+        GameMapBinaryFormat.encode(gameMap, zipOutputStream);
+        zipOutputStream.closeEntry();
+    }
 }
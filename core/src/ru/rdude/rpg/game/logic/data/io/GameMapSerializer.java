@@ -1,10 +1,16 @@
 package ru.rdude.rpg.game.logic.data.io;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import ru.rdude.rpg.game.logic.game.Game;
 import ru.rdude.rpg.game.logic.map.GameMap;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
 public class GameMapSerializer {
 
     private final ObjectMapper objectMapper = Game.getCustomObjectMapper();
@@ -19,6 +25,20 @@ public class GameMapSerializer {
         return result;
     }
 
+    // writes directly to the stream without creating json string. Stream is not closed
+    public void serialize(GameMap map, OutputStream outputStream) throws IOException {
+        objectMapper.writer()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .writeValue(outputStream, map);
+    }
+
+    // reads directly from the stream without creating json string. Stream is not closed
+    public GameMap deserialize(InputStream inputStream) throws IOException {
+        return objectMapper.readerFor(GameMap.class)
+                .without(JsonParser.Feature.AUTO_CLOSE_SOURCE)
+                .readValue(inputStream);
+    }
+
     public GameMap deserialize(String jsonString) {
         GameMap result = null;
         try {
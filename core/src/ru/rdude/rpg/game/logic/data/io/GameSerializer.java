@@ -1,8 +1,16 @@
 package ru.rdude.rpg.game.logic.data.io;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import ru.rdude.rpg.game.logic.game.Game;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
 public class GameSerializer {
 
     private final CustomObjectMapper objectMapper;
@@ -21,6 +29,42 @@ public class GameSerializer {
         return result;
     }
 
+    // writes directly to the stream without creating json string. Stream is not closed
+    public void serialize(Game game, OutputStream outputStream) throws IOException {
+        objectMapper.writer()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .writeValue(outputStream, game);
+    }
+
+    /**
+     * Copy of the game as json tokens. Tokens keep strings and numbers, not game objects, so game can be changed
+     * right after this method returns and tokens can be written later on other thread.
+     */
+    public TokenBuffer serializeToTokens(Game game) throws IOException {
+        TokenBuffer tokens = new TokenBuffer(objectMapper, false);
+        objectMapper.writeValue(tokens, game);
+        return tokens;
+    }
+
+    // writes tokens to the stream as json. Stream is not closed
+    public void serialize(TokenBuffer tokens, OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            tokens.serialize(generator);
+        }
+    }
+
+    // reads directly from the stream without creating json string. Stream is not closed
+    public Game deserialize(InputStream inputStream) throws IOException {
+        return objectMapper.readerFor(Game.class)
+                .without(JsonParser.Feature.AUTO_CLOSE_SOURCE)
+                .readValue(inputStream);
+    }
+
+    public Game deserialize(JsonNode tree) throws IOException {
+        return objectMapper.readerFor(Game.class).readValue(tree);
+    }
+
     public Game deserialize(String jsonString) {
         Game result = null;
         try {
@@ -0,0 +1,98 @@
+package ru.rdude.rpg.game.logic.data.io;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import ru.rdude.rpg.game.ui.MapInfo;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Info of every map file in maps directory is kept in index file, so on start only
+ * new or changed map files are read. Changes are found by file size and modification time.
+ */
+public final class MapLibraryIndex {
+
+    public static final String INDEX_FILE = "maps.index";
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private MapLibraryIndex() {
+    }
+
+    public static List<MapInfo> load() {
+        FileHandle directory = Gdx.files.local(GameMapFileSaver.MAPS_DIRECTORY);
+        FileHandle indexFile = directory.child(INDEX_FILE);
+        Map<String, MapInfo> indexed = read(indexFile, directory);
+
+        List<MapInfo> result = new ArrayList<>();
+        boolean changed = false;
+        for (FileHandle file : directory.list(GameMapFileSaver.MAP_EXTENSION)) {
+            MapInfo mapInfo = indexed.remove(file.name());
+            if (mapInfo == null || !mapInfo.isActualFor(file)) {
+                try {
+                    mapInfo = GameMapFileLoader.loadInfo(file);
+                } catch (IllegalArgumentException e) {
+                    e.printStackTrace();
+                    continue;
+                }
+                changed = true;
+            }
+            result.add(mapInfo);
+        }
+        // removed files
+        changed |= !indexed.isEmpty();
+        if (changed) {
+            write(indexFile, result);
+        }
+        return result;
+    }
+
+    private static Map<String, MapInfo> read(FileHandle indexFile, FileHandle directory) {
+        Map<String, MapInfo> result = new HashMap<>();
+        if (!indexFile.exists()) {
+            return result;
+        }
+        try {
+            for (JsonNode node : mapper.readTree(indexFile.file())) {
+                String fileName = node.get("file").asText();
+                result.put(fileName, new MapInfo(
+                        directory.child(fileName),
+                        node.get("guid").asLong(),
+                        node.get("name").asText(),
+                        node.get("size").asLong(),
+                        node.get("modified").asLong()));
+            }
+        } catch (IOException | RuntimeException e) {
+            // index is rebuilt from map files
+            e.printStackTrace();
+            result.clear();
+        }
+        return result;
+    }
+
+    private static void write(FileHandle indexFile, List<MapInfo> mapInfos) {
+        ArrayNode index = mapper.createArrayNode();
+        for (MapInfo mapInfo : mapInfos) {
+            ObjectNode node = index.addObject();
+            node.put("file", mapInfo.mapFile.name());
+            node.put("guid", mapInfo.guid);
+            node.put("name", mapInfo.text);
+            node.put("size", mapInfo.fileSize);
+            node.put("modified", mapInfo.lastModified);
+        }
+        try {
+            indexFile.parent().mkdirs();
+            mapper.writeValue(indexFile.file(), index);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
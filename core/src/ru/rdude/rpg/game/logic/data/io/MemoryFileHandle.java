@@ -0,0 +1,85 @@
+package ru.rdude.rpg.game.logic.data.io;
+
+import com.badlogic.gdx.Files;
+import com.badlogic.gdx.files.FileHandle;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * File handle over files kept in memory, so gdx classes that read files (for example texture atlas data)
+ * can read them without writing them to disk. Directory handle contains files by names.
+ */
+class MemoryFileHandle extends FileHandle {
+
+    private final byte[] bytes;
+    private final Map<String, byte[]> directory;
+    private final boolean isDirectory;
+
+    // file. Bytes are null if there is no such file
+    MemoryFileHandle(String name, byte[] bytes, Map<String, byte[]> directory) {
+        super(name, Files.FileType.Absolute);
+        this.bytes = bytes;
+        this.directory = directory;
+        this.isDirectory = false;
+    }
+
+    // directory
+    MemoryFileHandle(Map<String, byte[]> directory) {
+        super("", Files.FileType.Absolute);
+        this.bytes = null;
+        this.directory = directory;
+        this.isDirectory = true;
+    }
+
+    byte[] bytes() {
+        return bytes;
+    }
+
+    @Override
+    public InputStream read() {
+        if (bytes == null) {
+            throw new IllegalStateException("There is no file " + path() + " in memory");
+        }
+        return new ByteArrayInputStream(bytes);
+    }
+
+    @Override
+    public byte[] readBytes() {
+        if (bytes == null) {
+            throw new IllegalStateException("There is no file " + path() + " in memory");
+        }
+        return bytes.clone();
+    }
+
+    @Override
+    public long length() {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    @Override
+    public boolean exists() {
+        return bytes != null || isDirectory;
+    }
+
+    @Override
+    public boolean isDirectory() {
+        return isDirectory;
+    }
+
+    @Override
+    public FileHandle child(String name) {
+        return new MemoryFileHandle(name, directory.get(name), directory);
+    }
+
+    @Override
+    public FileHandle sibling(String name) {
+        return child(name);
+    }
+
+    @Override
+    public FileHandle parent() {
+        return new MemoryFileHandle(directory);
+    }
+}
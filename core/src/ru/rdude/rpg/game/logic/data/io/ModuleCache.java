@@ -0,0 +1,175 @@
+package ru.rdude.rpg.game.logic.data.io;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import ru.rdude.rpg.game.logic.data.Module;
+import ru.rdude.rpg.game.logic.game.Game;
+import ru.rdude.rpg.game.utils.jsonextension.PolymorphicObjectMapper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Parsed modules in binary form (smile). Module is taken from cache only if fingerprint
+ * of module data in module file and fingerprint of serialized game classes are the same as when cache was written,
+ * so cache is rebuilt after game update changed any of those classes.
+ * Cache that can not be read is ignored and overwritten.
+ */
+class ModuleCache {
+
+    static final String CACHE_DIRECTORY = "cache";
+    private static final String MODULES_DIRECTORY = "modules";
+    private static final String CACHE_EXTENSION = ".cache";
+    private static final int MAGIC = 0x52504D43; // "RPMC"
+    private static final int VERSION = 2;
+    private static final String PACKAGE = "ru.rdude.rpg.game";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // null means default cache directory in local files
+    private final FileHandle directory;
+    private CustomObjectMapper binaryMapper;
+    // classes are the same while game is running
+    private static Long classesFingerprint;
+
+    ModuleCache() {
+        this(null);
+    }
+
+    ModuleCache(FileHandle directory) {
+        this.directory = directory;
+    }
+
+    // returns null if there is no actual cache for the module file
+    Module read(FileHandle moduleFile, long fingerprint) {
+        FileHandle cacheFile = cacheFile(moduleFile);
+        if (!cacheFile.exists()) {
+            return null;
+        }
+        try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile.file().toPath()), BUFFER_SIZE))) {
+            if (inputStream.readInt() != MAGIC || inputStream.readInt() != VERSION
+                    || inputStream.readLong() != classesFingerprint() || inputStream.readLong() != fingerprint) {
+                return null;
+            }
+            return binaryMapper().readValue((InputStream) inputStream, Module.class);
+        } catch (IOException | RuntimeException e) {
+            // classes could be changed since cache was written
+            return null;
+        }
+    }
+
+    void write(FileHandle moduleFile, long fingerprint, Module module) {
+        FileHandle cacheFile = cacheFile(moduleFile);
+        FileHandle tempFile = cacheFile.sibling(cacheFile.name() + ".tmp");
+        cacheFile.parent().mkdirs();
+        try {
+            try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile.file().toPath()), BUFFER_SIZE))) {
+                outputStream.writeInt(MAGIC);
+                outputStream.writeInt(VERSION);
+                outputStream.writeLong(classesFingerprint());
+                outputStream.writeLong(fingerprint);
+                binaryMapper().writeValue((OutputStream) outputStream, module);
+            }
+            Files.move(tempFile.file().toPath(), cacheFile.file().toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            tempFile.delete();
+        }
+    }
+
+    private FileHandle cacheFile(FileHandle moduleFile) {
+        FileHandle cacheDirectory = directory != null ? directory : Gdx.files.local(CACHE_DIRECTORY).child(MODULES_DIRECTORY);
+        return cacheDirectory.child(moduleFile.name() + CACHE_EXTENSION);
+    }
+
+    synchronized CustomObjectMapper binaryMapper() {
+        if (binaryMapper == null) {
+            binaryMapper = Game.getCustomObjectMapper().withFactory(new SmileFactory());
+        }
+        return binaryMapper;
+    }
+
+    static synchronized long classesFingerprint() {
+        if (classesFingerprint == null) {
+            Long compiled = PolymorphicObjectMapper.getSerializedClassesFingerprint();
+            classesFingerprint = compiled != null ? compiled : bytecodeFingerprint();
+        }
+        return classesFingerprint;
+    }
+
+    // checksum of bytecode of module class and every game class it can contain.
+    // Reading of bytecode is slow, it is used only when classes were compiled without annotation processor
+    private static long bytecodeFingerprint() {
+        Set<Class<?>> classes = new HashSet<>();
+        collect(Module.class, classes);
+        PolymorphicObjectMapper.getPolymorphicSubTypes(PACKAGE).forEach(type -> collect(type, classes));
+        List<Class<?>> sorted = new ArrayList<>(classes);
+        sorted.sort(Comparator.comparing(Class::getName));
+        CRC32 crc = new CRC32();
+        for (Class<?> type : sorted) {
+            crc.update(type.getName().getBytes(StandardCharsets.UTF_8));
+            String resource = "/" + type.getName().replace('.', '/') + ".class";
+            try (InputStream inputStream = type.getResourceAsStream(resource)) {
+                if (inputStream != null) {
+                    crc.update(inputStream.readAllBytes());
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static void collect(Type type, Set<Class<?>> classes) {
+        if (type instanceof Class) {
+            Class<?> cl = (Class<?>) type;
+            if (cl.isArray()) {
+                collect(cl.getComponentType(), classes);
+                return;
+            }
+            if (!cl.getName().startsWith(PACKAGE) || !classes.add(cl)) {
+                return;
+            }
+            collect(cl.getSuperclass(), classes);
+            for (Class<?> inner : cl.getDeclaredClasses()) {
+                collect(inner, classes);
+            }
+            for (Field field : cl.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    collect(field.getGenericType(), classes);
+                }
+            }
+        }
+        else if (type instanceof ParameterizedType) {
+            collect(((ParameterizedType) type).getRawType(), classes);
+            for (Type argument : ((ParameterizedType) type).getActualTypeArguments()) {
+                collect(argument, classes);
+            }
+        }
+        else if (type instanceof GenericArrayType) {
+            collect(((GenericArrayType) type).getGenericComponentType(), classes);
+        }
+        else if (type instanceof WildcardType) {
+            for (Type bound : ((WildcardType) type).getUpperBounds()) {
+                collect(bound, classes);
+            }
+        }
+        else if (type instanceof TypeVariable) {
+            // only raw bounds, bound can refer to the variable itself as in E extends Enum<E>
+            for (Type bound : ((TypeVariable<?>) type).getBounds()) {
+                collect(bound instanceof ParameterizedType ? ((ParameterizedType) bound).getRawType() : bound, classes);
+            }
+        }
+    }
+}
@@ -2,73 +2,199 @@ package ru.rdude.rpg.game.logic.data.io;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import ru.rdude.rpg.game.logic.data.Module;
 import ru.rdude.rpg.game.logic.data.*;
 import ru.rdude.rpg.game.ui.ImageFactory;
 
-import java.io.BufferedInputStream;
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.zip.ZipFile;
 
+/**
+ * Module files are read and parsed in parallel. Images are kept in memory and atlas pages are decoded
+ * on worker threads too, only textures are created on the calling (render) thread.
+ * Parsed modules are cached, so module which was not changed is not parsed from json again.
+ */
 public class ModuleFileLoader {
 
+    public static final String MODULES_DIRECTORY = "modules";
+    public static final String MODULE_EXTENSION = ".module";
+    private static final String MODULE_ENTRY = "module";
+    private static final String ATLAS_EXTENSION = ".atlas";
+
     private GameJsonSerializer gameJsonSerializer;
     private ImageFactory imageFactory;
+    // null means default modules directory in local files
+    private final FileHandle modulesDirectory;
+    private final ModuleCache moduleCache;
 
     public ModuleFileLoader(GameJsonSerializer gameJsonSerializer, ImageFactory imageFactory) {
+        this(gameJsonSerializer, imageFactory, null, new ModuleCache());
+    }
+
+    ModuleFileLoader(GameJsonSerializer gameJsonSerializer, ImageFactory imageFactory, FileHandle modulesDirectory, ModuleCache moduleCache) {
         this.gameJsonSerializer = gameJsonSerializer;
         this.imageFactory = imageFactory;
+        this.modulesDirectory = modulesDirectory;
+        this.moduleCache = moduleCache;
     }
 
     public void load() {
-        // remove old files
-        for (FileHandle fileHandle : Gdx.files.local("temp\\images").list()) {
-            fileHandle.delete();
+        FileHandle directory = modulesDirectory != null ? modulesDirectory : Gdx.files.local(MODULES_DIRECTORY);
+        FileHandle[] moduleFiles = directory.list(MODULE_EXTENSION);
+        if (moduleFiles.length == 0) {
+            return;
         }
+        int threads = Math.max(1, Math.min(moduleFiles.length, Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "module loading");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            // read and parse files
+            List<Future<LoadedModule>> loading = new ArrayList<>();
+            for (FileHandle moduleFile : moduleFiles) {
+                loading.add(executor.submit(() -> read(moduleFile)));
+            }
+            // images of all modules are in one namespace as atlases can refer to pages by name only
+            Map<String, byte[]> images = new HashMap<>();
+            for (Future<LoadedModule> future : loading) {
+                LoadedModule loadedModule = get(future);
+                if (loadedModule == null) {
+                    continue;
+                }
+                if (loadedModule.module != null) {
+                    store(loadedModule.module);
+                }
+                images.putAll(loadedModule.images);
+            }
 
-        // load files
-        FileHandle[] moduleFiles = Gdx.files.local("modules").list(".module");
-        for (FileHandle moduleFile : moduleFiles) {
-            try (ZipInputStream zipInputStream = new ZipInputStream(new FileInputStream(moduleFile.file()));
-                 BufferedInputStream bufferedInputStream = new BufferedInputStream(zipInputStream)) {
-                ZipEntry entry;
-                while ((entry = zipInputStream.getNextEntry()) != null) {
-
-                    // main module logic file
-                    if (!entry.isDirectory() && entry.getName().equals("module")) {
-                        String jsonString = new String(bufferedInputStream.readAllBytes());
-                        Module module = gameJsonSerializer.deSerializeModule(jsonString);
-                        // store entities
-                        ItemData.storeItems(module.getItemData());
-                        SkillData.storeSkills(module.getSkillData());
-                        MonsterData.storeMonsters(module.getMonsterData());
-                        EventData.storeEvents(module.getEventData());
-                        QuestData.storeQuests(module.getQuestData());
-                        //PlayerClassData.storeClasses(module.getPlayerClassData());
-                    }
+            // decode atlas pages
+            List<Future<PreparedAtlas>> atlases = new ArrayList<>();
+            images.forEach((name, bytes) -> {
+                if (name.endsWith(ATLAS_EXTENSION)) {
+                    atlases.add(executor.submit(() -> prepareAtlas(name, bytes, images)));
+                }
+            });
+            // upload textures and store atlas regions
+            for (Future<PreparedAtlas> future : atlases) {
+                PreparedAtlas preparedAtlas = get(future);
+                if (preparedAtlas != null) {
+                    createAtlas(preparedAtlas).getRegions().forEach(region -> imageFactory.addRegion(region));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
 
-                    // images
-                    else if (!entry.isDirectory() && entry.getName().contains("images")) {
-                        File tempFile = Gdx.files.local("temp\\images\\" + entry.getName().replaceAll("\\|/|(images)", "")).file();
-                        tempFile.deleteOnExit();
-                        Files.write(tempFile.toPath(), new BufferedInputStream(zipInputStream).readAllBytes());
+    private LoadedModule read(FileHandle moduleFile) throws IOException {
+        LoadedModule result = new LoadedModule();
+        try (ZipFile zipFile = new ZipFile(moduleFile.file())) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+
+                // main module logic file
+                if (!entry.isDirectory() && entry.getName().equals(MODULE_ENTRY)) {
+                    result.module = readModule(moduleFile, zipFile, entry);
+                }
+
+                // images
+                else if (!entry.isDirectory() && entry.getName().contains("images")) {
+                    try (InputStream inputStream = zipFile.getInputStream(entry)) {
+                        result.images.put(entry.getName().replaceAll("\\|/|(images)", ""), inputStream.readAllBytes());
                     }
                 }
-            } catch (IOException e) {
-                e.printStackTrace();
             }
         }
+        return result;
+    }
+
+    private Module readModule(FileHandle moduleFile, ZipFile zipFile, ZipEntry entry) throws IOException {
+        // crc and size of module data are taken from zip directory, so unchanged module data is not even read
+        long fingerprint = (entry.getCrc() << 32) ^ entry.getSize();
+        Module module = moduleCache.read(moduleFile, fingerprint);
+        if (module == null) {
+            try (InputStream inputStream = zipFile.getInputStream(entry)) {
+                module = gameJsonSerializer.deSerializeModule(inputStream.readAllBytes());
+            }
+            moduleCache.write(moduleFile, fingerprint, module);
+        }
+        return module;
+    }
+
+    private void store(Module module) {
+        ItemData.storeItems(module.getGuid(), module.getItemData());
+        SkillData.storeSkills(module.getGuid(), module.getSkillData());
+        MonsterData.storeMonsters(module.getGuid(), module.getMonsterData());
+        EventData.storeEvents(module.getGuid(), module.getEventData());
+        QuestData.storeQuests(module.getGuid(), module.getQuestData());
+        //PlayerClassData.storeClasses(module.getGuid(), module.getPlayerClassData());
+    }
+
+    private PreparedAtlas prepareAtlas(String name, byte[] bytes, Map<String, byte[]> images) {
+        MemoryFileHandle directory = new MemoryFileHandle(images);
+        PreparedAtlas result = new PreparedAtlas(new TextureAtlas.TextureAtlasData(new MemoryFileHandle(name, bytes, images), directory, false));
+        for (TextureAtlas.TextureAtlasData.Page page : result.atlasData.getPages()) {
+            byte[] pageBytes = ((MemoryFileHandle) page.textureFile).bytes();
+            if (pageBytes == null) {
+                throw new IllegalArgumentException("Atlas " + name + " page " + page.textureFile.name() + " is not found");
+            }
+            result.pixmaps.put(page, new Pixmap(pageBytes, 0, pageBytes.length));
+        }
+        return result;
+    }
+
+    // textures can be created only on render thread
+    private TextureAtlas createAtlas(PreparedAtlas preparedAtlas) {
+        for (TextureAtlas.TextureAtlasData.Page page : preparedAtlas.atlasData.getPages()) {
+            Pixmap pixmap = preparedAtlas.pixmaps.get(page);
+            page.texture = new Texture(pixmap, page.format, page.useMipMaps);
+            pixmap.dispose();
+        }
+        return new TextureAtlas(preparedAtlas.atlasData);
+    }
+
+    private <T> T get(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Modules loading was interrupted");
+        } catch (ExecutionException e) {
+            e.getCause().printStackTrace();
+            return null;
+        }
+    }
+
+
+    private static final class LoadedModule {
+        private Module module;
+        private final Map<String, byte[]> images = new HashMap<>();
+    }
+
+    // atlas with decoded pages which are not uploaded to textures yet
+    private static final class PreparedAtlas {
+        private final TextureAtlas.TextureAtlasData atlasData;
+        private final Map<TextureAtlas.TextureAtlasData.Page, Pixmap> pixmaps = new HashMap<>();
 
-        // store atlas regions
-        FileHandle[] atlasTextFiles = Gdx.files.local("temp\\images").list(".atlas");
-        for (FileHandle atlasTextFile : atlasTextFiles) {
-            TextureAtlas textureAtlas = new TextureAtlas(atlasTextFile);
-            textureAtlas.getRegions().forEach(region -> imageFactory.addRegion(region));
+        private PreparedAtlas(TextureAtlas.TextureAtlasData atlasData) {
+            this.atlasData = atlasData;
         }
     }
 }
@@ -2,10 +2,11 @@ package ru.rdude.rpg.game.logic.entities;
 
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 import ru.rdude.rpg.game.logic.data.EntityData;
+import ru.rdude.rpg.game.utils.jsonextension.CompactIdGenerator;
+import ru.rdude.rpg.game.utils.jsonextension.CompactIdResolver;
 
-@JsonIdentityInfo(generator = ObjectIdGenerators.UUIDGenerator.class)
+@JsonIdentityInfo(generator = CompactIdGenerator.class, resolver = CompactIdResolver.class)
 public abstract class Entity<T extends EntityData> {
 
     protected final T entityData;
@@ -121,7 +121,7 @@ public final class EntityReceiver {
                 if (buff.entityData.getTransformation().isOverride()) {
                     target.beingTypes().setDefault(buff.entityData.getTransformation().getBeingTypes());
                 } else {
-                    target.beingTypes().getDefault().addAll(buff.entityData.getTransformation().getBeingTypes());
+                    target.beingTypes().addDefault(buff.entityData.getTransformation().getBeingTypes());
                 }
             }
             // elements
@@ -130,7 +130,7 @@ public final class EntityReceiver {
                 if (buff.entityData.getTransformation().isOverride()) {
                     target.elements().setDefault(buff.entityData.getTransformation().getElements());
                 } else {
-                    target.elements().getDefault().addAll(buff.entityData.getTransformation().getElements());
+                    target.elements().addDefault(buff.entityData.getTransformation().getElements());
                 }
             }
             // size
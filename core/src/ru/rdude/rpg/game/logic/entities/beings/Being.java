@@ -147,10 +147,19 @@ public abstract class Being<T extends BeingData> extends Entity<T> implements Bu
         beingActionObservers.subscribe(observer);
     }
 
+    // for observers like ui elements that should not be held by being
+    public void subscribeWeak(BeingActionObserver observer) {
+        beingActionObservers.subscribeWeak(observer);
+    }
+
     public void unsubscribe(BeingActionObserver observer) {
         beingActionObservers.unsubscribe(observer);
     }
 
+    public int beingActionObserversAmount() {
+        return beingActionObservers.size();
+    }
+
     public void notifySubscribers(BeingAction action, Being<?> being) {
         beingActionObservers.notifySubscribers(obs -> obs.update(action, being));
     }
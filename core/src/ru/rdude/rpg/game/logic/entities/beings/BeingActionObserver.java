@@ -1,9 +1,11 @@
 package ru.rdude.rpg.game.logic.entities.beings;
 
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
-import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 
-@JsonIdentityInfo(generator = ObjectIdGenerators.UUIDGenerator.class)
+import ru.rdude.rpg.game.utils.jsonextension.CompactIdGenerator;
+import ru.rdude.rpg.game.utils.jsonextension.CompactIdResolver;
+
+@JsonIdentityInfo(generator = CompactIdGenerator.class, resolver = CompactIdResolver.class)
 public interface BeingActionObserver {
     void update(BeingAction action, Being<?> being);
 }
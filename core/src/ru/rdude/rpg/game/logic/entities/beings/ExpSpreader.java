@@ -3,13 +3,14 @@ package ru.rdude.rpg.game.logic.entities.beings;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 import ru.rdude.rpg.game.logic.coefficients.Coefficients;
 import ru.rdude.rpg.game.logic.entities.skills.Buff;
 import ru.rdude.rpg.game.logic.game.Game;
 import ru.rdude.rpg.game.logic.gameStates.GameStateBase;
 import ru.rdude.rpg.game.logic.gameStates.GameStateObserver;
 import ru.rdude.rpg.game.logic.stats.Stat;
+import ru.rdude.rpg.game.utils.jsonextension.CompactIdGenerator;
+import ru.rdude.rpg.game.utils.jsonextension.CompactIdResolver;
 import ru.rdude.rpg.game.utils.jsonextension.JsonPolymorphicSubType;
 
 import java.util.Collection;
@@ -23,7 +24,7 @@ import java.util.stream.Stream;
  * Calculates how useful each player was in the battle
  */
 
-@JsonIdentityInfo(generator = ObjectIdGenerators.UUIDGenerator.class)
+@JsonIdentityInfo(generator = CompactIdGenerator.class, resolver = CompactIdResolver.class)
 @JsonPolymorphicSubType("expSpreader")
 public class ExpSpreader implements BeingActionObserver, GameStateObserver {
 
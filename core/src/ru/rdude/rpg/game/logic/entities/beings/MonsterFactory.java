@@ -1,16 +1,12 @@
 package ru.rdude.rpg.game.logic.entities.beings;
 
 import ru.rdude.rpg.game.logic.data.MonsterData;
-import ru.rdude.rpg.game.logic.enums.Biom;
-import ru.rdude.rpg.game.logic.enums.Relief;
 import ru.rdude.rpg.game.logic.map.Cell;
 import ru.rdude.rpg.game.logic.stats.Bonus;
 import ru.rdude.rpg.game.utils.Functions;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public final class MonsterFactory {
 
@@ -38,31 +34,17 @@ public final class MonsterFactory {
         int amount = Functions.random(1, 5);
         int minLvl = Math.max(1, cell.getLvl() - amount - 1);
         int maxLvl = cell.getLvl() + (5 - amount);
-        return MonsterData.getMonsters().values().stream()
-                // filter by describer
-                .filter(data -> !data.isDescriber())
-                // filter monsters by biom and relief
-                .filter(data -> data.getSpawnBioms().contains(cell.getBiom())
-                        && data.getSpawnReliefs().contains(cell.getRelief()))
-                // filter monsters by level
-                .filter(data -> {
-                    int lvl = (int) data.getMainLvl();
-                    return lvl >= minLvl && lvl <= maxLvl;
-                })
-                // pick random data
-                .collect(Collectors.collectingAndThen(Collectors.toList(), list -> {
-                    List<MonsterData> res = new ArrayList<>();
-                    for (int i = 0; i < amount; i++) {
-                        res.add(Functions.random(list));
-                    }
-                    return res.stream();
-                }))
-                // create monsters from data with available for each monster level
-                .map(data -> {
-                    int lvl = Functions.random(Math.max((int) data.getMinLvl(), minLvl), Math.min((int) data.getMaxLvl(), maxLvl));
-                    return create(lvl, data);
-                })
-                // collect
-                .collect(Collectors.collectingAndThen(Collectors.toList(), Party::new));
+        List<Monster> monsters = new ArrayList<>();
+        for (int i = 0; i < amount; i++) {
+            // pick random data from monsters spawning on this cell
+            MonsterData data = MonsterData.getRandomSpawning(cell.getBiom(), cell.getRelief(), minLvl, maxLvl);
+            if (data == null) {
+                break;
+            }
+            // create monster with available for this monster level
+            int lvl = Functions.random(Math.max((int) data.getMinLvl(), minLvl), Math.min((int) data.getMaxLvl(), maxLvl));
+            monsters.add(create(lvl, data));
+        }
+        return new Party(monsters);
     }
 }
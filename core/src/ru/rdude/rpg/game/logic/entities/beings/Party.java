@@ -2,14 +2,16 @@ package ru.rdude.rpg.game.logic.entities.beings;
 
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
-@JsonIdentityInfo(generator = ObjectIdGenerators.UUIDGenerator.class)
+import ru.rdude.rpg.game.utils.jsonextension.CompactIdGenerator;
+import ru.rdude.rpg.game.utils.jsonextension.CompactIdResolver;
+
+@JsonIdentityInfo(generator = CompactIdGenerator.class, resolver = CompactIdResolver.class)
 public class Party {
 
     private LinkedList<Being<?>> beings;
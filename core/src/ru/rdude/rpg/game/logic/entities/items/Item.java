@@ -12,7 +12,6 @@ import ru.rdude.rpg.game.logic.stats.Stats;
 import ru.rdude.rpg.game.utils.SubscribersManager;
 import ru.rdude.rpg.game.utils.jsonextension.JsonPolymorphicSubType;
 
-import java.util.HashSet;
 import java.util.Set;
 
 @JsonPolymorphicSubType("item")
@@ -38,7 +37,7 @@ public class Item extends Entity<ItemData> {
         if ((elementsData = entityData.getElements()) != null)
             elements = new StateHolder<>(elementsData);
         else {
-            elements = new StateHolder<>(new HashSet<>());
+            elements = new StateHolder<>();
         }
     }
 
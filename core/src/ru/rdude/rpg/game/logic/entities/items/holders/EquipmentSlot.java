@@ -46,60 +46,71 @@ public class EquipmentSlot extends Slot<Item> {
 
     @Override
     public void setEntity(Item item) {
-        if (entity != null) {
-            // stats
-            being.stats().decreaseBuffValues(Item.class, entity.getEntityData().getStats());
-            // coefficients
-            if (entity.coefficients() != null) {
-                being.coefficients().removeSumOf(entity.coefficients());
-            }
-            // available skills
-            being.getAvailableSkills().removeAll(entity.getEntityData().getSkillsEquip());
-            // weapon
-            if (entity.getEntityData().isWeapon()) {
-                switch (entity.getEntityData().getWeaponData().getAttackType()) {
-                    case MAGIC:
-                        being.stats().get(StatName.MAGIC_MIN).decreaseBuffValue(Item.class, entity.getEntityData().getWeaponData().getMinDmg());
-                        being.stats().get(StatName.MAGIC_MAX).decreaseBuffValue(Item.class, entity.getEntityData().getWeaponData().getMaxDmg());
-                        break;
-                    case MELEE:
-                        being.stats().get(StatName.MELEE_MIN).decreaseBuffValue(Item.class, entity.getEntityData().getWeaponData().getMinDmg());
-                        being.stats().get(StatName.MELEE_MAX).decreaseBuffValue(Item.class, entity.getEntityData().getWeaponData().getMaxDmg());
-                        break;
-                    case RANGE:
-                        being.stats().get(StatName.RANGE_MIN).decreaseBuffValue(Item.class, entity.getEntityData().getWeaponData().getMinDmg());
-                        being.stats().get(StatName.RANGE_MAX).decreaseBuffValue(Item.class, entity.getEntityData().getWeaponData().getMaxDmg());
-                        break;
+        Item removed = entity;
+        // all changes of being stats are applied and sent to observers once
+        being.stats().beginBatch();
+        try {
+            if (entity != null) {
+                // stats
+                being.stats().decreaseBuffValues(Item.class, entity.getEntityData().getStats());
+                // coefficients
+                if (entity.coefficients() != null) {
+                    being.coefficients().removeSumOf(entity.coefficients());
+                }
+                // available skills
+                being.getAvailableSkills().removeAll(entity.getEntityData().getSkillsEquip());
+                // weapon
+                if (entity.getEntityData().isWeapon()) {
+                    switch (entity.getEntityData().getWeaponData().getAttackType()) {
+                        case MAGIC:
+                            being.stats().get(StatName.MAGIC_MIN).decreaseBuffValue(Item.class, entity.getEntityData().getWeaponData().getMinDmg());
+                            being.stats().get(StatName.MAGIC_MAX).decreaseBuffValue(Item.class, entity.getEntityData().getWeaponData().getMaxDmg());
+                            break;
+                        case MELEE:
+                            being.stats().get(StatName.MELEE_MIN).decreaseBuffValue(Item.class, entity.getEntityData().getWeaponData().getMinDmg());
+                            being.stats().get(StatName.MELEE_MAX).decreaseBuffValue(Item.class, entity.getEntityData().getWeaponData().getMaxDmg());
+                            break;
+                        case RANGE:
+                            being.stats().get(StatName.RANGE_MIN).decreaseBuffValue(Item.class, entity.getEntityData().getWeaponData().getMinDmg());
+                            being.stats().get(StatName.RANGE_MAX).decreaseBuffValue(Item.class, entity.getEntityData().getWeaponData().getMaxDmg());
+                            break;
+                    }
                 }
             }
-        }
-        super.setEntity(item);
-        if (item != null) {
-            // stats
-            being.stats().increaseBuffValues(Item.class, entity.getEntityData().getStats());
-            // coefficients
-            if (item.coefficients() != null) {
-                being.coefficients().addSumOf(item.coefficients());
-            }
-            // available skills
-            being.getAvailableSkills().addAll(entity.getEntityData().getSkillsEquip());
-            // weapon
-            if (item.getEntityData().isWeapon()) {
-                switch (item.getEntityData().getWeaponData().getAttackType()) {
-                    case MAGIC:
-                        being.stats().get(StatName.MAGIC_MIN).increaseBuffValue(Item.class, item.getEntityData().getWeaponData().getMinDmg());
-                        being.stats().get(StatName.MAGIC_MAX).increaseBuffValue(Item.class, item.getEntityData().getWeaponData().getMaxDmg());
-                        break;
-                    case MELEE:
-                        being.stats().get(StatName.MELEE_MIN).increaseBuffValue(Item.class, item.getEntityData().getWeaponData().getMinDmg());
-                        being.stats().get(StatName.MELEE_MAX).increaseBuffValue(Item.class, item.getEntityData().getWeaponData().getMaxDmg());
-                        break;
-                    case RANGE:
-                        being.stats().get(StatName.RANGE_MIN).increaseBuffValue(Item.class, item.getEntityData().getWeaponData().getMinDmg());
-                        being.stats().get(StatName.RANGE_MAX).increaseBuffValue(Item.class, item.getEntityData().getWeaponData().getMaxDmg());
-                        break;
+            super.setEntity(item);
+            if (item != null) {
+                // stats
+                being.stats().increaseBuffValues(Item.class, entity.getEntityData().getStats());
+                // coefficients
+                if (item.coefficients() != null) {
+                    being.coefficients().addSumOf(item.coefficients());
+                }
+                // available skills
+                being.getAvailableSkills().addAll(entity.getEntityData().getSkillsEquip());
+                // weapon
+                if (item.getEntityData().isWeapon()) {
+                    switch (item.getEntityData().getWeaponData().getAttackType()) {
+                        case MAGIC:
+                            being.stats().get(StatName.MAGIC_MIN).increaseBuffValue(Item.class, item.getEntityData().getWeaponData().getMinDmg());
+                            being.stats().get(StatName.MAGIC_MAX).increaseBuffValue(Item.class, item.getEntityData().getWeaponData().getMaxDmg());
+                            break;
+                        case MELEE:
+                            being.stats().get(StatName.MELEE_MIN).increaseBuffValue(Item.class, item.getEntityData().getWeaponData().getMinDmg());
+                            being.stats().get(StatName.MELEE_MAX).increaseBuffValue(Item.class, item.getEntityData().getWeaponData().getMaxDmg());
+                            break;
+                        case RANGE:
+                            being.stats().get(StatName.RANGE_MIN).increaseBuffValue(Item.class, item.getEntityData().getWeaponData().getMinDmg());
+                            being.stats().get(StatName.RANGE_MAX).increaseBuffValue(Item.class, item.getEntityData().getWeaponData().getMaxDmg());
+                            break;
+                    }
                 }
             }
         }
+        finally {
+            being.stats().commitBatch();
+        }
+        if (being.equipment() != null) {
+            being.equipment().equipmentChanged(removed);
+        }
     }
 }
@@ -1,21 +1,21 @@
 package ru.rdude.rpg.game.logic.entities.items.holders;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import ru.rdude.rpg.game.logic.coefficients.Coefficients;
 import ru.rdude.rpg.game.logic.entities.beings.Being;
 import ru.rdude.rpg.game.logic.entities.items.Item;
+import ru.rdude.rpg.game.logic.entities.states.StateObserver;
 import ru.rdude.rpg.game.logic.enums.AttackType;
 import ru.rdude.rpg.game.logic.enums.Element;
 import ru.rdude.rpg.game.logic.enums.ItemMainType;
 import ru.rdude.rpg.game.logic.enums.ItemType;
+import ru.rdude.rpg.game.logic.enums.StatName;
 import ru.rdude.rpg.game.logic.holders.Slot;
 import ru.rdude.rpg.game.logic.holders.SlotsHolder;
 import ru.rdude.rpg.game.logic.stats.Stats;
 import ru.rdude.rpg.game.utils.jsonextension.JsonPolymorphicSubType;
 
-import java.util.ArrayList;
-import java.util.Optional;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.*;
 
 @JsonPolymorphicSubType("equipment")
 public class EquipmentSlotsHolder extends SlotsHolder<Item> {
@@ -33,6 +33,18 @@ public class EquipmentSlotsHolder extends SlotsHolder<Item> {
     private Slot<Item> jewelry1;
     private Slot<Item> jewelry2;
 
+    // aggregates of equipped items. Built on first request after equipment or elements of equipped item were changed
+    @JsonIgnore
+    private Map<StatName, Double> stats;
+    @JsonIgnore
+    private Coefficients coefficients;
+    @JsonIgnore
+    private Set<Element> armorElements;
+    @JsonIgnore
+    private Set<Element> weaponElements;
+    @JsonIgnore
+    private final StateObserver<Element> itemElementsObserver = current -> invalidateAggregates();
+
     private EquipmentSlotsHolder() { }
 
     public EquipmentSlotsHolder(Being<?> being) {
@@ -227,39 +239,74 @@ public class EquipmentSlotsHolder extends SlotsHolder<Item> {
         return AttackType.MELEE;
     }
 
+    // read only, changes throw UnsupportedOperationException
     public Coefficients getCoefficients() {
-        Coefficients result = new Coefficients();
-        slots.stream()
-                .filter(slot -> !slot.isEmpty())
-                .map(slot -> slot.getEntity().coefficients())
-                .forEach(result::addSumOf);
-        return result;
+        buildAggregates();
+        return coefficients;
     }
 
     public Set<Element> getArmorElements() {
-        return slots.stream()
-                .filter(slot -> !slot.isEmpty())
-                .map(Slot::getEntity)
-                .filter(entity -> entity.getEntityData().getItemType().getMainType() == ItemMainType.ARMOR)
-                .flatMap(entity -> entity.elements().getCurrent().stream())
-                .collect(Collectors.toSet());
+        buildAggregates();
+        return armorElements;
     }
 
     public Set<Element> getWeaponElements() {
-        return slots.stream()
-                .filter(slot -> !slot.isEmpty())
-                .map(Slot::getEntity)
-                .filter(entity -> entity.getEntityData().getItemType().getMainType() == ItemMainType.WEAPON)
-                .flatMap(weapon -> weapon.elements().getCurrent().stream())
-                .collect(Collectors.toSet());
+        buildAggregates();
+        return weaponElements;
+    }
+
+    // sum of stats of equipped items by stat name
+    public Map<StatName, Double> getStats() {
+        buildAggregates();
+        return stats;
+    }
+
+    // called by equipment slot when its item is replaced
+    void equipmentChanged(Item removed) {
+        if (removed != null) {
+            removed.elements().unsubscribe(itemElementsObserver);
+        }
+        invalidateAggregates();
     }
 
-    public Stats getStats() {
-        Stats result = new Stats(false);
-        slots.stream()
-                .filter(slot -> !slot.isEmpty())
-                .map(slot -> slot.getEntity().getEntityData().getStats())
-                .forEach(result::increase);
-        return result;
+    private void invalidateAggregates() {
+        stats = null;
+    }
+
+    private void buildAggregates() {
+        if (stats != null) {
+            return;
+        }
+        Stats statsSum = new Stats(false);
+        Coefficients coefficientsSum = new Coefficients();
+        Set<Element> armorElementsSum = EnumSet.noneOf(Element.class);
+        Set<Element> weaponElementsSum = EnumSet.noneOf(Element.class);
+        for (Slot<Item> slot : slots) {
+            if (slot.isEmpty()) {
+                continue;
+            }
+            Item item = slot.getEntity();
+            // also after loading, subscriptions to elements are not saved
+            item.elements().subscribeTransient(itemElementsObserver);
+            statsSum.increase(item.getEntityData().getStats());
+            if (item.coefficients() != null) {
+                coefficientsSum.addSumOf(item.coefficients());
+            }
+            ItemMainType mainType = item.getEntityData().getItemType().getMainType();
+            if (mainType == ItemMainType.ARMOR) {
+                armorElementsSum.addAll(item.elements().getCurrent());
+            }
+            else if (mainType == ItemMainType.WEAPON) {
+                weaponElementsSum.addAll(item.elements().getCurrent());
+            }
+        }
+        Map<StatName, Double> statValues = new EnumMap<>(StatName.class);
+        for (StatName statName : StatName.values()) {
+            statValues.put(statName, statsSum.get(statName).value());
+        }
+        coefficients = coefficientsSum.readOnlyCopy();
+        armorElements = Collections.unmodifiableSet(armorElementsSum);
+        weaponElements = Collections.unmodifiableSet(weaponElementsSum);
+        stats = Collections.unmodifiableMap(statValues);
     }
 }
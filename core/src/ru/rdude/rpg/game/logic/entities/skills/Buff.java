@@ -3,7 +3,6 @@ package ru.rdude.rpg.game.logic.entities.skills;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 import ru.rdude.rpg.game.logic.data.SkillData;
 import ru.rdude.rpg.game.logic.entities.Entity;
 import ru.rdude.rpg.game.logic.entities.beings.Being;
@@ -16,13 +15,15 @@ import ru.rdude.rpg.game.logic.stats.Stats;
 import ru.rdude.rpg.game.logic.time.*;
 import ru.rdude.rpg.game.utils.Functions;
 import ru.rdude.rpg.game.utils.SubscribersManager;
+import ru.rdude.rpg.game.utils.jsonextension.CompactIdGenerator;
+import ru.rdude.rpg.game.utils.jsonextension.CompactIdResolver;
 import ru.rdude.rpg.game.utils.jsonextension.JsonPolymorphicSubType;
 
 import java.util.Optional;
 
 @JsonPolymorphicSubType("buff")
-@JsonIdentityInfo(generator = ObjectIdGenerators.UUIDGenerator.class)
-public class Buff extends Entity<SkillData> implements TurnChangeObserver, TimeChangeObserver, BeingActionObserver, DurationObserver, StateChanger {
+@JsonIdentityInfo(generator = CompactIdGenerator.class, resolver = CompactIdResolver.class)
+public class Buff extends Entity<SkillData> implements TurnChangeObserver, ScheduledTimeChangeObserver, BeingActionObserver, DurationObserver, StateChanger {
 
     private final SubscribersManager<BuffObserver> subscribers = new SubscribersManager<>();
 
@@ -52,9 +53,11 @@ public class Buff extends Entity<SkillData> implements TurnChangeObserver, TimeC
         this.actsTurns = entityData.getActsEveryTurn() > 0 ?
                 entityData.getActsEveryTurn() : null;
         if (!skillData.isPermanent()) {
-            Game.getCurrentGame().getTimeManager().subscribe(this);
             duration = createDuration();
             duration.subscribe(this);
+            // duration is updated by this buff, before it acts, so it is not scheduled on its own
+            Game.getCurrentGame().getTimeManager().unsubscribe(duration);
+            Game.getCurrentGame().getTimeManager().subscribe(this);
         }
         if (skillData.getSkillsOnBeingAction() != null && !skillData.getSkillsOnBeingAction().isEmpty()) {
             target.subscribe(this);
@@ -84,6 +87,8 @@ public class Buff extends Entity<SkillData> implements TurnChangeObserver, TimeC
     }
 
     public void updateDuration() {
+        // minutes passed before refresh are counted with old duration values
+        Game.getCurrentGame().getTimeManager().reschedule(this);
         SkillDuration newDuration = createDuration();
         newDuration.getDamageReceivedLeft().ifPresent(duration::setDamageReceivedLeft);
         newDuration.getHitsReceivedLeft().ifPresent(duration::setHitsReceivedLeft);
@@ -91,6 +96,8 @@ public class Buff extends Entity<SkillData> implements TurnChangeObserver, TimeC
         newDuration.getHitsMadeLeft().ifPresent(duration::setHitsMadeLeft);
         newDuration.getMinutesLeft().ifPresent(duration::setMinutesLeft);
         newDuration.getTurnsLeft().ifPresent(duration::setTurnsLeft);
+        Game.getCurrentGame().getTimeManager().unsubscribe(newDuration);
+        Game.getCurrentGame().getTimeManager().reschedule(this);
     }
 
     private boolean parsableString(String string) {
@@ -113,6 +120,9 @@ public class Buff extends Entity<SkillData> implements TurnChangeObserver, TimeC
 
     public void remove() {
         Game.getCurrentGame().getTimeManager().unsubscribe(this);
+        if (duration != null) {
+            Game.getCurrentGame().getTimeManager().unsubscribe(duration);
+        }
         target.unsubscribe(this);
         duration.unsubscribe(this);
         notifySubscribers(true);
@@ -160,20 +170,29 @@ public class Buff extends Entity<SkillData> implements TurnChangeObserver, TimeC
 
     @Override
     public void timeUpdate(int minutes) {
+        // in old saves duration was subscribed to time manager on its own
+        Game.getCurrentGame().getTimeManager().unsubscribe(duration);
         duration.timeUpdate(minutes);
         if (actsMinutes != null) {
             actsMinutes -= minutes;
-            if (actsMinutes <= 0) {
-                int remainder = (int) (actsMinutes * (-1));
-                actsMinutes = entityData.getActsEveryMinute();
+            // buff acts several times if a lot of time passed since last update
+            while (actsMinutes <= 0) {
+                actsMinutes += entityData.getActsEveryMinute();
                 onTimeOrTurnUpdate();
-                if (remainder > 0) {
-                    timeUpdate(remainder);
-                }
             }
         }
     }
 
+    @Override
+    public int minutesToNextUpdate() {
+        int toAct = actsMinutes != null ? (int) Math.ceil(actsMinutes) : NO_UPDATE;
+        int toEnd = duration.minutesToNextUpdate();
+        if (toAct == NO_UPDATE || toEnd == NO_UPDATE) {
+            return Math.max(toAct, toEnd);
+        }
+        return Math.min(toAct, toEnd);
+    }
+
     public void subscribe(BuffObserver subscriber) {
         subscribers.subscribe(subscriber);
     }
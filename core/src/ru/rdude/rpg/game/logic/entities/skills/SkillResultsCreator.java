@@ -18,6 +18,9 @@ import java.util.stream.Collectors;
 
 public class SkillResultsCreator {
 
+    // reusable buffer for caster coefficients so damage calculation does not create objects per target
+    private final Coefficients atkCoefficientsBuffer = new Coefficients();
+
     public List<SkillResult> createFromBuff(Buff buff) {
 
         List<SkillResult> results = new ArrayList<>();
@@ -204,7 +207,7 @@ public class SkillResultsCreator {
     }
 
     private double getDamageCoefficient(SkillData skillData, Being<?> caster, Being<?> target) {
-        Coefficients atkCfs = Coefficients.getSumOf(skillData.getCoefficients(), caster.coefficients());
+        Coefficients atkCfs = atkCoefficientsBuffer.setSumOf(skillData.getCoefficients(), caster.coefficients());
         Coefficients defCfs = target.coefficients();
         double elementsAtk = atkCfs.atk().element().getValue(target.elements().getCurrent()) - 1;
         double elementsDef = defCfs.def().element().getValue(skillData.getElements()) - 1;
@@ -1,13 +1,20 @@
 package ru.rdude.rpg.game.logic.entities.states;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import ru.rdude.rpg.game.utils.SubscribersManager;
 import ru.rdude.rpg.game.utils.jsonextension.JsonPolymorphicSubType;
 
 import java.util.*;
 
-public class StateHolder<T> {
+/**
+ * Default states and states added by state changers. Current states are states of the last entry:
+ * overlay changer entry holds only its own states, any other entry holds its states plus current states
+ * at the moment it was added. So states of a changer stay after its removal if other changers were added after it.
+ * Every entry keeps a bitmask of its states, so checks of states are bit tests of the last entry.
+ */
+public class StateHolder<T extends Enum<T>> {
 
     private static final StateChanger defaultStateChanger = new DefaultStateChanger();
 
@@ -18,24 +25,53 @@ public class StateHolder<T> {
         this(new HashSet<>());
     }
 
+    @SafeVarargs
     public StateHolder(T... defaultValues) {
-        this(new HashSet<>(Arrays.asList(defaultValues)));
+        this(new HashSet<>());
+        // varargs array is only read, it is not passed anywhere
+        StateEntry<T> defaultEntry = cache.get(0);
+        for (T value : defaultValues) {
+            defaultEntry.value.add(value);
+            defaultEntry.mask |= bit(value);
+        }
     }
 
     public StateHolder(Set<T> defaultStateSet) {
         if (defaultStateSet == null)
             throw new IllegalArgumentException();
         cache = new ArrayList<>();
-        cache.add(new StateEntry<>(defaultStateChanger, defaultStateSet));
+        cache.add(new StateEntry<>(defaultStateChanger, new HashSet<>(defaultStateSet)));
         subscribers = new SubscribersManager<>();
     }
 
     public Set<T> getDefault() {
-        return cache.get(0).value;
+        return Collections.unmodifiableSet(cache.get(0).value);
     }
 
     public Set<T> getCurrent() {
-        return cache.get(cache.size() - 1).value;
+        return Collections.unmodifiableSet(last().value);
+    }
+
+    public boolean contains(T state) {
+        return (last().mask & bit(state)) != 0;
+    }
+
+    @SafeVarargs
+    public final boolean containsAny(T... states) {
+        long statesMask = 0L;
+        for (T state : states) {
+            statesMask |= bit(state);
+        }
+        return (last().mask & statesMask) != 0;
+    }
+
+    public boolean containsAny(Collection<T> states) {
+        return (last().mask & mask(states)) != 0;
+    }
+
+    public boolean containsAll(Collection<T> states) {
+        long statesMask = mask(states);
+        return (last().mask & statesMask) == statesMask;
     }
 
     private StateEntry<T> containsStateChanger(StateChanger stateChanger) {
@@ -47,7 +83,15 @@ public class StateHolder<T> {
     }
 
     public void setDefault(Set<T> set) {
-        cache.get(0).setValue(set);
+        cache.get(0).setValue(new HashSet<>(set));
+        subscribers.notifySubscribers(subscriber -> subscriber.update(getCurrent()));
+    }
+
+    public void addDefault(Collection<T> states) {
+        StateEntry<T> defaultEntry = cache.get(0);
+        defaultEntry.value.addAll(states);
+        defaultEntry.mask |= mask(states);
+        subscribers.notifySubscribers(subscriber -> subscriber.update(getCurrent()));
     }
 
     public void add(StateChanger stateChanger, Set<T> state) {
@@ -60,18 +104,23 @@ public class StateHolder<T> {
         }
 
         if (stateChanger.isStateOverlay()) {
-            cache.add(new StateEntry<>(stateChanger, state));
-            return;
+            cache.add(new StateEntry<>(stateChanger, new HashSet<>(state)));
+        }
+        else {
+            Set<T> sum = new HashSet<>(last().value);
+            sum.addAll(state);
+            cache.add(new StateEntry<>(stateChanger, sum));
         }
-
-        Set<T> sum = new HashSet<>(getCurrent());
-        sum.addAll(state);
-        cache.add(new StateEntry<>(stateChanger, sum));
         subscribers.notifySubscribers(subscriber -> subscriber.update(getCurrent()));
     }
 
-    public void add(StateChanger stateChanger, T... t) {
-        add(stateChanger, new HashSet<>(Arrays.asList(t)));
+    @SafeVarargs
+    public final void add(StateChanger stateChanger, T... t) {
+        Set<T> state = new HashSet<>();
+        for (T value : t) {
+            state.add(value);
+        }
+        add(stateChanger, state);
     }
 
     public void remove(StateChanger stateChanger) {
@@ -105,19 +154,46 @@ public class StateHolder<T> {
         subscribers.subscribe(subscriber);
     }
 
+    // subscription is not saved
+    public void subscribeTransient(StateObserver<T> subscriber) {
+        subscribers.subscribeTransient(subscriber);
+    }
+
     public void unsubscribe(StateObserver<T> subscriber) {
         subscribers.unsubscribe(subscriber);
     }
 
+    private StateEntry<T> last() {
+        return cache.get(cache.size() - 1);
+    }
+
+    private static long bit(Enum<?> state) {
+        if (state.ordinal() >= Long.SIZE) {
+            throw new IllegalArgumentException("State holder can not hold more than " + Long.SIZE + " states");
+        }
+        return 1L << state.ordinal();
+    }
 
-    static class StateEntry<T> {
+    private static long mask(Collection<? extends Enum<?>> states) {
+        long result = 0L;
+        for (Enum<?> state : states) {
+            result |= bit(state);
+        }
+        return result;
+    }
+
+
+    static class StateEntry<T extends Enum<T>> {
         StateChanger key;
         Set<T> value;
+        // bitmask of value
+        @JsonIgnore
+        long mask;
 
         @JsonCreator
         public StateEntry(@JsonProperty("key") StateChanger key, @JsonProperty("value") Set<T> value) {
             this.key = key;
-            this.value = value;
+            setValue(value);
         }
 
         public StateChanger getKey() {
@@ -134,6 +210,7 @@ public class StateHolder<T> {
 
         public void setValue(Set<T> value) {
             this.value = value;
+            this.mask = value != null ? StateHolder.mask(value) : 0L;
         }
 
         public StateEntry<T> copy() {
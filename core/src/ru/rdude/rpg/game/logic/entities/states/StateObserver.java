@@ -1,11 +1,13 @@
 package ru.rdude.rpg.game.logic.entities.states;
 
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
-import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 
 import java.util.Set;
 
-@JsonIdentityInfo(generator = ObjectIdGenerators.UUIDGenerator.class)
+import ru.rdude.rpg.game.utils.jsonextension.CompactIdGenerator;
+import ru.rdude.rpg.game.utils.jsonextension.CompactIdResolver;
+
+@JsonIdentityInfo(generator = CompactIdGenerator.class, resolver = CompactIdResolver.class)
 public interface StateObserver<T> {
 
     void update(Set<T> current);
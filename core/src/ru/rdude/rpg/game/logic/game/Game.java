@@ -42,6 +42,7 @@ public class Game {
     private static final MonsterFactory monsterFactory = new MonsterFactory();
     private static final GameFileSaver gameSaver = new GameFileSaver();
     private static final GameFileLoader gameLoader = new GameFileLoader();
+    private static final GameAutoSaver gameAutoSaver = new GameAutoSaver(gameSaver);
     private static final ItemUser itemUser = new ItemUser();
     private static final StaticReferencesHolders staticReferencesHolders = new StaticReferencesHolders();
     private static final TooltipInfoFactory tooltipInfoFactory = new TooltipInfoFactory();
@@ -54,6 +55,7 @@ public class Game {
     // io
     private static GameJsonSerializer gameJsonSerializer = new GameJsonSerializer();
     private static ModuleFileLoader moduleFileLoader = new ModuleFileLoader(gameJsonSerializer, imageFactory);
+    private static final GameMapCache gameMapCache = new GameMapCache();
     // map files by guid
     private static java.util.Map<Long, MapInfo> mapFiles = new HashMap<>();
 
@@ -114,10 +116,18 @@ public class Game {
         return mapFiles;
     }
 
+    public static GameMapCache getGameMapCache() {
+        return gameMapCache;
+    }
+
     public static GameFileSaver getGameSaver() {
         return gameSaver;
     }
 
+    public static GameAutoSaver getGameAutoSaver() {
+        return gameAutoSaver;
+    }
+
     public static GameFileLoader getGameLoader() {
         return gameLoader;
     }
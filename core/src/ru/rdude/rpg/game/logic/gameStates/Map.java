@@ -1,7 +1,6 @@
 package ru.rdude.rpg.game.logic.gameStates;
 
 import com.fasterxml.jackson.annotation.*;
-import ru.rdude.rpg.game.logic.data.io.GameMapFileLoader;
 import ru.rdude.rpg.game.logic.entities.beings.Party;
 import ru.rdude.rpg.game.logic.game.Game;
 import ru.rdude.rpg.game.logic.map.Cell;
@@ -15,6 +14,7 @@ import ru.rdude.rpg.game.utils.jsonextension.JsonPolymorphicSubType;
 
 import java.util.*;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 @JsonAutoDetect(getterVisibility = JsonAutoDetect.Visibility.NONE,
         isGetterVisibility = JsonAutoDetect.Visibility.NONE,
@@ -22,29 +22,27 @@ import java.util.function.BiConsumer;
 @JsonPolymorphicSubType("map")
 public class Map extends GameStateBase {
 
+    private static final int VISIBLE_AREA_RADIUS = 2;
+
     private final GameMap gameMap;
     private MapStage mapStage;
-    @JsonProperty
-    private final CellProperties[][] cellProperties;
+    // cell index is x * height + y
+    private final BitSet visibleCells;
+    private final java.util.Map<Integer, Party> monsters;
     private Cell playerPosition;
     private SubscribersManager<PlaceObserver> placePositionSubscribers = new SubscribersManager<>();
 
     public Map(GameMap gameMap) {
         this.gameMap = gameMap;
-        cellProperties = new CellProperties[gameMap.getWidth()][gameMap.getHeight()];
-        for (int x = 0; x < gameMap.getWidth(); x++) {
-            for (int y = 0; y < gameMap.getHeight(); y++) {
-                cellProperties[x][y] = new CellProperties();
-            }
-        }
+        this.visibleCells = new BitSet(gameMap.getWidth() * gameMap.getHeight());
+        this.monsters = new HashMap<>();
     }
 
     // Json custom getters and setters
 
     @JsonCreator
-    private Map(@JsonProperty("gameMap") long gameMapGuid, @JsonProperty("cellProperties") CellProperties[][] properties) {
-        this.gameMap = GameMapFileLoader.load(Game.getMapFiles().get(gameMapGuid).mapFile);
-        this.cellProperties = properties;
+    private Map(@JsonProperty("gameMap") long gameMapGuid) {
+        this(Game.getGameMapCache().get(Game.getMapFiles().get(gameMapGuid)));
     }
 
     @JsonProperty("gameMap")
@@ -62,6 +60,65 @@ public class Map extends GameStateBase {
         this.playerPosition = gameMap.cell(point);
     }
 
+    // lengths of runs of not visible and visible cells one after another, starting with not visible
+    @JsonProperty("visibleCells")
+    private int[] getVisibleCellsJson() {
+        final int size = cellsAmount();
+        final List<Integer> runs = new ArrayList<>();
+        int position = 0;
+        while (position < size) {
+            int visibleStart = visibleCells.nextSetBit(position);
+            if (visibleStart < 0 || visibleStart >= size) {
+                visibleStart = size;
+            }
+            int visibleEnd = visibleStart == size ? size : visibleCells.nextClearBit(visibleStart);
+            runs.add(visibleStart - position);
+            runs.add(Math.min(visibleEnd, size) - visibleStart);
+            position = visibleEnd;
+        }
+        return runs.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @JsonProperty("visibleCells")
+    private void setVisibleCellsJson(int[] runs) {
+        visibleCells.clear();
+        int position = 0;
+        for (int i = 0; i < runs.length; i++) {
+            if (i % 2 == 1) {
+                visibleCells.set(position, position + runs[i]);
+            }
+            position += runs[i];
+        }
+    }
+
+    @JsonProperty("monsters")
+    private java.util.Map<Integer, Party> getMonstersJson() {
+        return new TreeMap<>(monsters);
+    }
+
+    @JsonProperty("monsters")
+    private void setMonstersJson(java.util.Map<Integer, Party> monsters) {
+        this.monsters.clear();
+        this.monsters.putAll(monsters);
+    }
+
+    // saves before visibility bitset
+    @JsonProperty("cellProperties")
+    private void setCellPropertiesJson(CellProperties[][] properties) {
+        for (int x = 0; x < properties.length; x++) {
+            for (int y = 0; y < properties[x].length; y++) {
+                CellProperties cellProperties = properties[x][y];
+                if (cellProperties == null) continue;
+                if (cellProperties.visible) {
+                    visibleCells.set(index(x, y));
+                }
+                if (cellProperties.monsters != null) {
+                    monsters.put(index(x, y), cellProperties.monsters);
+                }
+            }
+        }
+    }
+
     ///////////////////////////////////
 
     public MapStage createStage() {
@@ -81,14 +138,10 @@ public class Map extends GameStateBase {
         return playerPosition;
     }
 
-    public CellProperties getCellProperties(Cell cell) {
-        return cellProperties[cell.getX()][cell.getY()];
-    }
-
     public void setPlayerPosition(Cell playerPosition) {
         Cell oldPosition = this.playerPosition;
         this.playerPosition = playerPosition;
-        playerPosition.getArea(2, true).forEach(cell -> getCellProperties(cell).setVisible(true));
+        revealArea(playerPosition, VISIBLE_AREA_RADIUS);
         mapStage.playerChangedPosition(oldPosition, playerPosition);
         notifySubscribers(oldPosition, playerPosition);
         Game.getCurrentGame().getTimeManager()
@@ -97,29 +150,64 @@ public class Map extends GameStateBase {
 
     public void placePlayerOnStartPosition() {
         this.playerPosition = gameMap.cell(gameMap.getStartPoint());
-        playerPosition.getArea(2, true).forEach(cell -> getCellProperties(cell).setVisible(true));
+        revealArea(playerPosition, VISIBLE_AREA_RADIUS);
+    }
+
+    public void revealArea(Cell center, int radius) {
+        visibleCells.set(index(center.getX(), center.getY()));
+        for (int i = 1; i <= radius; i++) {
+            for (Cell cell : center.getAroundCells(i)) {
+                visibleCells.set(index(cell.getX(), cell.getY()));
+            }
+        }
     }
 
     public boolean cellHasMonster(Cell cell) {
-        return getCellProperties(cell).monsters != null;
+        return !monsters.isEmpty() && monsters.containsKey(index(cell.getX(), cell.getY()));
     }
 
     public Party cellMonsters(Cell cell) {
-        return getCellProperties(cell).monsters;
+        return monsters.get(index(cell.getX(), cell.getY()));
+    }
+
+    // null removes monsters from cell
+    public void setCellMonsters(Cell cell, Party party) {
+        if (party == null) {
+            monsters.remove(index(cell.getX(), cell.getY()));
+        }
+        else {
+            monsters.put(index(cell.getX(), cell.getY()), party);
+        }
     }
 
     public boolean isCellVisible(Cell cell) {
-        return getCellProperties(cell).isVisible();
+        return visibleCells.get(index(cell.getX(), cell.getY()));
     }
 
-    public void forEachCellProperties(BiConsumer<Cell, CellProperties> action) {
-        for (int x = 0; x < gameMap.getWidth(); x++) {
-            for (int y = 0; y < gameMap.getHeight(); y++) {
-                action.accept(gameMap.cell(x, y), cellProperties[x][y]);
-            }
+    public void setCellVisible(Cell cell, boolean visible) {
+        visibleCells.set(index(cell.getX(), cell.getY()), visible);
+    }
+
+    public void forEachVisibleCell(Consumer<Cell> action) {
+        final int height = gameMap.getHeight();
+        for (int i = visibleCells.nextSetBit(0); i >= 0; i = visibleCells.nextSetBit(i + 1)) {
+            action.accept(gameMap.cell(i / height, i % height));
         }
     }
 
+    public void forEachCellWithMonsters(BiConsumer<Cell, Party> action) {
+        final int height = gameMap.getHeight();
+        monsters.forEach((index, party) -> action.accept(gameMap.cell(index / height, index % height), party));
+    }
+
+    private int index(int x, int y) {
+        return x * gameMap.getHeight() + y;
+    }
+
+    private int cellsAmount() {
+        return gameMap.getWidth() * gameMap.getHeight();
+    }
+
     public void subscribe(PlaceObserver subscriber) {
         placePositionSubscribers.subscribe(subscriber);
     }
@@ -129,25 +217,12 @@ public class Map extends GameStateBase {
     }
 
 
-    public static class CellProperties {
+    // properties of a cell as they were saved before visibility bitset. Used only to load old saves
+    private static class CellProperties {
 
+        @JsonProperty
         Party monsters;
+        @JsonProperty
         boolean visible = false;
-
-        public Party getMonsters() {
-            return monsters;
-        }
-
-        public void setMonsters(Party monsters) {
-            this.monsters = monsters;
-        }
-
-        public boolean isVisible() {
-            return visible;
-        }
-
-        public void setVisible(boolean visible) {
-            this.visible = visible;
-        }
     }
 }
@@ -53,6 +53,15 @@ public class Cell implements AStarNode {
         this.graphicBack = Functions.random(1, 4);
     }
 
+    public Cell(int x, int y, GameMap map, long id, int graphicFront, int graphicBack) {
+        this.x = x;
+        this.y = y;
+        this.gameMap = map;
+        this.id = id;
+        this.graphicFront = graphicFront;
+        this.graphicBack = graphicBack;
+    }
+
     public GameMap getGameMap() {
         return gameMap;
     }
@@ -15,6 +15,10 @@ public class GameMap {
     private final Cell[][] map;
     private Point startPoint;
 
+    // loads cells that are not loaded yet when they are asked for, null if all cells are loaded
+    @JsonIgnore
+    private RegionLoader regionLoader;
+
     public GameMap(@JsonProperty("guid") long guid, @JsonProperty("map") Cell[][] map) {
         this.guid = guid;
         this.map = map;
@@ -35,6 +39,12 @@ public class GameMap {
         guid = Functions.generateGuid();
     }
 
+    // map without cells. Cells are set later, for example when regions of map are loaded from file one by one
+    public GameMap(long guid, int width, int height) {
+        this.guid = guid;
+        this.map = new Cell[width][height];
+    }
+
     public String getName() {
         return name;
     }
@@ -57,11 +67,25 @@ public class GameMap {
     public int getHeight() { return map[0].length; }
 
     public Cell cell(int x, int y) {
-        return map[x][y];
+        Cell cell = map[x][y];
+        if (cell == null && regionLoader != null) {
+            regionLoader.load(x, y);
+            cell = map[x][y];
+        }
+        return cell;
     }
 
     public Cell cell(Point point) {
-        return map[point.x][point.y];
+        return cell(point.x, point.y);
+    }
+
+    public void setRegionLoader(RegionLoader regionLoader) {
+        this.regionLoader = regionLoader;
+    }
+
+    public void setCell(Cell cell) {
+        map[cell.getX()][cell.getY()] = cell;
+        cell.setGameMap(this);
     }
 
     @Override
@@ -70,7 +94,7 @@ public class GameMap {
         for (int x = 0; x < map.length; x++) {
             builder.append("\n\r");
             for (int y = 0; y < map[1].length; y++) {
-                builder.append(map[x][y]);
+                builder.append(cell(x, y));
             }
         }
         return builder.toString();
@@ -80,11 +104,21 @@ public class GameMap {
         int realNonNullCells = 0;
         for (int x = 0; x < map.length; x++) {
             for (int y = 0; y < map[0].length; y++) {
-                if (map[x][y].has(cellProperty)) {
+                if (cell(x, y).has(cellProperty)) {
                     realNonNullCells++;
                 }
             }
         }
         return realNonNullCells;
     }
+
+
+    /**
+     * Loads region of map with the cell that is asked for but not loaded yet,
+     * for example chunk of binary map file. Region loader sets loaded cells with {@link #setCell(Cell)}.
+     */
+    @FunctionalInterface
+    public interface RegionLoader {
+        void load(int x, int y);
+    }
 }
@@ -5,7 +5,7 @@ import ru.rdude.rpg.game.logic.data.QuestData;
 import ru.rdude.rpg.game.logic.entities.items.Item;
 import ru.rdude.rpg.game.logic.enums.ItemMainType;
 import ru.rdude.rpg.game.logic.enums.ItemRarity;
-import ru.rdude.rpg.game.logic.time.TimeChangeObserver;
+import ru.rdude.rpg.game.logic.time.ScheduledTimeChangeObserver;
 import ru.rdude.rpg.game.utils.Functions;
 import ru.rdude.rpg.game.utils.jsonextension.JsonPolymorphicSubType;
 
@@ -13,7 +13,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 @JsonPolymorphicSubType("cityInside")
-public class CityInside implements TimeChangeObserver {
+public class CityInside implements ScheduledTimeChangeObserver {
 
     private int timeToNextUpdate = 4320;
 
@@ -71,10 +71,15 @@ public class CityInside implements TimeChangeObserver {
     @Override
     public void timeUpdate(int minutes) {
         timeToNextUpdate -= minutes;
-        if (minutes <= 0) {
+        if (timeToNextUpdate <= 0) {
             updateShop();
             updateQuests();
+            timeToNextUpdate = Functions.random(4320, 7500);
         }
-        timeToNextUpdate = Functions.random(4320, 7500);
+    }
+
+    @Override
+    public int minutesToNextUpdate() {
+        return timeToNextUpdate;
     }
 }
@@ -1,44 +1,115 @@
 package ru.rdude.rpg.game.logic.playerClass;
 
 import ru.rdude.rpg.game.logic.data.AbilityData;
-import ru.rdude.rpg.game.utils.Pair;
 
 import java.util.*;
 
+/**
+ * Abilities of a class as a graph of requirements. Nodes are kept in topological order, so every node
+ * goes after all its requirements and depths are calculated once in that order. Every node has an index and
+ * a bitset of indexes of required nodes, so learned abilities can be kept as a bitset of indexes
+ * and checked without walking the graph.
+ */
 public class ClassAbilitiesDataTree {
 
-    private final Map<Long, Node> nodes = new HashMap<>();
+    // in topological order
+    private final Map<Long, Node> nodes = new LinkedHashMap<>();
+    private int nextIndex;
 
     public ClassAbilitiesDataTree(Set<AbilityData> abilities) {
-        abilities.forEach(abilityData -> createNode(abilityData, abilities));
+        Map<Long, AbilityData> byGuid = new HashMap<>();
+        abilities.forEach(abilityData -> byGuid.put(abilityData.getGuid(), abilityData));
+        // Kahn's algorithm
+        Map<Long, Integer> requirementsLeft = new HashMap<>();
+        Map<Long, List<AbilityData>> dependent = new HashMap<>();
+        Deque<AbilityData> ready = new ArrayDeque<>();
+        for (AbilityData abilityData : abilities) {
+            for (Long guid : abilityData.requirements.keySet()) {
+                if (!byGuid.containsKey(guid)) {
+                    throw new IllegalArgumentException("Ability " + abilityData.getGuid() + " requires ability " + guid + " which is not in the tree");
+                }
+                dependent.computeIfAbsent(guid, key -> new ArrayList<>()).add(abilityData);
+            }
+            requirementsLeft.put(abilityData.getGuid(), abilityData.requirements.size());
+            if (abilityData.requirements.isEmpty()) {
+                ready.add(abilityData);
+            }
+        }
+        while (!ready.isEmpty()) {
+            AbilityData abilityData = ready.poll();
+            add(abilityData);
+            for (AbilityData child : dependent.getOrDefault(abilityData.getGuid(), Collections.emptyList())) {
+                if (requirementsLeft.merge(child.getGuid(), -1, Integer::sum) == 0) {
+                    ready.add(child);
+                }
+            }
+        }
+        if (nodes.size() < byGuid.size()) {
+            throw new IllegalArgumentException("Abilities requirements have a cycle: " + findCycle(byGuid));
+        }
     }
 
-    private void createNode(AbilityData abilityData, Set<AbilityData> abilityDataSet) {
-        if (nodes.containsKey(abilityData.getGuid())) {
-            return;
-        }
-        for (Long guid : abilityData.requirements.keySet()) {
-            createNode(abilityDataSet.stream().filter(data -> data.getGuid() == guid).findAny().orElseThrow(), abilityDataSet);
+    // abilities not added to the tree have at least one cycle among their requirements
+    private List<Long> findCycle(Map<Long, AbilityData> byGuid) {
+        AbilityData current = byGuid.values().stream()
+                .filter(abilityData -> !nodes.containsKey(abilityData.getGuid()))
+                .findAny()
+                .orElseThrow();
+        Map<Long, Integer> visited = new HashMap<>();
+        List<Long> path = new ArrayList<>();
+        while (!visited.containsKey(current.getGuid())) {
+            visited.put(current.getGuid(), path.size());
+            path.add(current.getGuid());
+            current = current.requirements.keySet().stream()
+                    .filter(guid -> !nodes.containsKey(guid))
+                    .map(byGuid::get)
+                    .findAny()
+                    .orElseThrow();
         }
-        nodes.put(abilityData.getGuid(), new Node(abilityData));
+        List<Long> cycle = new ArrayList<>(path.subList(visited.get(current.getGuid()), path.size()));
+        cycle.add(current.getGuid());
+        return cycle;
     }
 
     public Map<Long, Node> getNodes() {
         return nodes;
     }
 
+    public Node getNode(long guid) {
+        return nodes.get(guid);
+    }
+
+    // requirements should be added before
     public void add(AbilityData abilityData) {
-        nodes.put(abilityData.getGuid(), new Node(abilityData));
+        if (nodes.containsKey(abilityData.getGuid())) {
+            throw new IllegalArgumentException("Ability " + abilityData.getGuid() + " is already in the tree");
+        }
+        for (Long guid : abilityData.requirements.keySet()) {
+            if (!nodes.containsKey(guid)) {
+                throw new IllegalArgumentException("Ability " + abilityData.getGuid() + " requires ability " + guid + " which is not in the tree");
+            }
+        }
+        nodes.put(abilityData.getGuid(), new Node(abilityData, nextIndex++));
     }
 
     public void remove(AbilityData abilityData) {
         Node node = nodes.get(abilityData.getGuid());
-        for (Node child : node.children) {
+        if (node == null) {
+            return;
+        }
+        removeNode(node);
+        // depths of nodes which lost one of their requirements could be changed
+        nodes.values().forEach(Node::updateDepth);
+    }
+
+    private void removeNode(Node node) {
+        for (Node child : new ArrayList<>(node.children)) {
             if (child.requirements.size() > 1) {
                 child.requirements.remove(node);
+                child.requirementIndexes.clear(node.index);
             }
             else {
-                remove(child.abilityData);
+                removeNode(child);
             }
         }
         for (Node parent : node.requirements.keySet()) {
@@ -47,38 +118,75 @@ public class ClassAbilitiesDataTree {
         nodes.remove(node.abilityData.getGuid());
     }
 
+    // learned abilities are kept as bits of node indexes
+    public boolean canLearn(AbilityData abilityData, BitSet learned) {
+        Node node = nodes.get(abilityData.getGuid());
+        return node != null && node.canLearn(learned);
+    }
+
+    public void setLearned(BitSet learned, AbilityData abilityData) {
+        Node node = nodes.get(abilityData.getGuid());
+        if (node == null) {
+            throw new IllegalArgumentException("Ability " + abilityData.getGuid() + " is not in the tree");
+        }
+        learned.set(node.index);
+    }
+
     public class Node {
 
         final AbilityData abilityData;
+        final int index;
         final Map<Node, Integer> requirements = new HashMap<>();
+        final BitSet requirementIndexes = new BitSet();
         final Set<Node> children = new HashSet<>();
-        final int depth;
+        int depth;
 
-        public Node(AbilityData abilityData) {
+        private Node(AbilityData abilityData, int index) {
             this.abilityData = abilityData;
-            abilityData.requirements.forEach((guid, amount) -> requirements.put(nodes.get(guid), amount));
+            this.index = index;
+            abilityData.requirements.forEach((guid, amount) -> {
+                Node requirement = nodes.get(guid);
+                requirements.put(requirement, amount);
+                requirementIndexes.set(requirement.index);
+            });
             requirements.keySet().forEach(node -> node.children.add(this));
-            depth = findDepth(new Pair<>(this, 0)).getSecond();
+            updateDepth();
         }
 
-        private Pair<Node, Integer> findDepth(Pair<Node, Integer> current) {
-            if (current.getFirst().requirements.isEmpty()) {
-                return current;
+        // requirements are always before in order, so their depths are already known
+        private void updateDepth() {
+            int max = -1;
+            for (Node requirement : requirements.keySet()) {
+                max = Math.max(max, requirement.depth);
             }
-            return current.getFirst().requirements.keySet().stream()
-                    .map(node -> findDepth(new Pair<>(node, current.getSecond())))
-                    .max(Comparator.comparingInt(Pair::getSecond))
-                    .orElseThrow();
+            depth = max + 1;
+        }
+
+        public boolean canLearn(BitSet learned) {
+            for (int i = requirementIndexes.nextSetBit(0); i >= 0; i = requirementIndexes.nextSetBit(i + 1)) {
+                if (!learned.get(i)) {
+                    return false;
+                }
+            }
+            return true;
         }
 
         public AbilityData getAbilityData() {
             return abilityData;
         }
 
+        public int getIndex() {
+            return index;
+        }
+
         public Map<Node, Integer> getRequirements() {
             return requirements;
         }
 
+        public BitSet getRequirementIndexes() {
+            return requirementIndexes;
+        }
+
         public Set<Node> getChildren() {
             return children;
         }
@@ -8,12 +8,14 @@ import ru.rdude.rpg.game.logic.enums.UsedByStatistics;
 import ru.rdude.rpg.game.logic.statistics.StatisticValueObserver;
 import ru.rdude.rpg.game.logic.stats.primary.Lvl;
 import ru.rdude.rpg.game.utils.Pair;
+import ru.rdude.rpg.game.utils.jsonextension.CompactIdGenerator;
+import ru.rdude.rpg.game.utils.jsonextension.CompactIdResolver;
 import ru.rdude.rpg.game.utils.jsonextension.JsonPolymorphicSubType;
 
 import java.util.HashMap;
 import java.util.Map;
 
-@JsonIdentityInfo(generator = ObjectIdGenerators.UUIDGenerator.class)
+@JsonIdentityInfo(generator = CompactIdGenerator.class, resolver = CompactIdResolver.class)
 @JsonPolymorphicSubType("playerClass")
 public class PlayerClass implements StatisticValueObserver {
 
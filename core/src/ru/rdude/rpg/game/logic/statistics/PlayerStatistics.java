@@ -3,6 +3,9 @@ package ru.rdude.rpg.game.logic.statistics;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import ru.rdude.rpg.game.logic.entities.Entity;
 import ru.rdude.rpg.game.logic.entities.beings.Being;
 import ru.rdude.rpg.game.logic.entities.beings.BeingAction;
@@ -14,268 +17,311 @@ import ru.rdude.rpg.game.logic.holders.Slot;
 import ru.rdude.rpg.game.utils.SubscribersManager;
 import ru.rdude.rpg.game.utils.jsonextension.JsonPolymorphicSubType;
 
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
-
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Times and summary value of every being action by types of everything that took part in it.
+ * Counters are kept in flat arrays: every action has a row with a column for every value of every dimension
+ * and one column for actions with self. Increments are lock free.
+ * In json only not zero counters are written, as [times, value] pairs. Old saves with maps of values are read too.
+ */
 @JsonPolymorphicSubType("playerStatistics")
 public class PlayerStatistics implements BeingActionObserver {
 
-    @JsonProperty("statistics")
-    private final Map<BeingAction.Action, BeingActionStatistic> statistics;
+    // dimensions of statistics with names used in json
+    private enum Dimension {
+        BEING_TYPES("beingTypes", BeingType.class),
+        ELEMENTS("elements", Element.class),
+        SIZES("sizes", Size.class),
+        ITEM_MAIN_TYPES("itemMainTypes", ItemMainType.class),
+        ITEM_TYPES("itemTypes", ItemType.class),
+        ATTACK_TYPES("attackTypes", AttackType.class),
+        BUFF_TYPES("buffTypes", BuffType.class),
+        SKILL_TYPES("skillTypes", SkillType.class);
+
+        private final String jsonName;
+        private final Class<? extends Enum<?>> type;
+        private final Enum<?>[] values;
+        private int offset;
+
+        Dimension(String jsonName, Class<? extends Enum<?>> type) {
+            this.jsonName = jsonName;
+            this.type = type;
+            this.values = type.getEnumConstants();
+        }
 
-    @JsonCreator
-    PlayerStatistics(@JsonProperty("statistics") Map<BeingAction.Action, BeingActionStatistic> statistics) {
-        this.statistics = statistics;
+        static Dimension of(UsedByStatistics statisticType) {
+            Class<?> type = ((Enum<?>) statisticType).getDeclaringClass();
+            for (Dimension dimension : values()) {
+                if (dimension.type == type) {
+                    return dimension;
+                }
+            }
+            throw new IllegalArgumentException("There is no statistics of type " + type);
+        }
+
+        static Dimension of(String jsonName) {
+            for (Dimension dimension : values()) {
+                if (dimension.jsonName.equals(jsonName)) {
+                    return dimension;
+                }
+            }
+            return null;
+        }
     }
 
+    private static final String WITH_SELF = "withSelf";
+    private static final int WITH_SELF_COLUMN;
+    private static final int ROW_LENGTH;
+    private static final BeingAction.Action[] ACTIONS = BeingAction.Action.values();
+
+    static {
+        int offset = 0;
+        for (Dimension dimension : Dimension.values()) {
+            dimension.offset = offset;
+            offset += dimension.values.length;
+        }
+        WITH_SELF_COLUMN = offset;
+        ROW_LENGTH = offset + 1;
+    }
+
+    @JsonIgnore
+    private final AtomicIntegerArray times = new AtomicIntegerArray(ACTIONS.length * ROW_LENGTH);
+    // bits of double values
+    @JsonIgnore
+    private final AtomicLongArray values = new AtomicLongArray(ACTIONS.length * ROW_LENGTH);
+    @JsonIgnore
+    private final SubscribersManager<StatisticValueObserver> subscribers = new SubscribersManager<>();
+
     public PlayerStatistics() {
-        statistics = new HashMap<>();
-        for (BeingAction.Action value : BeingAction.Action.values()) {
-            statistics.put(value, new BeingActionStatistic(value));
+    }
+
+    @JsonCreator
+    PlayerStatistics(@JsonProperty("counters") JsonNode counters,
+                     @JsonProperty("statistics") JsonNode statistics) {
+        if (counters != null) {
+            read(counters, false);
+        }
+        // saves before counters
+        if (statistics != null) {
+            read(statistics, true);
         }
     }
 
     @Override
     public void update(BeingAction action, Being<?> being) {
+        BeingAction.Action beingAction = action.action();
+        double value = action.value();
         if (action.interactor().equals(being)) {
-            statistics.get(action.action()).withSelf.increase(action.value());
-        } else {
-            BeingActionStatistic statistic = statistics.get(action.action());
-            Entity<?> interactor = action.interactor();
-            double value = action.value();
-            if (interactor instanceof Being) {
-                ((Being<?>) interactor).beingTypes().getCurrent().forEach(type -> statistic.beingTypes.get(type).increase(value));
-                ((Being<?>) interactor).size().getCurrent().forEach(size -> statistic.sizes.get(size).increase(value));
-            }
-            if (interactor instanceof Buff) {
-                statistic.buffTypes.get(((Buff) interactor).getEntityData().getBuffType()).increase(value);
-            }
-            if (action.withSkill() != null) {
-                action.withSkill().getElements().forEach(element -> statistic.elements.get(element).increase(value));
-                statistic.skillTypes.get(action.withSkill().getType()).increase(value);
-                if (action.withSkill().getAttackType() != AttackType.WEAPON_TYPE) {
-                    statistic.attackTypes.get(action.withSkill().getAttackType()).increase(value);
-                } else {
-                    if (action.action() == BeingAction.Action.DAMAGE_DEAL
-                            || action.action() == BeingAction.Action.HEAL_DEAL
-                            || action.action() == BeingAction.Action.BUFF_DEAL
-                            || action.action() == BeingAction.Action.KILL) {
-                        statistic.attackTypes.get(being.getAttackType()).increase(value);
-                    } else if (interactor instanceof Being) {
-                        statistic.attackTypes.get(((Being<?>) interactor).getAttackType()).increase(value);
-                    }
-                }
-            }
-            Slot<Item> leftHandSlot = being.equipment().leftHand();
-            Slot<Item> rightHandSlot = being.equipment().rightHand();
-            if (!leftHandSlot.isEmpty()) {
-                statistic.itemTypes.get(leftHandSlot.getEntity().getEntityData().getItemType()).increase(value);
-            }
-            if (!rightHandSlot.isEmpty()) {
-                statistic.itemTypes.get(rightHandSlot.getEntity().getEntityData().getItemType()).increase(value);
-            }
-            if (interactor instanceof Item) {
-                statistic.itemMainTypes.get(((Item) interactor).getEntityData().getItemType().getMainType()).increase(value);
-                statistic.itemTypes.get(((Item) interactor).getEntityData().getItemType()).increase(value);
-            }
+            increase(beingAction, WITH_SELF_COLUMN, null, value);
+            return;
         }
-    }
-
-    public static class BeingActionStatistic {
-
-        @JsonProperty("beingAction") private final BeingAction.Action beingAction;
-        @JsonProperty("beingTypes") private final Map<BeingType, Values> beingTypes;
-        @JsonProperty("elements") private final Map<Element, Values> elements;
-        @JsonProperty("sizes") private final Map<Size, Values> sizes;
-        @JsonProperty("itemMainTypes") private final Map<ItemMainType, Values> itemMainTypes;
-        @JsonProperty("itemTypes") private final Map<ItemType, Values> itemTypes;
-        @JsonProperty("attackTypes") private final Map<AttackType, Values> attackTypes;
-        @JsonProperty("buffTypes") private final Map<BuffType, Values> buffTypes;
-        @JsonProperty("skillTypes") private final Map<SkillType, Values> skillTypes;
-        @JsonProperty("withSelf") private final Values withSelf;
-
-        @JsonCreator
-        BeingActionStatistic(
-                @JsonProperty("beingAction") BeingAction.Action beingAction,
-                @JsonProperty("beingTypes") Map<BeingType, Values> beingTypes,
-                @JsonProperty("elements") Map<Element, Values> elements,
-                @JsonProperty("sizes") Map<Size, Values> sizes,
-                @JsonProperty("itemMainTypes") Map<ItemMainType, Values> itemMainTypes,
-                @JsonProperty("itemTypes") Map<ItemType, Values> itemTypes,
-                @JsonProperty("attackTypes") Map<AttackType, Values> attackTypes,
-                @JsonProperty("buffTypes") Map<BuffType, Values> buffTypes,
-                @JsonProperty("skillTypes") Map<SkillType, Values> skillTypes,
-                @JsonProperty("withSelf") Values withSelf) {
-            this.beingAction = beingAction;
-            this.beingTypes = beingTypes;
-            this.elements = elements;
-            this.sizes = sizes;
-            this.itemMainTypes = itemMainTypes;
-            this.itemTypes = itemTypes;
-            this.attackTypes = attackTypes;
-            this.buffTypes = buffTypes;
-            this.skillTypes = skillTypes;
-            this.withSelf = withSelf;
+        Entity<?> interactor = action.interactor();
+        if (interactor instanceof Being) {
+            ((Being<?>) interactor).beingTypes().getCurrent().forEach(type -> increase(beingAction, type, value));
+            ((Being<?>) interactor).size().getCurrent().forEach(size -> increase(beingAction, size, value));
         }
-
-        public BeingActionStatistic(BeingAction.Action beingAction) {
-            this.beingAction = beingAction;
-            beingTypes = new HashMap<>();
-            elements = new HashMap<>();
-            sizes = new HashMap<>();
-            itemMainTypes = new HashMap<>();
-            itemTypes = new HashMap<>();
-            attackTypes = new HashMap<>();
-            buffTypes = new HashMap<>();
-            skillTypes = new HashMap<>();
-            withSelf = new Values(BeingAction.Action.NO_ACTION, null);
-            for (BeingType value : BeingType.values()) {
-                beingTypes.put(value, new Values(beingAction, value));
-            }
-            for (Element value : Element.values()) {
-                elements.put(value, new Values(beingAction, value));
-            }
-            for (Size value : Size.values()) {
-                sizes.put(value, new Values(beingAction, value));
-            }
-            for (ItemType value : ItemType.values()) {
-                itemTypes.put(value, new Values(beingAction, value));
-            }
-            for (AttackType value : AttackType.values()) {
-                if (value != AttackType.WEAPON_TYPE) {
-                    attackTypes.put(value, new Values(beingAction, value));
-                }
+        if (interactor instanceof Buff) {
+            increase(beingAction, ((Buff) interactor).getEntityData().getBuffType(), value);
+        }
+        if (action.withSkill() != null) {
+            action.withSkill().getElements().forEach(element -> increase(beingAction, element, value));
+            increase(beingAction, action.withSkill().getType(), value);
+            if (action.withSkill().getAttackType() != AttackType.WEAPON_TYPE) {
+                increase(beingAction, action.withSkill().getAttackType(), value);
             }
-            for (BuffType value : BuffType.values()) {
-                buffTypes.put(value, new Values(beingAction, value));
+            else if (beingAction == BeingAction.Action.DAMAGE_DEAL
+                    || beingAction == BeingAction.Action.HEAL_DEAL
+                    || beingAction == BeingAction.Action.BUFF_DEAL
+                    || beingAction == BeingAction.Action.KILL) {
+                increase(beingAction, being.getAttackType(), value);
             }
-            for (SkillType value : SkillType.values()) {
-                skillTypes.put(value, new Values(beingAction, value));
+            else if (interactor instanceof Being) {
+                increase(beingAction, ((Being<?>) interactor).getAttackType(), value);
             }
         }
-
-        public BeingAction.Action getBeingAction() {
-            return beingAction;
+        Slot<Item> leftHandSlot = being.equipment().leftHand();
+        Slot<Item> rightHandSlot = being.equipment().rightHand();
+        if (!leftHandSlot.isEmpty()) {
+            increase(beingAction, leftHandSlot.getEntity().getEntityData().getItemType(), value);
         }
-
-        public Map<Element, Values> getElements() {
-            return elements;
+        if (!rightHandSlot.isEmpty()) {
+            increase(beingAction, rightHandSlot.getEntity().getEntityData().getItemType(), value);
         }
-
-        public Map<Size, Values> getSizes() {
-            return sizes;
+        if (interactor instanceof Item) {
+            increase(beingAction, ((Item) interactor).getEntityData().getItemType().getMainType(), value);
+            increase(beingAction, ((Item) interactor).getEntityData().getItemType(), value);
         }
+    }
 
-        public Map<ItemMainType, Values> getItemMainTypes() {
-            return itemMainTypes;
-        }
+    public int getTimes(BeingAction.Action action, UsedByStatistics statisticType) {
+        return times.get(index(action, statisticType));
+    }
 
-        public Map<BeingType, Values> getBeingTypes() {
-            return beingTypes;
-        }
+    public double getValue(BeingAction.Action action, UsedByStatistics statisticType) {
+        return Double.longBitsToDouble(values.get(index(action, statisticType)));
+    }
 
-        public Map<ItemType, Values> getItemTypes() {
-            return itemTypes;
-        }
+    public int getTimesWithSelf(BeingAction.Action action) {
+        return times.get(index(action, WITH_SELF_COLUMN));
+    }
 
-        public Map<AttackType, Values> getAttackTypes() {
-            return attackTypes;
-        }
+    public double getValueWithSelf(BeingAction.Action action) {
+        return Double.longBitsToDouble(values.get(index(action, WITH_SELF_COLUMN)));
+    }
 
-        public Map<BuffType, Values> getBuffTypes() {
-            return buffTypes;
+    // copy of all counters that is not changed anymore
+    public Snapshot snapshot() {
+        int[] timesCopy = new int[times.length()];
+        double[] valuesCopy = new double[values.length()];
+        for (int i = 0; i < timesCopy.length; i++) {
+            timesCopy[i] = times.get(i);
+            valuesCopy[i] = Double.longBitsToDouble(values.get(i));
         }
+        return new Snapshot(timesCopy, valuesCopy);
+    }
 
-        public Map<SkillType, Values> getSkillTypes() {
-            return skillTypes;
-        }
+    // subscribers receive every increase, statistic type is null for actions with self
+    public void subscribe(StatisticValueObserver subscriber) {
+        subscribers.subscribe(subscriber);
+    }
 
-        public Values beingType(BeingType beingType) {
-            return beingTypes.get(beingType);
-        }
+    public void unsubscribe(StatisticValueObserver subscriber) {
+        subscribers.unsubscribe(subscriber);
+    }
 
-        public Values elements(Element element) {
-            return elements.get(element);
-        }
+    private void increase(BeingAction.Action action, UsedByStatistics statisticType, double value) {
+        Dimension dimension = Dimension.of(statisticType);
+        increase(action, dimension.offset + ((Enum<?>) statisticType).ordinal(), statisticType, value);
+    }
 
-        public Values size(Size size) {
-            return sizes.get(size);
+    private void increase(BeingAction.Action action, int column, UsedByStatistics statisticType, double value) {
+        int index = index(action, column);
+        times.incrementAndGet(index);
+        add(index, value);
+        if (subscribers.size() > 0) {
+            subscribers.notifySubscribers(subscriber -> subscriber.update(action, statisticType, 1, value));
         }
+    }
 
-        public Values itemMainType(ItemMainType itemMainType) {
-            return itemMainTypes.get(itemMainType);
-        }
+    private void add(int index, double value) {
+        long current;
+        do {
+            current = values.get(index);
+        } while (!values.compareAndSet(index, current, Double.doubleToRawLongBits(Double.longBitsToDouble(current) + value)));
+    }
 
-        public Values itemType(ItemType itemType) {
-            return itemTypes.get(itemType);
-        }
+    private static int index(BeingAction.Action action, UsedByStatistics statisticType) {
+        return index(action, Dimension.of(statisticType).offset + ((Enum<?>) statisticType).ordinal());
+    }
 
-        public Values attackType(AttackType attackType) {
-            return attackTypes.get(attackType);
-        }
+    private static int index(BeingAction.Action action, int column) {
+        return action.ordinal() * ROW_LENGTH + column;
+    }
 
-        public Values buffType(BuffType buffType) {
-            return buffTypes.get(buffType);
+    @JsonProperty("counters")
+    private JsonNode writeCounters() {
+        ObjectNode result = JsonNodeFactory.instance.objectNode();
+        for (BeingAction.Action action : ACTIONS) {
+            ObjectNode actionNode = JsonNodeFactory.instance.objectNode();
+            for (Dimension dimension : Dimension.values()) {
+                ObjectNode dimensionNode = JsonNodeFactory.instance.objectNode();
+                for (Enum<?> type : dimension.values) {
+                    int index = index(action, dimension.offset + type.ordinal());
+                    if (times.get(index) != 0) {
+                        dimensionNode.putArray(type.name())
+                                .add(times.get(index))
+                                .add(Double.longBitsToDouble(values.get(index)));
+                    }
+                }
+                if (dimensionNode.size() > 0) {
+                    actionNode.set(dimension.jsonName, dimensionNode);
+                }
+            }
+            int index = index(action, WITH_SELF_COLUMN);
+            if (times.get(index) != 0) {
+                actionNode.putArray(WITH_SELF)
+                        .add(times.get(index))
+                        .add(Double.longBitsToDouble(values.get(index)));
+            }
+            if (actionNode.size() > 0) {
+                result.set(action.name(), actionNode);
+            }
         }
+        return result;
+    }
 
-        public Values skillType(SkillType skillType) {
-            return skillTypes.get(skillType);
+    // legacy values are objects with times and value fields, current values are [times, value] arrays
+    private void read(JsonNode node, boolean legacy) {
+        Iterator<Map.Entry<String, JsonNode>> actions = node.fields();
+        while (actions.hasNext()) {
+            Map.Entry<String, JsonNode> actionEntry = actions.next();
+            BeingAction.Action action = BeingAction.Action.valueOf(actionEntry.getKey());
+            Iterator<Map.Entry<String, JsonNode>> dimensions = actionEntry.getValue().fields();
+            while (dimensions.hasNext()) {
+                Map.Entry<String, JsonNode> dimensionEntry = dimensions.next();
+                if (WITH_SELF.equals(dimensionEntry.getKey())) {
+                    set(index(action, WITH_SELF_COLUMN), dimensionEntry.getValue(), legacy);
+                    continue;
+                }
+                Dimension dimension = Dimension.of(dimensionEntry.getKey());
+                // legacy statistics also have action name
+                if (dimension == null) {
+                    continue;
+                }
+                Iterator<Map.Entry<String, JsonNode>> types = dimensionEntry.getValue().fields();
+                while (types.hasNext()) {
+                    Map.Entry<String, JsonNode> typeEntry = types.next();
+                    for (Enum<?> type : dimension.values) {
+                        if (type.name().equals(typeEntry.getKey())) {
+                            set(index(action, dimension.offset + type.ordinal()), typeEntry.getValue(), legacy);
+                            break;
+                        }
+                    }
+                }
+            }
         }
+    }
 
-        public Values withSelf() {
-            return withSelf;
+    private void set(int index, JsonNode value, boolean legacy) {
+        if (legacy) {
+            times.set(index, value.path("times").asInt());
+            values.set(index, Double.doubleToRawLongBits(value.path("value").asDouble()));
+        }
+        else {
+            times.set(index, value.path(0).asInt());
+            values.set(index, Double.doubleToRawLongBits(value.path(1).asDouble()));
         }
+    }
 
-        public static class Values {
-
-            @JsonProperty("beingAction") private final BeingAction.Action beingAction;
-            @JsonProperty("statisticsType") private final UsedByStatistics statisticType;
-            @JsonProperty("times") private int times;
-            @JsonProperty("value") private double value;
-            @JsonIgnore private final SubscribersManager<StatisticValueObserver> subscribers = new SubscribersManager<>();
-
-            @JsonCreator
-            public Values(@JsonProperty("times") int times,
-                          @JsonProperty("value") double value,
-                          @JsonProperty("beingAction") BeingAction.Action action,
-                          @JsonProperty("statisticsType") UsedByStatistics type) {
-                this.times = times;
-                this.value = value;
-                this.beingAction = action;
-                this.statisticType = type;
-            }
 
-            public Values(BeingAction.Action beingAction, UsedByStatistics statisticType) {
-                this.beingAction = beingAction;
-                this.statisticType = statisticType;
-                times = 0;
-                value = 0d;
-            }
+    public static final class Snapshot {
 
-            public void increase(double value) {
-                this.value += value;
-                times++;
-            }
+        private final int[] times;
+        private final double[] values;
 
-            public int getTimes() {
-                return times;
-            }
+        private Snapshot(int[] times, double[] values) {
+            this.times = times;
+            this.values = values;
+        }
 
-            public double getValue() {
-                return value;
-            }
+        public int getTimes(BeingAction.Action action, UsedByStatistics statisticType) {
+            return times[index(action, statisticType)];
+        }
 
-            public void subscribe(StatisticValueObserver subscriber) {
-                subscribers.subscribe(subscriber);
-            }
+        public double getValue(BeingAction.Action action, UsedByStatistics statisticType) {
+            return values[index(action, statisticType)];
+        }
 
-            public void unsubscribe(StatisticValueObserver subscriber) {
-                subscribers.unsubscribe(subscriber);
-            }
+        public int getTimesWithSelf(BeingAction.Action action) {
+            return times[index(action, WITH_SELF_COLUMN)];
+        }
 
-            private void notifySubscribers() {
-                subscribers.notifySubscribers(subscriber -> subscriber.update(beingAction, statisticType, times, value));
-            }
+        public double getValueWithSelf(BeingAction.Action action) {
+            return values[index(action, WITH_SELF_COLUMN)];
         }
     }
 }
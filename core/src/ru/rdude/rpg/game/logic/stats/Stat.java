@@ -1,9 +1,10 @@
 package ru.rdude.rpg.game.logic.stats;
 
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonSetter;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
-import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 import ru.rdude.rpg.game.logic.entities.beings.BeingActionObserver;
 import ru.rdude.rpg.game.logic.entities.items.ItemCountObserver;
 import ru.rdude.rpg.game.logic.entities.skills.BuffObserver;
@@ -23,18 +24,30 @@ import ru.rdude.rpg.game.logic.time.TimeChangeObserver;
 import ru.rdude.rpg.game.logic.time.TimeObserver;
 import ru.rdude.rpg.game.logic.time.TurnChangeObserver;
 import ru.rdude.rpg.game.utils.SubscribersManager;
+import ru.rdude.rpg.game.utils.jsonextension.CompactIdGenerator;
+import ru.rdude.rpg.game.utils.jsonextension.CompactIdResolver;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
-@JsonIdentityInfo(generator = ObjectIdGenerators.UUIDGenerator.class)
+@JsonIdentityInfo(generator = CompactIdGenerator.class, resolver = CompactIdResolver.class)
 public abstract class Stat implements Comparable<Stat>, StatObserver {
 
     protected SubscribersManager<StatObserver> subscribers;
     protected double value;
     protected Map<String, Double> buffs;
+    // sum of buffs values. Recalculated only when buffs are changed
+    @JsonIgnore
+    private double buffsValue;
+    // not null only while owning stats are changed in batch mode
+    @JsonIgnore
+    StatsBatch batch;
+    // cached batch of owning stats with graph of dependencies this stat is part of
+    @JsonIgnore
+    StatsBatch graph;
 
     public Stat() {
         this(0);
@@ -74,7 +87,10 @@ public abstract class Stat implements Comparable<Stat>, StatObserver {
     }
 
     public double value() {
-        return buffs.values().stream().reduce(Double::sum).orElse(0d) + value;
+        if (batch != null) {
+            batch.beforeRead(this);
+        }
+        return buffsValue + value;
     }
 
     public double pureValue() { return this.value; }
@@ -89,6 +105,7 @@ public abstract class Stat implements Comparable<Stat>, StatObserver {
 
     public void increaseBuffValue(String className, double value) {
         buffs.merge(className, value, Double::sum);
+        recalculateBuffsValue();
         notifySubscribers();
     }
 
@@ -106,6 +123,7 @@ public abstract class Stat implements Comparable<Stat>, StatObserver {
 
     public void setBuffValue(String className, double value) {
         buffs.put(className, value);
+        recalculateBuffsValue();
         notifySubscribers();
     }
 
@@ -118,25 +136,75 @@ public abstract class Stat implements Comparable<Stat>, StatObserver {
     }
 
     public Map<String, Double> getBuffs() {
-        return buffs;
+        return Collections.unmodifiableMap(buffs);
     }
 
+    @JsonSetter("buffs")
     public void setBuffs(Map<String, Double> buffs) {
         this.buffs = buffs;
+        recalculateBuffsValue();
+    }
+
+    // there are only few buff sources (items, buffs) so summing them on change is cheap
+    // and does not accumulate floating point errors like increasing running total would do
+    private void recalculateBuffsValue() {
+        double sum = 0d;
+        for (double buffValue : buffs.values()) {
+            sum += buffValue;
+        }
+        buffsValue = sum;
     }
 
     public void subscribe(StatObserver observer) {
         this.subscribers.subscribe(observer);
+        if (observer instanceof Stat) {
+            dependenciesChanged((Stat) observer);
+        }
+    }
+
+    // for observers like ui elements that should not be held by stat
+    public void subscribeWeak(StatObserver observer) {
+        this.subscribers.subscribeWeak(observer);
     }
 
     public void unsubscribe(StatObserver observer) {
         this.subscribers.unsubscribe(observer);
+        if (observer instanceof Stat) {
+            dependenciesChanged((Stat) observer);
+        }
+    }
+
+    public int subscribersAmount() {
+        return subscribers.size();
+    }
+
+    // graphs of dependencies containing any of these stats should be built again
+    private void dependenciesChanged(Stat observer) {
+        if (graph != null) {
+            graph.invalidate();
+        }
+        if (observer.graph != null) {
+            observer.graph.invalidate();
+        }
     }
 
     protected void notifySubscribers() {
+        if (batch != null) {
+            batch.markChanged(this);
+            return;
+        }
         subscribers.notifySubscribers(subscriber -> subscriber.update(this));
     }
 
+    // stats from the batch are already recalculated so only other observers are notified
+    void notifySubscribersOutside(StatsBatch batch) {
+        subscribers.notifySubscribers(subscriber -> {
+            if (!batch.contains(subscriber)) {
+                subscriber.update(this);
+            }
+        });
+    }
+
     @Override
     public void update(Stat stat) {
         forceCalculate();
@@ -1,10 +1,11 @@
 package ru.rdude.rpg.game.logic.stats;
 
-
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import ru.rdude.rpg.game.logic.enums.StatName;
 import ru.rdude.rpg.game.logic.stats.primary.*;
 import ru.rdude.rpg.game.logic.stats.secondary.*;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Consumer;
@@ -14,32 +15,53 @@ public class Stats {
 
     private boolean calculatable;
     private Map<StatName, Stat> stats;
+    // batch keeps graph of dependencies between stats and is reused while subscriptions between these stats are the same
+    @JsonIgnore
+    private StatsBatch batch;
+    // every top level and nested stat by StatName ordinal
+    @JsonIgnore
+    private Stat[] slots;
+
+    private static final ClassValue<StatName> STAT_NAMES = new ClassValue<>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        protected StatName computeValue(Class<?> type) {
+            return Stat.class.isAssignableFrom(type) ? StatName.get((Class<? extends Stat>) type) : null;
+        }
+    };
 
     private Stats() { }
 
     public Stats(boolean calculatable) {
         stats = new HashMap<>();
         // primary:
-        stats.put(StatName.AGI, new Agi());
-        stats.put(StatName.DEX, new Dex());
-        stats.put(StatName.INT, new Int());
-        stats.put(StatName.LUCK, new Luck());
-        stats.put(StatName.LVL, new Lvl(Lvl.BASE));
-        stats.put(StatName.STR, new Str());
-        stats.put(StatName.VIT, new Vit());
+        final Agi agi = new Agi();
+        final Dex dex = new Dex();
+        final Int intel = new Int();
+        final Luck luck = new Luck();
+        final Lvl lvl = new Lvl(Lvl.BASE);
+        final Str str = new Str();
+        final Vit vit = new Vit();
+        stats.put(StatName.AGI, agi);
+        stats.put(StatName.DEX, dex);
+        stats.put(StatName.INT, intel);
+        stats.put(StatName.LUCK, luck);
+        stats.put(StatName.LVL, lvl);
+        stats.put(StatName.STR, str);
+        stats.put(StatName.VIT, vit);
         // secondary:
-        stats.put(StatName.BLOCK, new Block(0, dex(), agi(), lvl()));
-        stats.put(StatName.CONCENTRATION, new Concentration(0, intel(), dex(), agi(), vit(), str(), lvl()));
-        stats.put(StatName.CRIT, new Crit(0, luck()));
-        stats.put(StatName.DEF, new Def(0, vit(), lvl()));
-        stats.put(StatName.DAMAGE, new Dmg(str(), agi(), dex(), intel(), lvl()));
-        stats.put(StatName.FLEE, new Flee(0, agi(), dex(), luck(), lvl()));
-        stats.put(StatName.HIT, new Hit(0, dex(), agi(), lvl()));
-        stats.put(StatName.MAGIC_RESISTANCE, new MagicResistance(0, intel(), luck(), str(), dex(), agi(), vit(), lvl()));
-        stats.put(StatName.PARRY, new Parry(0, agi(), dex(), lvl()));
-        stats.put(StatName.PHYSIC_RESISTANCE, new PhysicResistance(0, intel(), luck(), str(), dex(), agi(), vit(), lvl()));
-        stats.put(StatName.HP, new Hp(0, vit(), lvl()));
-        stats.put(StatName.STM, new Stm(0, agi(), vit(), dex(), str(), lvl()));
+        stats.put(StatName.BLOCK, new Block(0, dex, agi, lvl));
+        stats.put(StatName.CONCENTRATION, new Concentration(0, intel, dex, agi, vit, str, lvl));
+        stats.put(StatName.CRIT, new Crit(0, luck));
+        stats.put(StatName.DEF, new Def(0, vit, lvl));
+        stats.put(StatName.DAMAGE, new Dmg(str, agi, dex, intel, lvl));
+        stats.put(StatName.FLEE, new Flee(0, agi, dex, luck, lvl));
+        stats.put(StatName.HIT, new Hit(0, dex, agi, lvl));
+        stats.put(StatName.MAGIC_RESISTANCE, new MagicResistance(0, intel, luck, str, dex, agi, vit, lvl));
+        stats.put(StatName.PARRY, new Parry(0, agi, dex, lvl));
+        stats.put(StatName.PHYSIC_RESISTANCE, new PhysicResistance(0, intel, luck, str, dex, agi, vit, lvl));
+        stats.put(StatName.HP, new Hp(0, vit, lvl));
+        stats.put(StatName.STM, new Stm(0, agi, vit, dex, str, lvl));
         // calculatble:
         setCalculatable(calculatable);
         // subscribe:
@@ -51,147 +73,147 @@ public class Stats {
     }
 
     public Agi agi() {
-        return (Agi) stats.get(StatName.AGI);
+        return (Agi) slot(StatName.AGI);
     }
 
     public Dex dex() {
-        return (Dex) stats.get(StatName.DEX);
+        return (Dex) slot(StatName.DEX);
     }
 
     public Int intel() {
-        return (Int) stats.get(StatName.INT);
+        return (Int) slot(StatName.INT);
     }
 
     public Luck luck() {
-        return (Luck) stats.get(StatName.LUCK);
+        return (Luck) slot(StatName.LUCK);
     }
 
     public Lvl lvl() {
-        return (Lvl) stats.get(StatName.LVL);
+        return (Lvl) slot(StatName.LVL);
     }
 
     public Str str() {
-        return (Str) stats.get(StatName.STR);
+        return (Str) slot(StatName.STR);
     }
 
     public Vit vit() {
-        return (Vit) stats.get(StatName.VIT);
+        return (Vit) slot(StatName.VIT);
     }
 
     public double agiValue() {
-        return stats.get(StatName.AGI).value();
+        return slot(StatName.AGI).value();
     }
 
     public double dexValue() {
-        return stats.get(StatName.DEX).value();
+        return slot(StatName.DEX).value();
     }
 
     public double intelValue() {
-        return stats.get(StatName.INT).value();
+        return slot(StatName.INT).value();
     }
 
     public double luckValue() {
-        return stats.get(StatName.LUCK).value();
+        return slot(StatName.LUCK).value();
     }
 
     public double lvlValue() {
-        return stats.get(StatName.LVL).value();
+        return slot(StatName.LVL).value();
     }
 
     public double strValue() {
-        return stats.get(StatName.STR).value();
+        return slot(StatName.STR).value();
     }
 
     public double vitValue() {
-        return stats.get(StatName.VIT).value();
+        return slot(StatName.VIT).value();
     }
 
     public Block block() {
-        return (Block) stats.get(StatName.BLOCK);
+        return (Block) slot(StatName.BLOCK);
     }
 
     public Concentration concentration() {
-        return (Concentration) stats.get(StatName.CONCENTRATION);
+        return (Concentration) slot(StatName.CONCENTRATION);
     }
 
     public Crit crit() {
-        return (Crit) stats.get(StatName.CRIT);
+        return (Crit) slot(StatName.CRIT);
     }
 
     public Def def() {
-        return (Def) stats.get(StatName.DEF);
+        return (Def) slot(StatName.DEF);
     }
 
     public Dmg dmg() {
-        return (Dmg) stats.get(StatName.DAMAGE);
+        return (Dmg) slot(StatName.DAMAGE);
     }
 
     public Flee flee() {
-        return (Flee) stats.get(StatName.FLEE);
+        return (Flee) slot(StatName.FLEE);
     }
 
     public Hit hit() {
-        return (Hit) stats.get(StatName.HIT);
+        return (Hit) slot(StatName.HIT);
     }
 
     public MagicResistance magicResistance() {
-        return (MagicResistance) stats.get(StatName.MAGIC_RESISTANCE);
+        return (MagicResistance) slot(StatName.MAGIC_RESISTANCE);
     }
 
     public Parry parry() {
-        return (Parry) stats.get(StatName.PARRY);
+        return (Parry) slot(StatName.PARRY);
     }
 
     public PhysicResistance physicResistance() {
-        return (PhysicResistance) stats.get(StatName.PHYSIC_RESISTANCE);
+        return (PhysicResistance) slot(StatName.PHYSIC_RESISTANCE);
     }
 
     public double blockValue() {
-        return stats.get(StatName.BLOCK).value();
+        return slot(StatName.BLOCK).value();
     }
 
     public double concentrationValue() {
-        return stats.get(StatName.CONCENTRATION).value();
+        return slot(StatName.CONCENTRATION).value();
     }
 
     public double critValue() {
-        return stats.get(StatName.CRIT).value();
+        return slot(StatName.CRIT).value();
     }
 
     public double defValue() {
-        return stats.get(StatName.DEF).value();
+        return slot(StatName.DEF).value();
     }
 
     public double dmgValue() {
-        return stats.get(StatName.DAMAGE).value();
+        return slot(StatName.DAMAGE).value();
     }
 
     public double fleeValue() {
-        return stats.get(StatName.FLEE).value();
+        return slot(StatName.FLEE).value();
     }
 
     public double hitValue() {
-        return stats.get(StatName.HIT).value();
+        return slot(StatName.HIT).value();
     }
 
     public double magicResistanceValue() {
-        return stats.get(StatName.MAGIC_RESISTANCE).value();
+        return slot(StatName.MAGIC_RESISTANCE).value();
     }
 
     public double parryValue() {
-        return stats.get(StatName.PARRY).value();
+        return slot(StatName.PARRY).value();
     }
 
     public double physicResistanceValue() {
-        return stats.get(StatName.PHYSIC_RESISTANCE).value();
+        return slot(StatName.PHYSIC_RESISTANCE).value();
     }
 
     public Hp hp() {
-        return (Hp) stats.get(StatName.HP);
+        return (Hp) slot(StatName.HP);
     }
 
     public Stm stm() {
-        return (Stm) stats.get(StatName.STM);
+        return (Stm) slot(StatName.STM);
     }
 
     public double hpValue() {
@@ -203,31 +225,128 @@ public class Stats {
     }
 
     public Stat get(StatName statName) {
-        final Stat stat = stats.get(statName);
+        final Stat stat = slot(statName);
         return stat != null ? stat : get(statName.getClazz());
     }
 
     public Stat get(Class<? extends Stat> statClass) {
+        final StatName statName = STAT_NAMES.get(statClass);
+        if (statName != null) {
+            final Stat stat = slot(statName);
+            if (stat != null && stat.getClass().equals(statClass)) {
+                return stat;
+            }
+        }
         return streamWithNestedStats()
                 .filter(stat -> stat.getClass().equals(statClass))
                 .findFirst()
                 .orElseThrow(() -> new IllegalArgumentException("There is no stat of " + statClass));
     }
 
+    private Stat slot(StatName statName) {
+        return slots()[statName.ordinal()];
+    }
+
+    private Stat[] slots() {
+        if (slots == null) {
+            Stat[] result = new Stat[StatName.values().length];
+            stats.forEach((name, stat) -> result[name.ordinal()] = stat);
+            Lvl lvl = (Lvl) result[StatName.LVL.ordinal()];
+            result[StatName.STAT_POINTS.ordinal()] = lvl.statPoints();
+            result[StatName.EXP.ordinal()] = lvl.exp();
+            result[StatName.LUCKY_DODGE.ordinal()] = ((Flee) result[StatName.FLEE.ordinal()]).luckyDodgeChance();
+            Stm stm = (Stm) result[StatName.STM.ordinal()];
+            result[StatName.STM_HARDNESS.ordinal()] = stm.hardness();
+            result[StatName.STM_MAX.ordinal()] = stm.max();
+            result[StatName.STM_ATK.ordinal()] = stm.perHit();
+            result[StatName.STM_REST.ordinal()] = stm.recovery();
+            Hp hp = (Hp) result[StatName.HP.ordinal()];
+            result[StatName.HP_MAX.ordinal()] = hp.max();
+            result[StatName.HP_REST.ordinal()] = hp.recovery();
+            Dmg dmg = (Dmg) result[StatName.DAMAGE.ordinal()];
+            result[StatName.MELEE_MIN.ordinal()] = dmg.melee().min();
+            result[StatName.MELEE_MAX.ordinal()] = dmg.melee().max();
+            result[StatName.RANGE_MIN.ordinal()] = dmg.range().min();
+            result[StatName.RANGE_MAX.ordinal()] = dmg.range().max();
+            result[StatName.MAGIC_MIN.ordinal()] = dmg.magic().min();
+            result[StatName.MAGIC_MAX.ordinal()] = dmg.magic().max();
+            slots = result;
+        }
+        return slots;
+    }
+
     public void increase(Stats stats) {
-        this.stats.values().forEach(stat -> stat.increase(stats.get(stat.getClass())));
+        batch(() -> this.stats.values().forEach(stat -> stat.increase(stats.get(stat.getClass()))));
     }
 
     public void decrease(Stats stats) {
-        this.stats.values().forEach(stat -> stat.decrease(stats.get(stat.getClass()).value()));
+        batch(() -> this.stats.values().forEach(stat -> stat.decrease(stats.get(stat.getClass()).value())));
     }
 
     public void increaseBuffValues(Class<?> clazz, Stats stats) {
-        this.forEachWithNestedStats(stat -> stat.increaseBuffValue(clazz, stats.get(stat.getClass()).value()));
+        final String source = clazz.getSimpleName();
+        final Stat[] thisSlots = slots();
+        final Stat[] otherSlots = stats.slots();
+        beginBatch();
+        try {
+            for (int i = 0; i < thisSlots.length; i++) {
+                thisSlots[i].increaseBuffValue(source, otherSlots[i].value());
+            }
+        }
+        finally {
+            commitBatch();
+        }
     }
 
     public void decreaseBuffValues(Class<?> clazz, Stats stats) {
-        this.forEachWithNestedStats(stat -> stat.decreaseBuffValue(clazz, stats.get(stat.getClass()).value()));
+        final String source = clazz.getSimpleName();
+        final Stat[] thisSlots = slots();
+        final Stat[] otherSlots = stats.slots();
+        beginBatch();
+        try {
+            for (int i = 0; i < thisSlots.length; i++) {
+                thisSlots[i].increaseBuffValue(source, -otherSlots[i].value());
+            }
+        }
+        finally {
+            commitBatch();
+        }
+    }
+
+    /**
+     * Starts batch mode. Until {@link #commitBatch()} is called, changes of stats do not notify observers
+     * and derived stats are recalculated lazily, only once, when committing or when they are read.
+     * Batches can be nested, only the outermost commit applies changes.
+     */
+    public void beginBatch() {
+        if (batch == null || (!batch.isActive() && !batch.isValid())) {
+            batch = new StatsBatch(this);
+        }
+        batch.begin();
+    }
+
+    /**
+     * Recalculates derived stats changed during the batch and notifies observers once per changed stat.
+     */
+    public void commitBatch() {
+        if (batch == null) {
+            throw new IllegalStateException("Stats batch was not started");
+        }
+        batch.commit();
+    }
+
+    public boolean isInBatch() {
+        return batch != null && batch.isActive();
+    }
+
+    public void batch(Runnable changes) {
+        beginBatch();
+        try {
+            changes.run();
+        }
+        finally {
+            commitBatch();
+        }
     }
 
     public boolean isCalculatable() {
@@ -250,8 +369,14 @@ public class Stats {
     }
 
     public boolean isMatchRequirementsOf(Stats stats) {
-        return streamWithNestedStats()
-                .allMatch(stat -> stat.value() >= stats.get(stat.getClass()).value());
+        final Stat[] thisSlots = slots();
+        final Stat[] otherSlots = stats.slots();
+        for (int i = 0; i < thisSlots.length; i++) {
+            if (thisSlots[i].value() < otherSlots[i].value()) {
+                return false;
+            }
+        }
+        return true;
     }
 
     public void forEachWithNestedStats(Consumer<? super Stat> action) {
@@ -263,25 +388,7 @@ public class Stats {
     }
 
     public Stream<Stat> streamWithNestedStats() {
-        return Stream.concat(
-                stats.values().stream(),
-                Stream.of(
-                        lvl().statPoints(),
-                        lvl().exp(),
-                        flee().luckyDodgeChance(),
-                        stm().hardness(),
-                        stm().max(),
-                        stm().perHit(),
-                        stm().recovery(),
-                        hp().max(),
-                        hp().recovery(),
-                        dmg().melee().min(),
-                        dmg().melee().max(),
-                        dmg().range().min(),
-                        dmg().range().max(),
-                        dmg().magic().min(),
-                        dmg().magic().max()
-                ));
+        return Arrays.stream(slots());
     }
 
     public Stats copy(boolean calculatable) {
@@ -293,11 +400,14 @@ public class Stats {
     public void copyTo(Stats stats) {
         boolean calculatable = stats.isCalculatable();
         stats.setCalculatable(false);
-        forEachWithNestedStats(stat -> {
-            Stat copyStat = stats.get(stat.getClass());
+        final Stat[] thisSlots = slots();
+        final Stat[] otherSlots = stats.slots();
+        for (int i = 0; i < thisSlots.length; i++) {
+            Stat stat = thisSlots[i];
+            Stat copyStat = otherSlots[i];
             copyStat.set(stat.pureValue());
-            stat.getBuffs().forEach(copyStat::setBuffValue);
-        });
+            stat.buffs.forEach(copyStat::setBuffValue);
+        }
         stats.setCalculatable(calculatable);
     }
 }
@@ -0,0 +1,182 @@
+package ru.rdude.rpg.game.logic.stats;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Collects changes of stats while {@link Stats} is in batch mode.
+ * Derived stats are not recalculated on every change. Instead they are recalculated once,
+ * in order of dependencies, when batch is committed or when one of them is read.
+ * Observers outside of stats receive one update per changed stat on commit.
+ */
+class StatsBatch {
+
+    private final Stat[] order;
+    private final Map<Stat, Integer> indexes;
+    private final int[][] dependents;
+    private final boolean[] derived;
+
+    private final boolean[] changed;
+    private final boolean[] changedSinceRecalculation;
+    private final boolean[] needsRecalculation;
+    private boolean hasChangesToRecalculate = false;
+    private boolean recalculating = false;
+    private int depth = 0;
+    // set when subscriptions between stats of the graph are changed
+    private boolean invalid = false;
+
+    StatsBatch(Stats stats) {
+        final List<Stat> all = stats.streamWithNestedStats().collect(Collectors.toList());
+        final Set<Stat> topLevel = Collections.newSetFromMap(new IdentityHashMap<>());
+        stats.forEach(topLevel::add);
+        // graph of dependencies is taken from subscriptions between stats
+        final Map<Stat, Integer> allIndexes = new IdentityHashMap<>();
+        for (int i = 0; i < all.size(); i++) {
+            allIndexes.put(all.get(i), i);
+            all.get(i).graph = this;
+        }
+        final List<List<Integer>> edges = new ArrayList<>();
+        final int[] inDegree = new int[all.size()];
+        for (Stat stat : all) {
+            List<Integer> statEdges = new ArrayList<>();
+            for (StatObserver subscriber : stat.subscribers.getSubscribers()) {
+                Integer subscriberIndex = subscriber instanceof Stat ? allIndexes.get(subscriber) : null;
+                if (subscriberIndex != null) {
+                    statEdges.add(subscriberIndex);
+                    inDegree[subscriberIndex]++;
+                }
+            }
+            edges.add(statEdges);
+        }
+        // topological order
+        final boolean[] isDerived = new boolean[all.size()];
+        for (int i = 0; i < all.size(); i++) {
+            isDerived[i] = inDegree[i] > 0 || (!topLevel.contains(all.get(i)) && all.get(i) instanceof Calculatable);
+        }
+        final List<Integer> sorted = new ArrayList<>(all.size());
+        final Deque<Integer> ready = new ArrayDeque<>();
+        for (int i = 0; i < all.size(); i++) {
+            if (inDegree[i] == 0) ready.add(i);
+        }
+        while (!ready.isEmpty()) {
+            int current = ready.poll();
+            sorted.add(current);
+            for (int next : edges.get(current)) {
+                if (--inDegree[next] == 0) ready.add(next);
+            }
+        }
+        // cyclic subscriptions should not exist but in that case stats are still recalculated in declaration order
+        for (int i = 0; i < all.size(); i++) {
+            if (inDegree[i] > 0) sorted.add(i);
+        }
+        order = new Stat[all.size()];
+        derived = new boolean[all.size()];
+        indexes = new IdentityHashMap<>();
+        final int[] positions = new int[all.size()];
+        for (int position = 0; position < sorted.size(); position++) {
+            int index = sorted.get(position);
+            order[position] = all.get(index);
+            derived[position] = isDerived[index];
+            indexes.put(all.get(index), position);
+            positions[index] = position;
+        }
+        dependents = new int[all.size()][];
+        for (int index = 0; index < all.size(); index++) {
+            dependents[positions[index]] = edges.get(index).stream().mapToInt(i -> positions[i]).toArray();
+        }
+        changed = new boolean[order.length];
+        changedSinceRecalculation = new boolean[order.length];
+        needsRecalculation = new boolean[order.length];
+    }
+
+    void begin() {
+        if (depth++ == 0) {
+            for (Stat stat : order) {
+                stat.batch = this;
+            }
+        }
+    }
+
+    // returns true if this was the outermost batch and it is finished now
+    boolean commit() {
+        if (depth == 0) {
+            throw new IllegalStateException("Stats batch was not started");
+        }
+        if (--depth > 0) {
+            return false;
+        }
+        recalculate();
+        for (Stat stat : order) {
+            stat.batch = null;
+        }
+        for (int i = 0; i < order.length; i++) {
+            if (changed[i]) {
+                changed[i] = false;
+                order[i].notifySubscribersOutside(this);
+            }
+        }
+        return true;
+    }
+
+    boolean isActive() {
+        return depth > 0;
+    }
+
+    void invalidate() {
+        invalid = true;
+    }
+
+    boolean isValid() {
+        return !invalid;
+    }
+
+    boolean contains(StatObserver observer) {
+        return observer instanceof Stat && indexes.containsKey(observer);
+    }
+
+    void markChanged(Stat stat) {
+        Integer index = indexes.get(stat);
+        if (index == null) return;
+        changed[index] = true;
+        changedSinceRecalculation[index] = true;
+        hasChangesToRecalculate = true;
+    }
+
+    void beforeRead(Stat stat) {
+        if (!hasChangesToRecalculate || recalculating) return;
+        Integer index = indexes.get(stat);
+        if (index != null && derived[index]) {
+            recalculate();
+        }
+    }
+
+    private void recalculate() {
+        recalculating = true;
+        // each pass goes through stats in topological order so every derived stat is recalculated once.
+        // Another pass is only needed if recalculation changed a stat that was already passed
+        int passes = 0;
+        while (hasChangesToRecalculate && passes++ <= order.length) {
+            hasChangesToRecalculate = false;
+            for (int i = 0; i < order.length; i++) {
+                if (needsRecalculation[i]) {
+                    needsRecalculation[i] = false;
+                    order[i].forceCalculate();
+                }
+                if (changedSinceRecalculation[i]) {
+                    changedSinceRecalculation[i] = false;
+                    for (int dependent : dependents[i]) {
+                        needsRecalculation[dependent] = true;
+                    }
+                }
+            }
+        }
+        recalculating = false;
+    }
+}
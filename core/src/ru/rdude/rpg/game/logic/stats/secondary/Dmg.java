@@ -7,6 +7,8 @@ import ru.rdude.rpg.game.utils.Functions;
 import ru.rdude.rpg.game.logic.stats.Calculatable;
 import ru.rdude.rpg.game.logic.stats.Stat;
 import ru.rdude.rpg.game.logic.stats.primary.*;
+import ru.rdude.rpg.game.utils.jsonextension.CompactIdGenerator;
+import ru.rdude.rpg.game.utils.jsonextension.CompactIdResolver;
 import ru.rdude.rpg.game.utils.jsonextension.JsonPolymorphicSubType;
 
 import static java.lang.Math.*;
@@ -115,7 +117,7 @@ public class Dmg extends Stat implements Calculatable {
         return value();
     }
 
-    @JsonIdentityInfo(generator = ObjectIdGenerators.UUIDGenerator.class)
+    @JsonIdentityInfo(generator = CompactIdGenerator.class, resolver = CompactIdResolver.class)
     public static class AtkType implements Comparable<AtkType> {
 
         public Max max;
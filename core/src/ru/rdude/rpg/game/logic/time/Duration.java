@@ -2,15 +2,16 @@ package ru.rdude.rpg.game.logic.time;
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
-import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 import ru.rdude.rpg.game.utils.SubscribersManager;
+import ru.rdude.rpg.game.utils.jsonextension.CompactIdGenerator;
+import ru.rdude.rpg.game.utils.jsonextension.CompactIdResolver;
 import ru.rdude.rpg.game.utils.jsonextension.JsonPolymorphicSubType;
 
 import java.util.Optional;
 
-@JsonIdentityInfo(generator = ObjectIdGenerators.UUIDGenerator.class)
+@JsonIdentityInfo(generator = CompactIdGenerator.class, resolver = CompactIdResolver.class)
 @JsonPolymorphicSubType("duration")
-public class Duration implements TimeChangeObserver, TurnChangeObserver {
+public class Duration implements ScheduledTimeChangeObserver, TurnChangeObserver {
 
     public enum DurationType  {MINUTES, TURNS}
 
@@ -23,16 +24,16 @@ public class Duration implements TimeChangeObserver, TurnChangeObserver {
 
     public Duration(TimeManager timeManager, DurationType type, Double value) {
         observers = new SubscribersManager<>();
-        timeManager.subscribe(this);
         if (type == DurationType.MINUTES) minutes = value;
         else if (type == DurationType.TURNS) turns = value;
+        timeManager.subscribe(this);
     }
 
     public Duration(TimeManager timeManager, Double minutes, Double turns) {
         observers = new SubscribersManager<>();
-        timeManager.subscribe(this);
         this.minutes = minutes;
         this.turns = turns;
+        timeManager.subscribe(this);
     }
 
     public void timeUpdate(int minutes) {
@@ -42,6 +43,15 @@ public class Duration implements TimeChangeObserver, TurnChangeObserver {
         }
     }
 
+    @Override
+    public int minutesToNextUpdate() {
+        // duration by minutes ends when minutes left become negative
+        if (minutes == null || minutes < 0) {
+            return NO_UPDATE;
+        }
+        return (int) Math.floor(minutes) + 1;
+    }
+
     public void turnUpdate() {
         if (this.turns != null) {
             this.turns--;
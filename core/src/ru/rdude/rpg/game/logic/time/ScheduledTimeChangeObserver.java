@@ -0,0 +1,15 @@
+package ru.rdude.rpg.game.logic.time;
+
+/**
+ * Time change observer that knows when it needs to be updated next time.
+ * Such observers are not notified on every time change, instead {@link TimeScheduler} wakes them up
+ * when their time comes with amount of minutes passed since their last update.
+ */
+public interface ScheduledTimeChangeObserver extends TimeChangeObserver {
+
+    int NO_UPDATE = -1;
+
+    // minutes left to the next required update or NO_UPDATE if observer is not interested in time changes anymore
+    int minutesToNextUpdate();
+
+}
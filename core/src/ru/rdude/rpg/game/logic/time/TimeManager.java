@@ -2,17 +2,24 @@ package ru.rdude.rpg.game.logic.time;
 
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
 import com.fasterxml.jackson.annotation.JsonIgnore;
-import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 import ru.rdude.rpg.game.utils.SubscribersManager;
+import ru.rdude.rpg.game.utils.jsonextension.CompactIdGenerator;
+import ru.rdude.rpg.game.utils.jsonextension.CompactIdResolver;
 import ru.rdude.rpg.game.utils.jsonextension.JsonPolymorphicSubType;
 
+import java.util.ArrayList;
+
 @JsonPolymorphicSubType("timeManager")
-@JsonIdentityInfo(generator = ObjectIdGenerators.UUIDGenerator.class)
+@JsonIdentityInfo(generator = CompactIdGenerator.class, resolver = CompactIdResolver.class)
 public class TimeManager implements TurnChangeObserver {
 
     @JsonIgnore
     private final SubscribersManager<TimeObserver> timeObservers;
     private final SubscribersManager<TimeChangeObserver> timeChangeObservers;
+    private final TimeScheduler scheduler;
+    // saves made before scheduler existed keep scheduled observers in time change observers
+    @JsonIgnore
+    private boolean subscribersMigrated = false;
 
     private int minute = 0;
     private int hour = 12;
@@ -24,6 +31,7 @@ public class TimeManager implements TurnChangeObserver {
     public TimeManager() {
         timeChangeObservers = new SubscribersManager<>();
         timeObservers = new SubscribersManager<>();
+        scheduler = new TimeScheduler();
     }
 
     public String stringTime() {
@@ -79,7 +87,9 @@ public class TimeManager implements TurnChangeObserver {
     public void increaseTime(int minutes) {
         this.minute += minutes;
         calculateTime();
+        migrateScheduledSubscribers();
         notifySubscribers(minutes);
+        scheduler.advanceMinutes(minutes);
     }
 
     public void setTime(int minute, int hour, int day, int month, int year) {
@@ -91,10 +101,51 @@ public class TimeManager implements TurnChangeObserver {
     }
 
     public void subscribe(TimeObserver observer) { timeObservers.subscribe(observer); }
-    public void subscribe(TimeChangeObserver observer) { timeChangeObservers.subscribe(observer); }
+    public void subscribe(TimeChangeObserver observer) {
+        if (observer instanceof ScheduledTimeChangeObserver) {
+            scheduler.schedule((ScheduledTimeChangeObserver) observer);
+        }
+        else {
+            timeChangeObservers.subscribe(observer);
+        }
+    }
 
     public void unsubscribe(TimeObserver observer) { timeObservers.unsubscribe(observer); }
-    public void unsubscribe(TimeChangeObserver observer) { timeChangeObservers.unsubscribe(observer); }
+    public void unsubscribe(TimeChangeObserver observer) {
+        if (observer instanceof ScheduledTimeChangeObserver) {
+            scheduler.cancel((ScheduledTimeChangeObserver) observer);
+        }
+        timeChangeObservers.unsubscribe(observer);
+    }
+
+    // should be called when state of scheduled observer changed and it needs update at another time
+    public void reschedule(ScheduledTimeChangeObserver observer) {
+        scheduler.reschedule(observer);
+    }
+
+    // should be called when state of scheduled observer was reset, minutes passed since its last update are not delivered
+    public void rescheduleAfterReset(ScheduledTimeChangeObserver observer) {
+        scheduler.reschedule(observer, true);
+    }
+
+    public long minutesSinceUpdate(ScheduledTimeChangeObserver observer) {
+        return scheduler.minutesSinceUpdate(observer);
+    }
+
+    public TimeScheduler getScheduler() {
+        return scheduler;
+    }
+
+    private void migrateScheduledSubscribers() {
+        if (subscribersMigrated) return;
+        subscribersMigrated = true;
+        new ArrayList<>(timeChangeObservers.getSubscribers()).stream()
+                .filter(observer -> observer instanceof ScheduledTimeChangeObserver)
+                .forEach(observer -> {
+                    timeChangeObservers.unsubscribe(observer);
+                    scheduler.schedule((ScheduledTimeChangeObserver) observer);
+                });
+    }
 
     private void notifySubscribers(int minutesChanges) {
         timeObservers.notifySubscribers(obs -> obs.update(this));
@@ -0,0 +1,158 @@
+package ru.rdude.rpg.game.logic.time;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps entries ordered by absolute game minute. Advancing time dispatches only entries that are due.
+ * Entries with the same time are dispatched in order they were scheduled.
+ */
+public class TimeScheduler {
+
+    private long currentMinute = 0;
+    private long order = 0;
+
+    @JsonIgnore
+    private final PriorityQueue<MinuteEntry> minuteEntries = new PriorityQueue<>();
+
+    // active entries by observer. Cancelled entries stay in queues and are skipped when polled
+    @JsonIgnore
+    private Map<ScheduledTimeChangeObserver, MinuteEntry> activeMinuteEntries;
+
+    @JsonProperty("minuteEntries")
+    private List<MinuteEntry> getMinuteEntriesForJson() {
+        return minuteEntries.stream()
+                .filter(entry -> !entry.cancelled)
+                .collect(Collectors.toList());
+    }
+
+    @JsonProperty("minuteEntries")
+    private void setMinuteEntriesFromJson(List<MinuteEntry> entries) {
+        minuteEntries.clear();
+        minuteEntries.addAll(entries);
+        activeMinuteEntries = null;
+    }
+
+    public long getCurrentMinute() {
+        return currentMinute;
+    }
+
+    public boolean isScheduled(ScheduledTimeChangeObserver observer) {
+        return activeMinuteEntries().containsKey(observer);
+    }
+
+    public void schedule(ScheduledTimeChangeObserver observer) {
+        schedule(observer, currentMinute);
+    }
+
+    /**
+     * Reschedules observer when its state was changed outside of time updates.
+     * Minutes passed since its last update are delivered first, so they are not lost and not counted twice.
+     */
+    public void reschedule(ScheduledTimeChangeObserver observer) {
+        reschedule(observer, false);
+    }
+
+    // if state was reset, for example duration was refreshed, minutes passed since last update are not delivered
+    public void reschedule(ScheduledTimeChangeObserver observer, boolean stateReset) {
+        final MinuteEntry entry = activeMinuteEntries().get(observer);
+        if (entry == null) {
+            return;
+        }
+        if (!stateReset && currentMinute > entry.lastUpdate) {
+            final int passed = (int) (currentMinute - entry.lastUpdate);
+            entry.lastUpdate = currentMinute;
+            observer.timeUpdate(passed);
+            // observer could have been cancelled or rescheduled during update
+            if (entry.cancelled) {
+                return;
+            }
+        }
+        schedule(observer, currentMinute);
+    }
+
+    // minutes passed since observer was updated last time, 0 if it is not scheduled
+    public long minutesSinceUpdate(ScheduledTimeChangeObserver observer) {
+        final MinuteEntry entry = activeMinuteEntries().get(observer);
+        return entry != null ? currentMinute - entry.lastUpdate : 0;
+    }
+
+    private void schedule(ScheduledTimeChangeObserver observer, long lastUpdate) {
+        cancel(observer);
+        final int minutes = observer.minutesToNextUpdate();
+        if (minutes == ScheduledTimeChangeObserver.NO_UPDATE) {
+            return;
+        }
+        MinuteEntry entry = new MinuteEntry(observer, lastUpdate + Math.max(1, minutes), order++, lastUpdate);
+        minuteEntries.add(entry);
+        activeMinuteEntries().put(observer, entry);
+    }
+
+    public void cancel(ScheduledTimeChangeObserver observer) {
+        final MinuteEntry entry = activeMinuteEntries().remove(observer);
+        if (entry != null) {
+            entry.cancelled = true;
+        }
+    }
+
+    public void advanceMinutes(int minutes) {
+        currentMinute += minutes;
+        MinuteEntry entry;
+        while ((entry = minuteEntries.peek()) != null && entry.time <= currentMinute) {
+            minuteEntries.poll();
+            if (entry.cancelled) {
+                continue;
+            }
+            final int passed = (int) (currentMinute - entry.lastUpdate);
+            entry.lastUpdate = currentMinute;
+            entry.observer.timeUpdate(passed);
+            // entry stays active during update, so cancelling or rescheduling inside of it marks this entry cancelled
+            if (!entry.cancelled) {
+                schedule(entry.observer, currentMinute);
+            }
+        }
+    }
+
+    private Map<ScheduledTimeChangeObserver, MinuteEntry> activeMinuteEntries() {
+        // restored from queue after loading
+        if (activeMinuteEntries == null) {
+            activeMinuteEntries = new IdentityHashMap<>();
+            minuteEntries.stream()
+                    .filter(entry -> !entry.cancelled)
+                    .forEach(entry -> activeMinuteEntries.put(entry.observer, entry));
+        }
+        return activeMinuteEntries;
+    }
+
+
+    private static class MinuteEntry implements Comparable<MinuteEntry> {
+
+        private ScheduledTimeChangeObserver observer;
+        private long time;
+        private long order;
+        private long lastUpdate;
+        @JsonIgnore
+        private boolean cancelled = false;
+
+        private MinuteEntry() { }
+
+        private MinuteEntry(ScheduledTimeChangeObserver observer, long time, long order, long lastUpdate) {
+            this.observer = observer;
+            this.time = time;
+            this.order = order;
+            this.lastUpdate = lastUpdate;
+        }
+
+        @Override
+        public int compareTo(MinuteEntry other) {
+            final int byTime = Long.compare(time, other.time);
+            return byTime != 0 ? byTime : Long.compare(order, other.order);
+        }
+    }
+}
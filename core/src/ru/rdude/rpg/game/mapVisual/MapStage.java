@@ -64,16 +64,16 @@ public class MapStage extends Stage {
 
         // map visual
         mapVisual = new MapVisual(camera, gameMap);
-        map.forEachCellProperties((cell, cellProperties) -> {
-            if (cellProperties.isVisible()) {
-                mapVisual.setVoidOnCell(cell, false);
+        map.forEachVisibleCell(cell -> mapVisual.setVoidOnCell(cell, false));
+        for (int x = 0; x < gameMap.getWidth(); x++) {
+            for (int y = 0; y < gameMap.getHeight(); y++) {
+                gameMap.cell(x, y).getAroundCells(1).forEach(c -> pathFinder.changeConnections(c, c.getAroundCells(1).stream()
+                        .filter(c2 -> map.isCellVisible(c2)
+                                && (c2.getBiom() != Biom.WATER || c2.getWaterDepth() == WaterDepth.SMALL
+                                || c2.getWaterDepth() == WaterDepth.RIVER))
+                        .collect(Collectors.toSet())));
             }
-            cell.getAroundCells(1).forEach(c -> pathFinder.changeConnections(c, c.getAroundCells(1).stream()
-                    .filter(c2 -> Game.getCurrentGame().getGameMap().isCellVisible(c2)
-                            && (c2.getBiom() != Biom.WATER || c2.getWaterDepth() == WaterDepth.SMALL
-                            || c2.getWaterDepth() == WaterDepth.RIVER))
-                    .collect(Collectors.toSet())));
-        });
+        }
         addActor(mapVisual);
         // players on map
         players = new PlayersOnMap(map.getPlayerPosition());
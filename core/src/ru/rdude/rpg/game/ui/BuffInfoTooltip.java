@@ -1,5 +1,6 @@
 package ru.rdude.rpg.game.ui;
 
+import com.badlogic.gdx.scenes.scene2d.actions.Actions;
 import com.badlogic.gdx.scenes.scene2d.ui.Label;
 import com.badlogic.gdx.scenes.scene2d.ui.Table;
 import com.badlogic.gdx.scenes.scene2d.ui.Tooltip;
@@ -13,6 +14,7 @@ import ru.rdude.rpg.game.logic.entities.skills.Buff;
 import ru.rdude.rpg.game.logic.entities.skills.BuffObserver;
 import ru.rdude.rpg.game.logic.entities.skills.SkillDuration;
 import ru.rdude.rpg.game.logic.enums.SkillType;
+import ru.rdude.rpg.game.logic.game.Game;
 import ru.rdude.rpg.game.logic.time.Duration;
 import ru.rdude.rpg.game.logic.time.DurationObserver;
 import ru.rdude.rpg.game.utils.Functions;
@@ -26,11 +28,15 @@ import java.util.stream.Stream;
 @JsonIgnoreType
 public class BuffInfoTooltip extends Tooltip<Table> implements DurationObserver, BuffObserver {
 
+    private final Buff buff;
     private Label timeLeft;
     private Label forcedCancelAfter;
+    // duration is updated by time scheduler only when buff acts or ends, so time left is calculated while tooltip is shown
+    private long shownMinutesPassed = -1;
 
     public BuffInfoTooltip(Buff buff) {
         super(new Table());
+        this.buff = buff;
         setInstant(true);
         buff.subscribe(this);
         buff.getDuration().subscribe(this);
@@ -47,10 +53,12 @@ public class BuffInfoTooltip extends Tooltip<Table> implements DurationObserver,
 
         // time left
         if (skillData.hasDuration()) {
-            timeLeft = new Label(getTimeLeftString(buff.getDuration()), UiData.DEFAULT_SKIN, UiData.BIG_TEXT_STYLE);
+            timeLeft = new Label(getTimeLeftString(buff), UiData.DEFAULT_SKIN, UiData.BIG_TEXT_STYLE);
             mainTable.add(timeLeft)
                     .align(Align.center)
                     .row();
+            // actions run only while tooltip is on stage
+            mainTable.addAction(Actions.forever(Actions.run(() -> refreshTimeLeft(buff))));
         }
 
         // forced cancel
@@ -292,12 +300,23 @@ public class BuffInfoTooltip extends Tooltip<Table> implements DurationObserver,
     }
 
 
-    private String getTimeLeftString(Duration duration) {
+    private void refreshTimeLeft(Buff buff) {
+        long minutesPassed = Game.getCurrentGame().getTimeManager().minutesSinceUpdate(buff);
+        if (minutesPassed != shownMinutesPassed) {
+            timeLeft.setText(getTimeLeftString(buff));
+        }
+    }
+
+    // duration of buff is updated only when buff is updated
+    private String getTimeLeftString(Buff buff) {
+        Duration duration = buff.getDuration();
+        long minutesPassed = Game.getCurrentGame().getTimeManager().minutesSinceUpdate(buff);
+        shownMinutesPassed = minutesPassed;
         String turns = duration.getTurnsLeft()
                 .map(d -> Functions.trimDouble(d) + " turns")
                 .orElse("");
         String minutes = duration.getMinutesLeft()
-                .map(d -> Functions.trimDouble(d) + " minutes")
+                .map(d -> Functions.trimDouble(Math.max(0d, d - minutesPassed)) + " minutes")
                 .orElse("");
         return Stream.of(turns, minutes)
                 .filter(s -> !s.isEmpty())
@@ -350,7 +369,7 @@ public class BuffInfoTooltip extends Tooltip<Table> implements DurationObserver,
     @Override
     public void update(Duration duration, boolean ends) {
         if (timeLeft != null) {
-            timeLeft.setText(getTimeLeftString(duration));
+            timeLeft.setText(getTimeLeftString(buff));
         }
         if (forcedCancelAfter != null) {
             forcedCancelAfter.setText(getForceCancelString((SkillDuration) duration));
@@ -13,7 +13,7 @@ public class DamageLabel extends Label implements BeingActionObserver {
 
     public DamageLabel(Being<?> being) {
         super("", UiData.DEFAULT_SKIN, UiData.BIG_TEXT_STYLE);
-        being.subscribe(this);
+        being.subscribeWeak(this);
     }
 
     @Override
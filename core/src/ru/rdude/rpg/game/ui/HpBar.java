@@ -26,8 +26,8 @@ public class HpBar extends Group implements StatObserver {
 
     public HpBar(Being<?> being) {
         hp = being.stats().hp();
-        hp.subscribe(this);
-        hp.max().subscribe(this);
+        hp.subscribeWeak(this);
+        hp.max().subscribeWeak(this);
 
         progressBar = new ProgressBar(0, (float) hp.max().value(),
                 1, false, UiData.DEFAULT_SKIN, "hp");
@@ -0,0 +1,189 @@
+package ru.rdude.rpg.game.ui;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.GlyphLayout;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.scenes.scene2d.ui.Label;
+import com.badlogic.gdx.scenes.scene2d.ui.Widget;
+import com.badlogic.gdx.scenes.scene2d.utils.Cullable;
+import com.badlogic.gdx.utils.Align;
+import ru.rdude.rpg.game.logic.GameLogger;
+
+/**
+ * Lines of game log for a scroll pane. Only sequence numbers of log records are kept, text is laid out
+ * only for lines visible in the scroll pane. Glyph layouts are kept for visible lines and reused
+ * when other lines become visible. Text longer than the width is wrapped, so every line has its own height.
+ * Lines tops are kept as sums of heights of all lines added before, visible lines are found by binary search.
+ * Heights are measured once when line is added and again only if the width is changed.
+ * Oldest lines are removed when amount of lines reaches the limit.
+ */
+public class LogLinesView extends Widget implements Cullable {
+
+    private final GameLogger gameLogger;
+    private final BitmapFont font;
+    private final Color fontColor;
+    private final float lineHeight;
+
+    // rings of record sequence numbers, heights and tops by line number
+    private final long[] sequences;
+    private final float[] heights;
+    // sum of heights of all lines added before this line, also removed ones
+    private final double[] tops;
+    // amount of lines ever added, line number of the next line
+    private long linesAdded;
+    private double bottom;
+
+    // width heights were measured with
+    private float measuredWidth;
+    private final GlyphLayout measureLayout = new GlyphLayout();
+
+    // layouts of visible lines, layout of line n is at n % layouts.length
+    private GlyphLayout[] layouts = new GlyphLayout[0];
+    private long[] layoutLines = new long[0];
+    private float layoutsWidth = -1;
+
+    private Rectangle cullingArea;
+
+    public LogLinesView(GameLogger gameLogger, Label.LabelStyle style, int maxLines) {
+        this.gameLogger = gameLogger;
+        this.font = style.font;
+        this.fontColor = style.fontColor != null ? style.fontColor : Color.WHITE;
+        this.lineHeight = font.getLineHeight();
+        this.sequences = new long[maxLines];
+        this.heights = new float[maxLines];
+        this.tops = new double[maxLines];
+    }
+
+    // returns height of the oldest line if it was removed, otherwise 0
+    public float add(GameLogger.Record record) {
+        float removed = linesAdded >= sequences.length ? heights[ring(linesAdded)] : 0f;
+        int slot = ring(linesAdded);
+        sequences[slot] = record.getSequence();
+        heights[slot] = measure(record.format());
+        tops[slot] = bottom;
+        bottom += heights[slot];
+        linesAdded++;
+        invalidateHierarchy();
+        return removed;
+    }
+
+    public int getLinesCount() {
+        return (int) Math.min(linesAdded, sequences.length);
+    }
+
+    @Override
+    public float getPrefHeight() {
+        return getLinesCount() == 0 ? 0f : (float) (bottom - tops[ring(firstLine())]);
+    }
+
+    @Override
+    public void layout() {
+        if (measuredWidth != getWidth()) {
+            measuredWidth = getWidth();
+            remeasure();
+            invalidateHierarchy();
+        }
+    }
+
+    @Override
+    public void setCullingArea(Rectangle cullingArea) {
+        this.cullingArea = cullingArea;
+    }
+
+    @Override
+    public void draw(Batch batch, float parentAlpha) {
+        validate();
+        int count = getLinesCount();
+        if (count == 0) {
+            return;
+        }
+        // oldest kept line is drawn at the top
+        long firstLine = firstLine();
+        long lastLine = linesAdded - 1;
+        double origin = tops[ring(firstLine)];
+        float height = getHeight();
+        long first = firstLine;
+        long last = lastLine;
+        if (cullingArea != null) {
+            first = lineAt(origin + height - cullingArea.y - cullingArea.height);
+            last = lineAt(origin + height - cullingArea.y);
+        }
+        ensureLayouts((int) (last - first) + 2);
+        for (long line = first; line <= last; line++) {
+            GlyphLayout layout = layout(line);
+            font.draw(batch, layout, getX(), getY() + height - (float) (tops[ring(line)] - origin));
+        }
+    }
+
+    private long firstLine() {
+        return linesAdded - getLinesCount();
+    }
+
+    private int ring(long line) {
+        return (int) (line % sequences.length);
+    }
+
+    // kept line at the given distance from the top of all lines ever added
+    private long lineAt(double position) {
+        long low = firstLine();
+        long high = linesAdded - 1;
+        while (low < high) {
+            long middle = (low + high + 1) >>> 1;
+            if (tops[ring(middle)] <= position) {
+                low = middle;
+            }
+            else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private float measure(String text) {
+        if (measuredWidth <= 0) {
+            return lineHeight;
+        }
+        measureLayout.setText(font, text, 0, text.length(), fontColor, measuredWidth, Align.left, true, null);
+        return Math.max(lineHeight, measureLayout.height);
+    }
+
+    private void remeasure() {
+        double top = linesAdded > 0 ? tops[ring(firstLine())] : 0d;
+        for (long line = firstLine(); line < linesAdded; line++) {
+            int slot = ring(line);
+            GameLogger.Record record = gameLogger.get(sequences[slot]);
+            heights[slot] = measure(record != null ? record.format() : "");
+            tops[slot] = top;
+            top += heights[slot];
+        }
+        bottom = top;
+    }
+
+    private GlyphLayout layout(long line) {
+        int slot = (int) (line % layouts.length);
+        if (layoutLines[slot] != line) {
+            GameLogger.Record record = gameLogger.get(sequences[ring(line)]);
+            String text = record != null ? record.format() : "";
+            layouts[slot].setText(font, text, 0, text.length(), fontColor, getWidth(), Align.left, true, null);
+            layoutLines[slot] = line;
+        }
+        return layouts[slot];
+    }
+
+    // there should be a layout for every visible line. Layouts are laid out again if width is changed
+    private void ensureLayouts(int amount) {
+        if (layouts.length >= amount && layoutsWidth == getWidth()) {
+            return;
+        }
+        int length = Math.max(amount, layouts.length);
+        layouts = new GlyphLayout[length];
+        layoutLines = new long[length];
+        for (int i = 0; i < length; i++) {
+            layouts[i] = new GlyphLayout();
+            layoutLines[i] = -1;
+        }
+        layoutsWidth = getWidth();
+    }
+}
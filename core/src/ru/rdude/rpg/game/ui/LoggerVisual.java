@@ -13,7 +13,7 @@ import ru.rdude.rpg.game.logic.game.Game;
 
 public class LoggerVisual extends Window {
 
-    private Label text;
+    private LogLinesView lines;
     private GameLogger gameLogger;
     boolean mouseStillOnScrollPane;
 
@@ -21,22 +21,31 @@ public class LoggerVisual extends Window {
         super("", UiData.DEFAULT_SKIN, "simple_transparent");
         align(Align.topLeft);
         this.gameLogger = Game.getCurrentGame().getGameLogger();
-        text = new Label("Game has been started!", UiData.DEFAULT_SKIN, UiData.SMALL_TEXT_STYLE);
-        text.setWrap(true);
-        ScrollPane scrollPane = new ScrollPane(text);
+        lines = new LogLinesView(gameLogger, UiData.DEFAULT_SKIN.get(UiData.SMALL_TEXT_STYLE, Label.LabelStyle.class), gameLogger.getCapacity());
+        ScrollPane scrollPane = new ScrollPane(lines);
         scrollPane.setScrollbarsVisible(true);
         scrollPane.setFlickScroll(false);
-        add(scrollPane).width(490);
-        gameLogger.addListener(log -> {
-            text.setText(text.getText() + "\r\n" + log);
-            scrollPane.scrollTo(0, 0, scrollPane.getWidth(), scrollPane.getHeight());
+        add(scrollPane).width(490).height(240);
+        gameLogger.addListener(record -> {
+            // stays at the bottom only if it was there, otherwise keeps showing the same lines
+            boolean atBottom = scrollPane.isBottomEdge();
+            float removed = lines.add(record);
+            scrollPane.layout();
+            if (atBottom) {
+                scrollPane.setScrollY(scrollPane.getMaxY());
+                scrollPane.updateVisualScroll();
+            }
+            else if (removed > 0) {
+                scrollPane.setScrollY(scrollPane.getScrollY() - removed);
+                scrollPane.updateVisualScroll();
+            }
         });
+        gameLogger.log("Game has been started!");
         setSize(500, 250);
-        text.setSize(490, 240);
 
         // scrollPane stops scrolling if window is clicked. So next code is needed
         mouseStillOnScrollPane = false;
-        text.addListener(new ClickListener() {
+        lines.addListener(new ClickListener() {
             @Override
             public void clicked(InputEvent event, float x, float y) {
                 mouseStillOnScrollPane = true;
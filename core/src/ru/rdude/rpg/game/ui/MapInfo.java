@@ -1,20 +1,26 @@
 package ru.rdude.rpg.game.ui;
 
 import com.badlogic.gdx.files.FileHandle;
-import com.badlogic.gdx.scenes.scene2d.ui.Image;
 
 public class MapInfo {
 
-    public final Image image;
     public final String text;
     public final long guid;
     public final FileHandle mapFile;
+    // file size and last modification time when info was read. Used to find out if file was changed
+    public final long fileSize;
+    public final long lastModified;
 
-    public MapInfo(FileHandle mapFile, long guid, String name, Image image) {
+    public MapInfo(FileHandle mapFile, long guid, String name, long fileSize, long lastModified) {
         this.mapFile = mapFile;
         this.guid = guid;
-        this.image = image;
         this.text = name;
+        this.fileSize = fileSize;
+        this.lastModified = lastModified;
+    }
+
+    public boolean isActualFor(FileHandle file) {
+        return file.length() == fileSize && file.lastModified() == lastModified;
     }
 
     @Override
@@ -9,8 +9,8 @@ import com.badlogic.gdx.scenes.scene2d.ui.*;
 import com.badlogic.gdx.scenes.scene2d.utils.ChangeListener;
 import com.badlogic.gdx.scenes.scene2d.utils.ClickListener;
 import com.badlogic.gdx.scenes.scene2d.utils.SpriteDrawable;
+import com.badlogic.gdx.scenes.scene2d.utils.TextureRegionDrawable;
 import com.badlogic.gdx.utils.viewport.FitViewport;
-import ru.rdude.rpg.game.logic.data.io.GameMapFileLoader;
 import ru.rdude.rpg.game.logic.game.Game;
 import ru.rdude.rpg.game.logic.gameStates.Map;
 import ru.rdude.rpg.game.mapVisual.MapTilesFactory;
@@ -19,7 +19,9 @@ public class MapSelectionStage extends Stage {
 
     private static MapSelectionStage instance = new MapSelectionStage();
 
-    private final Image mapImage = new Image(new SpriteDrawable(new Sprite(MapTilesFactory.getEmpty().getTextureRegion())));
+    private final SpriteDrawable emptyMapImage = new SpriteDrawable(new Sprite(MapTilesFactory.getEmpty().getTextureRegion()));
+    private final Image mapImage = new Image(emptyMapImage);
+    private final MapThumbnails thumbnails = new MapThumbnails(8);
     private List<MapInfo> mapList = new List<>(UiData.DEFAULT_SKIN, "no_background_simple");
 
     public MapSelectionStage() {
@@ -44,7 +46,17 @@ public class MapSelectionStage extends Stage {
         mapList.addListener(new ChangeListener() {
             @Override
             public void changed(ChangeEvent changeEvent, Actor actor) {
-                mapImage.setDrawable(mapList.getSelected().image.getDrawable());
+                MapInfo selected = mapList.getSelected();
+                if (selected == null) {
+                    return;
+                }
+                mapImage.setDrawable(emptyMapImage);
+                thumbnails.get(selected, texture -> {
+                    if (mapList.getSelected() == selected) {
+                        mapImage.setDrawable(new TextureRegionDrawable(texture));
+                    }
+                });
+                Game.getGameMapCache().prefetch(selected);
             }
         });
         ScrollPane listScrollPane = new ScrollPane(mapList, UiData.DEFAULT_SKIN);
@@ -67,7 +79,7 @@ public class MapSelectionStage extends Stage {
         selectButton.addListener(new ClickListener() {
             @Override
             public void clicked(InputEvent event, float x, float y) {
-                Game.getCurrentGame().setGameMap(new Map(GameMapFileLoader.load(mapList.getSelected().mapFile)));
+                Game.getCurrentGame().setGameMap(new Map(Game.getGameMapCache().get(mapList.getSelected())));
                 Game.getGameVisual().setMenuStage(PlayersCreationStage.getInstance());
             }
         });
@@ -0,0 +1,90 @@
+package ru.rdude.rpg.game.ui;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import ru.rdude.rpg.game.logic.data.io.GameMapFileLoader;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Map preview images. Image is decoded on background thread when it is requested for the first time,
+ * texture is created on render thread. Only few last used textures are kept, others are disposed.
+ * Should be used from render thread.
+ */
+public class MapThumbnails {
+
+    private final int limit;
+    private final Map<Long, Texture> textures;
+    private final Set<Long> loading = new HashSet<>();
+    private ExecutorService executor;
+
+    public MapThumbnails(int limit) {
+        this.limit = limit;
+        this.textures = new LinkedHashMap<>(limit, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Texture> eldest) {
+                if (size() > MapThumbnails.this.limit) {
+                    eldest.getValue().dispose();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // callback is called on render thread when texture is ready. Immediately if it is already loaded
+    public void get(MapInfo mapInfo, Consumer<Texture> callback) {
+        Texture texture = textures.get(mapInfo.guid);
+        if (texture != null) {
+            callback.accept(texture);
+            return;
+        }
+        if (!loading.add(mapInfo.guid)) {
+            return;
+        }
+        executor().execute(() -> {
+            Pixmap pixmap;
+            try {
+                pixmap = GameMapFileLoader.loadImage(mapInfo.mapFile);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                Gdx.app.postRunnable(() -> loading.remove(mapInfo.guid));
+                return;
+            }
+            Gdx.app.postRunnable(() -> {
+                loading.remove(mapInfo.guid);
+                Texture loaded = new Texture(pixmap);
+                pixmap.dispose();
+                textures.put(mapInfo.guid, loaded);
+                callback.accept(loaded);
+            });
+        });
+    }
+
+    public void dispose() {
+        textures.values().forEach(Texture::dispose);
+        textures.clear();
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    private ExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "map thumbnails");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+}
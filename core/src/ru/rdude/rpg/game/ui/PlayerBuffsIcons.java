@@ -29,7 +29,7 @@ public class PlayerBuffsIcons implements BeingActionObserver, BuffObserver {
 
     public PlayerBuffsIcons(PlayerVisual playerVisual) {
         playerVisual.getPlayer().getBuffs().forEach(this::add);
-        playerVisual.getPlayer().subscribe(this);
+        playerVisual.getPlayer().subscribeWeak(this);
 
         moreButton.addListener(new ClickListener() {
             @Override
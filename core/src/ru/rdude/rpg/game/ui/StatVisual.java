@@ -107,9 +107,9 @@ public class StatVisual extends Table implements StatObserver {
         }
 
         // subscribe
-        stat.subscribe(this);
+        stat.subscribeWeak(this);
         if (canIncrease) {
-            statPoints.subscribe(this);
+            statPoints.subscribeWeak(this);
         }
 
         // update
@@ -27,8 +27,8 @@ public class StmBar extends Group implements StatObserver {
 
     public StmBar(Being being) {
         stm = being.stats().stm();
-        stm.subscribe(this);
-        stm.max().subscribe(this);
+        stm.subscribeWeak(this);
+        stm.max().subscribeWeak(this);
 
         progressBar = new ProgressBar(0, (float) stm.max().value(),
                 1, false, UiData.DEFAULT_SKIN, "stm");
@@ -0,0 +1,244 @@
+package ru.rdude.rpg.game.utils;
+
+import java.util.*;
+
+/**
+ * Immutable map with primitive long keys. Keys and values are kept in open addressing arrays,
+ * so lookup by long key does not box it. Values can not be null.
+ * New versions are created with {@link Builder}, which copies arrays of the map it starts from.
+ */
+public final class ImmutableLongMap<V> extends AbstractMap<Long, V> {
+
+    private static final ImmutableLongMap<?> EMPTY = new Builder<>(0).build();
+
+    private final long[] keys;
+    // null value means empty cell
+    private final Object[] values;
+    private final int size;
+    private final int mask;
+
+    private ImmutableLongMap(long[] keys, Object[] values, int size) {
+        this.keys = keys;
+        this.values = values;
+        this.size = size;
+        this.mask = keys.length - 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> ImmutableLongMap<V> empty() {
+        return (ImmutableLongMap<V>) EMPTY;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int index = index(key, mask);
+        Object value;
+        while ((value = values[index]) != null) {
+            if (keys[index] == key) {
+                return (V) value;
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public V get(Object key) {
+        return key instanceof Long ? get((long) (Long) key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public Builder<V> toBuilder() {
+        return new Builder<>(this);
+    }
+
+    @Override
+    public Set<Entry<Long, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<Long, V>> iterator() {
+                return new Iterator<>() {
+                    private int index = next(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < values.length;
+                    }
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public Entry<Long, V> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Entry<Long, V> entry = new SimpleImmutableEntry<>(keys[index], (V) values[index]);
+                        index = next(index + 1);
+                        return entry;
+                    }
+
+                    private int next(int from) {
+                        while (from < values.length && values[from] == null) {
+                            from++;
+                        }
+                        return from;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private static int index(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+
+    /**
+     * Not thread safe. After {@link #build()} builder can not be used anymore.
+     */
+    public static final class Builder<V> {
+
+        private long[] keys;
+        private Object[] values;
+        private int size;
+        private boolean built;
+
+        public Builder(int expectedSize) {
+            int capacity = 8;
+            while (capacity < expectedSize * 2) {
+                capacity <<= 1;
+            }
+            keys = new long[capacity];
+            values = new Object[capacity];
+        }
+
+        private Builder(ImmutableLongMap<V> from) {
+            keys = from.keys.clone();
+            values = from.values.clone();
+            size = from.size;
+        }
+
+        public Builder<V> put(long key, V value) {
+            checkNotBuilt();
+            Objects.requireNonNull(value);
+            if ((size + 1) * 2 > keys.length) {
+                resize(keys.length * 2);
+            }
+            int mask = keys.length - 1;
+            int index = index(key, mask);
+            while (values[index] != null) {
+                if (keys[index] == key) {
+                    values[index] = value;
+                    return this;
+                }
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+            values[index] = value;
+            size++;
+            return this;
+        }
+
+        public Builder<V> remove(long key) {
+            checkNotBuilt();
+            int mask = keys.length - 1;
+            int index = index(key, mask);
+            while (values[index] != null) {
+                if (keys[index] == key) {
+                    shiftBack(index, mask);
+                    size--;
+                    return this;
+                }
+                index = (index + 1) & mask;
+            }
+            return this;
+        }
+
+        @SuppressWarnings("unchecked")
+        public V get(long key) {
+            checkNotBuilt();
+            int mask = keys.length - 1;
+            int index = index(key, mask);
+            Object value;
+            while ((value = values[index]) != null) {
+                if (keys[index] == key) {
+                    return (V) value;
+                }
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+
+        public ImmutableLongMap<V> build() {
+            checkNotBuilt();
+            built = true;
+            return new ImmutableLongMap<>(keys, values, size);
+        }
+
+        // fills removed cell with next entries of the same probe chain, so lookups do not stop on it
+        private void shiftBack(int removed, int mask) {
+            int index = removed;
+            while (true) {
+                values[removed] = null;
+                index = (index + 1) & mask;
+                while (true) {
+                    if (values[index] == null) {
+                        return;
+                    }
+                    int home = index(keys[index], mask);
+                    // entry can be moved if its home is not between removed cell and its current cell
+                    boolean between = removed <= index ? removed < home && home <= index : removed < home || home <= index;
+                    if (!between) {
+                        break;
+                    }
+                    index = (index + 1) & mask;
+                }
+                keys[removed] = keys[index];
+                values[removed] = values[index];
+                removed = index;
+            }
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new long[capacity];
+            values = new Object[capacity];
+            int mask = capacity - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    int index = index(oldKeys[i], mask);
+                    while (values[index] != null) {
+                        index = (index + 1) & mask;
+                    }
+                    keys[index] = oldKeys[i];
+                    values[index] = oldValues[i];
+                }
+            }
+        }
+
+        private void checkNotBuilt() {
+            if (built) {
+                throw new IllegalStateException("Map is already built");
+            }
+        }
+    }
+}
@@ -2,62 +2,199 @@ package ru.rdude.rpg.game.utils;
 
 import com.fasterxml.jackson.annotation.*;
 
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
-@JsonIdentityInfo(generator = ObjectIdGenerators.UUIDGenerator.class)
+import ru.rdude.rpg.game.utils.jsonextension.CompactIdGenerator;
+import ru.rdude.rpg.game.utils.jsonextension.CompactIdResolver;
+
+/**
+ * Subscribers are kept in array which is replaced on every subscription change (copy on write),
+ * so notifying iterates current array without creating objects and without deferring unsubscribes.
+ * Subscribers are notified in order of subscription.
+ * Weak subscriptions do not hold subscriber from garbage collection and are removed when subscriber is collected.
+ * Weak and transient subscriptions are not saved.
+ */
+@JsonIdentityInfo(generator = CompactIdGenerator.class, resolver = CompactIdResolver.class)
 public class SubscribersManager<T> {
 
-    private final Set<T> subscribers;
+    private static final Subscription<?>[] EMPTY = new Subscription<?>[0];
+
     @JsonIgnore
-    private Set<T> readyToUnsubscribe;
+    private Subscription<T>[] subscriptions;
+    // subscribers loaded from save. Turned into subscriptions lazily because loaded references can be resolved later
     @JsonIgnore
-    private boolean notifying = false;
+    private Collection<T> loadedSubscribers;
 
+    @SuppressWarnings("unchecked")
     public SubscribersManager(Set<T> subscribers) {
-        this.subscribers = subscribers;
+        this.subscriptions = (Subscription<T>[]) EMPTY;
+        subscribeAll(subscribers);
     }
 
+    @SuppressWarnings("unchecked")
     public SubscribersManager() {
-        this(new HashSet<>());
+        this.subscriptions = (Subscription<T>[]) EMPTY;
+    }
+
+    @JsonProperty("subscribers")
+    private List<T> getSubscribersForJson() {
+        return Arrays.stream(subscriptions())
+                .filter(subscription -> subscription.persistent)
+                .map(Subscription::get)
+                .filter(sub -> sub != null && sub.getClass().getAnnotation(JsonIgnoreType.class) == null)
+                .collect(Collectors.toList());
     }
 
     @JsonProperty("subscribers")
-    private Set<T> getSubscribersForJson() {
-        return subscribers.stream()
-                .filter(sub -> sub.getClass().getAnnotation(JsonIgnoreType.class) == null)
-                .collect(Collectors.toSet());
+    private void setSubscribersFromJson(Set<T> subscribers) {
+        this.loadedSubscribers = subscribers;
     }
 
     public void notifySubscribers(Consumer<T> consumer) {
-        notifying = true;
-        subscribers.forEach(consumer);
-        notifying = false;
-        if (readyToUnsubscribe != null) {
-            readyToUnsubscribe.forEach(this::unsubscribe);
+        final Subscription<T>[] current = subscriptions();
+        boolean hasCollected = false;
+        for (Subscription<T> subscription : current) {
+            final T subscriber = subscription.get();
+            if (subscriber != null) {
+                consumer.accept(subscriber);
+            }
+            else {
+                hasCollected = true;
+            }
+        }
+        if (hasCollected) {
+            removeCollected();
         }
-        readyToUnsubscribe = null;
     }
 
+    /**
+     * Every subscription change copies the whole array and checks it for the same subscriber,
+     * so subscribing many subscribers one by one is quadratic. Use {@link #subscribeAll(Collection)} for that.
+     */
     public void subscribe(T t) {
-        subscribers.add(t);
+        subscribe(t, false, true);
     }
 
-    public void unsubscribe(T t) {
-        if (notifying) {
-            if (readyToUnsubscribe == null) {
-                readyToUnsubscribe = new HashSet<>();
+    // subscribes all with one copy of the array
+    public void subscribeAll(Collection<? extends T> subscribers) {
+        final Subscription<T>[] current = subscriptions();
+        final Set<T> present = new HashSet<>();
+        for (Subscription<T> subscription : current) {
+            final T subscriber = subscription.get();
+            if (subscriber != null) {
+                present.add(subscriber);
+            }
+        }
+        final Subscription<T>[] result = Arrays.copyOf(current, current.length + subscribers.size());
+        int length = current.length;
+        for (T t : subscribers) {
+            if (present.add(t)) {
+                result[length++] = new Subscription<>(t, false, true);
             }
-            readyToUnsubscribe.add(t);
         }
-        else {
-            subscribers.remove(t);
+        subscriptions = length == result.length ? result : Arrays.copyOf(result, length);
+    }
+
+    // subscription will be removed when subscriber is garbage collected. Such subscriptions are not saved
+    public void subscribeWeak(T t) {
+        subscribe(t, true, false);
+    }
+
+    // subscription is not saved
+    public void subscribeTransient(T t) {
+        subscribe(t, false, false);
+    }
+
+    private void subscribe(T t, boolean weak, boolean persistent) {
+        final Subscription<T>[] current = subscriptions();
+        if (indexOf(current, t) >= 0) {
+            return;
         }
+        final Subscription<T>[] result = Arrays.copyOf(current, current.length + 1);
+        result[current.length] = new Subscription<>(t, weak, persistent);
+        subscriptions = result;
+    }
+
+    public void unsubscribe(T t) {
+        final Subscription<T>[] current = subscriptions();
+        final int index = indexOf(current, t);
+        if (index < 0) {
+            return;
+        }
+        subscriptions = without(current, index);
     }
 
     public Set<T> getSubscribers() {
-        return subscribers;
+        return Arrays.stream(subscriptions())
+                .map(Subscription::get)
+                .filter(sub -> sub != null)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    public int size() {
+        return subscriptions().length;
+    }
+
+    private void removeCollected() {
+        subscriptions = Arrays.stream(subscriptions)
+                .filter(subscription -> subscription.get() != null)
+                .toArray(this::newArray);
+    }
+
+    private Subscription<T>[] subscriptions() {
+        if (loadedSubscribers != null) {
+            final Collection<T> loaded = loadedSubscribers;
+            loadedSubscribers = null;
+            subscribeAll(loaded);
+        }
+        return subscriptions;
+    }
+
+    private int indexOf(Subscription<T>[] array, T t) {
+        for (int i = 0; i < array.length; i++) {
+            final T subscriber = array[i].get();
+            if (subscriber != null && subscriber.equals(t)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private Subscription<T>[] without(Subscription<T>[] array, int index) {
+        final Subscription<T>[] result = newArray(array.length - 1);
+        System.arraycopy(array, 0, result, 0, index);
+        System.arraycopy(array, index + 1, result, index, array.length - index - 1);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Subscription<T>[] newArray(int length) {
+        return (Subscription<T>[]) new Subscription<?>[length];
+    }
+
+
+    private static final class Subscription<T> {
+
+        private final T strong;
+        private final WeakReference<T> weak;
+        private final boolean persistent;
+
+        private Subscription(T subscriber, boolean weak, boolean persistent) {
+            this.strong = weak ? null : subscriber;
+            this.weak = weak ? new WeakReference<>(subscriber) : null;
+            this.persistent = persistent;
+        }
+
+        private T get() {
+            return strong != null ? strong : weak.get();
+        }
     }
 }
@@ -0,0 +1,55 @@
+package ru.rdude.rpg.game.utils.jsonextension;
+
+import com.fasterxml.jackson.annotation.ObjectIdGenerator;
+
+/**
+ * Object identity generator which gives sequential integer ids starting from 1,
+ * counted from the beginning of every serialization.
+ * Ids are written as numbers instead of uuid strings and are resolved by {@link CompactIdResolver}.
+ */
+public class CompactIdGenerator extends ObjectIdGenerator<Integer> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Class<?> scope;
+    private transient int nextValue;
+
+    public CompactIdGenerator() {
+        this(Object.class, 1);
+    }
+
+    private CompactIdGenerator(Class<?> scope, int nextValue) {
+        this.scope = scope;
+        this.nextValue = nextValue;
+    }
+
+    @Override
+    public Class<?> getScope() {
+        return scope;
+    }
+
+    @Override
+    public boolean canUseFor(ObjectIdGenerator<?> gen) {
+        return gen.getClass() == getClass() && gen.getScope() == scope;
+    }
+
+    @Override
+    public ObjectIdGenerator<Integer> forScope(Class<?> scope) {
+        return this.scope == scope ? this : new CompactIdGenerator(scope, nextValue);
+    }
+
+    @Override
+    public ObjectIdGenerator<Integer> newForSerialization(Object context) {
+        return new CompactIdGenerator(scope, 1);
+    }
+
+    @Override
+    public IdKey key(Object key) {
+        return key == null ? null : new IdKey(getClass(), scope, key);
+    }
+
+    @Override
+    public Integer generateId(Object forPojo) {
+        return forPojo == null ? null : nextValue++;
+    }
+}
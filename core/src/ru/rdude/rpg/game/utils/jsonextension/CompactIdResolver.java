@@ -0,0 +1,67 @@
+package ru.rdude.rpg.game.utils.jsonextension;
+
+import com.fasterxml.jackson.annotation.ObjectIdGenerator;
+import com.fasterxml.jackson.annotation.ObjectIdResolver;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Resolves integer ids written by {@link CompactIdGenerator} by index in array.
+ * Ids of other scopes are resolved through map.
+ */
+public class CompactIdResolver implements ObjectIdResolver {
+
+    private Object[] items = new Object[64];
+    private Map<ObjectIdGenerator.IdKey, Object> otherItems;
+
+    @Override
+    public void bindItem(ObjectIdGenerator.IdKey id, Object pojo) {
+        if (isCompact(id)) {
+            int index = (Integer) id.key;
+            if (index >= items.length) {
+                items = Arrays.copyOf(items, Math.max(index + 1, items.length * 2));
+            }
+            checkNotBound(id, items[index], pojo);
+            items[index] = pojo;
+        }
+        else {
+            if (otherItems == null) {
+                otherItems = new HashMap<>();
+            }
+            checkNotBound(id, otherItems.get(id), pojo);
+            otherItems.put(id, pojo);
+        }
+    }
+
+    @Override
+    public Object resolveId(ObjectIdGenerator.IdKey id) {
+        if (isCompact(id)) {
+            int index = (Integer) id.key;
+            return index < items.length ? items[index] : null;
+        }
+        return otherItems == null ? null : otherItems.get(id);
+    }
+
+    @Override
+    public ObjectIdResolver newForDeserialization(Object context) {
+        return new CompactIdResolver();
+    }
+
+    @Override
+    public boolean canUseFor(ObjectIdResolver resolverType) {
+        return resolverType.getClass() == getClass();
+    }
+
+    // ids of different scopes can be equal, so only ids of default scope are kept in array
+    private boolean isCompact(ObjectIdGenerator.IdKey id) {
+        return id.key instanceof Integer && (Integer) id.key >= 0 && id.scope == Object.class;
+    }
+
+    private void checkNotBound(ObjectIdGenerator.IdKey id, Object bound, Object pojo) {
+        if (bound != null && bound != pojo) {
+            throw new IllegalStateException("Already had object for id (" + id.key.getClass().getName() + ") [" + id + "]");
+        }
+    }
+}
@@ -2,32 +2,49 @@ package ru.rdude.rpg.game.utils.jsonextension;
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.jsontype.NamedType;
 import org.reflections.Reflections;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.lang.reflect.Modifier;
-import java.util.HashMap;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 public class PolymorphicObjectMapper extends ObjectMapper {
 
-    private final Map<String, Reflections> reflections;
+    // written by annotation processor at compile time. Every jar on classpath can have its own index
+    private static final String INDEX_FILE = "META-INF/rpg/polymorphic-subtypes";
+    // fingerprint of serialized form of annotated classes, written by the same annotation processor
+    private static final String FINGERPRINT_FILE = "META-INF/rpg/serialized-classes-fingerprint";
+    // annotated classes by package are the same for every mapper
+    private static final Map<String, Set<Class<?>>> annotatedClasses = new ConcurrentHashMap<>();
+
+    private final String[] packages;
 
     public PolymorphicObjectMapper(String... packages) {
-        // reflections
-        if (packages != null && packages.length > 0) {
-            reflections = new HashMap<>();
-            for (String p : packages) {
-                reflections.put(p, new Reflections(p));
-            }
+        this(null, packages);
+    }
+
+    // factory defines data format, for example binary format instead of json. Null means json
+    public PolymorphicObjectMapper(JsonFactory factory, String... packages) {
+        super(factory);
+        this.packages = packages == null ? new String[0] : packages;
+        if (this.packages.length > 0) {
             config();
-        } else {
-            reflections = null;
         }
         // mapper features
         setVisibility(
@@ -39,22 +56,128 @@ public class PolymorphicObjectMapper extends ObjectMapper {
 
     private void config() {
         Set<Class<?>> classesForMixIn = new HashSet<>();
-        for (Map.Entry<String, Reflections> entry : reflections.entrySet()) {
-            Reflections reflection = entry.getValue();
-            String pack = entry.getKey();
-            for (Class<?> annotatedClass : reflection.getTypesAnnotatedWith(JsonPolymorphicSubType.class)) {
-                final JsonPolymorphicSubType annotation = annotatedClass.getAnnotation(JsonPolymorphicSubType.class);
-                registerSubtypes(new NamedType(annotatedClass, annotation.value()));
-                final Set<Class<?>> allSuperclasses = getAllSuperclasses(annotatedClass);
-                final Set<Class<?>> classesFromThisPackage = allSuperclasses.stream()
-                        .filter(cl -> cl.getPackageName().startsWith(pack))
-                        .collect(Collectors.toSet());
-                classesForMixIn.addAll(classesFromThisPackage);
+        for (String pack : packages) {
+            for (Class<?> annotatedClass : annotatedClasses.computeIfAbsent(pack, PolymorphicObjectMapper::findAnnotatedClasses)) {
+                register(annotatedClass, pack, classesForMixIn);
             }
         }
         classesForMixIn.forEach(superClass -> addMixIn(superClass, PolymorphicSuperclassMixIn.class));
     }
 
+    /**
+     * Registers class that is not in compile time index, for example class loaded at runtime.
+     * Should be called before mapper is used to write or read objects of this class.
+     */
+    public synchronized void registerPolymorphicSubType(Class<?> annotatedClass) {
+        if (annotatedClass.getAnnotation(JsonPolymorphicSubType.class) == null) {
+            throw new IllegalArgumentException(annotatedClass + " is not annotated with " + JsonPolymorphicSubType.class.getSimpleName());
+        }
+        Set<Class<?>> classesForMixIn = new HashSet<>();
+        for (String pack : packages) {
+            register(annotatedClass, pack, classesForMixIn);
+        }
+        classesForMixIn.forEach(superClass -> addMixIn(superClass, PolymorphicSuperclassMixIn.class));
+    }
+
+    /**
+     * Creates serializers of root types and of annotated classes beforehand. Otherwise serializers are created
+     * on first use and the first write of a big object graph is much slower than the next ones.
+     * Can be called from any thread.
+     */
+    public void prepareSerializers(Class<?>... rootTypes) {
+        for (Class<?> rootType : rootTypes) {
+            writerFor(rootType);
+        }
+        for (String pack : packages) {
+            getPolymorphicSubTypes(pack).forEach(this::writerFor);
+        }
+    }
+
+    private void register(Class<?> annotatedClass, String pack, Set<Class<?>> classesForMixIn) {
+        final JsonPolymorphicSubType annotation = annotatedClass.getAnnotation(JsonPolymorphicSubType.class);
+        registerSubtypes(new NamedType(annotatedClass, annotation.value()));
+        final Set<Class<?>> allSuperclasses = getAllSuperclasses(annotatedClass);
+        final Set<Class<?>> classesFromThisPackage = allSuperclasses.stream()
+                .filter(cl -> cl.getPackageName().startsWith(pack))
+                .collect(Collectors.toSet());
+        classesForMixIn.addAll(classesFromThisPackage);
+    }
+
+    // classes annotated with JsonPolymorphicSubType in package, from compile time index if there is one
+    public static Set<Class<?>> getPolymorphicSubTypes(String pack) {
+        return Collections.unmodifiableSet(annotatedClasses.computeIfAbsent(pack, PolymorphicObjectMapper::findAnnotatedClasses));
+    }
+
+    private static Set<Class<?>> findAnnotatedClasses(String pack) {
+        Set<Class<?>> indexed = readIndex(pack);
+        // classpath scanning is slow, it is used only when classes were compiled without annotation processor
+        return indexed != null ? indexed : new Reflections(pack).getTypesAnnotatedWith(JsonPolymorphicSubType.class);
+    }
+
+    // returns null if there is no index
+    private static Set<Class<?>> readIndex(String pack) {
+        ClassLoader classLoader = PolymorphicObjectMapper.class.getClassLoader();
+        try {
+            Enumeration<URL> indexes = classLoader.getResources(INDEX_FILE);
+            if (!indexes.hasMoreElements()) {
+                return null;
+            }
+            Set<Class<?>> result = new HashSet<>();
+            while (indexes.hasMoreElements()) {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(indexes.nextElement().openStream(), StandardCharsets.UTF_8))) {
+                    String className;
+                    while ((className = reader.readLine()) != null) {
+                        className = className.trim();
+                        if (className.startsWith(pack + ".")) {
+                            Class<?> cl = Class.forName(className, false, classLoader);
+                            if (cl.isAnnotationPresent(JsonPolymorphicSubType.class)) {
+                                result.add(cl);
+                            }
+                        }
+                    }
+                }
+            }
+            return result;
+        } catch (IOException | ClassNotFoundException e) {
+            // index is out of date
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Fingerprint of serialized form of annotated classes and game classes reachable from their fields,
+     * computed at compile time. Fingerprints of every jar are combined.
+     * Returns null if classes were compiled without annotation processor.
+     */
+    public static Long getSerializedClassesFingerprint() {
+        ClassLoader classLoader = PolymorphicObjectMapper.class.getClassLoader();
+        try {
+            List<Long> fingerprints = new ArrayList<>();
+            Enumeration<URL> files = classLoader.getResources(FINGERPRINT_FILE);
+            while (files.hasMoreElements()) {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(files.nextElement().openStream(), StandardCharsets.UTF_8))) {
+                    String line = reader.readLine();
+                    if (line != null && !line.isBlank()) {
+                        fingerprints.add(Long.parseUnsignedLong(line.trim(), 16));
+                    }
+                }
+            }
+            if (fingerprints.isEmpty()) {
+                return null;
+            }
+            Collections.sort(fingerprints);
+            long result = 0;
+            for (long fingerprint : fingerprints) {
+                result = result * 31 + fingerprint;
+            }
+            return result;
+        } catch (IOException | NumberFormatException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
     private Set<Class<?>> getAllSuperclasses(Class<?> cl) {
         return getAllSuperclasses(cl, new HashSet<>());
     }
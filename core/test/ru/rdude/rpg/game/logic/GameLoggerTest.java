@@ -0,0 +1,161 @@
+package ru.rdude.rpg.game.logic;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import ru.rdude.rpg.game.logic.entities.beings.BeingAction;
+import ru.rdude.rpg.game.logic.entities.beings.Player;
+import ru.rdude.rpg.game.logic.game.Game;
+import ru.rdude.rpg.game.ui.HeadlessUi;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+
+public class GameLoggerTest {
+
+    private static final int SESSION_ACTIONS = 10_000;
+
+    private static Player player;
+    private static Player enemy;
+
+    @BeforeClass
+    public static void startGame() {
+        HeadlessUi.start();
+        Game.initNewGame();
+        player = new Player();
+        enemy = new Player();
+    }
+
+    @Test
+    public void oldRecordsAreReplacedWhenBufferIsFull() {
+        GameLogger logger = new GameLogger(3);
+        for (int i = 0; i < 5; i++) {
+            logger.log("message " + i);
+        }
+
+        assertEquals(3, logger.size());
+        assertEquals(2, logger.getFirstSequence());
+        assertEquals(5, logger.getNextSequence());
+        assertNull(logger.get(1));
+        assertNull(logger.get(5));
+        for (long sequence = 2; sequence < 5; sequence++) {
+            assertEquals(sequence, logger.get(sequence).getSequence());
+            assertEquals("message " + sequence, logger.get(sequence).format());
+        }
+    }
+
+    @Test
+    public void disabledCategoriesAreNotLogged() {
+        GameLogger logger = new GameLogger(10);
+        List<GameLogger.Event> events = new ArrayList<>();
+        logger.addListener(record -> events.add(record.getEvent()));
+        logger.setEnabled(GameLogger.Category.COMBAT, false);
+
+        logger.log(damage(12), player);
+        logger.log("message");
+        assertFalse(logger.isEnabled(GameLogger.Category.COMBAT));
+        assertEquals(1, logger.size());
+        assertEquals(List.of(GameLogger.Event.MESSAGE), events);
+
+        logger.setEnabled(GameLogger.Category.COMBAT, true);
+        logger.log(damage(12), player);
+        assertEquals(GameLogger.Event.DAMAGE_RECEIVE, logger.get(1).getEvent());
+        assertEquals(12d, logger.get(1).getValue(), 0d);
+        assertSame(player, logger.get(1).getSubject());
+        assertSame(enemy, logger.get(1).getOther());
+    }
+
+    @Test
+    public void listenersReceiveOnlyTheirCategories() {
+        GameLogger logger = new GameLogger(10);
+        List<GameLogger.Event> combat = new ArrayList<>();
+        List<GameLogger.Event> all = new ArrayList<>();
+        Consumer<GameLogger.Record> allListener = record -> all.add(record.getEvent());
+        logger.addListener(record -> combat.add(record.getEvent()), GameLogger.Category.COMBAT);
+        logger.addListener(allListener);
+
+        logger.log(damage(5), player);
+        logger.log("message");
+        // actions without log event are not logged
+        logger.log(new BeingAction(BeingAction.Action.DAMAGE_DEAL, enemy, null, 5), player);
+
+        assertEquals(List.of(GameLogger.Event.DAMAGE_RECEIVE), combat);
+        assertEquals(List.of(GameLogger.Event.DAMAGE_RECEIVE, GameLogger.Event.MESSAGE), all);
+
+        // listener added again receives only new categories
+        logger.addListener(allListener, GameLogger.Category.SYSTEM);
+        logger.log(damage(5), player);
+        logger.log("message");
+        assertEquals(List.of(GameLogger.Event.DAMAGE_RECEIVE, GameLogger.Event.MESSAGE, GameLogger.Event.MESSAGE), all);
+        logger.removeListener(allListener);
+        logger.log("message");
+        assertEquals(3, all.size());
+        assertEquals(2, combat.size());
+    }
+
+    // sink receives records before they are replaced, so nothing is lost with small buffer
+    @Test
+    public void binarySinkWritesEveryRecord() throws IOException {
+        GameLogger logger = new GameLogger(1);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (BinaryLogSink sink = new BinaryLogSink(bytes)) {
+            logger.addSink(sink);
+            logger.log(damage(7.5), player);
+            logger.log("message");
+        }
+
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(0, input.readLong());
+        assertEquals(GameLogger.Event.DAMAGE_RECEIVE.ordinal(), input.readByte());
+        assertEquals(player.getEntityData().getGuid(), input.readLong());
+        assertEquals(enemy.getEntityData().getGuid(), input.readLong());
+        assertEquals(-1, input.readLong());
+        assertEquals(7.5, input.readDouble(), 0d);
+        assertEquals(1, input.readLong());
+        assertEquals(GameLogger.Event.MESSAGE.ordinal(), input.readByte());
+        assertEquals(-1, input.readLong());
+        assertEquals(-1, input.readLong());
+        assertEquals(-1, input.readLong());
+        assertEquals(0d, input.readDouble(), 0d);
+        assertEquals("message", input.readUTF());
+        assertEquals(-1, input.read());
+    }
+
+    // records are reused, so logging allocates nothing and memory is taken only by the buffer
+    @Test
+    public void sessionAllocations() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        BeingAction action = damage(10);
+
+        long before = threads.getThreadAllocatedBytes(thread);
+        GameLogger logger = new GameLogger();
+        long footprint = threads.getThreadAllocatedBytes(thread) - before;
+        logger.addListener(record -> {}, GameLogger.Category.SYSTEM);
+        // warm up
+        for (int i = 0; i < SESSION_ACTIONS; i++) {
+            logger.log(action, player);
+        }
+        before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < SESSION_ACTIONS; i++) {
+            logger.log(action, player);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        System.out.printf("%d combat actions: %.1f bytes allocated per action, log of %d records takes %d KB%n",
+                SESSION_ACTIONS, (double) allocated / SESSION_ACTIONS, logger.getCapacity(), footprint / 1024);
+        assertEquals(GameLogger.DEFAULT_CAPACITY, logger.size());
+        assertTrue(allocated / SESSION_ACTIONS < 8);
+    }
+
+    private static BeingAction damage(double value) {
+        return new BeingAction(BeingAction.Action.DAMAGE_RECEIVE, enemy, null, value);
+    }
+}
@@ -0,0 +1,99 @@
+package ru.rdude.rpg.game.logic.data;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class DependencyIndexTest {
+
+    @Test
+    public void changedSetterUpdatesModuleIndex() {
+        Module module = new Module(1L);
+        ItemData item = new ItemData();
+        item.setGuid(10L);
+        item.setSkillsOnUse(new ArrayList<>(List.of(100L)));
+        module.addEntity(item);
+        assertTrue(module.hasEntityDependency(100L));
+
+        item.setSkillsOnUse(new ArrayList<>(List.of(200L)));
+
+        assertFalse(module.hasEntityDependency(100L));
+        assertTrue(module.hasEntityDependency(200L));
+        assertEquals(Set.of(item), module.getDependencyIndex().getDependentEntities(200L));
+    }
+
+    @Test
+    public void referencesCanNotBeChangedThroughGetters() {
+        ItemData item = new ItemData();
+        item.setSkillsOnUse(new ArrayList<>(List.of(100L)));
+        MonsterData monster = new MonsterData();
+        monster.setDrop(new HashMap<>(Map.of(10L, 1d)));
+
+        assertThrows(UnsupportedOperationException.class, () -> item.getSkillsOnUse().add(200L));
+        assertThrows(UnsupportedOperationException.class, () -> monster.getDrop().put(20L, 1d));
+        assertThrows(UnsupportedOperationException.class, () -> new Module(1L).getItemData().add(item));
+    }
+
+    @Test
+    public void replacedReferencesAreAnsweredFromIndex() {
+        Module module = new Module(1L);
+        ItemData item = new ItemData();
+        item.setGuid(10L);
+        item.setSkillsOnUse(new ArrayList<>(List.of(100L)));
+        item.setSkillsEquip(new ArrayList<>(List.of(101L)));
+        MonsterData monster = new MonsterData();
+        monster.setGuid(11L);
+        monster.setDrop(new HashMap<>(Map.of(10L, 0.5d)));
+        module.addEntity(item);
+        module.addEntity(monster);
+
+        module.replaceEntityDependencies(Map.of(100L, 300L, 10L, 20L));
+
+        assertEquals(List.of(300L), item.getSkillsOnUse());
+        assertEquals(List.of(101L), item.getSkillsEquip());
+        assertEquals(Map.of(20L, 0.5d), monster.getDrop());
+        assertFalse(module.hasEntityDependency(100L));
+        assertFalse(module.hasEntityDependency(10L));
+        assertTrue(module.hasEntityDependency(300L));
+        assertEquals(Set.of(monster), module.getDependencyIndex().getDependentEntities(20L));
+
+        module.replaceEntityDependency(101L, 301L);
+
+        assertEquals(List.of(301L), item.getSkillsEquip());
+        assertTrue(module.hasEntityDependency(301L));
+    }
+
+    @Test
+    public void removedEntityDoesNotUpdateIndex() {
+        Module module = new Module(1L);
+        QuestData quest = new QuestData(900_012L);
+        quest.setStartEvent(100L);
+        module.addEntity(quest);
+        assertTrue(module.hasEntityDependency(100L));
+
+        module.removeEntity(quest);
+        quest.setStartEvent(200L);
+
+        assertFalse(module.hasEntityDependency(100L));
+        assertFalse(module.hasEntityDependency(200L));
+    }
+
+    @Test
+    public void eventActionChangesUpdateIndex() {
+        Module module = new Module(1L);
+        EventData event = new EventData(900_013L);
+        EventData.EventAction action = new EventData.EventAction();
+        action.setSummon(new HashMap<>(Map.of(100L, 1f)));
+        action.setReceiveItems(new HashMap<>());
+        event.setActions(new HashSet<>(Set.of(action)));
+        module.addEntity(event);
+        assertTrue(module.hasEntityDependency(100L));
+
+        action.setSummon(new HashMap<>(Map.of(200L, 1f)));
+
+        assertFalse(module.hasEntityDependency(100L));
+        assertTrue(module.hasEntityDependency(200L));
+    }
+}
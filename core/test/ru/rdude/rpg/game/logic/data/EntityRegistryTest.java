@@ -0,0 +1,109 @@
+package ru.rdude.rpg.game.logic.data;
+
+import org.junit.Test;
+import ru.rdude.rpg.game.utils.ImmutableLongMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+import static org.junit.Assert.*;
+
+public class EntityRegistryTest {
+
+    private static final long MODULE_GUID = 1L;
+    private static final int MODULE_SIZE = 500;
+
+    @Test
+    public void singleStoresAreVisibleOnRead() {
+        EntityRegistry<TestData> registry = new EntityRegistry<>();
+        for (int i = 0; i < 100; i++) {
+            registry.store(new TestData(i));
+        }
+        assertEquals(100, registry.getAll().size());
+        assertEquals(42L, registry.get(42L).getGuid());
+    }
+
+    @Test
+    public void laterSingleStoreReplacesEntityWithSameGuid() {
+        EntityRegistry<TestData> registry = new EntityRegistry<>();
+        TestData first = new TestData(1L);
+        TestData second = new TestData(1L);
+        registry.store(first);
+        registry.store(second);
+        assertSame(second, registry.get(1L));
+    }
+
+    @Test
+    public void readersSeeWholeModuleOrNothing() throws InterruptedException {
+        EntityRegistry<TestData> registry = new EntityRegistry<>();
+        List<TestData> base = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            base.add(new TestData(-1 - i));
+        }
+        registry.store(base);
+        List<TestData> module = new ArrayList<>();
+        for (int i = 0; i < MODULE_SIZE; i++) {
+            module.add(new TestData(i));
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> failure = new AtomicReference<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            Thread reader = new Thread(() -> {
+                while (running.get() && failure.get() == null) {
+                    ImmutableLongMap<TestData> all = registry.getAll();
+                    int size = all.size();
+                    if (size != base.size() && size != base.size() + MODULE_SIZE) {
+                        failure.set("all entities have partial module: " + size);
+                    }
+                    int moduleSize = registry.getModule(MODULE_GUID).size();
+                    if (moduleSize != 0 && moduleSize != MODULE_SIZE) {
+                        failure.set("module view is partial: " + moduleSize);
+                    }
+                    if (registry.get(-1L) == null) {
+                        failure.set("base entity is lost");
+                    }
+                }
+            });
+            readers.add(reader);
+            reader.start();
+        }
+
+        for (int i = 0; i < 200; i++) {
+            registry.store(MODULE_GUID, module);
+            registry.removeModule(MODULE_GUID);
+        }
+        running.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertNull(failure.get(), failure.get());
+        assertEquals(base.size(), registry.getAll().size());
+        assertTrue(registry.getModule(MODULE_GUID).isEmpty());
+    }
+
+    private static class TestData extends EntityData {
+
+        TestData(long guid) {
+            super(guid);
+        }
+
+        @Override
+        public void forEachEntityDependency(BiConsumer<String, Long> consumer) {
+        }
+
+        @Override
+        public boolean hasEntityDependency(long guid) {
+            return false;
+        }
+
+        @Override
+        public void replaceEntityDependency(long oldValue, long newValue) {
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package ru.rdude.rpg.game.logic.data;
+
+import org.junit.After;
+import org.junit.Test;
+import ru.rdude.rpg.game.logic.enums.Element;
+import ru.rdude.rpg.game.logic.enums.ItemRarity;
+import ru.rdude.rpg.game.logic.enums.ItemType;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class ItemIndexTest {
+
+    private static final long FIRST_MODULE = 1001L;
+    private static final long SECOND_MODULE = 1002L;
+    private static final int BENCHMARK_ITEMS = 50_000;
+    private static final int SHOP_QUERIES = 1_000;
+
+    @After
+    public void removeModules() {
+        ItemData.removeModuleItems(FIRST_MODULE);
+        ItemData.removeModuleItems(SECOND_MODULE);
+    }
+
+    @Test
+    public void queriesMatchFilteringOfStoredItems() {
+        List<ItemData> module = items(100_000L, 2_000, new Random(1));
+        ItemData.storeItems(FIRST_MODULE, module);
+
+        for (ItemRarity rarity : ItemRarity.values()) {
+            for (ItemType itemType : Arrays.asList(ItemType.SWORD, ItemType.ARMOR, ItemType.BOW)) {
+                Set<ItemData> expected = module.stream()
+                        .filter(item -> item.getRarity() == rarity && item.getItemType() == itemType)
+                        .filter(item -> item.getPrice() > 100 && item.getPrice() < 600)
+                        .filter(item -> item.getElements().contains(Element.values()[0]))
+                        .collect(Collectors.toSet());
+                List<ItemData> actual = ItemData.getItemsWith()
+                        .rarity(rarity)
+                        .type(itemType)
+                        .priceHigherThan(100)
+                        .priceLowerThan(600)
+                        .elements(Element.values()[0])
+                        .get();
+                assertEquals(expected, new HashSet<>(actual));
+                assertEquals(expected.size(), actual.size());
+            }
+        }
+    }
+
+    @Test
+    public void modulesAreAddedAndRemovedWithoutOtherModules() {
+        List<ItemData> first = items(200_000L, 300, new Random(2));
+        List<ItemData> second = items(300_000L, 300, new Random(3));
+        ItemData.storeItems(FIRST_MODULE, first);
+        ItemData.storeItems(SECOND_MODULE, second);
+        assertEquals(count(first, ItemRarity.GOLD) + count(second, ItemRarity.GOLD), ItemData.getItemsWith().rarity(ItemRarity.GOLD).get().size());
+
+        ItemData.removeModuleItems(FIRST_MODULE);
+
+        List<ItemData> gold = ItemData.getItemsWith().rarity(ItemRarity.GOLD).get();
+        assertEquals(count(second, ItemRarity.GOLD), gold.size());
+        assertTrue(second.containsAll(gold));
+    }
+
+    @Test
+    public void itemWithChangedParameterIsFoundByNewValue() {
+        List<ItemData> module = items(400_000L, 100, new Random(4));
+        module.forEach(item -> item.setRarity(ItemRarity.BRONZE));
+        ItemData.storeItems(FIRST_MODULE, module);
+
+        module.get(10).setRarity(ItemRarity.QUEST);
+
+        assertEquals(Collections.singletonList(module.get(10)), ItemData.getItemsWith().rarity(ItemRarity.QUEST).get());
+        assertFalse(ItemData.getItemsWith().rarity(ItemRarity.BRONZE).get().contains(module.get(10)));
+    }
+
+    @Test
+    public void laterModuleReplacesItemWithSameGuid() {
+        List<ItemData> first = items(500_000L, 10, new Random(5));
+        List<ItemData> second = items(500_000L, 10, new Random(6));
+        ItemData.storeItems(FIRST_MODULE, first);
+        ItemData.storeItems(SECOND_MODULE, second);
+
+        List<ItemData> stored = ItemData.getItemsWith().get().stream()
+                .filter(item -> item.getGuid() >= 500_000L && item.getGuid() < 500_010L)
+                .collect(Collectors.toList());
+        assertEquals(new HashSet<>(second), new HashSet<>(stored));
+    }
+
+    @Test
+    public void randomItemsAreDistinctMatchingItems() {
+        List<ItemData> module = items(600_000L, 5_000, new Random(7));
+        ItemData.storeItems(FIRST_MODULE, module);
+        Set<ItemData> swords = module.stream()
+                .filter(item -> item.getItemType() == ItemType.SWORD)
+                .collect(Collectors.toSet());
+
+        for (int i = 0; i < 100; i++) {
+            List<ItemData> random = ItemData.getItemsWith().type(ItemType.SWORD).getRandomItems(20);
+            assertEquals(20, random.size());
+            assertEquals(20, new HashSet<>(random).size());
+            assertTrue(swords.containsAll(random));
+        }
+        assertEquals(swords, new HashSet<>(ItemData.getItemsWith().type(ItemType.SWORD).getRandomItems(swords.size() + 10)));
+    }
+
+    @Test
+    public void randomItemsCoverAllMatchingItems() {
+        List<ItemData> module = items(700_000L, 100, new Random(8));
+        ItemData.storeItems(FIRST_MODULE, module);
+        Set<ItemData> seen = new HashSet<>();
+        for (int i = 0; i < 5_000; i++) {
+            seen.add(ItemData.getItemsWith().getRandom());
+        }
+        assertEquals(new HashSet<>(module), seen);
+    }
+
+    // typical shop generation: random items of some rarity, main type and price range from a big module
+    @Test
+    public void shopQueriesOnBigModule() {
+        List<ItemData> module = items(1_000_000L, BENCHMARK_ITEMS, new Random(9));
+        long start = System.nanoTime();
+        ItemData.storeItems(FIRST_MODULE, module);
+        long stored = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < SHOP_QUERIES; i++) {
+            found += ItemData.getItemsWith()
+                    .rarity(ItemRarity.values()[i % 3])
+                    .type(ItemType.values()[i % ItemType.values().length].getMainType())
+                    .priceHigherThan(i % 500)
+                    .priceLowerThan(i % 500 + 300)
+                    .getRandomItems(10)
+                    .size();
+        }
+        long queried = System.nanoTime();
+        List<ItemData> second = items(2_000_000L, 1_000, new Random(10));
+        ItemData.storeItems(SECOND_MODULE, second);
+        ItemData.removeModuleItems(SECOND_MODULE);
+        long changed = System.nanoTime();
+        System.out.printf("%d items: index %d ms, %d shop queries %d ms, load and unload of 1000 items module %d ms%n",
+                BENCHMARK_ITEMS, (stored - start) / 1_000_000, SHOP_QUERIES, (queried - stored) / 1_000_000, (changed - queried) / 1_000_000);
+        assertTrue(found > 0);
+    }
+
+    private static long count(List<ItemData> items, ItemRarity rarity) {
+        return items.stream().filter(item -> item.getRarity() == rarity).count();
+    }
+
+    private static List<ItemData> items(long firstGuid, int amount, Random random) {
+        List<ItemData> result = new ArrayList<>(amount);
+        for (int i = 0; i < amount; i++) {
+            ItemData itemData = new ItemData();
+            itemData.setGuid(firstGuid + i);
+            itemData.setItemType(ItemType.values()[random.nextInt(ItemType.values().length)]);
+            itemData.setRarity(ItemRarity.values()[random.nextInt(ItemRarity.values().length)]);
+            itemData.setPrice(random.nextInt(1000));
+            Set<Element> elements = new HashSet<>();
+            elements.add(Element.values()[random.nextInt(Element.values().length)]);
+            elements.add(Element.values()[random.nextInt(Element.values().length)]);
+            itemData.setElements(elements);
+            result.add(itemData);
+        }
+        return result;
+    }
+}
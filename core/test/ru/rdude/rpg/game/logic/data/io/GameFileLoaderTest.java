@@ -0,0 +1,149 @@
+package ru.rdude.rpg.game.logic.data.io;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.fasterxml.jackson.annotation.ObjectIdGenerators;
+import com.fasterxml.jackson.annotation.SimpleObjectIdResolver;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.databind.introspect.ObjectIdInfo;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ru.rdude.rpg.game.logic.coefficients.Coefficients;
+import ru.rdude.rpg.game.logic.data.ItemData;
+import ru.rdude.rpg.game.logic.entities.beings.Being;
+import ru.rdude.rpg.game.logic.entities.beings.Party;
+import ru.rdude.rpg.game.logic.entities.beings.Player;
+import ru.rdude.rpg.game.logic.entities.items.Item;
+import ru.rdude.rpg.game.logic.enums.Element;
+import ru.rdude.rpg.game.logic.enums.ItemRarity;
+import ru.rdude.rpg.game.logic.enums.ItemType;
+import ru.rdude.rpg.game.logic.game.Game;
+import ru.rdude.rpg.game.logic.holders.Slot;
+import ru.rdude.rpg.game.ui.HeadlessUi;
+import ru.rdude.rpg.game.utils.jsonextension.CompactIdGenerator;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+public class GameFileLoaderTest {
+
+    private static final Pattern UUID_ID = Pattern.compile("\"@id\":\"[0-9a-f]{8}-[0-9a-f]{4}-");
+
+    private static long nextGuid = 800_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void startGame() {
+        HeadlessUi.start();
+        Game.initNewGame();
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Player player = new Player();
+            for (int j = 0; j < 5; j++) {
+                player.receive(item(j));
+            }
+            players.add(player);
+        }
+        Game.getCurrentGame().setCurrentPlayers(new Party(players));
+        Game.getCurrentGame().getTimeManager().increaseTime(75);
+    }
+
+    @Test
+    public void saveWithUuidIdsIsLoaded() throws IOException {
+        Path save = folder.getRoot().toPath().resolve("uuid.save");
+        String json = uuidMapper().writeValueAsString(Game.getCurrentGame());
+        assertTrue(UUID_ID.matcher(json).find());
+        Files.write(save, json.getBytes(StandardCharsets.UTF_8));
+
+        assertLoaded(Game.getGameLoader().load(new FileHandle(save.toFile())));
+    }
+
+    @Test
+    public void compressedSaveWithUuidIdsIsLoaded() throws IOException {
+        Path save = folder.getRoot().toPath().resolve("uuid-compressed.save");
+        try (OutputStream outputStream = new GZIPOutputStream(Files.newOutputStream(save))) {
+            uuidMapper().writeValue(outputStream, Game.getCurrentGame());
+        }
+
+        Game loaded = Game.getGameLoader().load(new FileHandle(save.toFile()));
+        assertLoaded(loaded);
+
+        // saved again with compact ids and loaded without conversion
+        Path again = folder.getRoot().toPath().resolve("again.save");
+        Files.write(again, Game.getGameJsonSerializer().serialize(loaded).getBytes(StandardCharsets.UTF_8));
+        assertFalse(UUID_ID.matcher(Files.readString(again)).find());
+        assertLoaded(Game.getGameLoader().load(new FileHandle(again.toFile())));
+    }
+
+    @Test
+    public void idGeneratorIsSerializable() throws IOException, ClassNotFoundException {
+        Path file = folder.newFile("generator").toPath();
+        try (ObjectOutputStream outputStream = new ObjectOutputStream(Files.newOutputStream(file))) {
+            outputStream.writeObject(new CompactIdGenerator());
+        }
+        try (ObjectInputStream inputStream = new ObjectInputStream(Files.newInputStream(file))) {
+            assertEquals(Object.class, ((CompactIdGenerator) inputStream.readObject()).getScope());
+        }
+    }
+
+    private static void assertLoaded(Game loaded) {
+        Game game = Game.getCurrentGame();
+        assertNotSame(game, loaded);
+        assertEquals(game.getTimeManager().stringTime(), loaded.getTimeManager().stringTime());
+        List<Being<?>> beings = game.getCurrentPlayers().getBeings();
+        List<Being<?>> loadedBeings = loaded.getCurrentPlayers().getBeings();
+        assertEquals(beings.size(), loadedBeings.size());
+        for (int i = 0; i < beings.size(); i++) {
+            assertEquals(itemGuids(beings.get(i)), itemGuids(loadedBeings.get(i)));
+            assertEquals(beings.get(i).elements().getCurrent(), loadedBeings.get(i).elements().getCurrent());
+        }
+    }
+
+    private static List<Long> itemGuids(Being<?> being) {
+        List<Long> guids = new ArrayList<>();
+        for (Slot<Item> slot : being.backpack().getSlots()) {
+            guids.add(slot.isEmpty() ? null : slot.getEntity().getEntityData().getGuid());
+        }
+        return guids;
+    }
+
+    // mapper which writes object ids as uuid strings, as game saves were written before compact ids
+    private static CustomObjectMapper uuidMapper() {
+        CustomObjectMapper mapper = new CustomObjectMapper("ru.rdude.rpg.game");
+        mapper.setAnnotationIntrospector(new JacksonAnnotationIntrospector() {
+            @Override
+            public ObjectIdInfo findObjectIdInfo(Annotated annotated) {
+                ObjectIdInfo info = super.findObjectIdInfo(annotated);
+                return info != null && info.getGeneratorType() == CompactIdGenerator.class
+                        ? new ObjectIdInfo(info.getPropertyName(), info.getScope(), ObjectIdGenerators.UUIDGenerator.class, SimpleObjectIdResolver.class)
+                        : info;
+            }
+        });
+        return mapper;
+    }
+
+    private static Item item(int number) {
+        ItemData itemData = new ItemData(nextGuid++);
+        itemData.setItemType(ItemType.values()[number]);
+        itemData.setRarity(ItemRarity.BRONZE);
+        itemData.setElements(Set.of(Element.FIRE));
+        itemData.setCoefficients(new Coefficients());
+        return new Item(itemData);
+    }
+}
@@ -0,0 +1,179 @@
+package ru.rdude.rpg.game.logic.data.io;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ru.rdude.rpg.game.logic.coefficients.Coefficients;
+import ru.rdude.rpg.game.logic.data.ItemData;
+import ru.rdude.rpg.game.logic.entities.beings.Party;
+import ru.rdude.rpg.game.logic.entities.beings.Player;
+import ru.rdude.rpg.game.logic.entities.items.Item;
+import ru.rdude.rpg.game.logic.enums.Element;
+import ru.rdude.rpg.game.logic.enums.ItemRarity;
+import ru.rdude.rpg.game.logic.enums.ItemType;
+import ru.rdude.rpg.game.logic.game.Game;
+import ru.rdude.rpg.game.logic.gameStates.Map;
+import ru.rdude.rpg.game.logic.map.GameMap;
+import ru.rdude.rpg.game.logic.map.Point;
+import ru.rdude.rpg.game.ui.HeadlessUi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+public class GameFileSaverTest {
+
+    private static final int PLAYERS = 4;
+    private static final int ITEMS_PER_PLAYER = 300;
+    private static final int WARM_UP_SNAPSHOTS = 500;
+    private static final int MEASURED_SNAPSHOTS = 100;
+    private static final long MAX_STALL_NANOS = 5_000_000L;
+
+    private static long nextGuid = 600_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void startGame() {
+        HeadlessUi.start();
+        Game.initNewGame();
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < PLAYERS; i++) {
+            Player player = new Player();
+            for (int j = 0; j < ITEMS_PER_PLAYER; j++) {
+                player.receive(item(j));
+            }
+            players.add(player);
+        }
+        Game.getCurrentGame().setCurrentPlayers(new Party(players));
+        GameMap gameMap = new GameMap(128, 128);
+        gameMap.setStartPoint(new Point(10, 10));
+        Map map = new Map(gameMap);
+        map.placePlayerOnStartPosition();
+        map.revealArea(gameMap.cell(10, 10), 30);
+        Game.getCurrentGame().getGameStateHolder().setGameState(map);
+    }
+
+    @Test
+    public void snapshotIsNotChangedByLaterChanges() throws IOException {
+        Game game = Game.getCurrentGame();
+        TokenBuffer snapshot = Game.getGameSaver().snapshot(game);
+        String before = Game.getGameJsonSerializer().serialize(game);
+
+        game.getTimeManager().increaseTime(90);
+        game.getCurrentPlayers().getBeings().get(0).receive(item(0));
+
+        Path save = folder.getRoot().toPath().resolve("snapshot.save");
+        GameFileSaver.write(save, true, outputStream -> Game.getGameJsonSerializer().serialize(snapshot, outputStream));
+        JsonNode saved;
+        try (InputStream inputStream = new GZIPInputStream(Files.newInputStream(save))) {
+            saved = Game.getCustomObjectMapper().readTree(inputStream);
+        }
+        assertEquals(Game.getCustomObjectMapper().readTree(before), saved);
+        assertNotEquals(Game.getCustomObjectMapper().readTree(Game.getGameJsonSerializer().serialize(game)), saved);
+    }
+
+    @Test
+    public void failedWriteKeepsPreviousSave() throws IOException {
+        Path save = folder.getRoot().toPath().resolve("failed.save");
+        GameFileSaver.write(save, false, outputStream -> outputStream.write(bytes("previous")));
+
+        try {
+            GameFileSaver.write(save, false, outputStream -> {
+                outputStream.write(bytes("half of the next sa"));
+                throw new IOException("disk is full");
+            });
+            fail();
+        } catch (IOException e) {
+            assertEquals("disk is full", e.getMessage());
+        }
+
+        assertEquals("previous", new String(Files.readAllBytes(save), StandardCharsets.UTF_8));
+        assertFalse(Files.exists(temp(save)));
+    }
+
+    @Test
+    public void stoppedWriteKeepsPreviousSave() throws IOException {
+        Path save = folder.getRoot().toPath().resolve("stopped.save");
+        GameFileSaver.write(save, true, outputStream -> outputStream.write(bytes("previous")));
+        // game was stopped in the middle of writing: only part of the temporary file is on disk
+        byte[] next = compressed("next");
+        Files.write(temp(save), Arrays.copyOf(next, next.length / 2));
+
+        assertEquals("previous", decompressed(save));
+
+        GameFileSaver.write(save, true, outputStream -> outputStream.write(bytes("next")));
+        assertEquals("next", decompressed(save));
+        assertFalse(Files.exists(temp(save)));
+    }
+
+    @Test
+    public void lateGameSnapshotStall() throws IOException {
+        Game game = Game.getCurrentGame();
+        Game.getCustomObjectMapper().prepareSerializers(Game.class);
+        long cold = System.nanoTime();
+        Game.getGameSaver().snapshot(game);
+        cold = System.nanoTime() - cold;
+        for (int i = 0; i < WARM_UP_SNAPSHOTS; i++) {
+            Game.getGameSaver().snapshot(game);
+        }
+        long[] stalls = new long[MEASURED_SNAPSHOTS];
+        for (int i = 0; i < MEASURED_SNAPSHOTS; i++) {
+            long start = System.nanoTime();
+            Game.getGameSaver().snapshot(game);
+            stalls[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(stalls);
+        long median = stalls[MEASURED_SNAPSHOTS / 2];
+        System.out.printf("late game snapshot (%d bytes of json): first %d us, median %d us, p90 %d us%n",
+                Game.getGameJsonSerializer().serialize(game).length(), cold / 1_000, median / 1_000,
+                stalls[MEASURED_SNAPSHOTS * 9 / 10] / 1_000);
+        assertTrue(median < MAX_STALL_NANOS);
+    }
+
+    private static Item item(int number) {
+        ItemData itemData = new ItemData(nextGuid++);
+        // armor and simple items, weapons need attack type
+        itemData.setItemType(number < 8 ? ItemType.values()[number] : ItemType.values()[19 + number % 7]);
+        itemData.setRarity(ItemRarity.BRONZE);
+        itemData.setElements(Set.of(Element.FIRE));
+        itemData.setCoefficients(new Coefficients());
+        return new Item(itemData);
+    }
+
+    private static Path temp(Path save) {
+        return save.resolveSibling(save.getFileName() + ".tmp");
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] compressed(String text) throws IOException {
+        Path path = folder.newFile("compressed.save").toPath();
+        GameFileSaver.write(path, true, outputStream -> outputStream.write(bytes(text)));
+        return Files.readAllBytes(path);
+    }
+
+    private static String decompressed(Path save) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (InputStream inputStream = new GZIPInputStream(Files.newInputStream(save))) {
+            inputStream.transferTo(outputStream);
+        }
+        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
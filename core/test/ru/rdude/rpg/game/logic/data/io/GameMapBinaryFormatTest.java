@@ -0,0 +1,148 @@
+package ru.rdude.rpg.game.logic.data.io;
+
+import com.badlogic.gdx.files.FileHandle;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ru.rdude.rpg.game.logic.enums.Biom;
+import ru.rdude.rpg.game.logic.enums.Relief;
+import ru.rdude.rpg.game.logic.enums.WaterDepth;
+import ru.rdude.rpg.game.logic.map.Cell;
+import ru.rdude.rpg.game.logic.map.GameMap;
+import ru.rdude.rpg.game.logic.map.Point;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+public class GameMapBinaryFormatTest {
+
+    private static final int WIDTH = 100;
+    private static final int HEIGHT = 70;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void chunksAreDecodedWhenTheirCellsAreUsed() throws IOException {
+        GameMap original = map();
+        GameMapBinaryFormat.Reader reader = new GameMapBinaryFormat.Reader(ByteBuffer.wrap(encode(original)));
+        GameMap gameMap = reader.getGameMap();
+
+        assertEquals(WIDTH, gameMap.getWidth());
+        assertEquals(HEIGHT, gameMap.getHeight());
+        assertFalse(reader.isLoaded(90, 60));
+        assertSameCell(original.cell(90, 60), gameMap.cell(90, 60));
+        assertTrue(reader.isLoaded(90, 60));
+        assertTrue(reader.isLoaded(64, 32));
+        assertFalse(reader.isLoaded(64, 64));
+        assertFalse(reader.isLoaded(0, 0));
+        assertFalse(reader.isFullyLoaded());
+
+        for (int x = 0; x < WIDTH; x++) {
+            for (int y = 0; y < HEIGHT; y++) {
+                assertSameCell(original.cell(x, y), gameMap.cell(x, y));
+            }
+        }
+        assertTrue(reader.isFullyLoaded());
+    }
+
+    @Test
+    public void mapFileIsLoadedAroundStartPoint() throws IOException {
+        GameMap original = map();
+        original.setStartPoint(new Point(5, 5));
+        File file = folder.newFile("map.map");
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(file.toPath())))) {
+            GameMapFileSaver.writeCells(original, zipOutputStream);
+        }
+        try (ZipFile zipFile = new ZipFile(file)) {
+            ZipEntry entry = zipFile.getEntry(GameMapFileSaver.CELLS_ENTRY);
+            assertEquals(encode(original).length, entry.getSize());
+        }
+
+        GameMapBinaryFormat.Reader reader = GameMapFileLoader.open(new FileHandle(file));
+        assertNotNull(reader);
+        reader.loadAround(5, 5, GameMapBinaryFormat.CHUNK_SIZE);
+        assertTrue(reader.isLoaded(5, 5));
+        assertFalse(reader.isLoaded(90, 60));
+
+        GameMap loaded = GameMapFileLoader.load(new FileHandle(file));
+        assertEquals(new Point(5, 5), loaded.getStartPoint());
+        assertSameCell(original.cell(90, 60), loaded.cell(90, 60));
+        assertSameCell(original.cell(5, 5), loaded.cell(5, 5));
+    }
+
+    @Test
+    public void firstVersionWithIndexBeforeChunksIsRead() throws IOException {
+        GameMap original = map();
+        byte[] encoded = encode(original);
+        ByteBuffer buffer = ByteBuffer.wrap(encoded);
+        // magic, version, guid, name, width, height, start point, chunk size
+        int dataStart = 4 + 2 + 8 + 4 + original.getName().getBytes(StandardCharsets.UTF_8).length + 5 * 4;
+        int indexStart = dataStart + buffer.getInt(encoded.length - 4);
+        ByteArrayOutputStream firstVersion = new ByteArrayOutputStream();
+        firstVersion.write(encoded, 0, dataStart);
+        firstVersion.write(encoded, indexStart, encoded.length - 4 - indexStart);
+        firstVersion.write(encoded, dataStart, indexStart - dataStart);
+        byte[] bytes = firstVersion.toByteArray();
+        bytes[5] = 1;
+
+        GameMap gameMap = GameMapBinaryFormat.decode(ByteBuffer.wrap(bytes));
+        for (int x = 0; x < WIDTH; x++) {
+            for (int y = 0; y < HEIGHT; y++) {
+                assertSameCell(original.cell(x, y), gameMap.cell(x, y));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void truncatedMapIsNotRead() throws IOException {
+        byte[] encoded = encode(map());
+        new GameMapBinaryFormat.Reader(ByteBuffer.wrap(encoded, 0, encoded.length / 2));
+    }
+
+    private static GameMap map() {
+        GameMap gameMap = new GameMap(WIDTH, HEIGHT);
+        gameMap.setName("binary");
+        Biom[] bioms = Biom.values();
+        Relief[] reliefs = Relief.values();
+        WaterDepth[] waterDepths = WaterDepth.values();
+        for (int x = 0; x < WIDTH; x++) {
+            for (int y = 0; y < HEIGHT; y++) {
+                Cell cell = gameMap.cell(x, y);
+                cell.setBiom(bioms[(x / 7 + y / 5) % bioms.length]);
+                cell.setRelief(reliefs[(x * y) % reliefs.length]);
+                cell.setWaterDepth(y % 11 == 0 ? waterDepths[x % waterDepths.length] : null);
+                cell.setLvl(1 + x / 10);
+            }
+        }
+        return gameMap;
+    }
+
+    private static byte[] encode(GameMap gameMap) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        GameMapBinaryFormat.encode(gameMap, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private static void assertSameCell(Cell expected, Cell actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getX(), actual.getX());
+        assertEquals(expected.getY(), actual.getY());
+        assertEquals(expected.getBiom(), actual.getBiom());
+        assertEquals(expected.getRelief(), actual.getRelief());
+        assertEquals(expected.getWaterDepth(), actual.getWaterDepth());
+        assertEquals(expected.getLvl(), actual.getLvl());
+        assertEquals(expected.getGraphicFront(), actual.getGraphicFront());
+        assertEquals(expected.getGraphicBack(), actual.getGraphicBack());
+    }
+}
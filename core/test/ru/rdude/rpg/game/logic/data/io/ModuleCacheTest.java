@@ -0,0 +1,128 @@
+package ru.rdude.rpg.game.logic.data.io;
+
+import com.badlogic.gdx.files.FileHandle;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ru.rdude.rpg.game.logic.coefficients.Coefficients;
+import ru.rdude.rpg.game.logic.data.ItemData;
+import ru.rdude.rpg.game.logic.data.Module;
+import ru.rdude.rpg.game.logic.enums.Element;
+import ru.rdude.rpg.game.logic.enums.ItemRarity;
+import ru.rdude.rpg.game.logic.enums.ItemType;
+import ru.rdude.rpg.game.logic.game.Game;
+import ru.rdude.rpg.game.ui.HeadlessUi;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+public class ModuleCacheTest {
+
+    private static final long FIRST_MODULE = 9_000_000L;
+    private static final int ITEMS_PER_MODULE = 100;
+    private static final int[] MODULES_AMOUNTS = {1, 5, 20};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void startGame() {
+        HeadlessUi.start();
+        Game.initNewGame();
+    }
+
+    @Test
+    public void binaryMapperHasSettingsOfGameMapper() throws IOException {
+        CustomObjectMapper gameMapper = Game.getCustomObjectMapper();
+        CustomObjectMapper binaryMapper = new ModuleCache(new FileHandle(folder.getRoot())).binaryMapper();
+        assertNotSame(gameMapper.getFactory(), binaryMapper.getFactory());
+        assertEquals(gameMapper.getSerializationConfig().getSerializationFeatures(), binaryMapper.getSerializationConfig().getSerializationFeatures());
+        assertEquals(gameMapper.getDeserializationConfig().getDeserializationFeatures(), binaryMapper.getDeserializationConfig().getDeserializationFeatures());
+        assertEquals(gameMapper.getSerializationConfig().getDefaultVisibilityChecker().toString(),
+                binaryMapper.getSerializationConfig().getDefaultVisibilityChecker().toString());
+        assertEquals(gameMapper.getSubtypeResolver(), binaryMapper.getSubtypeResolver());
+
+        Module module = module(FIRST_MODULE);
+        Module read = binaryMapper.readValue(binaryMapper.writeValueAsBytes(module), Module.class);
+        assertEquals(module.getGuid(), read.getGuid());
+        assertEquals(ITEMS_PER_MODULE, read.getItemData().size());
+        for (ItemData itemData : read.getItemData()) {
+            ItemData written = module.getItemData().stream().filter(item -> item.getGuid() == itemData.getGuid()).findAny().orElseThrow();
+            // order of stats subscribers is not kept by json either, so fields are compared
+            assertEquals(written.getItemType(), itemData.getItemType());
+            assertEquals(written.getRarity(), itemData.getRarity());
+            assertEquals(written.getElements(), itemData.getElements());
+            assertEquals(written.getPrice(), itemData.getPrice(), 0d);
+        }
+    }
+
+    @Test
+    public void cacheOfChangedModuleIsNotUsed() throws IOException {
+        ModuleCache moduleCache = new ModuleCache(new FileHandle(folder.newFolder("cache")));
+        FileHandle moduleFile = new FileHandle(new File(folder.getRoot(), "changed" + ModuleFileLoader.MODULE_EXTENSION));
+        moduleCache.write(moduleFile, 1L, module(FIRST_MODULE));
+
+        assertNotNull(moduleCache.read(moduleFile, 1L));
+        assertNull(moduleCache.read(moduleFile, 2L));
+    }
+
+    // cold load parses json and writes cache, warm load reads cache written by cold load
+    @Test
+    public void coldAndWarmLoadTimings() throws IOException {
+        for (int amount : MODULES_AMOUNTS) {
+            FileHandle modulesDirectory = new FileHandle(folder.newFolder("modules" + amount));
+            FileHandle cacheDirectory = new FileHandle(folder.newFolder("cache" + amount));
+            for (int i = 0; i < amount; i++) {
+                writeModuleFile(modulesDirectory, module(FIRST_MODULE + i * 1_000L));
+            }
+            try {
+                long cold = load(modulesDirectory, cacheDirectory);
+                assertEquals(amount, cacheDirectory.list().length);
+                long warm = load(modulesDirectory, cacheDirectory);
+                System.out.printf("%d modules of %d items: cold load %d ms, warm load %d ms%n",
+                        amount, ITEMS_PER_MODULE, cold / 1_000_000, warm / 1_000_000);
+                assertEquals(ITEMS_PER_MODULE, ItemData.getRegistry().getModule(FIRST_MODULE).size());
+            } finally {
+                for (int i = 0; i < amount; i++) {
+                    ItemData.removeModuleItems(FIRST_MODULE + i * 1_000L);
+                }
+            }
+        }
+    }
+
+    private static long load(FileHandle modulesDirectory, FileHandle cacheDirectory) {
+        long start = System.nanoTime();
+        new ModuleFileLoader(Game.getGameJsonSerializer(), null, modulesDirectory, new ModuleCache(cacheDirectory)).load();
+        return System.nanoTime() - start;
+    }
+
+    private static void writeModuleFile(FileHandle directory, Module module) throws IOException {
+        File file = directory.child(module.getGuid() + ModuleFileLoader.MODULE_EXTENSION).file();
+        try (ZipOutputStream outputStream = new ZipOutputStream(Files.newOutputStream(file.toPath()))) {
+            outputStream.putNextEntry(new ZipEntry("module"));
+            outputStream.write(Game.getCustomObjectMapper().writeValueAsBytes(module));
+            outputStream.closeEntry();
+        }
+    }
+
+    private static Module module(long guid) {
+        Module module = new Module(guid);
+        for (int i = 0; i < ITEMS_PER_MODULE; i++) {
+            ItemData itemData = new ItemData(guid + 1 + i);
+            itemData.setItemType(i < 8 ? ItemType.values()[i] : ItemType.values()[19 + i % 7]);
+            itemData.setRarity(ItemRarity.BRONZE);
+            itemData.setElements(Set.of(Element.FIRE));
+            itemData.setCoefficients(new Coefficients());
+            itemData.setPrice(i);
+            module.addEntity(itemData);
+        }
+        return module;
+    }
+}
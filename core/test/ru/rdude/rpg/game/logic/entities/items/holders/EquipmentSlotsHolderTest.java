@@ -0,0 +1,107 @@
+package ru.rdude.rpg.game.logic.entities.items.holders;
+
+import org.junit.Test;
+import ru.rdude.rpg.game.logic.coefficients.Coefficients;
+import ru.rdude.rpg.game.logic.data.ItemData;
+import ru.rdude.rpg.game.logic.entities.beings.Player;
+import ru.rdude.rpg.game.logic.entities.items.Item;
+import ru.rdude.rpg.game.logic.entities.states.StateChanger;
+import ru.rdude.rpg.game.logic.enums.*;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class EquipmentSlotsHolderTest {
+
+    private static final int QUERIES = 1_000;
+
+    private static long nextGuid = 800_000L;
+
+    @Test
+    public void aggregatesFollowEquipAndUnequip() {
+        Player player = new Player();
+        EquipmentSlotsHolder equipment = player.equipment();
+        Item armor = item(ItemType.ARMOR, 3, Element.FIRE);
+        Item helmet = item(ItemType.HELMET, 2, Element.WATER);
+
+        assertEquals(0d, equipment.getStats().get(StatName.STR), 0d);
+        assertTrue(equipment.receiveEntity(armor));
+        assertEquals(3d, equipment.getStats().get(StatName.STR), 0d);
+        assertEquals(Set.of(Element.FIRE), equipment.getArmorElements());
+        assertTrue(equipment.receiveEntity(helmet));
+        assertEquals(5d, equipment.getStats().get(StatName.STR), 0d);
+        assertEquals(Set.of(Element.FIRE, Element.WATER), equipment.getArmorElements());
+
+        equipment.armor().setEntity(null);
+
+        assertEquals(2d, equipment.getStats().get(StatName.STR), 0d);
+        assertEquals(Set.of(Element.WATER), equipment.getArmorElements());
+        assertTrue(equipment.getWeaponElements().isEmpty());
+    }
+
+    @Test
+    public void changedElementsOfEquippedItemAreSeen() {
+        Player player = new Player();
+        EquipmentSlotsHolder equipment = player.equipment();
+        Item armor = item(ItemType.ARMOR, 1, Element.FIRE);
+        equipment.receiveEntity(armor);
+        assertEquals(Set.of(Element.FIRE), equipment.getArmorElements());
+
+        armor.elements().add(() -> false, Element.EARTH);
+
+        assertEquals(Set.of(Element.FIRE, Element.EARTH), equipment.getArmorElements());
+
+        // removed item does not change aggregates any more
+        equipment.armor().setEntity(null);
+        assertTrue(equipment.getArmorElements().isEmpty());
+        armor.elements().add(() -> false, Element.WATER);
+        assertTrue(equipment.getArmorElements().isEmpty());
+    }
+
+    @Test
+    public void aggregatesAreReadOnly() {
+        Player player = new Player();
+        EquipmentSlotsHolder equipment = player.equipment();
+        equipment.receiveEntity(item(ItemType.ARMOR, 1, Element.FIRE));
+
+        Map<StatName, Double> stats = equipment.getStats();
+        Set<Element> elements = equipment.getArmorElements();
+        Coefficients coefficients = equipment.getCoefficients();
+        assertThrows(UnsupportedOperationException.class, () -> stats.put(StatName.STR, 10d));
+        assertThrows(UnsupportedOperationException.class, () -> elements.add(Element.WATER));
+        assertThrows(UnsupportedOperationException.class, () -> coefficients.atk().element().set(Element.FIRE, 2d));
+        assertThrows(UnsupportedOperationException.class, () -> coefficients.addSumOf(new Coefficients()));
+    }
+
+    @Test
+    public void aggregatesAreBuiltOncePerChange() {
+        Player player = new Player();
+        EquipmentSlotsHolder equipment = player.equipment();
+        equipment.receiveEntity(item(ItemType.ARMOR, 1, Element.FIRE));
+        equipment.receiveEntity(item(ItemType.HELMET, 1, Element.WATER));
+        equipment.receiveEntity(item(ItemType.BOOTS, 1, Element.EARTH));
+
+        Map<StatName, Double> stats = equipment.getStats();
+        Coefficients coefficients = equipment.getCoefficients();
+        long start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            assertSame(stats, equipment.getStats());
+            assertSame(coefficients, equipment.getCoefficients());
+            equipment.getArmorElements();
+            equipment.getWeaponElements();
+        }
+        System.out.printf("%d equipment aggregate queries: %d us%n", QUERIES, (System.nanoTime() - start) / 1_000);
+    }
+
+    private static Item item(ItemType itemType, double str, Element element) {
+        ItemData itemData = new ItemData(nextGuid++);
+        itemData.setItemType(itemType);
+        itemData.setRarity(ItemRarity.BRONZE);
+        itemData.setElements(Set.of(element));
+        itemData.setCoefficients(new Coefficients());
+        itemData.getStats().str().set(str);
+        return new Item(itemData);
+    }
+}
@@ -0,0 +1,181 @@
+package ru.rdude.rpg.game.logic.entities.states;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import ru.rdude.rpg.game.logic.data.io.CustomObjectMapper;
+import ru.rdude.rpg.game.logic.enums.Element;
+import ru.rdude.rpg.game.logic.game.Game;
+import ru.rdude.rpg.game.utils.jsonextension.JsonPolymorphicSubType;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class StateHolderTest {
+
+    @BeforeClass
+    public static void registerChanger() {
+        Game.getCustomObjectMapper().registerPolymorphicSubType(TestStateChanger.class);
+    }
+
+    @Test
+    public void addedStatesAreAddedToCurrent() {
+        StateHolder<Element> holder = new StateHolder<>(Element.NEUTRAL);
+        holder.add(new TestStateChanger(false), Element.FIRE);
+
+        assertEquals(Set.of(Element.NEUTRAL, Element.FIRE), holder.getCurrent());
+        assertEquals(Set.of(Element.NEUTRAL), holder.getDefault());
+        assertTrue(holder.contains(Element.FIRE));
+        assertTrue(holder.containsAny(Element.WATER, Element.FIRE));
+        assertFalse(holder.containsAny(Element.WATER, Element.EARTH));
+        assertTrue(holder.containsAll(Set.of(Element.NEUTRAL, Element.FIRE)));
+        assertFalse(holder.containsAll(Set.of(Element.FIRE, Element.WATER)));
+    }
+
+    @Test
+    public void removedLastChangerRemovesItsStates() {
+        StateHolder<Element> holder = new StateHolder<>(Element.NEUTRAL);
+        TestStateChanger first = new TestStateChanger(false);
+        TestStateChanger second = new TestStateChanger(false);
+        holder.add(first, Element.FIRE);
+        holder.add(second, Element.WATER);
+
+        holder.remove(second);
+        assertEquals(Set.of(Element.NEUTRAL, Element.FIRE), holder.getCurrent());
+        assertFalse(holder.contains(Element.WATER));
+        holder.remove(first);
+        assertEquals(Set.of(Element.NEUTRAL), holder.getCurrent());
+        assertEquals(1, holder.size());
+    }
+
+    // states are accumulated in entries of changers added later
+    @Test
+    public void statesOfRemovedChangerStayInLaterChangers() {
+        StateHolder<Element> holder = new StateHolder<>(Element.NEUTRAL);
+        TestStateChanger first = new TestStateChanger(false);
+        holder.add(first, Element.FIRE);
+        holder.add(new TestStateChanger(false), Element.WATER);
+
+        holder.remove(first);
+        assertEquals(Set.of(Element.NEUTRAL, Element.FIRE, Element.WATER), holder.getCurrent());
+        assertTrue(holder.contains(Element.FIRE));
+    }
+
+    @Test
+    public void overlayReplacesCurrentStates() {
+        StateHolder<Element> holder = new StateHolder<>(Element.NEUTRAL);
+        TestStateChanger overlay = new TestStateChanger(true);
+        TestStateChanger after = new TestStateChanger(false);
+        holder.add(new TestStateChanger(false), Element.FIRE);
+        holder.add(overlay, Element.WATER);
+        assertEquals(Set.of(Element.WATER), holder.getCurrent());
+        assertFalse(holder.contains(Element.NEUTRAL));
+
+        holder.add(after, Element.EARTH);
+        assertEquals(Set.of(Element.WATER, Element.EARTH), holder.getCurrent());
+        holder.remove(after);
+        holder.remove(overlay);
+        assertEquals(Set.of(Element.NEUTRAL, Element.FIRE), holder.getCurrent());
+    }
+
+    @Test
+    public void addedAgainChangerIsMovedToTheEnd() {
+        StateHolder<Element> holder = new StateHolder<>(Element.NEUTRAL);
+        TestStateChanger overlay = new TestStateChanger(true);
+        holder.add(overlay, Element.WATER);
+        holder.add(new TestStateChanger(false), Element.FIRE);
+        holder.add(overlay, Element.EARTH);
+
+        assertEquals(Set.of(Element.EARTH), holder.getCurrent());
+        assertEquals(3, holder.size());
+    }
+
+    @Test
+    public void defaultStatesAreChangedAndObserved() {
+        StateHolder<Element> holder = new StateHolder<>(Element.NEUTRAL);
+        List<Set<Element>> updates = new ArrayList<>();
+        holder.subscribe(updates::add);
+
+        holder.addDefault(Set.of(Element.FIRE));
+        assertTrue(holder.contains(Element.FIRE));
+        holder.setDefault(Set.of(Element.WATER));
+        assertEquals(Set.of(Element.WATER), holder.getCurrent());
+        assertFalse(holder.contains(Element.FIRE));
+        holder.add(new TestStateChanger(true), Element.EARTH);
+
+        assertEquals(3, updates.size());
+        assertThrows(UnsupportedOperationException.class, () -> holder.getDefault().add(Element.FIRE));
+        assertThrows(UnsupportedOperationException.class, () -> holder.getCurrent().add(Element.FIRE));
+    }
+
+    @Test
+    public void copyIsNotChangedWithOriginal() {
+        StateHolder<Element> holder = new StateHolder<>(Element.NEUTRAL);
+        TestStateChanger changer = new TestStateChanger(false);
+        holder.add(changer, Element.FIRE);
+        StateHolder<Element> copy = holder.copy();
+
+        holder.remove(changer);
+        holder.addDefault(Set.of(Element.WATER));
+        assertEquals(Set.of(Element.NEUTRAL, Element.FIRE), copy.getCurrent());
+        assertTrue(copy.contains(Element.FIRE));
+        assertFalse(copy.contains(Element.WATER));
+    }
+
+    // saves written before states were kept as bitmasks have the same entries
+    @Test
+    public void legacySaveIsLoaded() throws IOException {
+        String json = "{\"changers\":["
+                + "{\"testStateChanger\":{\"@id\":2,\"overlay\":false}},"
+                + "{\"testStateChanger\":{\"@id\":3,\"overlay\":true}},"
+                + "{\"testStateChanger\":{\"@id\":4,\"overlay\":false}}],"
+                + "\"elements\":{\"subscribers\":{\"@id\":5,\"subscribers\":[]},\"cache\":["
+                + "{\"key\":{\"defaultStateChanger\":{\"@id\":1}},\"value\":[{\"element\":\"NEUTRAL\"}]},"
+                + "{\"key\":2,\"value\":[{\"element\":\"NEUTRAL\"},{\"element\":\"FIRE\"}]},"
+                + "{\"key\":3,\"value\":[{\"element\":\"WATER\"}]},"
+                + "{\"key\":4,\"value\":[{\"element\":\"WATER\"},{\"element\":\"EARTH\"}]}]}}";
+        CustomObjectMapper mapper = Game.getCustomObjectMapper();
+        Owner owner = mapper.readValue(json, Owner.class);
+        StateHolder<Element> holder = owner.elements;
+
+        assertEquals(Set.of(Element.WATER, Element.EARTH), holder.getCurrent());
+        assertTrue(holder.contains(Element.EARTH));
+        assertFalse(holder.contains(Element.FIRE));
+        holder.remove(owner.changers.get(2));
+        assertEquals(Set.of(Element.WATER), holder.getCurrent());
+        holder.remove(owner.changers.get(1));
+        assertEquals(Set.of(Element.NEUTRAL, Element.FIRE), holder.getCurrent());
+        assertTrue(holder.contains(Element.FIRE));
+
+        // written again in the same form
+        Owner again = mapper.readValue(mapper.writeValueAsString(owner), Owner.class);
+        assertEquals(holder.getCurrent(), again.elements.getCurrent());
+        assertEquals(holder.size(), again.elements.size());
+    }
+
+    private static class Owner {
+        private List<StateChanger> changers;
+        private StateHolder<Element> elements;
+    }
+
+    @JsonPolymorphicSubType("testStateChanger")
+    static class TestStateChanger implements StateChanger {
+
+        private boolean overlay;
+
+        private TestStateChanger() {
+        }
+
+        TestStateChanger(boolean overlay) {
+            this.overlay = overlay;
+        }
+
+        @Override
+        public boolean isStateOverlay() {
+            return overlay;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package ru.rdude.rpg.game.logic.playerClass;
+
+import org.junit.Test;
+import ru.rdude.rpg.game.logic.data.AbilityData;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class ClassAbilitiesDataTreeTest {
+
+    private static long nextGuid = 700_000L;
+
+    @Test
+    public void nodesGoAfterTheirRequirements() {
+        AbilityData a = ability();
+        AbilityData b = ability(a);
+        AbilityData c = ability(b);
+        AbilityData d = ability(a, c);
+        AbilityData e = ability();
+        // requirements are given after abilities that need them
+        ClassAbilitiesDataTree tree = new ClassAbilitiesDataTree(new LinkedHashSet<>(List.of(d, c, e, b, a)));
+
+        List<Long> order = new ArrayList<>(tree.getNodes().keySet());
+        for (ClassAbilitiesDataTree.Node node : tree.getNodes().values()) {
+            for (Long requirement : node.getAbilityData().requirements.keySet()) {
+                assertTrue(order.indexOf(requirement) < order.indexOf(node.getAbilityData().getGuid()));
+            }
+        }
+        assertEquals(0, tree.getNode(a.getGuid()).getDepth());
+        assertEquals(1, tree.getNode(b.getGuid()).getDepth());
+        assertEquals(2, tree.getNode(c.getGuid()).getDepth());
+        assertEquals(3, tree.getNode(d.getGuid()).getDepth());
+        assertEquals(0, tree.getNode(e.getGuid()).getDepth());
+    }
+
+    @Test
+    public void cycleIsReported() {
+        AbilityData free = ability();
+        AbilityData a = ability(free);
+        AbilityData b = ability(a);
+        AbilityData c = ability(b);
+        a.requirements.put(c.getGuid(), 1);
+        AbilityData afterCycle = ability(c);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> new ClassAbilitiesDataTree(Set.of(free, a, b, c, afterCycle)));
+        String prefix = "Abilities requirements have a cycle: ";
+        assertTrue(exception.getMessage(), exception.getMessage().startsWith(prefix));
+
+        // cycle is closed and every ability in it requires the next one
+        String[] guids = exception.getMessage().substring(prefix.length() + 1, exception.getMessage().length() - 1).split(", ");
+        List<AbilityData> cycle = new ArrayList<>();
+        for (String guid : guids) {
+            cycle.add(Arrays.asList(a, b, c).stream()
+                    .filter(abilityData -> abilityData.getGuid() == Long.parseLong(guid))
+                    .findAny()
+                    .orElseThrow());
+        }
+        assertEquals(4, cycle.size());
+        assertSame(cycle.get(0), cycle.get(cycle.size() - 1));
+        for (int i = 0; i < cycle.size() - 1; i++) {
+            assertTrue(cycle.get(i).requirements.containsKey(cycle.get(i + 1).getGuid()));
+        }
+    }
+
+    @Test
+    public void requirementOutsideOfTreeIsReported() {
+        AbilityData outside = ability();
+        AbilityData a = ability(outside);
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> new ClassAbilitiesDataTree(Set.of(a)));
+        assertTrue(exception.getMessage().contains("requires ability " + outside.getGuid()));
+        ClassAbilitiesDataTree tree = new ClassAbilitiesDataTree(Set.of());
+        assertThrows(IllegalArgumentException.class, () -> tree.add(a));
+    }
+
+    @Test
+    public void abilityCanBeLearnedWhenRequirementsAreLearned() {
+        AbilityData a = ability();
+        AbilityData b = ability(a);
+        AbilityData c = ability();
+        AbilityData d = ability(b, c);
+        ClassAbilitiesDataTree tree = new ClassAbilitiesDataTree(Set.of(a, b, c, d));
+        BitSet learned = new BitSet();
+
+        assertTrue(tree.canLearn(a, learned));
+        assertFalse(tree.canLearn(b, learned));
+        tree.setLearned(learned, a);
+        tree.setLearned(learned, b);
+        assertFalse(tree.canLearn(d, learned));
+        tree.setLearned(learned, c);
+        assertTrue(tree.canLearn(d, learned));
+        assertEquals(3, learned.cardinality());
+
+        AbilityData notInTree = ability();
+        assertFalse(tree.canLearn(notInTree, learned));
+        assertThrows(IllegalArgumentException.class, () -> tree.setLearned(learned, notInTree));
+    }
+
+    // abilities that required only removed ability are removed too, others lose the requirement
+    @Test
+    public void removedAbilityIsRemovedFromRequirements() {
+        AbilityData a = ability();
+        AbilityData b = ability(a);
+        AbilityData c = ability(b);
+        AbilityData d = ability(a, c);
+        ClassAbilitiesDataTree tree = new ClassAbilitiesDataTree(Set.of(a, b, c, d));
+
+        tree.remove(b);
+        assertNull(tree.getNode(b.getGuid()));
+        assertNull(tree.getNode(c.getGuid()));
+        ClassAbilitiesDataTree.Node node = tree.getNode(d.getGuid());
+        assertEquals(1, node.getDepth());
+        assertEquals(1, node.getRequirements().size());
+        BitSet learned = new BitSet();
+        tree.setLearned(learned, a);
+        assertTrue(tree.canLearn(d, learned));
+    }
+
+    private static AbilityData ability(AbilityData... requirements) {
+        AbilityData abilityData = new AbilityData(nextGuid++);
+        for (AbilityData requirement : requirements) {
+            abilityData.requirements.put(requirement.getGuid(), 1);
+        }
+        return abilityData;
+    }
+}
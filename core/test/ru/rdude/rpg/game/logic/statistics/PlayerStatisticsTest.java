@@ -0,0 +1,86 @@
+package ru.rdude.rpg.game.logic.statistics;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import ru.rdude.rpg.game.logic.data.io.CustomObjectMapper;
+import ru.rdude.rpg.game.logic.entities.beings.BeingAction;
+import ru.rdude.rpg.game.logic.entities.beings.Player;
+import ru.rdude.rpg.game.logic.enums.BeingType;
+import ru.rdude.rpg.game.logic.enums.Element;
+import ru.rdude.rpg.game.logic.enums.Size;
+import ru.rdude.rpg.game.logic.game.Game;
+import ru.rdude.rpg.game.ui.HeadlessUi;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class PlayerStatisticsTest {
+
+    @BeforeClass
+    public static void startGame() {
+        HeadlessUi.start();
+        Game.initNewGame();
+    }
+
+    @Test
+    public void countersAreWrittenAndRead() throws IOException {
+        Player player = new Player();
+        Player enemy = new Player();
+        PlayerStatistics statistics = new PlayerStatistics();
+        statistics.update(new BeingAction(BeingAction.Action.DAMAGE_DEAL, enemy, null, 10), player);
+        statistics.update(new BeingAction(BeingAction.Action.DAMAGE_DEAL, enemy, null, 2.5), player);
+        statistics.update(new BeingAction(BeingAction.Action.HEAL_RECEIVE, player, null, 4), player);
+
+        CustomObjectMapper mapper = Game.getCustomObjectMapper();
+        String json = mapper.writeValueAsString(statistics);
+        assertFalse(json.contains("\"statistics\""));
+        PlayerStatistics read = mapper.readValue(json, PlayerStatistics.class);
+
+        for (BeingType beingType : enemy.beingTypes().getCurrent()) {
+            assertEquals(2, read.getTimes(BeingAction.Action.DAMAGE_DEAL, beingType));
+            assertEquals(12.5, read.getValue(BeingAction.Action.DAMAGE_DEAL, beingType), 0d);
+        }
+        for (Size size : enemy.size().getCurrent()) {
+            assertEquals(2, read.getTimes(BeingAction.Action.DAMAGE_DEAL, size));
+        }
+        assertEquals(1, read.getTimesWithSelf(BeingAction.Action.HEAL_RECEIVE));
+        assertEquals(4d, read.getValueWithSelf(BeingAction.Action.HEAL_RECEIVE), 0d);
+        assertEquals(0, read.getTimesWithSelf(BeingAction.Action.DAMAGE_DEAL));
+        assertEquals(0, read.getTimes(BeingAction.Action.HEAL_RECEIVE, Element.FIRE));
+    }
+
+    // saves before counters have maps of values by action and type
+    @Test
+    public void legacyStatisticsAreRead() throws IOException {
+        String json = "{\"playerStatistics\":{\"@id\":1,\"statistics\":{"
+                + "\"DAMAGE_DEAL\":{\"beingAction\":\"DAMAGE_DEAL\","
+                + "\"beingTypes\":{"
+                + "\"HUMAN\":{\"beingAction\":\"DAMAGE_DEAL\",\"statisticsType\":{\"beingType\":\"HUMAN\"},\"times\":3,\"value\":42.5},"
+                + "\"DRAGON\":{\"beingAction\":\"DAMAGE_DEAL\",\"statisticsType\":{\"beingType\":\"DRAGON\"},\"times\":0,\"value\":0.0}},"
+                + "\"elements\":{\"FIRE\":{\"beingAction\":\"DAMAGE_DEAL\",\"statisticsType\":{\"element\":\"FIRE\"},\"times\":2,\"value\":30.0}},"
+                + "\"sizes\":{},\"itemMainTypes\":{},\"itemTypes\":{},\"attackTypes\":{},\"buffTypes\":{},\"skillTypes\":{},"
+                + "\"withSelf\":{\"beingAction\":\"NO_ACTION\",\"statisticsType\":null,\"times\":0,\"value\":0.0}},"
+                + "\"HEAL_RECEIVE\":{\"beingAction\":\"HEAL_RECEIVE\","
+                + "\"beingTypes\":{},\"elements\":{},\"sizes\":{},\"itemMainTypes\":{},\"itemTypes\":{},\"attackTypes\":{},\"buffTypes\":{},\"skillTypes\":{},"
+                + "\"withSelf\":{\"beingAction\":\"NO_ACTION\",\"statisticsType\":null,\"times\":5,\"value\":17.0}}}}}";
+        CustomObjectMapper mapper = Game.getCustomObjectMapper();
+        PlayerStatistics statistics = mapper.readValue(json, PlayerStatistics.class);
+
+        assertEquals(3, statistics.getTimes(BeingAction.Action.DAMAGE_DEAL, BeingType.HUMAN));
+        assertEquals(42.5, statistics.getValue(BeingAction.Action.DAMAGE_DEAL, BeingType.HUMAN), 0d);
+        assertEquals(0, statistics.getTimes(BeingAction.Action.DAMAGE_DEAL, BeingType.DRAGON));
+        assertEquals(2, statistics.getTimes(BeingAction.Action.DAMAGE_DEAL, Element.FIRE));
+        assertEquals(30d, statistics.getValue(BeingAction.Action.DAMAGE_DEAL, Element.FIRE), 0d);
+        assertEquals(5, statistics.getTimesWithSelf(BeingAction.Action.HEAL_RECEIVE));
+        assertEquals(17d, statistics.getValueWithSelf(BeingAction.Action.HEAL_RECEIVE), 0d);
+
+        // written again as counters
+        String again = mapper.writeValueAsString(statistics);
+        assertTrue(again.contains("\"counters\""));
+        PlayerStatistics.Snapshot snapshot = mapper.readValue(again, PlayerStatistics.class).snapshot();
+        assertEquals(3, snapshot.getTimes(BeingAction.Action.DAMAGE_DEAL, BeingType.HUMAN));
+        assertEquals(30d, snapshot.getValue(BeingAction.Action.DAMAGE_DEAL, Element.FIRE), 0d);
+        assertEquals(5, snapshot.getTimesWithSelf(BeingAction.Action.HEAL_RECEIVE));
+    }
+}
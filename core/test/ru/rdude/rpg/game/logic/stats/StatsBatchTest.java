@@ -0,0 +1,57 @@
+package ru.rdude.rpg.game.logic.stats;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StatsBatchTest {
+
+    @Test
+    public void graphIsReusedWhenOtherStatsAreCreated() {
+        Stats stats = new Stats(true);
+        stats.batch(() -> stats.str().increase(1));
+        StatsBatch graph = graph(stats.str());
+        assertNotNull(graph);
+
+        new Stats(true);
+        stats.batch(() -> stats.str().increase(1));
+
+        assertSame(graph, graph(stats.str()));
+    }
+
+    @Test
+    public void graphIsBuiltAgainWhenOwnDependenciesChange() {
+        Stats stats = new Stats(true);
+        stats.batch(() -> stats.str().increase(1));
+        StatsBatch graph = graph(stats.str());
+
+        stats.luck().subscribe(stats.hit());
+        stats.batch(() -> stats.str().increase(1));
+
+        assertNotSame(graph, graph(stats.str()));
+    }
+
+    @Test
+    public void derivedStatsAreRecalculatedOnCommit() {
+        Stats batched = new Stats(true);
+        Stats direct = new Stats(true);
+
+        batched.batch(() -> {
+            batched.str().increase(10);
+            batched.vit().increase(10);
+            batched.agi().increase(10);
+        });
+        direct.str().increase(10);
+        direct.vit().increase(10);
+        direct.agi().increase(10);
+
+        assertEquals(direct.hp().max().value(), batched.hp().max().value(), 0d);
+        assertEquals(direct.fleeValue(), batched.fleeValue(), 0d);
+        assertEquals(direct.hitValue(), batched.hitValue(), 0d);
+    }
+
+    // stats of primary and secondary packages do not inherit package private fields
+    private static StatsBatch graph(Stat stat) {
+        return stat.graph;
+    }
+}
@@ -0,0 +1,118 @@
+package ru.rdude.rpg.game.logic.time;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TimeSchedulerTest {
+
+    @Test
+    public void observerIsUpdatedOnlyWhenDue() {
+        TimeScheduler scheduler = new TimeScheduler();
+        Countdown countdown = new Countdown("a", 10, null);
+        scheduler.schedule(countdown);
+
+        scheduler.advanceMinutes(4);
+        scheduler.advanceMinutes(4);
+        assertTrue(countdown.updates.isEmpty());
+
+        scheduler.advanceMinutes(4);
+        assertEquals(List.of(12), countdown.updates);
+        assertEquals(-2, countdown.left);
+        assertFalse(scheduler.isScheduled(countdown));
+    }
+
+    @Test
+    public void observersDueAtTheSameMinuteAreUpdatedInScheduleOrder() {
+        TimeScheduler scheduler = new TimeScheduler();
+        List<String> log = new ArrayList<>();
+        scheduler.schedule(new Countdown("first", 5, log));
+        scheduler.schedule(new Countdown("second", 5, log));
+        scheduler.schedule(new Countdown("third", 2, log));
+
+        scheduler.advanceMinutes(10);
+
+        assertEquals(List.of("third", "first", "second"), log);
+    }
+
+    @Test
+    public void rescheduleDeliversPassedMinutesFirst() {
+        TimeScheduler scheduler = new TimeScheduler();
+        Countdown countdown = new Countdown("a", 10, null);
+        scheduler.schedule(countdown);
+        scheduler.advanceMinutes(3);
+        assertEquals(3, scheduler.minutesSinceUpdate(countdown));
+
+        scheduler.reschedule(countdown);
+
+        assertEquals(List.of(3), countdown.updates);
+        assertEquals(0, scheduler.minutesSinceUpdate(countdown));
+    }
+
+    @Test
+    public void rescheduleAfterResetDropsPassedMinutes() {
+        TimeScheduler scheduler = new TimeScheduler();
+        Countdown countdown = new Countdown("a", 10, null);
+        scheduler.schedule(countdown);
+        scheduler.advanceMinutes(5);
+
+        countdown.left = 10;
+        scheduler.reschedule(countdown, true);
+        scheduler.advanceMinutes(10);
+        assertTrue(countdown.updates.isEmpty());
+
+        scheduler.advanceMinutes(1);
+        assertEquals(List.of(11), countdown.updates);
+    }
+
+    @Test
+    public void observerCancelledDuringUpdateIsNotScheduledAgain() {
+        TimeScheduler scheduler = new TimeScheduler();
+        Countdown countdown = new Countdown("a", 1, null) {
+            @Override
+            public void timeUpdate(int minutes) {
+                super.timeUpdate(minutes);
+                left = 100;
+                scheduler.cancel(this);
+            }
+        };
+        scheduler.schedule(countdown);
+
+        scheduler.advanceMinutes(2);
+        scheduler.advanceMinutes(200);
+
+        assertEquals(List.of(2), countdown.updates);
+    }
+
+    private static class Countdown implements ScheduledTimeChangeObserver {
+
+        private final String name;
+        private final List<String> log;
+        private final List<Integer> updates = new ArrayList<>();
+        int left;
+
+        Countdown(String name, int left, List<String> log) {
+            this.name = name;
+            this.left = left;
+            this.log = log;
+        }
+
+        @Override
+        public void timeUpdate(int minutes) {
+            updates.add(minutes);
+            left -= minutes;
+            if (log != null) {
+                log.add(name);
+            }
+        }
+
+        // ends when minutes left become negative, as duration does
+        @Override
+        public int minutesToNextUpdate() {
+            return left < 0 ? NO_UPDATE : left + 1;
+        }
+    }
+}
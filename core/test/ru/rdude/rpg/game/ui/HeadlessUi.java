@@ -0,0 +1,48 @@
+package ru.rdude.rpg.game.ui;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.graphics.GL20;
+
+import java.lang.reflect.Proxy;
+
+/**
+ * Headless application with GL that does nothing, so ui elements and skin can be created in tests.
+ * Skin is loaded from working directory, tests should run from assets directory.
+ */
+public final class HeadlessUi {
+
+    private static boolean started;
+
+    private HeadlessUi() {
+    }
+
+    public static synchronized void start() {
+        if (started) {
+            return;
+        }
+        new HeadlessApplication(new ApplicationAdapter() {}, new HeadlessApplicationConfiguration());
+        GL20 gl = (GL20) Proxy.newProxyInstance(GL20.class.getClassLoader(), new Class<?>[]{GL20.class}, (proxy, method, args) -> {
+            Class<?> type = method.getReturnType();
+            if (type == int.class) {
+                // handles and ids should not be 0
+                return 1;
+            }
+            if (type == boolean.class) {
+                return false;
+            }
+            if (type == float.class) {
+                return 0f;
+            }
+            if (type == String.class) {
+                return "";
+            }
+            return null;
+        });
+        Gdx.gl = gl;
+        Gdx.gl20 = gl;
+        started = true;
+    }
+}
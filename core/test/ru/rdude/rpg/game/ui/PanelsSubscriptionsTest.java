@@ -0,0 +1,71 @@
+package ru.rdude.rpg.game.ui;
+
+import com.badlogic.gdx.scenes.scene2d.Group;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import ru.rdude.rpg.game.logic.entities.beings.BeingAction;
+import ru.rdude.rpg.game.logic.entities.beings.Player;
+import ru.rdude.rpg.game.logic.stats.Stat;
+
+import static org.junit.Assert.*;
+
+public class PanelsSubscriptionsTest {
+
+    private static final int OPENINGS = 10_000;
+    private static final int CHECK_EVERY = 1_000;
+
+    @BeforeClass
+    public static void startUi() {
+        HeadlessUi.start();
+    }
+
+    @Test
+    public void closedPanelsDoNotStayInBeingSubscribers() throws InterruptedException {
+        Player player = new Player();
+        Stat hp = player.stats().hp();
+        Stat str = player.stats().str();
+        Stat statPoints = player.stats().lvl().statPoints();
+        int hpBefore = hp.subscribersAmount();
+        int strBefore = str.subscribersAmount();
+        int statPointsBefore = statPoints.subscribersAmount();
+        int beingBefore = player.beingActionObserversAmount();
+
+        Group root = new Group();
+        for (int i = 1; i <= OPENINGS; i++) {
+            openAndClose(root, player);
+            assertEquals(0, root.getChildren().size);
+            if (i % CHECK_EVERY == 0) {
+                collectAndNotify(player);
+                assertEquals(hpBefore, hp.subscribersAmount());
+                assertEquals(strBefore, str.subscribersAmount());
+                assertEquals(statPointsBefore, statPoints.subscribersAmount());
+                assertEquals(beingBefore, player.beingActionObserversAmount());
+            }
+        }
+    }
+
+    // panels are created in own frame so no local variable holds the last ones
+    private static void openAndClose(Group root, Player player) {
+        Stat hp = player.stats().hp();
+        int hpBefore = hp.subscribersAmount();
+        root.addActor(new StatsWindow(player));
+        root.addActor(new HpBar(player));
+        root.addActor(new StmBar(player));
+        root.addActor(new DamageLabel(player));
+        assertTrue(hp.subscribersAmount() > hpBefore);
+        root.clearChildren();
+    }
+
+    // subscriptions of collected panels are removed on notifying
+    private static void collectAndNotify(Player player) throws InterruptedException {
+        BeingAction noAction = new BeingAction(BeingAction.Action.NO_ACTION, player, null, 0);
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        for (Stat stat : new Stat[]{player.stats().hp(), player.stats().str(), player.stats().lvl().statPoints()}) {
+            stat.set(stat.value());
+        }
+        player.notifySubscribers(noAction, player);
+    }
+}
@@ -0,0 +1,78 @@
+package ru.rdude.rpg.game.utils;
+
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SubscribersManagerTest {
+
+    @Test
+    public void collectedWeakSubscriberIsNotNotifiedAndNotRetained() throws InterruptedException {
+        SubscribersManager<Runnable> subscribers = new SubscribersManager<>();
+        AtomicInteger strongCalls = new AtomicInteger();
+        AtomicInteger weakCalls = new AtomicInteger();
+        Runnable strong = strongCalls::incrementAndGet;
+        subscribers.subscribe(strong);
+        WeakReference<Runnable> weak = subscribeWeak(subscribers, weakCalls);
+
+        subscribers.notifySubscribers(Runnable::run);
+        assertEquals(1, weakCalls.get());
+
+        awaitCollected(weak);
+        subscribers.notifySubscribers(Runnable::run);
+
+        assertEquals(1, weakCalls.get());
+        assertEquals(2, strongCalls.get());
+        assertEquals(1, subscribers.size());
+        assertEquals(1, subscribers.getSubscribers().size());
+        assertTrue(subscribers.getSubscribers().contains(strong));
+    }
+
+    @Test
+    public void weakSubscriberIsKeptWhileReferenced() throws InterruptedException {
+        SubscribersManager<Runnable> subscribers = new SubscribersManager<>();
+        AtomicInteger calls = new AtomicInteger();
+        Runnable subscriber = calls::incrementAndGet;
+        subscribers.subscribeWeak(subscriber);
+
+        System.gc();
+        Thread.sleep(10);
+        subscribers.notifySubscribers(Runnable::run);
+
+        assertEquals(1, calls.get());
+        assertTrue(subscribers.getSubscribers().contains(subscriber));
+    }
+
+    // subscriber is created here, so there is no reference to it left in the test method
+    private static WeakReference<Runnable> subscribeWeak(SubscribersManager<Runnable> subscribers, AtomicInteger calls) {
+        Runnable subscriber = calls::incrementAndGet;
+        subscribers.subscribeWeak(subscriber);
+        return new WeakReference<>(subscriber);
+    }
+
+    private static void awaitCollected(WeakReference<?> reference) throws InterruptedException {
+        for (int i = 0; i < 100 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull("weak subscriber was not collected", reference.get());
+    }
+
+    @Test
+    public void subscribeAllSkipsPresentSubscribersAndKeepsOrder() {
+        SubscribersManager<Runnable> subscribers = new SubscribersManager<>();
+        Runnable first = () -> {};
+        Runnable second = () -> {};
+        Runnable third = () -> {};
+        subscribers.subscribe(first);
+
+        subscribers.subscribeAll(Arrays.asList(second, first, third, second));
+
+        assertEquals(3, subscribers.size());
+        assertArrayEquals(new Runnable[]{first, second, third}, subscribers.getSubscribers().toArray());
+    }
+}
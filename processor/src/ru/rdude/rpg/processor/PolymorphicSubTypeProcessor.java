@@ -0,0 +1,194 @@
+package ru.rdude.rpg.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.*;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Writes names of all classes annotated with JsonPolymorphicSubType to index resource file,
+ * so polymorphic object mapper does not need to scan classpath on start.
+ * Every jar can have its own index, mapper reads all of them.
+ * <p>
+ * Also writes fingerprint of serialized form of those classes and of every game class reachable from their fields:
+ * names, superclasses, fields, enum constants, constructors and annotated methods with their annotations.
+ * Parsed data caches are valid only while fingerprint is the same. Method bodies are not part of fingerprint,
+ * so changes of game logic do not make caches invalid.
+ */
+@SupportedAnnotationTypes(PolymorphicSubTypeProcessor.ANNOTATION)
+public class PolymorphicSubTypeProcessor extends AbstractProcessor {
+
+    static final String ANNOTATION = "ru.rdude.rpg.game.utils.jsonextension.JsonPolymorphicSubType";
+    // the same path is used by PolymorphicObjectMapper
+    static final String INDEX_FILE = "META-INF/rpg/polymorphic-subtypes";
+    // the same path is used by PolymorphicObjectMapper
+    static final String FINGERPRINT_FILE = "META-INF/rpg/serialized-classes-fingerprint";
+    // only game classes are part of fingerprint
+    static final String PACKAGE = "ru.rdude.rpg.game";
+
+    private final Set<String> classNames = new TreeSet<>();
+    private final ArrayList<Element> originatingElements = new ArrayList<>();
+    private final List<TypeElement> annotatedTypes = new ArrayList<>();
+    private final Set<Element> typeVariables = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element instanceof TypeElement) {
+                    classNames.add(processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString());
+                    originatingElements.add(element);
+                    annotatedTypes.add((TypeElement) element);
+                }
+            }
+        }
+        if (roundEnv.processingOver() && !classNames.isEmpty()) {
+            writeIndex();
+            writeFingerprint();
+        }
+        return false;
+    }
+
+    private void writeIndex() {
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", INDEX_FILE,
+                    originatingElements.toArray(new Element[0]));
+            try (Writer writer = file.openWriter()) {
+                for (String className : classNames) {
+                    writer.write(className);
+                    writer.write("\n");
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Can not write polymorphic subtypes index: " + e.getMessage());
+        }
+    }
+
+    private void writeFingerprint() {
+        Map<String, TypeElement> types = new TreeMap<>();
+        annotatedTypes.forEach(type -> collect(type.asType(), types));
+        StringBuilder description = new StringBuilder();
+        types.values().forEach(type -> describe(type, description));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(description.toString().getBytes(StandardCharsets.UTF_8));
+            long fingerprint = 0;
+            for (int i = 0; i < Long.BYTES; i++) {
+                fingerprint = (fingerprint << 8) | (digest[i] & 0xFF);
+            }
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", FINGERPRINT_FILE,
+                    originatingElements.toArray(new Element[0]));
+            try (Writer writer = file.openWriter()) {
+                writer.write(Long.toHexString(fingerprint));
+                writer.write("\n");
+            }
+        } catch (IOException | NoSuchAlgorithmException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Can not write serialized classes fingerprint: " + e.getMessage());
+        }
+    }
+
+    // game classes reachable from the type by superclasses, nested classes and field types
+    private void collect(TypeMirror type, Map<String, TypeElement> types) {
+        switch (type.getKind()) {
+            case DECLARED:
+                DeclaredType declaredType = (DeclaredType) type;
+                declaredType.getTypeArguments().forEach(argument -> collect(argument, types));
+                TypeElement element = (TypeElement) declaredType.asElement();
+                String name = processingEnv.getElementUtils().getBinaryName(element).toString();
+                if (!name.startsWith(PACKAGE + ".") || types.putIfAbsent(name, element) != null) {
+                    return;
+                }
+                collect(element.getSuperclass(), types);
+                for (Element enclosed : element.getEnclosedElements()) {
+                    if (enclosed instanceof TypeElement) {
+                        collect(enclosed.asType(), types);
+                    }
+                    else if (enclosed.getKind() == ElementKind.FIELD && !enclosed.getModifiers().contains(Modifier.STATIC)) {
+                        collect(enclosed.asType(), types);
+                    }
+                }
+                break;
+            case ARRAY:
+                collect(((ArrayType) type).getComponentType(), types);
+                break;
+            case WILDCARD:
+                WildcardType wildcardType = (WildcardType) type;
+                if (wildcardType.getExtendsBound() != null) {
+                    collect(wildcardType.getExtendsBound(), types);
+                }
+                break;
+            case TYPEVAR:
+                // bounds can refer to the variable itself, like E extends Enum<E>
+                if (typeVariables.add(((TypeVariable) type).asElement())) {
+                    collect(((TypeVariable) type).getUpperBound(), types);
+                }
+                break;
+            case INTERSECTION:
+                ((IntersectionType) type).getBounds().forEach(bound -> collect(bound, types));
+                break;
+            default:
+                break;
+        }
+    }
+
+    // members are sorted, classes that are not compiled now can list them in other order
+    private void describe(TypeElement type, StringBuilder description) {
+        description.append(type.getKind()).append(' ').append(processingEnv.getElementUtils().getBinaryName(type))
+                .append(" extends ").append(type.getSuperclass()).append(' ')
+                .append(annotations(type)).append('\n');
+        List<String> members = new ArrayList<>();
+        for (Element enclosed : type.getEnclosedElements()) {
+            boolean described;
+            switch (enclosed.getKind()) {
+                case FIELD:
+                    described = !enclosed.getModifiers().contains(Modifier.STATIC);
+                    break;
+                case ENUM_CONSTANT:
+                case CONSTRUCTOR:
+                    described = true;
+                    break;
+                case METHOD:
+                    // with field visibility only annotated methods are used by object mapper
+                    described = !annotations(enclosed).isEmpty();
+                    break;
+                default:
+                    described = false;
+            }
+            if (described) {
+                members.add("  " + enclosed.getKind() + ' ' + enclosed.getModifiers() + ' ' + enclosed.getSimpleName()
+                        + ' ' + enclosed.asType() + ' ' + annotations(enclosed) + '\n');
+            }
+        }
+        Collections.sort(members);
+        members.forEach(description::append);
+    }
+
+    // source annotations are not seen in classes that are not compiled now, so they are left out
+    private static List<String> annotations(Element element) {
+        List<String> result = new ArrayList<>();
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            Retention retention = annotation.getAnnotationType().asElement().getAnnotation(Retention.class);
+            if (retention == null || retention.value() != RetentionPolicy.SOURCE) {
+                result.add(annotation.toString());
+            }
+        }
+        return result;
+    }
+}
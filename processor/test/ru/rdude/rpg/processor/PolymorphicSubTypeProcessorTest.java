@@ -0,0 +1,100 @@
+package ru.rdude.rpg.processor;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PolymorphicSubTypeProcessorTest {
+
+    private static final String ANNOTATION_SOURCE = "package ru.rdude.rpg.game.utils.jsonextension;\n"
+            + "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n"
+            + "public @interface JsonPolymorphicSubType { String value(); }";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void indexListsAnnotatedClasses() throws IOException {
+        File output = compile(item("private int price;", "return 1;"), stats("private int str;"));
+        List<String> index = Files.readAllLines(new File(output, PolymorphicSubTypeProcessor.INDEX_FILE).toPath());
+        assertEquals(List.of("ru.rdude.rpg.game.data.Item"), index);
+    }
+
+    @Test
+    public void fingerprintIsChangedByFields() throws IOException {
+        String fingerprint = fingerprint(item("private int price;", "return 1;"), stats("private int str;"));
+        assertNotEquals(fingerprint, fingerprint(item("private long price;", "return 1;"), stats("private int str;")));
+        assertNotEquals(fingerprint, fingerprint(item("private int cost;", "return 1;"), stats("private int str;")));
+        // class of a field
+        assertNotEquals(fingerprint, fingerprint(item("private int price;", "return 1;"), stats("private int str; private int agi;")));
+    }
+
+    @Test
+    public void fingerprintIsNotChangedByMethodBodies() throws IOException {
+        String fingerprint = fingerprint(item("private int price;", "return 1;"), stats("private int str;"));
+        assertEquals(fingerprint, fingerprint(item("private int price;", "return price * 2;"), stats("private int str;")));
+        // static fields are not serialized
+        assertEquals(fingerprint, fingerprint(item("private int price; private static int created;", "return 1;"), stats("private int str;")));
+    }
+
+    private static String item(String fields, String body) {
+        return "package ru.rdude.rpg.game.data;\n"
+                + "@ru.rdude.rpg.game.utils.jsonextension.JsonPolymorphicSubType(\"item\")\n"
+                + "public class Item { " + fields + " private Stats stats; public int price() { " + body + " } }";
+    }
+
+    private static String stats(String fields) {
+        return "package ru.rdude.rpg.game.data;\n"
+                + "public class Stats { " + fields + " }";
+    }
+
+    private String fingerprint(String... sources) throws IOException {
+        File output = compile(sources);
+        return Files.readString(new File(output, PolymorphicSubTypeProcessor.FINGERPRINT_FILE).toPath()).trim();
+    }
+
+    private File compile(String... sources) throws IOException {
+        File output = folder.newFolder();
+        List<JavaFileObject> files = new ArrayList<>();
+        files.add(source(ANNOTATION_SOURCE));
+        for (String source : sources) {
+            files.add(source(source));
+        }
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            fileManager.setLocation(StandardLocation.CLASS_OUTPUT, List.of(output));
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, null, null, files);
+            task.setProcessors(List.of(new PolymorphicSubTypeProcessor()));
+            assertTrue(task.call());
+        }
+        return output;
+    }
+
+    private static JavaFileObject source(String source) {
+        String pack = source.substring("package ".length(), source.indexOf(';'));
+        String name = source.replaceAll("(?s).*public (?:class|@interface) (\\w+).*", "$1");
+        URI uri = URI.create("string:///" + pack.replace('.', '/') + "/" + name + JavaFileObject.Kind.SOURCE.extension);
+        return new SimpleJavaFileObject(uri, JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+    }
+}